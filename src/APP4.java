@@ -1,14 +1,19 @@
 import controller.*;
 import exceptions.ValidationException;
+import helpers.Geocoder;
+import helpers.LookupTableGeocoder;
 import helpers.Validation;
 import model.*;
 import repository.*;
 import service.*;
 
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -19,6 +24,9 @@ import java.util.*;
  * and delivery persons.
  */
 public class APP4 {
+    /** Number of orders one delivery person can deliver in a delivery slot */
+    private static final int ORDERS_PER_DRIVER_PER_SLOT = 4;
+
     private CustomerController customerController;
     private EmployeeController employeeController;
     private SellerController sellerController;
@@ -102,7 +110,7 @@ public class APP4 {
                     userController.viewAllTransportationTypes(transportationTypes);
                     break;
                 case 2:
-                    userController.viewAllCustomers();
+                    userController.viewCustomerPickList();
                     System.out.print("Enter Customer ID: ");
                     int customerId = scanner.nextInt();
                     scanner.nextLine();
@@ -110,7 +118,7 @@ public class APP4 {
                     userController.viewAllCustomers();
                     break;
                 case 3:
-                    userController.viewAllEmployees();
+                    userController.viewEmployeePickList();
                     System.out.print("Enter Employee ID: ");
                     int employeeId = scanner.nextInt();
                     scanner.nextLine();
@@ -118,7 +126,7 @@ public class APP4 {
                     userController.viewAllEmployees();
                     break;
                 case 4:
-                    userController.viewAllDeliveryPersons();
+                    userController.viewDeliveryPersonPickList();
 
                     System.out.print("Enter Delivery Person ID: ");
                     int deliveryPersonId = scanner.nextInt();
@@ -171,7 +179,12 @@ public class APP4 {
             System.out.println("9. View all Packages");
             System.out.println("10. Create a Delivery");
             System.out.println("11. View Packages from Order");
-            System.out.println("12. Back to Main Menu");
+            System.out.println("12. Quote Order per Transportation Type");
+            System.out.println("13. Consolidate Open Orders into Deliveries");
+            System.out.println("14. View Missed Delivery Deadlines");
+            System.out.println("15. Find Deposits with Free Capacity");
+            System.out.println("16. Choose Deposits for Recent Orders");
+            System.out.println("17. Back to Main Menu");
             System.out.print("Select an option: ");
             int choice = scanner.nextInt();
             scanner.nextLine(); // Consume newline
@@ -236,9 +249,7 @@ public class APP4 {
                         }
                     }
 
-                    System.out.print("Enter Deposit Status: ");
-                    String depositStatus = scanner.nextLine();
-                    sellerController.registerDeposit(storeId, depositAddress, depositStatus);
+                    sellerController.registerDeposit(storeId, depositAddress);
                     break;
                 case 4:
                     sellerController.viewAllDeposits();
@@ -300,6 +311,32 @@ public class APP4 {
                     sellerController.viewPackagesFromOrder(orderId);
                     break;
                 case 12:
+                    System.out.print("Enter Order ID: ");
+                    int quoteOrderId = scanner.nextInt();
+                    scanner.nextLine();
+                    sellerController.viewOrderQuotes(quoteOrderId);
+                    break;
+                case 13:
+                    System.out.print("Enter vehicle weight capacity: ");
+                    double weightCapacity = scanner.nextDouble();
+                    scanner.nextLine();
+                    sellerController.consolidateOpenOrders(weightCapacity);
+                    break;
+                case 14:
+                    sellerController.viewSlaBreaches();
+                    break;
+                case 15:
+                    System.out.print("Enter Location: ");
+                    String depositLocation = scanner.nextLine();
+                    sellerController.viewDepositsWithFreeCapacity(depositLocation);
+                    break;
+                case 16:
+                    System.out.print("Enter how many hours back to look: ");
+                    int sourcingHours = scanner.nextInt();
+                    scanner.nextLine();
+                    sellerController.sourceRecentOrders(sourcingHours);
+                    break;
+                case 17:
                     return;
                 default:
                     System.out.println("Invalid option. Please try again.");
@@ -322,7 +359,8 @@ public class APP4 {
             System.out.println("6. View Order Cost");
             System.out.println("7. Reschedule Delivery Date");
             System.out.println("8. View Orders sorted by price");
-            System.out.println("9. Back to Main Menu");
+            System.out.println("9. View Available Delivery Slots");
+            System.out.println("10. Back to Main Menu");
             System.out.print("Select an option: ");
             int choice = scanner.nextInt();
             scanner.nextLine(); // Consume newline
@@ -495,6 +533,12 @@ public class APP4 {
                     customerController.getOrdersSortedByPriceDescending(customerSortId);
                     break;
                 case 9:
+                    System.out.print("Enter Customer ID: ");
+                    Integer slotCustomerId = scanner.nextInt();
+                    scanner.nextLine(); // Consume newline
+                    customerController.viewAvailableSlots(slotCustomerId);
+                    break;
+                case 10:
                     return;
                 default:
                     System.out.println("Invalid option. Please try again.");
@@ -517,7 +561,8 @@ public class APP4 {
             System.out.println("6. View All Deliveries Sorted by DeliveryDate");
             System.out.println("7. View All Departments");
             System.out.println("8. View All Deliveries");
-            System.out.println("9. Back to Main Menu");
+            System.out.println("9. View Deliveries Due in the Next Hour");
+            System.out.println("10. Back to Main Menu");
             System.out.print("Select an option: ");
             int choice = scanner.nextInt();
             scanner.nextLine(); // Consume newline
@@ -599,6 +644,9 @@ public class APP4 {
                     employeeController.viewAllDeliveries();
                     break;
                 case 9:
+                    employeeController.viewDeliveriesDueNextHour();
+                    break;
+                case 10:
                     return;
                 default:
                     System.out.println("Invalid option. Please try again.");
@@ -619,7 +667,9 @@ public class APP4 {
             System.out.println("4. Assign Personal Vehicle");
             System.out.println("5. View my deliveries");
             System.out.println("6. View All Delivery People ");
-            System.out.println("7. Back to Main Menu");
+            System.out.println("7. Dispatch Open Deliveries");
+            System.out.println("8. View Loading Plan");
+            System.out.println("9. Back to Main Menu");
             System.out.print("Select an option: ");
             int choice = scanner.nextInt();
             scanner.nextLine(); // Consume newline
@@ -703,6 +753,15 @@ public class APP4 {
                     deliveryPersonController.viewAllDeliveryPersons();
                     break;
                 case 7:
+                    deliveryPersonController.dispatchOpenDeliveries();
+                    break;
+                case 8:
+                    System.out.print("Enter Delivery Person ID: ");
+                    int loadingDeliveryPersonId = scanner.nextInt();
+                    scanner.nextLine(); // Consume newline
+                    deliveryPersonController.viewLoadingPlan(loadingDeliveryPersonId);
+                    break;
+                case 9:
                     return;
                 default:
                     System.out.println("Invalid option. Please try again.");
@@ -743,8 +802,13 @@ public class APP4 {
             DeliveryPersonController deliveryPersonController = new DeliveryPersonController((DeliveryPersonService) selectedServices[3]);
             UserController userController = new UserController((UserService) selectedServices[4]);
 
+            // Missed delivery deadlines are checked in the background every minute
+            ((SellerService) selectedServices[2]).getSlaMonitor().start(Duration.ofMinutes(1));
+            ((CustomerService) selectedServices[0]).getNotificationOutbox().start();
+
             // Inițializarea aplicației
             new APP4(customerController, employeeController, sellerController, deliveryPersonController, userController).createUI();
+            ((SellerService) selectedServices[2]).close();
         }catch (Exception e) {
                 e.printStackTrace();
         }
@@ -802,11 +866,12 @@ public class APP4 {
         IRepository<Delivery_Person> deliveryPersonIRepository = createInMemoryDeliveryPersonRepository();
         IRepository<Personal_Vehicle> personalVehicleIRepository = createInMemoryPersonalVehicleRepository();
 
-        CustomerService customerService = new CustomerService(customerIRepository,orderIRepository,deliveryIRepository,packagesIRepository);
-        EmployeeService employeeService = new EmployeeService(employeeIRepository,deliveryIRepository,departmentIRepository);
-        SellerService sellerService = new SellerService(storeIRepository, depositIRepository, packagesIRepository,deliveryIRepository,customerIRepository,orderIRepository);
-        DeliveryPersonService deliveryPersonService = new DeliveryPersonService(deliveryIRepository,deliveryPersonIRepository, personalVehicleIRepository);
-        UserService userService = new UserService(customerIRepository, employeeIRepository, deliveryPersonIRepository,departmentIRepository);
+        CustomerService customerService = new CustomerService(customerIRepository,orderIRepository,deliveryIRepository,packagesIRepository, SlotBooking.fleetCapacity(deliveryPersonIRepository, ORDERS_PER_DRIVER_PER_SLOT), new NotificationOutbox(orderIRepository, deliveryIRepository, new LocalNotificationSender()));
+        EmployeeService employeeService = new EmployeeService(employeeIRepository,deliveryIRepository,departmentIRepository,orderIRepository);
+        Geocoder geocoder = createInMemoryGeocoder();
+        SellerService sellerService = new SellerService(storeIRepository, depositIRepository, packagesIRepository,deliveryIRepository,customerIRepository,orderIRepository, geocoder, new QuoteEngine(personalVehicleIRepository));
+        DeliveryPersonService deliveryPersonService = new DeliveryPersonService(deliveryIRepository,deliveryPersonIRepository, personalVehicleIRepository, geocoder, sellerService.getTravelCosts(), new DriverTelemetry(), orderIRepository, packagesIRepository);
+        UserService userService = new UserService(customerIRepository, employeeIRepository, deliveryPersonIRepository,departmentIRepository,deliveryIRepository);
 
         return new Object[]{customerService, employeeService, sellerService, deliveryPersonService, userService};
     }
@@ -864,11 +929,12 @@ public class APP4 {
                 Personal_Vehicle::fromCsv
         );
 
-        CustomerService customerService = new CustomerService(customerRepository,orderRepository,deliveryRepository,packagesRepository);
-        EmployeeService employeeService = new EmployeeService(employeeRepository,deliveryRepository,departmentRepository);
-        SellerService sellerService = new SellerService(storeRepository, depositRepository, packagesRepository,deliveryRepository,customerRepository,orderRepository);
-        DeliveryPersonService deliveryPersonService = new DeliveryPersonService(deliveryRepository,deliveryPersonRepository, personalVehicleRepository);
-        UserService userService = new UserService(customerRepository, employeeRepository, deliveryPersonRepository,departmentRepository);
+        CustomerService customerService = new CustomerService(customerRepository,orderRepository,deliveryRepository,packagesRepository, SlotBooking.fleetCapacity(deliveryPersonRepository, ORDERS_PER_DRIVER_PER_SLOT), new NotificationOutbox(orderRepository, deliveryRepository, new LocalNotificationSender(), Path.of("src/data/notifications.outbox")));
+        EmployeeService employeeService = new EmployeeService(employeeRepository,deliveryRepository,departmentRepository,orderRepository);
+        Geocoder geocoder = LookupTableGeocoder.fromFile("src/data/locations.txt");
+        SellerService sellerService = new SellerService(storeRepository, depositRepository, packagesRepository,deliveryRepository,customerRepository,orderRepository, geocoder, new QuoteEngine(personalVehicleRepository));
+        DeliveryPersonService deliveryPersonService = new DeliveryPersonService(deliveryRepository,deliveryPersonRepository, personalVehicleRepository, geocoder, sellerService.getTravelCosts(), new DriverTelemetry(Path.of("src/data/driver_pings.bin")), orderRepository, packagesRepository);
+        UserService userService = new UserService(customerRepository, employeeRepository, deliveryPersonRepository,departmentRepository,deliveryRepository);
 
         return new Object[]{customerService, employeeService, sellerService, deliveryPersonService, userService};
     }
@@ -914,11 +980,20 @@ public class APP4 {
             );
             DBRepository<Store> storeDBRepository = new DBRepository<>(dbUtil.getConnection(), "stores", storeRowMapper, "storeID");
 
-            RowMapper<Delivery_Person> deliveryPersonRowMapper = rs -> new Delivery_Person(
-                    rs.getInt("deliveryPersonID"),
-                    rs.getString("phone"),
-                    rs.getString("name")
-            );
+            RowMapper<Delivery_Person> deliveryPersonRowMapper = rs -> {
+                Delivery_Person deliveryPerson = new Delivery_Person(
+                        rs.getInt("deliveryPersonID"),
+                        rs.getString("phone"),
+                        rs.getString("name")
+                );
+                deliveryPerson.setVerified(rs.getBoolean("verified"));
+                deliveryPerson.setLicense(rs.getString("license"));
+                int personalVehicleId = rs.getInt("personalVehicleId");
+                if (!rs.wasNull()) {
+                    deliveryPerson.setPersonalVehicleId(personalVehicleId);
+                }
+                return deliveryPerson;
+            };
             DBRepository<Delivery_Person> deliveryPersonDBRepository = new DBRepository<>(dbUtil.getConnection(), "delivery_persons", deliveryPersonRowMapper, "deliveryPersonID");
 
             RowMapper<Deposit> depositRowMapper = rs -> new Deposit(
@@ -930,50 +1005,79 @@ public class APP4 {
             );
             DBRepository<Deposit> depositDBRepository = new DBRepository<>(dbUtil.getConnection(), "deposits", depositRowMapper, "depositID");
 
-            RowMapper<Order> orderRowMapper = rs -> new Order(
-                    rs.getInt("orderID"),
-                    rs.getInt("customerID"),
-                    rs.getTimestamp("deliveryDateTime").toLocalDateTime()
-                    //rs.getDouble("totalCost"),
-                    //rs.getString("status"),
-                    //rs.getInt("deliveryID"),
-                    //rs.getString("location")
-            );
+            RowMapper<Order> orderRowMapper = rs -> {
+                Order order = new Order(
+                        rs.getInt("orderID"),
+                        rs.getInt("customerID"),
+                        rs.getTimestamp("deliveryDateTime").toLocalDateTime()
+                );
+                Timestamp orderDate = rs.getTimestamp("orderDate");
+                if (orderDate != null) {
+                    order.setOrderDate(orderDate.toLocalDateTime());
+                }
+                int deliveryId = rs.getInt("deliveryID");
+                if (!rs.wasNull()) {
+                    order.setDeliveryId(deliveryId);
+                }
+                order.setLocation(rs.getString("location"));
+                order.setTotalCostMinor(Money.ofMajor(rs.getBigDecimal("totalCost")));
+                // Rows written before the status column held ordinals still hold labels
+                order.restoreOrderStatus(OrderStatus.fromStored(rs.getString("status")));
+                return order;
+            };
             DBRepository<Order> orderDBRepository = new DBRepository<>(dbUtil.getConnection(), "orders", orderRowMapper, "orderID");
 
-            RowMapper<Personal_Vehicle> personalVehicleRowMapper = rs -> new Personal_Vehicle(
-                    rs.getInt("personalVehicleID"),
-                    rs.getInt("extraFee"),
-                    rs.getInt("deliveryPersonID"),
-                    //rs.getInt("capacity"),
-                    Transportation_Type.valueOf(rs.getString("transportation_type"))
-            );
+            RowMapper<Personal_Vehicle> personalVehicleRowMapper = rs -> {
+                Personal_Vehicle personalVehicle = new Personal_Vehicle(
+                        rs.getInt("personalVehicleID"),
+                        0,
+                        rs.getInt("deliveryPersonID"),
+                        //rs.getInt("capacity"),
+                        Transportation_Type.valueOf(rs.getString("transportation_type"))
+                );
+                personalVehicle.setExtraFeeMinor(Money.ofMajor(rs.getBigDecimal("extraFee")));
+                return personalVehicle;
+            };
             DBRepository<Personal_Vehicle> personalVehicleDBRepository = new DBRepository<>(dbUtil.getConnection(), "personal_vehicles", personalVehicleRowMapper, "personalVehicleID");
 
-            RowMapper<Packages> packagesRowMapper = rs -> new Packages(
-                    rs.getInt("packageID"),
-                    rs.getDouble("weight"),
-                    rs.getString("dimensions"),
-                    rs.getDouble("cost")
-                    //rs.getInt("depositID")
-            );
+            RowMapper<Packages> packagesRowMapper = rs -> {
+                Packages packages = new Packages(
+                        rs.getInt("packageID"),
+                        rs.getDouble("weight"),
+                        rs.getString("dimensions"),
+                        0
+                );
+                packages.setCostMinor(Money.ofMajor(rs.getBigDecimal("cost")));
+                int depositId = rs.getInt("depositID");
+                if (!rs.wasNull()) {
+                    packages.setDepositId(depositId);
+                }
+                return packages;
+            };
             DBRepository<Packages> packagesDBRepository = new DBRepository<>(dbUtil.getConnection(), "packages", packagesRowMapper, "packageID");
 
-            RowMapper<Delivery> deliveryRowMapper = rs -> new Delivery(
-                    rs.getInt("deliveryID")
-                    //rs.getInt("deliveryPersonID"),
-                    //rs.getInt("employeeID"),
-                    //rs.getInt("transportationID"),
-                    //rs.getString("transportation_type")
-                    //rs.getString("location")
-            );
+            RowMapper<Delivery> deliveryRowMapper = rs -> {
+                Delivery delivery = new Delivery(
+                        rs.getInt("deliveryID")
+                        //rs.getInt("employeeID"),
+                        //rs.getInt("transportationID"),
+                        //rs.getString("transportation_type")
+                );
+                int deliveryPersonId = rs.getInt("deliveryPersonID");
+                if (!rs.wasNull()) {
+                    delivery.setDeliveryPeronID(deliveryPersonId);
+                }
+                delivery.setLocation(rs.getString("location"));
+                return delivery;
+            };
             DBRepository<Delivery> deliveryDBRepository = new DBRepository<>(dbUtil.getConnection(), "deliveries", deliveryRowMapper, "deliveryID");
 
-            CustomerService customerService = new CustomerService(customerDBRepository,orderDBRepository,deliveryDBRepository,packagesDBRepository);
-            EmployeeService employeeService = new EmployeeService(employeeDBRepository,deliveryDBRepository,departmentDBRepository);
-            SellerService sellerService = new SellerService(storeDBRepository,depositDBRepository, packagesDBRepository, deliveryDBRepository,customerDBRepository,orderDBRepository);
-            DeliveryPersonService deliveryPersonService = new DeliveryPersonService(deliveryDBRepository, deliveryPersonDBRepository, personalVehicleDBRepository);
-            UserService userService = new UserService(customerDBRepository, employeeDBRepository, deliveryPersonDBRepository,departmentDBRepository);
+            CustomerService customerService = new CustomerService(customerDBRepository,orderDBRepository,deliveryDBRepository,packagesDBRepository, SlotBooking.fleetCapacity(deliveryPersonDBRepository, ORDERS_PER_DRIVER_PER_SLOT), new NotificationOutbox(orderDBRepository, deliveryDBRepository, new LocalNotificationSender(), Path.of("src/data/notifications.outbox")));
+            EmployeeService employeeService = new EmployeeService(employeeDBRepository,deliveryDBRepository,departmentDBRepository,orderDBRepository);
+            Geocoder geocoder = LookupTableGeocoder.fromFile("src/data/locations.txt");
+            SellerService sellerService = new SellerService(storeDBRepository,depositDBRepository, packagesDBRepository, deliveryDBRepository,customerDBRepository,orderDBRepository, geocoder, new QuoteEngine(personalVehicleDBRepository));
+            DeliveryPersonService deliveryPersonService = new DeliveryPersonService(deliveryDBRepository, deliveryPersonDBRepository, personalVehicleDBRepository, geocoder, sellerService.getTravelCosts(), new DriverTelemetry(Path.of("src/data/driver_pings.bin")), orderDBRepository, packagesDBRepository);
+            UserService userService = new UserService(customerDBRepository, employeeDBRepository, deliveryPersonDBRepository,departmentDBRepository,deliveryDBRepository);
 
             return new Object[]{customerService, employeeService, sellerService, deliveryPersonService, userService};
 
@@ -1075,6 +1179,18 @@ public class APP4 {
         return personalVehicleIRepository;
     }
 
+    private static Geocoder createInMemoryGeocoder() {
+        LookupTableGeocoder geocoder = new LookupTableGeocoder();
+        geocoder.put("Cluj", new GeoPoint(46.7712, 23.6236));
+        geocoder.put("Cluj-Napoca", new GeoPoint(46.7712, 23.6236));
+        geocoder.put("Zalau", new GeoPoint(47.1911, 23.0572));
+        geocoder.put("Sibiu", new GeoPoint(45.7983, 24.1256));
+        geocoder.put("Str. Ploiesti", new GeoPoint(46.7681, 23.5795));
+        geocoder.put("Str. Constanta", new GeoPoint(46.7772, 23.6032));
+        geocoder.put("Str. Fabricii", new GeoPoint(46.7695, 23.6310));
+        return geocoder;
+    }
+
     private static IRepository<Store> createInMemoryStoreRepository() {
         IRepository<Store> storeIRepository = new InMemoryRepo<>();
         storeIRepository.create(new Store(1, "Auchan", "Str. Posada", "Alexandru"));
@@ -746,7 +746,10 @@ public class Controller {
             String[] statuses = {"processing", "to be shipped", "in hub", "in transit"};
             Random random = new Random();
             String status = statuses[random.nextInt(statuses.length)];
-            order.setStatus(status);
+            // An order only moves forward, so one that is already further keeps its status
+            if (order.getOrderStatus().canMoveTo(OrderStatus.fromLabel(status))) {
+                order.setStatus(status);
+            }
         }
         Integer deliveryId = service.getNewDeliveryId();
         service.createDelivery(deliveryId, orders, location);
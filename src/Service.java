@@ -1,5 +1,6 @@
 import model.*;
 import repository.IRepository;
+import service.DepositInventory;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -15,7 +16,7 @@ public class Service {
      * Maximum limit for deposits
      */
     private List<Person> persons = new ArrayList<>();
-    protected static final int depozitLimit = 1000;
+    protected static final int depozitLimit = DepositInventory.DEPOSIT_LIMIT;
 
     /**
      * Constructs a new org.example.Service with all required repositories
@@ -344,12 +345,12 @@ public class Service {
      */
     public double calculateAndUpdateOrderCost(Integer orderId) {
         Order order = orderIRepository.get(orderId);
-        double totalCost = order.getPackages().stream()
-                .mapToDouble(Packages::getCost)
+        long totalCost = order.getPackages().stream()
+                .mapToLong(Packages::getCostMinor)
                 .sum();
-        order.setCost(totalCost);
+        order.setTotalCostMinor(totalCost);
         orderIRepository.update(order);
-        return totalCost;
+        return Money.toMajor(totalCost);
     }
     /**
      * Verifies if a delivery person's license is valid
@@ -383,7 +384,7 @@ public class Service {
 
         return allDeliveries.stream()
                 .filter(delivery -> delivery.getOrders().stream()
-                        .anyMatch(order -> "to be shipped".equalsIgnoreCase(order.getStatus())))
+                        .anyMatch(order -> order.getOrderStatus() == OrderStatus.TO_BE_SHIPPED))
                 .collect(Collectors.toList());
     }
 
@@ -399,8 +400,10 @@ public class Service {
     public List<Order> filterDeliveriesByLocation(String location) {
         List<Order> allOrders = orderIRepository.readAll();
         List<Order> filteredOrders = new ArrayList<>();
+        int wanted = location == null ? StringDictionary.ABSENT : StringDictionary.SHARED.lookupIgnoreCase(location);
+        if (wanted == StringDictionary.ABSENT) return filteredOrders;
         for (Order order : allOrders) {
-            if (location != null && location.equalsIgnoreCase(order.getLocation())) {
+            if (StringDictionary.SHARED.foldedCode(order.getLocationCode()) == wanted) {
                 filteredOrders.add(order);
             }
         }
@@ -432,7 +435,7 @@ public class Service {
      */
     public List<Order> getOrdersSortedByPriceDescending(List<Order> orders) {
         return orders.stream()
-                .sorted(Comparator.comparingDouble(Order::getCost).reversed())
+                .sorted(Comparator.comparingLong(Order::getTotalCostMinor).reversed())
                 .collect(Collectors.toList());
     }
 
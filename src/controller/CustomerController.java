@@ -56,7 +56,7 @@ public class CustomerController {
         try {
             customerService.placeOrder(customerId, orderId, deliveryDateTime, packageIds);
             System.out.println("Order with id " + orderId + " by customer with id " + customerId + " successfully");
-        }catch (EntityNotFound e){
+        }catch (EntityNotFound | BusinessLogicException e){
             System.out.println(e.getMessage());
         }
     }
@@ -118,6 +118,22 @@ public class CustomerController {
         try {
             customerService.scheduleDelivery(orderID, deliveryDateTime);
             System.out.println("Scheduled Delivery date for Order with id " + orderID + " successfully");
+        }catch (EntityNotFound | BusinessLogicException e){
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Displays the delivery slots with room left at the address of a customer.
+     *
+     * @param customerId the ID of the customer
+     */
+    public void viewAvailableSlots(Integer customerId) {
+        try {
+            StringBuilder output = new StringBuilder("Available Delivery Slots:\n");
+            customerService.getAvailableSlots(customerId, LocalDateTime.now()).forEach(slot ->
+                    output.append(slot.start()).append(" (").append(slot.remaining()).append(" left)\n"));
+            System.out.println(output);
         }catch (EntityNotFound e){
             System.out.println(e.getMessage());
         }
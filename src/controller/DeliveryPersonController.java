@@ -7,9 +7,10 @@ import model.Delivery;
 import model.Delivery_Person;
 import model.Personal_Vehicle;
 import service.DeliveryPersonService;
+import service.LoadingPlanner;
 
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 
 public class DeliveryPersonController {
     private final DeliveryPersonService deliveryPersonService;
@@ -83,6 +84,41 @@ public class DeliveryPersonController {
         }
     }
 
+    /**
+     * Assigns all open deliveries to delivery persons and displays the assignments.
+     */
+    public void dispatchOpenDeliveries() {
+        Map<Integer, Integer> assignments = deliveryPersonService.dispatchOpenDeliveries();
+        StringBuilder output = new StringBuilder("Dispatched Deliveries:\n");
+        if (assignments.isEmpty()) {
+            output.append("No open deliveries could be assigned.\n");
+        } else {
+            assignments.forEach((deliveryId, deliveryPersonId) -> output.append("Delivery ").append(deliveryId)
+                    .append(" -> Delivery Person ").append(deliveryPersonId).append("\n"));
+        }
+        System.out.println(output);
+    }
+
+    /**
+     * Displays how the packages of a delivery person's deliveries are loaded into their vehicle.
+     *
+     * @param deliveryPersonId ID of the delivery person
+     */
+    public void viewLoadingPlan(Integer deliveryPersonId) {
+        try {
+            LoadingPlanner.Plan plan = deliveryPersonService.planLoading(deliveryPersonId);
+            StringBuilder output = new StringBuilder("Loading Plan:\n");
+            plan.trips().forEach(trip -> trip.forEach(packages -> output.append(packages.toString()).append("\n")));
+            if (!plan.fits()) {
+                output.append("Packages that do not fit in the vehicle:\n");
+                plan.overflow().forEach(packages -> output.append(packages.toString()).append("\n"));
+            }
+            System.out.println(output);
+        } catch (EntityNotFound | BusinessLogicException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
     /**
      * Validates whether a selected Delivery exists based on its unique identifier.
      *
@@ -90,7 +126,7 @@ public class DeliveryPersonController {
      * @return true if it exists; false otherwise
      */
     public boolean validateSelectedDelivery(Integer deliveryID) {
-        return deliveryPersonService.getDelivery().stream().anyMatch(delivery -> Objects.equals(delivery.getDeliveryID(), deliveryID));
+        return deliveryPersonService.deliveryExists(deliveryID);
     }
 
     /**
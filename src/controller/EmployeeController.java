@@ -7,6 +7,7 @@ import model.Department;
 import model.Employee;
 import service.EmployeeService;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Objects;
 
@@ -82,7 +83,7 @@ public class EmployeeController {
      * @return true if it exists; false otherwise
      */
     public boolean validateSelectedDelivery(Integer deliveryID) {
-        return employeeService.getDelivery().stream().anyMatch(delivery -> Objects.equals(delivery.getDeliveryID(), deliveryID));
+        return employeeService.deliveryExists(deliveryID);
     }
 
     /**
@@ -159,6 +160,22 @@ public class EmployeeController {
         System.out.println(output);
     }
 
+    /**
+     * Displays the deliveries whose earliest order is due within the next hour.
+     */
+    public void viewDeliveriesDueNextHour() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Delivery> deliveryList = employeeService.getDeliveriesDueBetween(now, now.plusHours(1));
+        StringBuilder output = new StringBuilder("Deliveries due in the next hour:\n");
+        if (deliveryList.isEmpty()) {
+            output.append("No deliveries are due in the next hour.\n");
+        } else {
+            deliveryList.forEach(delivery -> output.append(delivery.toString()).append("\n"));
+        }
+
+        System.out.println(output);
+    }
+
     /**
      * Displays all available departments.
      */
@@ -4,8 +4,11 @@ import exceptions.BusinessLogicException;
 import exceptions.EntityNotFound;
 import exceptions.ValidationException;
 import model.*;
+import service.QuoteEngine;
 import service.SellerService;
+import service.SourcingEngine;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
 import java.util.Random;
@@ -46,15 +49,14 @@ public class SellerController {
      *
      * @param storeId        the ID of the store receiving the deposit
      * @param depositAddress the address associated with the deposit
-     * @param depositStatus  the status of the deposit
      */
-    public void registerDeposit(Integer storeId, String depositAddress, String depositStatus) {
-        if (depositAddress.isEmpty() || depositStatus.isEmpty()){
+    public void registerDeposit(Integer storeId, String depositAddress) {
+        if (depositAddress.isEmpty()){
             throw new ValidationException("One or more required fields is missing");
         }
         try {
             Integer depositId = sellerService.getNewDepositId();
-            sellerService.registerDeposit(depositId, storeId, depositAddress, depositStatus);
+            sellerService.registerDeposit(depositId, storeId, depositAddress);
             System.out.println("Registered deposit " + depositId + " to store " + storeId);
         }catch (EntityNotFound e){
             System.out.println(e.getMessage());
@@ -146,7 +148,10 @@ public class SellerController {
             String[] statuses = {"processing", "to be shipped", "in hub", "in transit"};
             Random random = new Random();
             String status = statuses[random.nextInt(statuses.length)];
-            order.setStatus(status);
+            // An order only moves forward, so one that is already further keeps its status
+            if (order.getOrderStatus().canMoveTo(OrderStatus.fromLabel(status))) {
+                order.setStatus(status);
+            }
         }
         Integer deliveryId = sellerService.getNewDeliveryId();
         sellerService.createDelivery(deliveryId, orders, location);
@@ -168,4 +173,86 @@ public class SellerController {
         }
     }
 
+    /**
+     * Displays the price and estimated arrival of an order for every transportation type.
+     *
+     * @param orderId The ID of the order
+     */
+    public void viewOrderQuotes(Integer orderId) {
+        try {
+            StringBuilder output = new StringBuilder("Quotes for Order ID " + orderId + ":\n");
+            for (QuoteEngine.Quote quote : sellerService.quoteOrders(List.of(orderId)).get(orderId)) {
+                output.append(quote.type()).append(": ");
+                if (quote.isAvailable()) {
+                    output.append(String.format("%.2f, arrives in %.1f hours", quote.price(), quote.etaHours()));
+                } else {
+                    output.append("too large");
+                }
+                output.append("\n");
+            }
+            System.out.println(output);
+        } catch (EntityNotFound e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Groups all orders without a delivery into new deliveries for ground vehicles of the given capacity.
+     *
+     * @param weightCapacity The total package weight one delivery can carry
+     */
+    public void consolidateOpenOrders(double weightCapacity) {
+        List<Delivery> deliveries = sellerService.consolidateOpenOrders(weightCapacity, Transportation_Type.Ground);
+        StringBuilder output = new StringBuilder("Created " + deliveries.size() + " deliveries:\n");
+        deliveries.forEach(delivery -> output.append(delivery.toString()).append("\n"));
+        System.out.println(output);
+    }
+
+    /**
+     * Displays the orders and deliveries that are past their delivery date and time without being delivered.
+     */
+    public void viewSlaBreaches() {
+        StringBuilder output = new StringBuilder("Missed Delivery Deadlines:\n");
+        sellerService.getSlaBreaches().forEach(breach -> output.append(breach.kind()).append(" ").append(breach.id())
+                .append(" was due ").append(breach.deadline()).append("\n"));
+        System.out.println(output);
+    }
+
+    /**
+     * Displays the deposits nearest to a location that can still take packages.
+     *
+     * @param location the location to search from
+     */
+    public void viewDepositsWithFreeCapacity(String location) {
+        try {
+            StringBuilder output = new StringBuilder("Deposits with Free Capacity near " + location + ":\n");
+            sellerService.findDepositsWithFreeCapacity(location, 1, 5).forEach(deposit -> output.append(deposit.toString())
+                    .append(", free places: ").append(sellerService.getDepositFreeCapacity(deposit.getId()))
+                    .append(String.format(", stored weight: %.2f", sellerService.getDepositWeight(deposit.getId()))).append("\n"));
+            System.out.println(output);
+        } catch (EntityNotFound e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Chooses the deposits shipping the packages of the orders placed in the last hours.
+     *
+     * @param hours how many hours back to look for placed orders
+     */
+    public void sourceRecentOrders(int hours) {
+        SourcingEngine.Result result;
+        try {
+            result = sellerService.sourceRecentOrders(Duration.ofHours(hours));
+        } catch (BusinessLogicException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        StringBuilder output = new StringBuilder("Sourced " + result.assignments().size() + " packages, "
+                + result.splitOrders() + " orders split across deposits:\n");
+        result.assignments().forEach((packageId, depositId) -> output.append("Package ").append(packageId)
+                .append(" ships from deposit ").append(depositId).append("\n"));
+        if (!result.unsourced().isEmpty()) output.append("No deposit can take packages ").append(result.unsourced()).append("\n");
+        System.out.println(output);
+    }
 }
@@ -62,6 +62,15 @@ public class UserController {
         System.out.println(output);
     }
 
+    /**
+     * Displays the ID and name of every customer, for choosing one by ID.
+     */
+    public void viewCustomerPickList() {
+        StringBuilder output = new StringBuilder("Available Customers:\n");
+        userService.getCustomerPickList().forEach(customer -> output.append(customer).append("\n"));
+        System.out.println(output);
+    }
+
     /**
      * Displays all employees and their details in a formatted manner.
      */
@@ -71,6 +80,15 @@ public class UserController {
         System.out.println(output);
     }
 
+    /**
+     * Displays the ID and name of every employee, for choosing one by ID.
+     */
+    public void viewEmployeePickList() {
+        StringBuilder output = new StringBuilder("All Employees:\n");
+        userService.getEmployeePickList().forEach(employee -> output.append(employee).append("\n"));
+        System.out.println(output);
+    }
+
     /**
      * Deletes an employee by their ID.
      *
@@ -96,6 +114,15 @@ public class UserController {
         System.out.println(output);
     }
 
+    /**
+     * Displays the ID and name of every delivery person, for choosing one by ID.
+     */
+    public void viewDeliveryPersonPickList() {
+        StringBuilder output = new StringBuilder("All Delivery Persons:\n");
+        userService.getDeliveryPersonPickList().forEach(deliveryPerson -> output.append(deliveryPerson).append("\n"));
+        System.out.println(output);
+    }
+
     /**
      * Deletes a delivery person by their ID.
      *
@@ -0,0 +1,150 @@
+package helpers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A calendar queue: keys are stored in fixed-width time buckets, so adding, moving and removing
+ * a key is O(1) and reading a time window only touches the buckets of that window.
+ * Times are in epoch milliseconds.
+ *
+ * @param <K> The type of the keys, e.g. entity IDs.
+ */
+public class CalendarQueue<K> {
+    private final long bucketWidth;
+    private final Map<Long, Set<K>> buckets = new HashMap<>();
+    private final Map<K, Long> times = new HashMap<>();
+
+    /** Index of the first bucket that has not been drained yet */
+    private long cursor = Long.MIN_VALUE;
+
+    /**
+     * @param bucketWidth The width of one bucket in milliseconds.
+     */
+    public CalendarQueue(long bucketWidth) {
+        if (bucketWidth <= 0) throw new IllegalArgumentException("Bucket width must be positive");
+        this.bucketWidth = bucketWidth;
+    }
+
+    /**
+     * Adds a key at the given time, moving it if it is already queued.
+     *
+     * @param key  The key to add.
+     * @param time The time of the key.
+     */
+    public synchronized void add(K key, long time) {
+        remove(key);
+        times.put(key, time);
+        // A key in an already drained bucket goes to the current one, so the next drain still finds it
+        long bucket = Math.max(bucketOf(time), cursor);
+        buckets.computeIfAbsent(bucket, b -> new HashSet<>()).add(key);
+    }
+
+    /**
+     * Removes a key from the queue.
+     *
+     * @param key The key to remove.
+     * @return true if the key was queued.
+     */
+    public synchronized boolean remove(K key) {
+        Long time = times.remove(key);
+        if (time == null) return false;
+
+        long bucket = Math.max(bucketOf(time), cursor);
+        Set<K> keys = buckets.get(bucket);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) buckets.remove(bucket);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the keys with a time in [from, to), ordered by time, without removing them.
+     *
+     * @param from The start of the window, inclusive.
+     * @param to   The end of the window, exclusive.
+     * @return The keys of the window.
+     */
+    public synchronized List<K> window(long from, long to) {
+        List<K> result = new ArrayList<>();
+        long first = bucketOf(from);
+        long last = bucketOf(to - 1);
+        if (first <= cursor) {
+            // Keys of drained buckets were moved to the current bucket
+            first = cursor;
+            last = Math.max(last, cursor);
+        }
+        for (Long bucket : bucketsBetween(first, last)) {
+            for (K key : buckets.get(bucket)) {
+                long time = times.get(key);
+                if (time >= from && time < to) result.add(key);
+            }
+        }
+        result.sort(Comparator.comparingLong(times::get));
+        return result;
+    }
+
+    /**
+     * Removes and returns every key with a time before {@code to}, ordered by time.
+     * Only the buckets between the previous drain and {@code to} are visited.
+     *
+     * @param to The end of the window, exclusive.
+     * @return The drained keys.
+     */
+    public synchronized List<K> drainUntil(long to) {
+        long last = bucketOf(to - 1);
+        Map<K, Long> drained = new HashMap<>();
+        for (Long bucket : bucketsBetween(cursor, last)) {
+            Set<K> keys = buckets.get(bucket);
+            keys.removeIf(key -> {
+                long time = times.get(key);
+                if (time >= to) return false;
+                drained.put(key, time);
+                times.remove(key);
+                return true;
+            });
+            if (keys.isEmpty()) buckets.remove(bucket);
+        }
+        // Keys of the last bucket at or after 'to' stay there; it becomes the current bucket
+        cursor = Math.max(cursor, last);
+
+        List<K> result = new ArrayList<>(drained.keySet());
+        result.sort(Comparator.comparingLong(drained::get));
+        return result;
+    }
+
+    /**
+     * @return The number of queued keys.
+     */
+    public synchronized int size() {
+        return times.size();
+    }
+
+    private long bucketOf(long time) {
+        return Math.floorDiv(time, bucketWidth);
+    }
+
+    /**
+     * Returns the non-empty buckets in [first, last], walking the range or the bucket map, whichever is smaller.
+     */
+    private List<Long> bucketsBetween(long first, long last) {
+        List<Long> result = new ArrayList<>();
+        if (last < first) return result;
+        if (first != Long.MIN_VALUE && last - first < buckets.size()) {
+            for (long bucket = first; bucket <= last; bucket++) {
+                if (buckets.containsKey(bucket)) result.add(bucket);
+            }
+        } else {
+            for (Long bucket : buckets.keySet()) {
+                if (bucket >= first && bucket <= last) result.add(bucket);
+            }
+        }
+        return result;
+    }
+}
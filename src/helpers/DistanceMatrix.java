@@ -0,0 +1,259 @@
+package helpers;
+
+import model.GeoPoint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * Pairwise travel costs between location nodes, stored as a square matrix of floats in a
+ * memory-mapped file so a repeated lookup is a single read at a computed offset.
+ * Cells are filled on demand: adding a node costs nothing, and the first lookup of a pair computes
+ * and stores its cost. Moving or removing a node clears only its row and column; the file grows by
+ * doubling its node capacity, moving the rows in place. A float matrix in one mapping holds at most
+ * {@value #MAX_CAPACITY} nodes; {@link #put} reports when a node no longer fits.
+ *
+ * <p>A cell holding positive zero has not been computed yet; a computed cost of zero is stored as
+ * negative zero, which reads back as the same value.</p>
+ *
+ * @param <K> The type of the node keys.
+ */
+public class DistanceMatrix<K> implements AutoCloseable {
+    private static final int INITIAL_CAPACITY = 64;
+    /** The largest capacity whose square number of floats fits in one mapping */
+    public static final int MAX_CAPACITY = 23170;
+
+    private final Path file;
+    private final ToDoubleBiFunction<GeoPoint, GeoPoint> cost;
+    private final int maxCapacity;
+    private final Map<K, Integer> indexes = new HashMap<>();
+    private final List<GeoPoint> points = new ArrayList<>();
+    private final Deque<Integer> freeIndexes = new ArrayDeque<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer matrix;
+    private int capacity;
+    private boolean deleteOnClose;
+
+    /**
+     * @param file The file backing the matrix; it is overwritten.
+     * @param cost The travel cost between two points.
+     */
+    public DistanceMatrix(Path file, ToDoubleBiFunction<GeoPoint, GeoPoint> cost) {
+        this(file, cost, MAX_CAPACITY);
+    }
+
+    /**
+     * @param file        The file backing the matrix; it is overwritten.
+     * @param cost        The travel cost between two points.
+     * @param maxCapacity The most nodes the matrix takes, at most {@value #MAX_CAPACITY}.
+     */
+    public DistanceMatrix(Path file, ToDoubleBiFunction<GeoPoint, GeoPoint> cost, int maxCapacity) {
+        this.file = file;
+        this.cost = cost;
+        this.maxCapacity = Math.min(maxCapacity, MAX_CAPACITY);
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        map(Math.min(INITIAL_CAPACITY, this.maxCapacity));
+    }
+
+    /**
+     * Creates a matrix backed by a temporary file that is deleted when the matrix is closed,
+     * or at the latest when the application exits.
+     *
+     * @param cost The travel cost between two points.
+     * @return The matrix.
+     */
+    public static <K> DistanceMatrix<K> temporary(ToDoubleBiFunction<GeoPoint, GeoPoint> cost) {
+        try {
+            Path file = Files.createTempFile("distance-matrix", ".bin");
+            file.toFile().deleteOnExit();
+            DistanceMatrix<K> matrix = new DistanceMatrix<>(file, cost);
+            matrix.deleteOnClose = true;
+            return matrix;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Adds a node, or moves it if it is already known. Its costs are computed when they are first looked up.
+     *
+     * @param key   The node.
+     * @param point The position of the node.
+     * @return true if the node is in the matrix, false if the matrix is full and the node was not added.
+     */
+    public synchronized boolean put(K key, GeoPoint point) {
+        return indexOf(key, point) >= 0;
+    }
+
+    /**
+     * Adds or moves several nodes.
+     *
+     * @param nodes The positions of the nodes.
+     * @return The nodes that did not fit in the matrix.
+     */
+    public synchronized List<K> putAll(Map<K, GeoPoint> nodes) {
+        List<K> rejected = new ArrayList<>();
+        nodes.forEach((key, point) -> {
+            if (indexOf(key, point) < 0) rejected.add(key);
+        });
+        return rejected;
+    }
+
+    /**
+     * Removes a node; its slot is cleared and reused by the next added node.
+     *
+     * @param key The node.
+     */
+    public synchronized void remove(K key) {
+        Integer index = indexes.remove(key);
+        if (index == null) return;
+        points.set(index, null);
+        clear(index);
+        freeIndexes.push(index);
+    }
+
+    /**
+     * @return The position of the node, or null if it is not in the matrix.
+     */
+    public synchronized GeoPoint getPoint(K key) {
+        Integer index = indexes.get(key);
+        return index == null ? null : points.get(index);
+    }
+
+    /**
+     * @return true if the node is in the matrix.
+     */
+    public synchronized boolean contains(K key) {
+        return indexes.containsKey(key);
+    }
+
+    /**
+     * @return The number of nodes.
+     */
+    public synchronized int size() {
+        return indexes.size();
+    }
+
+    /**
+     * Looks up the travel cost between two nodes, computing and storing it on the first lookup.
+     *
+     * @param from The start node.
+     * @param to   The end node.
+     * @return The travel cost, or NaN if either node is unknown.
+     */
+    public synchronized double get(K from, K to) {
+        Integer row = indexes.get(from);
+        Integer column = indexes.get(to);
+        if (row == null || column == null) return Double.NaN;
+        int offset = offset(row, column, capacity);
+        float stored = matrix.getFloat(offset);
+        if (Float.floatToRawIntBits(stored) != 0) return stored;
+
+        float computed = row.equals(column) ? 0 : (float) cost.applyAsDouble(points.get(row), points.get(column));
+        matrix.putFloat(offset, computed == 0 ? -0.0f : computed);
+        return computed;
+    }
+
+    /**
+     * Releases the mapping; the file of a temporary matrix is deleted.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+            matrix = null;
+            if (deleteOnClose) Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The file backing the matrix.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return The index of the node, or -1 if it is new and the matrix is full.
+     */
+    private int indexOf(K key, GeoPoint point) {
+        Integer index = indexes.get(key);
+        if (index == null) {
+            if (freeIndexes.isEmpty()) {
+                if (points.size() >= capacity) {
+                    if (capacity >= maxCapacity) return -1;
+                    map(Math.min(capacity * 2, maxCapacity));
+                }
+                index = points.size();
+                points.add(null);
+            } else {
+                index = freeIndexes.pop();
+            }
+            indexes.put(key, index);
+        } else if (!point.equals(points.get(index))) {
+            clear(index);
+        }
+        points.set(index, point);
+        return index;
+    }
+
+    /**
+     * Marks the row and the column of a node as not computed.
+     */
+    private void clear(int index) {
+        for (int other = 0; other < points.size(); other++) {
+            matrix.putFloat(offset(index, other, capacity), 0);
+            matrix.putFloat(offset(other, index, capacity), 0);
+        }
+    }
+
+    /**
+     * Maps the file for a new node capacity and moves the rows of the previous layout to their new offsets.
+     * Rows only move towards the end of the file, so they are moved from the last one, one row at a time.
+     */
+    private void map(int newCapacity) {
+        try {
+            int previousCapacity = capacity;
+            long newSize = (long) newCapacity * newCapacity * Float.BYTES;
+            matrix = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+            if (previousCapacity > 0) {
+                byte[] row = new byte[previousCapacity * Float.BYTES];
+                byte[] zeros = new byte[(newCapacity - previousCapacity) * Float.BYTES];
+                for (int r = previousCapacity - 1; r > 0; r--) {
+                    matrix.get(offset(r, 0, previousCapacity), row);
+                    matrix.put(offset(r, 0, newCapacity), row);
+                    // The tail of the new row may hold bytes of an old row
+                    matrix.put(offset(r, previousCapacity, newCapacity), zeros);
+                }
+                matrix.put(offset(0, previousCapacity, newCapacity), zeros);
+            }
+            capacity = newCapacity;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int offset(int row, int column, int capacity) {
+        return (row * capacity + column) * Float.BYTES;
+    }
+}
@@ -0,0 +1,14 @@
+package helpers;
+
+import model.GeoPoint;
+
+/**
+ * Resolves the free-text locations and addresses of the entities to coordinates.
+ */
+public interface Geocoder {
+    /**
+     * @param location The location or address text.
+     * @return The coordinates of the location, or null if it cannot be resolved.
+     */
+    GeoPoint geocode(String location);
+}
@@ -0,0 +1,188 @@
+package helpers;
+
+import model.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * A spatial index over a uniform latitude/longitude grid. Points are kept in the cell that
+ * contains them, so k-nearest and radius queries only look at the cells around the query point
+ * instead of every indexed point.
+ *
+ * @param <K> The type of the keys, e.g. entity IDs.
+ */
+public class GridIndex<K> {
+    private static final double KM_PER_DEGREE = Math.toRadians(GeoPoint.EARTH_RADIUS_KM);
+
+    private final double cellDegrees;
+    private final Map<Long, Map<K, GeoPoint>> cells = new HashMap<>();
+    private final Map<K, GeoPoint> points = new HashMap<>();
+
+    /**
+     * @param cellDegrees The side of one grid cell, in degrees.
+     */
+    public GridIndex(double cellDegrees) {
+        if (cellDegrees <= 0) throw new IllegalArgumentException("Cell size must be positive");
+        this.cellDegrees = cellDegrees;
+    }
+
+    /**
+     * Adds a key at a point, moving it if it is already indexed.
+     */
+    public synchronized void put(K key, GeoPoint point) {
+        remove(key);
+        points.put(key, point);
+        cells.computeIfAbsent(cellOf(point), c -> new HashMap<>()).put(key, point);
+    }
+
+    /**
+     * Removes a key from the index.
+     */
+    public synchronized void remove(K key) {
+        GeoPoint point = points.remove(key);
+        if (point == null) return;
+
+        long cell = cellOf(point);
+        Map<K, GeoPoint> keys = cells.get(cell);
+        keys.remove(key);
+        if (keys.isEmpty()) cells.remove(cell);
+    }
+
+    /**
+     * @return The indexed point of a key, or null.
+     */
+    public synchronized GeoPoint get(K key) {
+        return points.get(key);
+    }
+
+    /**
+     * @return The number of indexed keys.
+     */
+    public synchronized int size() {
+        return points.size();
+    }
+
+    /**
+     * Finds the keys closest to a point, searching rings of cells outwards until no closer key can exist.
+     *
+     * @param point  The query point.
+     * @param k      The maximum number of keys to return.
+     * @param filter Only keys accepted by the filter are returned.
+     * @return At most {@code k} keys, nearest first.
+     */
+    public synchronized List<K> nearest(GeoPoint point, int k, Predicate<K> filter) {
+        if (k <= 0 || points.isEmpty()) return new ArrayList<>();
+
+        // Max-heap of the best candidates so far
+        PriorityQueue<Map.Entry<K, Double>> best = new PriorityQueue<>(
+                Comparator.comparingDouble((Map.Entry<K, Double> e) -> e.getValue()).reversed());
+        int row = row(point.latitude());
+        int column = column(point.longitude());
+        int seen = 0;
+        for (int ring = 0; seen < points.size(); ring++) {
+            // Every key outside the searched rings is at least this far away
+            if (best.size() == k && best.peek().getValue() <= ringDistanceKm(point, ring)) break;
+
+            for (Map<K, GeoPoint> cell : ringCells(row, column, ring)) {
+                seen += cell.size();
+                for (Map.Entry<K, GeoPoint> entry : cell.entrySet()) {
+                    if (!filter.test(entry.getKey())) continue;
+                    double distance = point.distanceKm(entry.getValue());
+                    if (best.size() < k) {
+                        best.add(Map.entry(entry.getKey(), distance));
+                    } else if (distance < best.peek().getValue()) {
+                        best.poll();
+                        best.add(Map.entry(entry.getKey(), distance));
+                    }
+                }
+            }
+        }
+
+        List<Map.Entry<K, Double>> sorted = new ArrayList<>(best);
+        sorted.sort(Map.Entry.comparingByValue());
+        List<K> result = new ArrayList<>(sorted.size());
+        for (Map.Entry<K, Double> entry : sorted) {
+            result.add(entry.getKey());
+        }
+        return result;
+    }
+
+    /**
+     * Finds the keys within a distance of a point.
+     *
+     * @param point    The query point.
+     * @param radiusKm The radius in kilometres.
+     * @return The keys within the radius, nearest first.
+     */
+    public synchronized List<K> withinRadius(GeoPoint point, double radiusKm) {
+        List<Map.Entry<K, Double>> found = new ArrayList<>();
+        int row = row(point.latitude());
+        int column = column(point.longitude());
+        int seen = 0;
+        for (int ring = 0; seen < points.size() && ringDistanceKm(point, ring) <= radiusKm; ring++) {
+            for (Map<K, GeoPoint> cell : ringCells(row, column, ring)) {
+                seen += cell.size();
+                for (Map.Entry<K, GeoPoint> entry : cell.entrySet()) {
+                    double distance = point.distanceKm(entry.getValue());
+                    if (distance <= radiusKm) found.add(Map.entry(entry.getKey(), distance));
+                }
+            }
+        }
+
+        found.sort(Map.Entry.comparingByValue());
+        List<K> result = new ArrayList<>(found.size());
+        for (Map.Entry<K, Double> entry : found) {
+            result.add(entry.getKey());
+        }
+        return result;
+    }
+
+    /**
+     * A lower bound of the distance from the point to any cell outside the first {@code ring} rings.
+     * A degree of longitude is shorter than a degree of latitude, so the bound uses the longitude span
+     * at the highest latitude the rings reach.
+     */
+    private double ringDistanceKm(GeoPoint point, int ring) {
+        if (ring == 0) return 0;
+        double inner = (ring - 1) * cellDegrees;
+        double latitudeSpan = Math.min(Math.abs(point.latitude()) + ring * cellDegrees, 90);
+        return inner * KM_PER_DEGREE * Math.cos(Math.toRadians(latitudeSpan));
+    }
+
+    /**
+     * The non-empty cells on the border of the square of {@code ring} cells around a cell.
+     */
+    private List<Map<K, GeoPoint>> ringCells(int row, int column, int ring) {
+        List<Map<K, GeoPoint>> result = new ArrayList<>();
+        for (int r = row - ring; r <= row + ring; r++) {
+            for (int c = column - ring; c <= column + ring; c++) {
+                if (Math.abs(r - row) != ring && Math.abs(c - column) != ring) continue;
+                Map<K, GeoPoint> cell = cells.get(key(r, c));
+                if (cell != null) result.add(cell);
+            }
+        }
+        return result;
+    }
+
+    private long cellOf(GeoPoint point) {
+        return key(row(point.latitude()), column(point.longitude()));
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor(longitude / cellDegrees);
+    }
+
+    private static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+}
@@ -0,0 +1,83 @@
+package helpers;
+
+import model.GeoPoint;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An offline geocoder backed by a local table of known locations.
+ * Lookups ignore case and surrounding whitespace.
+ */
+public class LookupTableGeocoder implements Geocoder {
+    private final Map<String, GeoPoint> table = new HashMap<>();
+
+    /**
+     * Creates an empty table; locations are added with {@link #put(String, GeoPoint)}.
+     */
+    public LookupTableGeocoder() {
+    }
+
+    /**
+     * Creates a geocoder with the given locations.
+     *
+     * @param locations The coordinates of every known location.
+     */
+    public LookupTableGeocoder(Map<String, GeoPoint> locations) {
+        locations.forEach(this::put);
+    }
+
+    /**
+     * Loads a table from a file with one {@code location,latitude,longitude} line per location.
+     * A missing file gives an empty table.
+     *
+     * @param filePath The path of the table file.
+     * @return The geocoder.
+     */
+    public static LookupTableGeocoder fromFile(String filePath) {
+        LookupTableGeocoder geocoder = new LookupTableGeocoder();
+        File file = new File(filePath);
+        if (!file.exists()) return geocoder;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // The location itself may contain commas, the coordinates are the last two fields
+                int lonSeparator = line.lastIndexOf(',');
+                int latSeparator = lonSeparator < 0 ? -1 : line.lastIndexOf(',', lonSeparator - 1);
+                if (latSeparator < 0) continue;
+
+                geocoder.put(line.substring(0, latSeparator), new GeoPoint(
+                        Double.parseDouble(line.substring(latSeparator + 1, lonSeparator).trim()),
+                        Double.parseDouble(line.substring(lonSeparator + 1).trim())));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return geocoder;
+    }
+
+    /**
+     * Adds or replaces a location.
+     *
+     * @param location The location text.
+     * @param point    Its coordinates.
+     */
+    public void put(String location, GeoPoint point) {
+        table.put(normalize(location), point);
+    }
+
+    @Override
+    public GeoPoint geocode(String location) {
+        return location == null ? null : table.get(normalize(location));
+    }
+
+    private static String normalize(String location) {
+        return location.trim().toLowerCase(Locale.ROOT);
+    }
+}
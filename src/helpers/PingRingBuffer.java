@@ -0,0 +1,105 @@
+package helpers;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded lock-free ring buffer of position pings for many producer threads and a single consumer.
+ * The fields of the pings are stored in primitive arrays, so offering and draining never allocate.
+ *
+ * <p>A producer claims a sequence number with a compare-and-set, writes the slot and then publishes it
+ * by storing the sequence in the slot; the consumer reads the slots in sequence order up to the first
+ * one that is not published yet. A producer fails instead of waiting when the buffer is full.</p>
+ */
+public class PingRingBuffer {
+    /**
+     * Receives the drained pings.
+     */
+    @FunctionalInterface
+    public interface PingHandler {
+        void accept(int id, double latitude, double longitude, long timeMillis);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final int[] ids;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final long[] times;
+    /** Sequence number plus one of the ping published in every slot */
+    private final AtomicLongArray published;
+    /** The next sequence number to claim */
+    private final AtomicLong claimed = new AtomicLong();
+    /** The next sequence number to consume */
+    private volatile long consumed;
+
+    /**
+     * @param capacity the number of pings the buffer holds, rounded up to a power of two.
+     */
+    public PingRingBuffer(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.ids = new int[this.capacity];
+        this.latitudes = new double[this.capacity];
+        this.longitudes = new double[this.capacity];
+        this.times = new long[this.capacity];
+        this.published = new AtomicLongArray(this.capacity);
+    }
+
+    /**
+     * Adds a ping; safe to call from any number of threads.
+     *
+     * @return false if the buffer is full and the ping was dropped.
+     */
+    public boolean offer(int id, double latitude, double longitude, long timeMillis) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= capacity) return false;
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) sequence & mask;
+        ids[slot] = id;
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        times[slot] = timeMillis;
+        published.lazySet(slot, sequence + 1);
+        return true;
+    }
+
+    /**
+     * Passes the published pings to the handler in order; only one thread may drain at a time.
+     * A ping the handler throws on is consumed like the others, so it is not passed again.
+     *
+     * @param handler receives the pings.
+     * @param max     the maximum number of pings to drain.
+     * @return the number of drained pings.
+     */
+    public int drain(PingHandler handler, int max) {
+        long sequence = consumed;
+        int drained = 0;
+        try {
+            while (drained < max) {
+                int slot = (int) sequence & mask;
+                if (published.get(slot) != sequence + 1) break;
+                sequence++;
+                drained++;
+                handler.accept(ids[slot], latitudes[slot], longitudes[slot], times[slot]);
+            }
+        } finally {
+            consumed = sequence;
+        }
+        return drained;
+    }
+
+    /**
+     * @return the number of pings claimed but not drained yet.
+     */
+    public int size() {
+        return (int) (claimed.get() - consumed);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,134 @@
+package helpers;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A fixed set of single-threaded shards. Every task is routed to the shard owning its key, so the tasks of
+ * one key run one at a time in submission order without a lock, while the tasks of keys on different shards
+ * run in parallel on different cores.
+ *
+ * <p>Keys are compared case-insensitively and without surrounding blanks, so "Cluj" and " cluj" share a shard.
+ * A task submitted from the thread of its own shard runs inline, so a shard never waits for itself.
+ * Work spanning two shards is split into steps with {@link #handoff}: each step runs on the shard owning
+ * its key and passes its result on to the next.</p>
+ */
+public class ShardedExecutor implements AutoCloseable {
+    private static final ThreadLocal<ShardedExecutor> OWNER = new ThreadLocal<>();
+    private static final ThreadLocal<Integer> OWNED_SHARD = new ThreadLocal<>();
+
+    private final ExecutorService[] shards;
+
+    /**
+     * Creates one shard per available processor.
+     */
+    public ShardedExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param shardCount the number of shards, each with its own thread.
+     */
+    public ShardedExecutor(int shardCount) {
+        if (shardCount < 1) throw new IllegalArgumentException("At least one shard is needed");
+        this.shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            int shard = i;
+            shards[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(() -> {
+                    OWNER.set(this);
+                    OWNED_SHARD.set(shard);
+                    task.run();
+                }, "shard-" + shard);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * @return the number of shards.
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @param key the key of a task, e.g. a region.
+     * @return the shard owning the key.
+     */
+    public int shardOf(String key) {
+        String normalized = key == null ? "" : key.trim().toLowerCase(Locale.ROOT);
+        int hash = normalized.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    /**
+     * @return true if the calling thread is the thread of the shard owning the key.
+     */
+    public boolean isOwner(String key) {
+        return OWNER.get() == this && OWNED_SHARD.get() == shardOf(key);
+    }
+
+    /**
+     * Runs a task on the shard owning its key.
+     *
+     * @param key  the key of the task.
+     * @param task the task.
+     * @return the result of the task, completed exceptionally if the task throws.
+     */
+    public <T> CompletableFuture<T> submit(String key, Supplier<T> task) {
+        if (isOwner(key)) {
+            try {
+                return CompletableFuture.completedFuture(task.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(task, shards[shardOf(key)]);
+    }
+
+    /**
+     * Runs a task without a result on the shard owning its key.
+     */
+    public CompletableFuture<Void> execute(String key, Runnable task) {
+        return submit(key, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Hands the result of a step over to the shard owning the key of the next step.
+     *
+     * @param previous the previous step.
+     * @param key      the key of the next step.
+     * @param next     the next step, receiving the result of the previous one.
+     * @return the result of the next step; a failed previous step skips it.
+     */
+    public <T, R> CompletableFuture<R> handoff(CompletableFuture<T> previous, String key, Function<T, R> next) {
+        return previous.thenCompose(result -> submit(key, () -> next.apply(result)));
+    }
+
+    /**
+     * Finishes the submitted tasks and stops the shard threads.
+     */
+    @Override
+    public void close() {
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+        try {
+            for (ExecutorService shard : shards) {
+                shard.awaitTermination(1, TimeUnit.MINUTES);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
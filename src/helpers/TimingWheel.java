@@ -0,0 +1,211 @@
+package helpers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A hierarchical timing wheel holding one timer per key. Time is divided into ticks; level 0 has a slot
+ * per tick of the next {@value #SLOTS} ticks, and every higher level has a slot per full rotation of the
+ * level below. A timer is placed at the level of the highest tick digit in which its deadline differs
+ * from the current tick, and moves one level down every time that level turns to its slot.
+ *
+ * <p>Scheduling, rescheduling and cancelling only link or unlink the timer in a slot list, so they take
+ * constant time regardless of the number of timers. Advancing the wheel skips empty slots with one
+ * occupancy bitmask per level and returns every expired key in one list.</p>
+ *
+ * @param <K> The type of the timer keys.
+ */
+public class TimingWheel<K> {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 7;
+
+    private static final class Timer<K> {
+        final K key;
+        long deadlineTick;
+        int level = -1;
+        int slot;
+        Timer<K> previous;
+        Timer<K> next;
+
+        Timer(K key) {
+            this.key = key;
+        }
+    }
+
+    private final long tickMillis;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Timer<K>[][] heads = new Timer[LEVELS][SLOTS];
+    /** Bit s of level l is set when slot s of level l holds a timer */
+    private final long[] occupied = new long[LEVELS];
+    private final Map<K, Timer<K>> timers = new HashMap<>();
+    /** Timers whose deadline had already passed when they were scheduled */
+    private final Set<Timer<K>> overdue = new LinkedHashSet<>();
+    private long currentTick;
+
+    /**
+     * @param tickMillis  the length of a tick; deadlines are rounded up to a whole tick.
+     * @param startMillis the current time.
+     */
+    public TimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /**
+     * Schedules the timer of a key, replacing its previous deadline.
+     *
+     * @param key            the key of the timer.
+     * @param deadlineMillis the time the timer expires.
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        Timer<K> timer = timers.get(key);
+        if (timer == null) {
+            timer = new Timer<>(key);
+            timers.put(key, timer);
+        } else {
+            unlink(timer);
+        }
+        timer.deadlineTick = -Math.floorDiv(-deadlineMillis, tickMillis);
+        place(timer);
+    }
+
+    /**
+     * Cancels the timer of a key.
+     *
+     * @return true if the key had a timer.
+     */
+    public synchronized boolean cancel(K key) {
+        Timer<K> timer = timers.remove(key);
+        if (timer == null) return false;
+        unlink(timer);
+        return true;
+    }
+
+    /**
+     * @return true if the key has a pending timer.
+     */
+    public synchronized boolean contains(K key) {
+        return timers.containsKey(key);
+    }
+
+    /**
+     * @return the number of pending timers.
+     */
+    public synchronized int size() {
+        return timers.size();
+    }
+
+    /**
+     * Moves the wheel to the given time and removes the expired timers.
+     *
+     * @param nowMillis the current time.
+     * @return the keys of the expired timers, earliest deadline first.
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        List<K> expired = new ArrayList<>();
+        for (Timer<K> timer : overdue) {
+            timer.level = -1;
+            timers.remove(timer.key);
+            expired.add(timer.key);
+        }
+        overdue.clear();
+
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        while (currentTick < targetTick) {
+            if (timers.isEmpty()) {
+                currentTick = targetTick;
+                break;
+            }
+            currentTick = Math.min(nextEventTick(), targetTick);
+            cascade();
+
+            int slot = (int) (currentTick & MASK);
+            Timer<K> timer = heads[0][slot];
+            while (timer != null) {
+                Timer<K> next = timer.next;
+                unlink(timer);
+                timers.remove(timer.key);
+                expired.add(timer.key);
+                timer = next;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * The next tick at which a level-0 slot holds timers or a higher level has to be cascaded.
+     */
+    private long nextEventTick() {
+        int position = (int) (currentTick & MASK);
+        long later = position == MASK ? 0 : occupied[0] & (-1L << (position + 1));
+        long rotationStart = currentTick & ~(long) MASK;
+        if (later != 0) return rotationStart + Long.numberOfTrailingZeros(later);
+        return rotationStart + SLOTS;
+    }
+
+    /**
+     * Moves the timers of every level that turned to a new slot at the current tick one level down, highest level first.
+     */
+    private void cascade() {
+        for (int level = LEVELS - 1; level >= 1; level--) {
+            if ((currentTick & ((1L << (BITS * level)) - 1)) != 0) continue;
+            int slot = (int) ((currentTick >>> (BITS * level)) & MASK);
+            Timer<K> timer = heads[level][slot];
+            heads[level][slot] = null;
+            occupied[level] &= ~(1L << slot);
+            while (timer != null) {
+                Timer<K> next = timer.next;
+                if (timer.deadlineTick == currentTick) {
+                    // due now: the level-0 slot of the current tick fires right after the cascade
+                    link(timer, 0, (int) (currentTick & MASK));
+                } else {
+                    place(timer);
+                }
+                timer = next;
+            }
+        }
+    }
+
+    private void place(Timer<K> timer) {
+        if (timer.deadlineTick <= currentTick) {
+            timer.level = -1;
+            overdue.add(timer);
+            return;
+        }
+        int level = Math.min(LEVELS - 1, (63 - Long.numberOfLeadingZeros(timer.deadlineTick ^ currentTick)) / BITS);
+        link(timer, level, (int) ((timer.deadlineTick >>> (BITS * level)) & MASK));
+    }
+
+    private void link(Timer<K> timer, int level, int slot) {
+        timer.level = level;
+        timer.slot = slot;
+        timer.previous = null;
+        timer.next = heads[level][slot];
+        if (timer.next != null) timer.next.previous = timer;
+        heads[level][slot] = timer;
+        occupied[level] |= 1L << slot;
+    }
+
+    private void unlink(Timer<K> timer) {
+        if (timer.level < 0) {
+            overdue.remove(timer);
+            return;
+        }
+        if (timer.previous != null) {
+            timer.previous.next = timer.next;
+        } else {
+            heads[timer.level][timer.slot] = timer.next;
+            if (timer.next == null) occupied[timer.level] &= ~(1L << timer.slot);
+        }
+        if (timer.next != null) timer.next.previous = timer.previous;
+        timer.previous = null;
+        timer.next = null;
+        timer.level = -1;
+    }
+}
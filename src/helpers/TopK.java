@@ -0,0 +1,76 @@
+package helpers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToLongFunction;
+
+/**
+ * Selects the first k elements of a collection in a given order without sorting the whole collection.
+ * A bounded heap of size k is kept while scanning, so the cost is O(n log k) instead of O(n log n).
+ */
+public class TopK {
+
+    private TopK() {
+    }
+
+    /**
+     * Returns the k smallest elements according to the comparator, in ascending order.
+     *
+     * @param items      The elements to select from.
+     * @param k          The number of elements to return.
+     * @param comparator The order of the elements; the first k in this order are returned.
+     * @param <T>        The type of the elements.
+     * @return At most k elements, sorted by the comparator.
+     */
+    public static <T> List<T> select(Iterable<T> items, int k, Comparator<? super T> comparator) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        // The head of the heap is the worst element kept so far
+        PriorityQueue<T> heap = new PriorityQueue<>(k + 1, Collections.reverseOrder(comparator));
+        for (T item : items) {
+            if (heap.size() < k) {
+                heap.add(item);
+            } else if (comparator.compare(item, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+        List<T> result = new ArrayList<>(heap);
+        result.sort(comparator);
+        return result;
+    }
+
+    /**
+     * Returns the k elements with the smallest key, in ascending key order.
+     * The key is computed exactly once per element, which matters when it is expensive
+     * (e.g. derived from a nested collection).
+     *
+     * @param items The elements to select from.
+     * @param k     The number of elements to return.
+     * @param key   The sort key of an element.
+     * @param <T>   The type of the elements.
+     * @return At most k elements, sorted by key.
+     */
+    public static <T> List<T> smallestByKey(List<T> items, int k, ToLongFunction<? super T> key) {
+        int n = items.size();
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = key.applyAsLong(items.get(i));
+        }
+        // Compare indices by their precomputed key, ties broken by position to keep the selection stable
+        Comparator<Integer> byKey = (a, b) -> keys[a] != keys[b] ? Long.compare(keys[a], keys[b]) : Integer.compare(a, b);
+        List<Integer> indices = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            indices.add(i);
+        }
+        List<T> result = new ArrayList<>(Math.min(Math.max(k, 0), n));
+        for (Integer index : select(indices, k, byKey)) {
+            result.add(items.get(index));
+        }
+        return result;
+    }
+}
@@ -35,8 +35,8 @@ public class Delivery implements HasID {
     /** Type of transportation used for this delivery */
     private Transportation transportation_type;
 
-    /** String of the location where the order will be shipped*/
-    private String location;
+    /** Code in the {@link StringDictionary} of the location where the order will be shipped*/
+    private int location;
 
     /** List of orders associated with this delivery */
     private List<Order> orders;
@@ -54,6 +54,15 @@ public class Delivery implements HasID {
     }
 
     public String getLocation() {
+        return StringDictionary.SHARED.decode(location);
+    }
+
+    /**
+     * Gets the code of the location in the {@link StringDictionary#SHARED shared dictionary}.
+     *
+     * @return the code of the location
+     */
+    public int getLocationCode() {
         return location;
     }
 
@@ -171,6 +180,22 @@ public class Delivery implements HasID {
         orders.add(order);
     }
 
+    /**
+     * Replaces the order with the same ID in this delivery, e.g. with the copy of the order that was just saved.
+     *
+     * @param order Order replacing the one with its ID
+     * @return true if this delivery contains an order with the ID
+     */
+    public boolean replaceOrder(Order order) {
+        for (int i = 0; i < orders.size(); i++) {
+            if (orders.get(i).getId().equals(order.getId())) {
+                orders.set(i, order);
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns a string representation of the Delivery object.
      * Includes delivery ID, employee ID, order ID, transportation ID, and transportation type.
@@ -185,12 +210,12 @@ public class Delivery implements HasID {
                 //", orderID=" + orderID +
                 //", transportationID=" + transportationID +
                 //", transportation_type=" + transportation_type +
-                ", location='" + location +
+                ", location='" + getLocation() +
                 '}';
     }
 
     public void setLocation(String location) {
-        this.location = location;
+        this.location = StringDictionary.SHARED.encode(location);
     }
 
     /**
@@ -210,7 +235,7 @@ public class Delivery implements HasID {
      * @return A comma-separated string of column names.
      */
     public static String getColumns() {
-        return "deliveryID, location";
+        return "deliveryID, deliveryPersonID, location";
     }
 
     /**
@@ -219,15 +244,15 @@ public class Delivery implements HasID {
      * @return A formatted string of the instance variable values.
      */
     public String getValues() {
-        return String.format(//%d, %d, %d, %d, '%s',
-                "%d, '%s'",
+        return String.format(//%d, %d, %d, '%s',
+                "%d, %d, '%s'",
                 deliveryID,
-                //deliveryPersonID,
+                deliveryPersonID,
                 //employeeID,
                 //orderID,
                 //transportationID,
                 //transportation_type != null ? transportation_type.toString() : null,
-                location
+                getLocation()
         );
     }
 
@@ -244,7 +269,7 @@ public class Delivery implements HasID {
                 //orderID,
                 transportationID,
                 transportation_type != null ? transportation_type.toString() : null,
-                location
+                getLocation()
         );
     }
 
@@ -258,18 +283,24 @@ public class Delivery implements HasID {
 
          */
 
+        // The location is written last, it may contain commas
         return  deliveryID + "," +
-                location;
+                (deliveryPersonID != null ? deliveryPersonID : "") + "," +
+                getLocation();
                 //orderID + "," +
                 //time + ",";
 
     }
 
     public static Delivery fromCsv(String csvLine){
-        String[] parts = csvLine.split(",", 2);
+        // Lines written before the delivery person ID was stored hold only the ID and the location
+        String[] parts = csvLine.split(",", 3);
+        boolean current = parts.length == 3 && (parts[1].isEmpty() || isNumber(parts[1]));
+        if (!current) {
+            parts = csvLine.split(",", 2);
+        }
 
         Integer deliveryId = Integer.parseInt(parts[0]);
-//        Integer deliveryPersonId = Integer.parseInt(parts[1]);
 //        Integer employeeId = Integer.parseInt(parts[1]);
 
 //        Integer orderId = Integer.parseInt(parts[1]);
@@ -281,29 +312,21 @@ public class Delivery implements HasID {
         // Parse the Transportation_Type (assumes an enum with a valueOf method)
 //        Transportation_Type transportationType = Transportation_Type.valueOf(parts[6]);
 
-        // The location field
-//        String location = parts[7];
-
         Delivery delivery = new Delivery(deliveryId);
 
-        if(parts.length > 1)
-        {
-            String location = parts[1];
-            delivery.setLocation(location);
-        }
-        /*
-        if (parts.length > 1){
-            String ordersString = parts[1];
-            String[] ordersData = ordersString.split(";");
-            for (String orderData: ordersData){
-                if (!orderData.isEmpty()){
-                    delivery.addOrder(Order.fromCsv(orderData));
-                }
+        if (current) {
+            if (!parts[1].isEmpty()) {
+                delivery.setDeliveryPeronID(Integer.parseInt(parts[1]));
             }
+            delivery.setLocation(parts[2]);
+        } else if (parts.length > 1) {
+            delivery.setLocation(parts[1]);
         }
 
-         */
+        return delivery;
+    }
 
-        return new Delivery(deliveryId);//, time);
+    private static boolean isNumber(String field) {
+        return !field.isEmpty() && field.length() < 10 && field.chars().allMatch(Character::isDigit);
     }
-}
\ No newline at end of file
+}
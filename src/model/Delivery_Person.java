@@ -23,6 +23,10 @@ public class Delivery_Person extends Person {
         return license;
     }
 
+    public void setLicense(String license) {
+        this.license = license;
+    }
+
     public int getDeliveryPersonID() {
         return deliveryPersonID;
     }
@@ -118,25 +122,40 @@ public class Delivery_Person extends Person {
 //            serializedDeliveries.append(delivery.toCsv()).append(";");
 //        }
 
+        // The name is written last, it may contain commas
         return deliveryPersonID + "," +
                phone + "," +
+               verified + "," +
+               (license != null ? license : "") + "," +
+               (personalVehicleId != null ? personalVehicleId : "") + "," +
                name;
 //               serializedDeliveries.toString();
     }
 
     public static Delivery_Person fromCsv(String csvLine){
-        String[] parts = csvLine.split(",", 4); // Split into 5 parts: ID, verified, license, deliveries, vehicle ID
+        // Lines written before the verification, license and vehicle were stored hold only the ID, phone and name
+        String[] parts = csvLine.split(",", 6);
+        boolean current = parts.length == 6 && (parts[2].equals("true") || parts[2].equals("false"))
+                && (parts[4].isEmpty() || isNumber(parts[4]));
+        if (!current) {
+            parts = csvLine.split(",", 3);
+        }
 
         Integer deliveryPersonID = Integer.parseInt(parts[0]);
         String deliveryPersonPhone = parts[1];
-        String deliveryPersonName = parts[2];
-
-//        boolean verified = Boolean.parseBoolean(parts[1]);
-//        String license = parts[2];
-//        Integer personalVehicleId = Integer.parseInt(parts[4]);
+        String deliveryPersonName = current ? parts[5] : parts[2];
 
         // Create a new Delivery_Person object
-        Delivery_Person deliveryPerson = new Delivery_Person(deliveryPersonID, deliveryPersonPhone, deliveryPersonName); // Phone and name left empty
+        Delivery_Person deliveryPerson = new Delivery_Person(deliveryPersonID, deliveryPersonPhone, deliveryPersonName);
+        if (current) {
+            deliveryPerson.setVerified(Boolean.parseBoolean(parts[2]));
+            if (!parts[3].isEmpty()) {
+                deliveryPerson.setLicense(parts[3]);
+            }
+            if (!parts[4].isEmpty()) {
+                deliveryPerson.setPersonalVehicleId(Integer.parseInt(parts[4]));
+            }
+        }
 
 
         // Parse deliveries from the deliveriesString
@@ -149,5 +168,8 @@ public class Delivery_Person extends Person {
 //        }
         return deliveryPerson;
     }
-}
 
+    private static boolean isNumber(String field) {
+        return !field.isEmpty() && field.length() < 10 && field.chars().allMatch(Character::isDigit);
+    }
+}
@@ -13,7 +13,8 @@ public class Deposit implements HasID {
     private final Integer depositID;
     private Integer storeID;
     private String address;
-    private String status;
+    /** The code of the status in the {@link StringDictionary} */
+    private int status;
     private List<Packages> packages;
 
     /**
@@ -31,7 +32,7 @@ public class Deposit implements HasID {
     public Deposit(int depositID, String address, String status, Integer storeID) {
         this.depositID = depositID;
         this.address = address;
-        this.status = status;
+        this.status = StringDictionary.SHARED.encode(status);
         this.storeID = storeID;
         this.packages = new ArrayList<>();
     }
@@ -87,6 +88,15 @@ public class Deposit implements HasID {
      * @return The deposit's status
      */
     public String getStatus() {
+        return StringDictionary.SHARED.decode(status);
+    }
+
+    /**
+     * Returns the code of the status in the {@link StringDictionary#SHARED shared dictionary}.
+     *
+     * @return The code of the deposit's status
+     */
+    public int getStatusCode() {
         return status;
     }
 
@@ -96,7 +106,7 @@ public class Deposit implements HasID {
      * @param status The new status
      */
     public void setStatus(String status) {
-        this.status = status;
+        this.status = StringDictionary.SHARED.encode(status);
     }
 
     /**
@@ -128,7 +138,7 @@ public class Deposit implements HasID {
                 "depositID=" + depositID +
                 ", storeID=" + storeID +
                 ", address='" + address + '\'' +
-                ", status='" + status + '\'' +
+                ", status='" + getStatus() + '\'' +
                 '}';
     }
 
@@ -152,7 +162,7 @@ public class Deposit implements HasID {
                 depositID,
                 storeID,
                 address,
-                status
+                getStatus()
         );
     }
 
@@ -166,7 +176,7 @@ public class Deposit implements HasID {
                 "storeID = %d, address = '%s', status = '%s'",
                 storeID,
                 address,
-                status
+                getStatus()
         );
     }
 
@@ -202,7 +212,7 @@ public class Deposit implements HasID {
         return depositID + "," +
                 storeID + "," +
                 address + "," +
-                status + "," +
+                getStatus() + "," +
                 serializedPackages.toString();
     }
 
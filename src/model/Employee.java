@@ -12,7 +12,8 @@ import java.util.List;
 public class Employee extends Person {
     private Integer employeeID;
     private int departmentID;
-    private String license;
+    /** The code of the license in the {@link StringDictionary} */
+    private int license;
     private List<Delivery> deliveries;
 
     /**
@@ -32,7 +33,7 @@ public class Employee extends Person {
         this.departmentID = departmentID;
         this.name = name;
         this.phone = phone;
-        this.license = license;
+        this.license = StringDictionary.SHARED.encode(license);
         this.deliveries = new ArrayList<>();
     }
 
@@ -89,6 +90,15 @@ public class Employee extends Person {
      * @return The employee's license information
      */
     public String getLicense() {
+        return StringDictionary.SHARED.decode(license);
+    }
+
+    /**
+     * Returns the code of the license in the {@link StringDictionary#SHARED shared dictionary}.
+     *
+     * @return The code of the employee's license
+     */
+    public int getLicenseCode() {
         return license;
     }
 
@@ -98,7 +108,7 @@ public class Employee extends Person {
      * @param license The new license information
      */
     public void setLicense(String license) {
-        this.license = license;
+        this.license = StringDictionary.SHARED.encode(license);
     }
 
     /**
@@ -150,7 +160,7 @@ public class Employee extends Person {
                 ", departmentID=" + departmentID +
                 ", name='" + name + '\'' +
                 ", phone='" + phone + '\'' +
-                ", license='" + license + '\'' +
+                ", license='" + getLicense() + '\'' +
                 ", deliveries=" + deliveries +
                 '}';
     }
@@ -174,7 +184,7 @@ public class Employee extends Person {
                 "%d, %d, '%s', '%s', '%s'",
                 employeeID,
                 departmentID,
-                license,
+                getLicense(),
                 name,
                 phone
         );
@@ -189,7 +199,7 @@ public class Employee extends Person {
         return String.format(
                 "departmentID = %d, license = '%s', name = '%s', phone = '%s'",
                 departmentID,
-                license,
+                getLicense(),
                 name,
                 phone
         );
@@ -219,7 +229,7 @@ public class Employee extends Person {
                 departmentID + "," +
                 name + "," +
                 phone + "," +
-                license;
+                getLicense();
                 //serializedDeliveries.toString();
     }
 
@@ -0,0 +1,27 @@
+package model;
+
+/**
+ * A position on the earth, in decimal degrees.
+ *
+ * @param latitude  The latitude, from -90 to 90.
+ * @param longitude The longitude, from -180 to 180.
+ */
+public record GeoPoint(double latitude, double longitude) {
+    /** Mean radius of the earth in kilometres */
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
+    /**
+     * Computes the great-circle distance to another point with the haversine formula.
+     *
+     * @param other The other point.
+     * @return The distance in kilometres.
+     */
+    public double distanceKm(GeoPoint other) {
+        double dLat = Math.toRadians(other.latitude - latitude);
+        double dLon = Math.toRadians(other.longitude - longitude);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(other.latitude))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
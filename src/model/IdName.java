@@ -0,0 +1,15 @@
+package model;
+
+/**
+ * A lightweight view of an entity holding only its ID and name,
+ * used for pick lists where loading the whole entity is unnecessary.
+ *
+ * @param id   The unique identifier of the entity.
+ * @param name The display name of the entity.
+ */
+public record IdName(Integer id, String name) {
+    @Override
+    public String toString() {
+        return id + " - " + name;
+    }
+}
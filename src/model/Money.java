@@ -0,0 +1,102 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions of monetary amounts stored as a {@code long} number of minor units (cents).
+ * Amounts are summed and compared as whole numbers, so totals are exact; the {@code double}
+ * conversions are only for the callers that still work in major units.
+ */
+public final class Money {
+    /** The number of minor units in one major unit */
+    public static final int MINOR_PER_MAJOR = 100;
+
+    private Money() {
+    }
+
+    /**
+     * Converts an amount in major units to minor units, rounding half away from zero.
+     *
+     * @param amount the amount, e.g. 12.5
+     * @return the amount in minor units, e.g. 1250
+     */
+    public static long ofMajor(double amount) {
+        return Math.round(amount * MINOR_PER_MAJOR);
+    }
+
+    /**
+     * Converts an exact decimal amount in major units to minor units, rounding half up.
+     *
+     * @param amount the amount, or null for none
+     * @return the amount in minor units, 0 for null
+     */
+    public static long ofMajor(BigDecimal amount) {
+        if (amount == null) return 0;
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Converts an amount in minor units to major units.
+     *
+     * @param minor the amount in minor units, e.g. 1250
+     * @return the amount in major units, e.g. 12.5
+     */
+    public static double toMajor(long minor) {
+        return (double) minor / MINOR_PER_MAJOR;
+    }
+
+    /**
+     * Writes an amount in minor units as a decimal with two fraction digits, without going through a {@code double}.
+     *
+     * @param minor the amount in minor units, e.g. -1250
+     * @return the decimal text, e.g. "-12.50"
+     */
+    public static String format(long minor) {
+        long units = Math.abs(minor / MINOR_PER_MAJOR);
+        int cents = (int) Math.abs(minor % MINOR_PER_MAJOR);
+        StringBuilder text = new StringBuilder(24);
+        if (minor < 0) text.append('-');
+        text.append(units).append('.');
+        if (cents < 10) text.append('0');
+        return text.append(cents).toString();
+    }
+
+    /**
+     * Reads a decimal amount in major units, such as "12.5", "12.50" or "12", into minor units.
+     * Digits past the second fraction digit are rounded half up.
+     *
+     * @param text the decimal text
+     * @return the amount in minor units
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static long parse(String text) {
+        String trimmed = text.trim();
+        int length = trimmed.length();
+        int start = length > 0 && (trimmed.charAt(0) == '-' || trimmed.charAt(0) == '+') ? 1 : 0;
+        int point = trimmed.indexOf('.');
+        int end = point < 0 ? length : point;
+        // Plain decimals are read digit by digit; anything else, e.g. an exponent, goes through BigDecimal
+        if (end == start || end - start > 15 || point >= 0 && length - point - 1 > 18 || !digits(trimmed, start, end)
+                || point >= 0 && !digits(trimmed, point + 1, length)) {
+            return ofMajor(new BigDecimal(trimmed));
+        }
+
+        long minor = Long.parseLong(trimmed, start, end, 10) * MINOR_PER_MAJOR;
+        if (point >= 0) {
+            int fractionDigits = length - point - 1;
+            if (fractionDigits > 0) minor += (trimmed.charAt(point + 1) - '0') * 10;
+            if (fractionDigits > 1) minor += trimmed.charAt(point + 2) - '0';
+            if (fractionDigits > 2 && trimmed.charAt(point + 3) >= '5') minor++;
+        }
+        return trimmed.charAt(0) == '-' ? -minor : minor;
+    }
+
+    private static boolean digits(String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+}
@@ -1,5 +1,7 @@
 package model;
 
+import exceptions.BusinessLogicException;
+
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -11,6 +13,8 @@ import java.util.List;
  * The Order class represents a customer's order in the system.
  * It contains details such as order ID, customer ID, order date,
  * delivery date and time, cost, status, and associated packages.
+ * The status follows the {@link OrderStatus} lifecycle and is stored as its ordinal; the setters only move it
+ * forward, and the decoders of the repositories restore a stored status with {@link #restoreOrderStatus}.
  */
 public class Order implements HasID {
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
@@ -19,11 +23,13 @@ public class Order implements HasID {
     private Integer customerID;
     private LocalDateTime orderDate;
     protected LocalDateTime deliveryDateTime;
-    private double totalCost;
-    private String status;
+    /** The total cost in minor units, see {@link Money} */
+    private long totalCost;
+    private OrderStatus status = OrderStatus.PLACED;
     private List<Packages> packages;
     private Integer deliveryId;
-    private String location;
+    /** The code of the location in the {@link StringDictionary} */
+    private int location;
 
     /*
     Order - Package: Aggregation => packages not initialized in the constructor
@@ -49,11 +55,20 @@ public class Order implements HasID {
     }
 
     public String getLocation() {
+        return StringDictionary.SHARED.decode(location);
+    }
+
+    /**
+     * Gets the code of the location in the {@link StringDictionary#SHARED shared dictionary}.
+     *
+     * @return the code of the location
+     */
+    public int getLocationCode() {
         return location;
     }
 
     public void setLocation(String location) {
-        this.location = location;
+        this.location = StringDictionary.SHARED.encode(location);
     }
 
     public void setCustomerID(Integer customerID) {
@@ -106,10 +121,28 @@ public class Order implements HasID {
     }
 
     public double getTotalCost() {
-        return totalCost;
+        return Money.toMajor(totalCost);
     }
 
     public void setTotalCost(double totalCost) {
+        this.totalCost = Money.ofMajor(totalCost);
+    }
+
+    /**
+     * Gets the total cost of this order in minor units.
+     *
+     * @return the cost of the order in minor units
+     */
+    public long getTotalCostMinor() {
+        return totalCost;
+    }
+
+    /**
+     * Sets the total cost of this order in minor units.
+     *
+     * @param totalCost the cost of the order in minor units
+     */
+    public void setTotalCostMinor(long totalCost) {
         this.totalCost = totalCost;
     }
 
@@ -149,7 +182,7 @@ public class Order implements HasID {
      * @return the cost of the order
      */
     public double getCost() {
-        return totalCost;
+        return Money.toMajor(totalCost);
     }
 
     /**
@@ -158,7 +191,27 @@ public class Order implements HasID {
      * @param totalCost the new total cost of the order
      */
     public void setCost(double totalCost) {
-        this.totalCost = totalCost;
+        this.totalCost = Money.ofMajor(totalCost);
+    }
+
+    /**
+     * Gets the label of the current status of this order.
+     *
+     * @return the status of the order, e.g. "to be shipped"
+     */
+    public String getStatus() {
+        return status.getLabel();
+    }
+
+    /**
+     * Sets a new status for this order by its label.
+     *
+     * @param status the label of the new status of the order, e.g. "to be shipped"
+     * @throws IllegalArgumentException if no status has the label
+     * @throws BusinessLogicException if the order cannot move from its current status to the new one
+     */
+    public void setStatus(String status) {
+        setOrderStatus(OrderStatus.fromLabel(status));
     }
 
     /**
@@ -166,7 +219,7 @@ public class Order implements HasID {
      *
      * @return the status of the order
      */
-    public String getStatus() {
+    public OrderStatus getOrderStatus() {
         return status;
     }
 
@@ -174,8 +227,21 @@ public class Order implements HasID {
      * Sets a new status for this order.
      *
      * @param status the new status of the order
+     * @throws BusinessLogicException if the order cannot move from its current status to the new one
      */
-    public void setStatus(String status) {
+    public void setOrderStatus(OrderStatus status) {
+        if (!this.status.canMoveTo(status)) {
+            throw new BusinessLogicException("Order " + orderID + " cannot go from '" + this.status.getLabel() + "' to '" + status.getLabel() + "'");
+        }
+        this.status = status;
+    }
+
+    /**
+     * Restores the stored status of this order without checking the lifecycle, for decoding stored orders.
+     *
+     * @param status the stored status of the order
+     */
+    public void restoreOrderStatus(OrderStatus status) {
         this.status = status;
     }
 
@@ -210,9 +276,9 @@ public class Order implements HasID {
                 ", customerID=" + customerID +
                 ", orderDate=" + orderDate +
                 ", deliveryDate=" + deliveryDateTime +
-                ", cost=" + totalCost +
-                ", status='" + status + '\'' +
-                ", location='" + location + '\'' +
+                ", cost=" + Money.format(totalCost) +
+                ", status='" + status.getLabel() + '\'' +
+                ", location='" + getLocation() + '\'' +
                 '}';
     }
 
@@ -232,15 +298,15 @@ public class Order implements HasID {
      */
     public String getValues() {
         return String.format(
-                "%d, %d, '%s', '%s', %.2f, '%s', %d, '%s'",
+                "%d, %d, '%s', '%s', %s, %d, %d, '%s'",
                 orderID,
                 customerID,
                 orderDate != null ? java.sql.Timestamp.valueOf(orderDate) : null,
                 deliveryDateTime != null ? java.sql.Timestamp.valueOf(deliveryDateTime) : null,
-                totalCost,
-                status,
+                Money.format(totalCost),
+                status.ordinal(),
                 deliveryId,
-                location
+                getLocation()
         );
     }
 
@@ -251,14 +317,14 @@ public class Order implements HasID {
      */
     public String getUpdateValues() {
         return String.format(
-                "customerID = %d, orderDate = '%s', deliveryDateTime = '%s', totalCost = %.2f, status = '%s', deliveryId = %d, location = '%s'",
+                "customerID = %d, orderDate = '%s', deliveryDateTime = '%s', totalCost = %s, status = %d, deliveryId = %d, location = '%s'",
                 customerID,
                 orderDate != null ? java.sql.Timestamp.valueOf(orderDate) : null,
                 deliveryDateTime != null ? java.sql.Timestamp.valueOf(deliveryDateTime) : null,
-                totalCost,
-                status,
+                Money.format(totalCost),
+                status.ordinal(),
                 deliveryId,
-                location
+                getLocation()
         );
     }
 
@@ -278,33 +344,55 @@ public class Order implements HasID {
             serializedPackages.append(pack.toCsv()).append(";");
         }
 
+        // The location is free text that may contain commas, so it stays the last field
         return orderID + "," +
                 customerID + "," +
                 orderDate + "," +
                 deliveryDateTime.format(DATE_TIME_FORMATTER) + "," +
-                String.format("%.2f", totalCost) + "," +
-                location;
+                Money.format(totalCost) + "," +
+                status.ordinal() + "," +
+                (deliveryId != null ? deliveryId : "") + "," +
+                getLocation();
                 //serializedPackages.toString();
     }
 
+    /**
+     * Reads an order written by {@link #toCsv()}, or a line of the older form
+     * {@code id,customerId,orderDate,deliveryDateTime,totalCost,location} without a status and a delivery ID.
+     * A line is of the current form when its sixth field is a status ordinal and its seventh empty or a number.
+     *
+     * @param csvLine the line to read
+     * @return the order
+     */
     public static Order fromCsv(String csvLine) {
-        // Split the CSV line into parts
-        String[] parts = csvLine.split(",", 6); // Changed to 6 to include totalCost
+        // Split the CSV line into parts; the location is the rest of the line
+        String[] parts = csvLine.split(",", 8);
+        boolean current = parts.length == 8 && isNumber(parts[5]) && (parts[6].isEmpty() || isNumber(parts[6]));
+        if (!current) {
+            parts = csvLine.split(",", 6);
+        }
 
         Integer orderID = Integer.parseInt(parts[0]);
         Integer customerID = Integer.parseInt(parts[1]);
-//        String orderDateStr = parts[2];
-//        LocalDateTime orderDate = LocalDateTime.parse(parts[2], DATE_TIME_FORMATTER);
         LocalDateTime deliveryDateTime = LocalDateTime.parse(parts[3], DATE_TIME_FORMATTER);
         // Create the order object
         Order order = new Order(orderID, customerID, deliveryDateTime);
+        // The order date is written in the ISO format of LocalDateTime.toString
+        if (!parts[2].equals("null")) {
+            order.setOrderDate(LocalDateTime.parse(parts[2]));
+        }
 
         if (parts.length > 4) {
-            order.setTotalCost(Double.parseDouble(parts[4]));
+            order.setTotalCostMinor(Money.parse(parts[4]));
         }
-        if (parts.length > 5){
-            String location = parts[5];
-            order.setLocation(location);
+        if (current) {
+            order.restoreOrderStatus(OrderStatus.fromStored(parts[5]));
+            if (!parts[6].isEmpty()) {
+                order.setDeliveryId(Integer.parseInt(parts[6]));
+            }
+            order.setLocation(parts[7]);
+        } else if (parts.length > 5) {
+            order.setLocation(parts[5]);
         }
 
         /*
@@ -321,5 +409,9 @@ public class Order implements HasID {
          */
         return order;
     }
+
+    private static boolean isNumber(String field) {
+        return !field.isEmpty() && field.length() < 10 && field.chars().allMatch(Character::isDigit);
+    }
 }
 
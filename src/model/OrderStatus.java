@@ -0,0 +1,108 @@
+package model;
+
+import java.util.Locale;
+
+/**
+ * The OrderStatus enum represents the lifecycle of an order, from being placed to being delivered.
+ * An order only moves forward through the lifecycle; it may skip steps, and a delivered order is final.
+ * The ordinal is the stored form of a status in every repository.
+ */
+public enum OrderStatus {
+    /** The order was placed and has not been handled yet. */
+    PLACED("placed"),
+
+    /** The packages of the order are being prepared. */
+    PROCESSING("processing"),
+
+    /** The order waits for a delivery person to pick it up. */
+    TO_BE_SHIPPED("to be shipped"),
+
+    /** The order is stored in a hub on its way. */
+    IN_HUB("in hub"),
+
+    /** The order is on its way to the customer. */
+    IN_TRANSIT("in transit"),
+
+    /** The order reached the customer. */
+    DELIVERED("delivered");
+
+    private static final OrderStatus[] VALUES = values();
+
+    /** The text shown to users and accepted by {@link Order#setStatus(String)} */
+    private final String label;
+
+    OrderStatus(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Returns the text of this status, e.g. "to be shipped".
+     *
+     * @return the label of the status
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Checks whether an order in this status may move to another one.
+     *
+     * @param next the status to move to
+     * @return true if the next status is this one or a later one, and this status is not final
+     */
+    public boolean canMoveTo(OrderStatus next) {
+        return next == this || this != DELIVERED && next.ordinal() > ordinal();
+    }
+
+    /**
+     * Finds the status with a label, ignoring case and surrounding blanks.
+     *
+     * @param label the label of the status
+     * @return the status with the label
+     * @throws IllegalArgumentException if no status has the label
+     */
+    public static OrderStatus fromLabel(String label) {
+        if (label != null) {
+            String normalized = label.trim().toLowerCase(Locale.ROOT);
+            for (OrderStatus status : VALUES) {
+                if (status.label.equals(normalized)) return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown order status: " + label);
+    }
+
+    /**
+     * Returns the status stored as an ordinal.
+     *
+     * @param ordinal the stored ordinal
+     * @return the status with the ordinal
+     * @throws IllegalArgumentException if no status has the ordinal
+     */
+    public static OrderStatus fromOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.length) throw new IllegalArgumentException("Unknown order status ordinal: " + ordinal);
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Returns the status stored either as an ordinal or, in rows and lines written before statuses were
+     * stored as ordinals, as free text. Orders used to start without a status, stored as SQL NULL or as the
+     * text "null", and any text was accepted; such orders are read as {@link #PLACED}, from where they may
+     * still move to any status.
+     *
+     * @param stored the stored ordinal or text, e.g. "2", "to be shipped", "null" or null
+     * @return the status
+     * @throws IllegalArgumentException if the value is a number that is not the ordinal of a status
+     */
+    public static OrderStatus fromStored(String stored) {
+        String trimmed = stored == null ? "" : stored.trim();
+        if (!trimmed.isEmpty() && trimmed.chars().allMatch(Character::isDigit)) {
+            if (trimmed.length() >= 10) throw new IllegalArgumentException("Unknown order status ordinal: " + trimmed);
+            return fromOrdinal(Integer.parseInt(trimmed));
+        }
+        String normalized = trimmed.toLowerCase(Locale.ROOT);
+        for (OrderStatus status : VALUES) {
+            if (status.label.equals(normalized)) return status;
+        }
+        return PLACED;
+    }
+}
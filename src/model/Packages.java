@@ -7,13 +7,25 @@ package model;
  */
 public class Packages implements HasID {
     private final Integer packageID;
-    private double cost;
+    /** The cost in minor units, see {@link Money} */
+    private long cost;
     private Integer orderID;
     private double weight;
     private String dimensions;
     private Integer depositId;
+    /** Volume parsed from the dimensions, NaN until first requested */
+    private double volume = Double.NaN;
 
     public void setCost(double cost) {
+        this.cost = Money.ofMajor(cost);
+    }
+
+    /**
+     * Sets the cost of this package in minor units.
+     *
+     * @param cost the cost in minor units
+     */
+    public void setCostMinor(long cost) {
         this.cost = cost;
     }
 
@@ -41,7 +53,7 @@ public class Packages implements HasID {
      * @param cost        the cost associated with this package
      */
     public Packages(Integer packageID, double weight, String dimensions, double cost) {
-        this.cost = cost;
+        this.cost = Money.ofMajor(cost);
         this.packageID = packageID;
         this.weight = weight;
         this.dimensions = dimensions;
@@ -55,6 +67,15 @@ public class Packages implements HasID {
      * @return the cost of the package
      */
     public double getCost() {
+        return Money.toMajor(cost);
+    }
+
+    /**
+     * Gets the cost of this package in minor units.
+     *
+     * @return the cost of the package in minor units
+     */
+    public long getCostMinor() {
         return cost;
     }
 
@@ -72,7 +93,7 @@ public class Packages implements HasID {
      *
      * @return the order ID, or null if not set
      */
-    public int getOrderID() {
+    public Integer getOrderID() {
         return orderID;
     }
 
@@ -119,6 +140,33 @@ public class Packages implements HasID {
      */
     public void setDimensions(String dimensions) {
         this.dimensions = dimensions;
+        this.volume = Double.NaN;
+    }
+
+    /**
+     * Gets the volume of this package, the product of its dimensions ("4x4x4" has volume 64).
+     * The dimensions are parsed on the first call only; dimensions that cannot be parsed have volume 0.
+     *
+     * @return the volume of the package
+     */
+    public double getVolume() {
+        if (Double.isNaN(volume)) {
+            volume = parseVolume(dimensions);
+        }
+        return volume;
+    }
+
+    private static double parseVolume(String dimensions) {
+        if (dimensions == null || dimensions.isBlank()) return 0;
+        double volume = 1;
+        for (String side : dimensions.toLowerCase().split("x")) {
+            try {
+                volume *= Double.parseDouble(side.trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return volume;
     }
 
     /**
@@ -133,7 +181,7 @@ public class Packages implements HasID {
                 "packageID=" + packageID +
                 ", weight=" + weight +
                 ", dimensions='" + dimensions + '\'' +
-                ", cost=" + cost +
+                ", cost=" + Money.format(cost) +
                 '}';
     }
 
@@ -143,7 +191,7 @@ public class Packages implements HasID {
      * @return A comma-separated string of column names.
      */
     public static String getColumns() {
-        return "packageID, cost, weight, dimensions";
+        return "packageID, cost, weight, dimensions, depositId";
     }
 
     /**
@@ -153,11 +201,12 @@ public class Packages implements HasID {
      */
     public String getValues() {
         return String.format(
-                "%d, %.2f, %.2f, '%s'",
+                "%d, %s, %.2f, '%s', %d",
                 packageID,
-                cost,
+                Money.format(cost),
                 weight,
-                dimensions
+                dimensions,
+                depositId
         );
     }
 
@@ -168,8 +217,8 @@ public class Packages implements HasID {
      */
     public String getUpdateValues() {
         return String.format(
-                "cost = %.2f, weight = %.2f, dimensions = '%s', depositId = %d",
-                cost,
+                "cost = %s, weight = %.2f, dimensions = '%s', depositId = %d",
+                Money.format(cost),
                 weight,
                 dimensions,
                 depositId
@@ -191,7 +240,10 @@ public class Packages implements HasID {
                 //(orderID != null ? orderID : "null") + "," + // Handle null orderID
                 weight + "," +
                 dimensions + "," +
-                cost;
+                Money.format(cost) +
+                // Optional fields, so lines of packages outside a deposit and an order keep their old form
+                (depositId != null || orderID != null ? "," + (depositId != null ? depositId : "") : "") +
+                (orderID != null ? "," + orderID : "");
     }
 
     public static Packages fromCsv(String csvLine) {
@@ -203,10 +255,17 @@ public class Packages implements HasID {
         //Integer orderID = parts[1].equals("null") ? null : Integer.parseInt(parts[1]); // Handle null for orderID
         double weight = Double.parseDouble(parts[1]);
         String dimensions = parts[2];
-        double cost = Double.parseDouble(parts[3]);
+        long cost = Money.parse(parts[3]);
 
         // Create a new Packages object
-        Packages packages = new Packages(packageID, weight, dimensions, cost);
+        Packages packages = new Packages(packageID, weight, dimensions, 0);
+        packages.setCostMinor(cost);
+        if (parts.length > 4 && !parts[4].isEmpty()) {
+            packages.setDepositId(Integer.parseInt(parts[4]));
+        }
+        if (parts.length > 5 && !parts[5].isEmpty()) {
+            packages.setOrderID(Integer.valueOf(parts[5]));
+        }
 
         // Set the orderID if it exists
 //        if (orderID != null) {
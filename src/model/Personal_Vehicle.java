@@ -7,7 +7,8 @@ package model;
  */
 public class Personal_Vehicle extends Transportation {
     private final Integer personalVehicleID;
-    private int extraFee;
+    /** The extra fee in minor units, see {@link Money} */
+    private long extraFee;
     private Integer deliveryPersonID;
     private int capacity;
     private Transportation_Type transportation_type;
@@ -24,7 +25,9 @@ public class Personal_Vehicle extends Transportation {
     public Personal_Vehicle(Integer personalVehicleID, Integer extraFee, int capacity, Transportation_Type transportationType) {
         super(capacity, transportationType);
         this.personalVehicleID = personalVehicleID;
-        this.extraFee = extraFee;
+        this.extraFee = (long) extraFee * Money.MINOR_PER_MAJOR;
+        this.capacity = capacity;
+        this.transportation_type = transportationType;
     }
 
     /**
@@ -55,19 +58,37 @@ public class Personal_Vehicle extends Transportation {
     /**
      * Returns the extra fee associated with this vehicle.
      *
-     * @return The extra fee amount
+     * @return The extra fee amount, in whole major units
      */
 
     public int getExtraFee() {
-        return extraFee;
+        return (int) (extraFee / Money.MINOR_PER_MAJOR);
     }
 
     /**
      * Sets the extra fee for using this vehicle.
      *
-     * @param extraFee The new extra fee amount
+     * @param extraFee The new extra fee amount, in whole major units
      */
     public void setExtraFee(int extraFee) {
+        this.extraFee = (long) extraFee * Money.MINOR_PER_MAJOR;
+    }
+
+    /**
+     * Returns the extra fee associated with this vehicle in minor units.
+     *
+     * @return The extra fee amount in minor units
+     */
+    public long getExtraFeeMinor() {
+        return extraFee;
+    }
+
+    /**
+     * Sets the extra fee for using this vehicle in minor units.
+     *
+     * @param extraFee The new extra fee amount in minor units
+     */
+    public void setExtraFeeMinor(long extraFee) {
         this.extraFee = extraFee;
     }
 
@@ -107,7 +128,7 @@ public class Personal_Vehicle extends Transportation {
     public String toString() {
         return "Personal_Vehicle{" +
                 "personalVehicleID=" + personalVehicleID +
-                ", extraFee=" + extraFee +
+                ", extraFee=" + Money.format(extraFee) +
                 ", capacity=" + capacity +
                 ", transportation_type=" + transportation_type +
                 ", deliveryPersonID=" + deliveryPersonID +
@@ -130,9 +151,9 @@ public class Personal_Vehicle extends Transportation {
      */
     public String getValues() {
         return String.format(
-                "%d, %d, %d, %d, '%s'",
+                "%d, %s, %d, %d, '%s'",
                 personalVehicleID,
-                extraFee,
+                Money.format(extraFee),
                 deliveryPersonID,
                 capacity,
                 transportation_type != null ? transportation_type.name() : null
@@ -146,8 +167,8 @@ public class Personal_Vehicle extends Transportation {
      */
     public String getUpdateValues() {
         return String.format(
-                "extraFee = %d, deliveryPersonID = %d, capacity = %d, transportation_type = '%s'",
-                extraFee,
+                "extraFee = %s, deliveryPersonID = %d, capacity = %d, transportation_type = '%s'",
+                Money.format(extraFee),
                 deliveryPersonID,
                 capacity,
                 transportation_type != null ? transportation_type.name() : null
@@ -172,7 +193,7 @@ public class Personal_Vehicle extends Transportation {
     public String toCsv() {
 
         return personalVehicleID + "," +
-                extraFee + "," +
+                Money.format(extraFee) + "," +
                 capacity + "," +
                 (transportation_type != null ? transportation_type.name() : "null");
     }
@@ -188,13 +209,15 @@ public class Personal_Vehicle extends Transportation {
             String[] parts = csvLine.split(",");
 
             Integer personalVehicleID = Integer.parseInt(parts[0]);
-            Integer extraFee = Integer.parseInt(parts[1]);
+            long extraFee = Money.parse(parts[1]);
             int capacity = Integer.parseInt(parts[2]);
 
             String transportationTypeString = parts[3].trim();
             Transportation_Type transportationType = Transportation_Type.valueOf(transportationTypeString);
 
-            return new Personal_Vehicle(personalVehicleID, extraFee, capacity, transportationType);
+            Personal_Vehicle personalVehicle = new Personal_Vehicle(personalVehicleID, 0, capacity, transportationType);
+            personalVehicle.setExtraFeeMinor(extraFee);
+            return personalVehicle;
         } catch (Exception e) {
             throw new IllegalArgumentException("Invalid CSV format: " + csvLine, e);
         }
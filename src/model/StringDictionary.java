@@ -0,0 +1,103 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A dictionary of the low-cardinality strings repeated across many objects, such as locations, deposit statuses
+ * and licenses. Every distinct string is stored once and given an int code; the models keep the code instead of
+ * the string, and every decoder goes through their setters, so equal values read from files or the database
+ * share one instance. Filters compare codes instead of strings.
+ *
+ * <p>Every code also knows the code of its lower case form, so case-insensitive equality is a comparison of two
+ * such codes. Codes are never released, so the dictionary is only meant for fields with few distinct values.</p>
+ */
+public final class StringDictionary {
+    /** The dictionary shared by all models */
+    public static final StringDictionary SHARED = new StringDictionary();
+
+    /** The code of null */
+    public static final int NULL_CODE = 0;
+
+    /** The code returned by the lookups for a string that is not in the dictionary */
+    public static final int ABSENT = -1;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    /** The string of every code; replaced when growing, and written before the code is published */
+    private volatile String[] values = new String[16];
+    /** The code of the lower case form of every code */
+    private volatile int[] foldedCodes = new int[16];
+    /** The next free code; guarded by this */
+    private int size = 1;
+
+    /**
+     * Returns the code of a string, adding the string if it is new.
+     *
+     * @param value the string, or null
+     * @return the code of the string, {@link #NULL_CODE} for null
+     */
+    public int encode(String value) {
+        if (value == null) return NULL_CODE;
+        Integer code = codes.get(value);
+        return code != null ? code : add(value);
+    }
+
+    /**
+     * Returns the string of a code.
+     *
+     * @param code a code returned by {@link #encode(String)}
+     * @return the string, null for {@link #NULL_CODE}
+     */
+    public String decode(int code) {
+        return values[code];
+    }
+
+    /**
+     * Returns the code of the lower case form of the string of a code, so two codes are equal ignoring case
+     * exactly when their folded codes are equal.
+     *
+     * @param code a code returned by {@link #encode(String)}
+     * @return the folded code, {@link #NULL_CODE} for {@link #NULL_CODE}
+     */
+    public int foldedCode(int code) {
+        return foldedCodes[code];
+    }
+
+    /**
+     * Returns the folded code a string would match ignoring case, without adding it.
+     *
+     * @param value the string, or null
+     * @return the folded code, {@link #NULL_CODE} for null, or {@link #ABSENT} if no string in the dictionary matches
+     */
+    public int lookupIgnoreCase(String value) {
+        if (value == null) return NULL_CODE;
+        Integer code = codes.get(value.toLowerCase(Locale.ROOT));
+        return code == null ? ABSENT : code;
+    }
+
+    /**
+     * @return the number of distinct strings, not counting null.
+     */
+    public synchronized int size() {
+        return size - 1;
+    }
+
+    private synchronized int add(String value) {
+        Integer existing = codes.get(value);
+        if (existing != null) return existing;
+
+        String lowerCase = value.toLowerCase(Locale.ROOT);
+        int foldedCode = lowerCase.equals(value) ? size : add(lowerCase);
+        int code = size++;
+        if (code == values.length) {
+            foldedCodes = Arrays.copyOf(foldedCodes, 2 * code);
+            values = Arrays.copyOf(values, 2 * code);
+        }
+        foldedCodes[code] = foldedCode;
+        values[code] = value;
+        codes.put(value, code);
+        return code;
+    }
+}
@@ -7,11 +7,27 @@ package model;
  */
 public enum Transportation_Type {
     /** Represents ground transportation, such as trucks and cars. */
-    Ground,
+    Ground(10_000),
 
     /** Represents naval transportation, such as ships and boats. */
-    Naval,
+    Naval(1_000_000),
 
     /** Represents aerial transportation, such as airplanes and helicopters. */
-    Aerial
+    Aerial(2_000);
+
+    /** Cargo space of one vehicle of this type, in the cubic units of the package dimensions */
+    private final double cargoVolume;
+
+    Transportation_Type(double cargoVolume) {
+        this.cargoVolume = cargoVolume;
+    }
+
+    /**
+     * Returns the cargo space of one vehicle of this type.
+     *
+     * @return the cargo volume, in the cubic units of the package dimensions
+     */
+    public double getCargoVolume() {
+        return cargoVolume;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package repository;
+
+import model.HasID;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Deletes a parent entity together with its dependent entities.
+ * The relationships are declared once; each one is executed as a single set-based
+ * operation on the child repository instead of one round trip per child.
+ *
+ * @param <P> The type of the parent entity.
+ */
+public class Cascade<P extends HasID> {
+    private final IRepository<P> parentRepository;
+    private final List<Consumer<Integer>> rules = new ArrayList<>();
+
+    /**
+     * Creates a cascade for the given parent repository.
+     *
+     * @param parentRepository The repository holding the parent entities.
+     */
+    public Cascade(IRepository<P> parentRepository) {
+        this.parentRepository = parentRepository;
+    }
+
+    /**
+     * Declares children that are deleted together with their parent.
+     *
+     * @param childRepository The repository holding the children.
+     * @param column          The foreign key column referencing the parent.
+     * @param foreignKey      The getter returning the parent ID from a child.
+     * @param <C>             The type of the child entity.
+     * @return This cascade, for chaining.
+     */
+    public <C extends HasID> Cascade<P> deleting(IRepository<C> childRepository, String column, Function<C, ?> foreignKey) {
+        rules.add(parentId -> childRepository.deleteWhere(Criteria.eq(column, foreignKey, parentId)));
+        return this;
+    }
+
+    /**
+     * Declares children that are kept but detached from their parent by overwriting the foreign key.
+     *
+     * @param childRepository The repository holding the children.
+     * @param column          The foreign key column referencing the parent.
+     * @param foreignKey      The getter returning the parent ID from a child.
+     * @param setter          The setter for the foreign key.
+     * @param detachedValue   The value written to the foreign key of detached children.
+     * @param <C>             The type of the child entity.
+     * @param <V>             The type of the foreign key.
+     * @return This cascade, for chaining.
+     */
+    public <C extends HasID, V> Cascade<P> detaching(IRepository<C> childRepository, String column, Function<C, ?> foreignKey, BiConsumer<C, V> setter, V detachedValue) {
+        rules.add(parentId -> childRepository.updateWhere(
+                Criteria.eq(column, foreignKey, parentId),
+                FieldUpdate.set(column, setter, detachedValue)));
+        return this;
+    }
+
+    /**
+     * Applies every declared relationship and then deletes the parent.
+     *
+     * @param parentId The ID of the parent to delete.
+     */
+    public void delete(Integer parentId) {
+        for (Consumer<Integer> rule : rules) {
+            rule.accept(parentId);
+        }
+        parentRepository.delete(parentId);
+    }
+}
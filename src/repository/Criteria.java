@@ -0,0 +1,64 @@
+package repository;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * An equality condition on a single field of an entity.
+ * The column name is used by the database backend to build a WHERE clause,
+ * while the accessor lets the in-memory and file backends evaluate the same condition in Java.
+ *
+ * @param <T> The type of entity the condition applies to.
+ */
+public class Criteria<T> {
+    private final String column;
+    private final Function<T, ?> accessor;
+    private final Object value;
+
+    private Criteria(String column, Function<T, ?> accessor, Object value) {
+        this.column = column;
+        this.accessor = accessor;
+        this.value = value;
+    }
+
+    /**
+     * Creates a condition matching entities whose field equals the given value.
+     *
+     * @param column   The database column holding the field.
+     * @param accessor The getter returning the field from an entity.
+     * @param value    The value to match.
+     * @param <T>      The type of entity.
+     * @return The new condition.
+     */
+    public static <T> Criteria<T> eq(String column, Function<T, ?> accessor, Object value) {
+        return new Criteria<>(column, accessor, value);
+    }
+
+    /**
+     * Checks whether an entity matches this condition.
+     *
+     * @param obj The entity to check.
+     * @return true if the entity's field equals the expected value.
+     */
+    public boolean test(T obj) {
+        return Objects.equals(accessor.apply(obj), value);
+    }
+
+    /**
+     * Returns the database column of the field.
+     *
+     * @return The column name.
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * Returns the value the field is compared with.
+     *
+     * @return The expected value.
+     */
+    public Object getValue() {
+        return value;
+    }
+}
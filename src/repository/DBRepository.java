@@ -4,6 +4,7 @@ import model.HasID;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -17,6 +18,7 @@ public class DBRepository<T extends HasID> implements IRepository<T> {
     private final String tableName;
     private final String primaryKeyColumn;
     private final RowMapper<T> rowMapper;
+    private final RepositoryListeners<T> listeners = new RepositoryListeners<>();
 
     /**
      * Constructor for initializing the repository with necessary parameters.
@@ -42,7 +44,40 @@ public class DBRepository<T extends HasID> implements IRepository<T> {
             String values = (String) obj.getClass().getMethod("getValues").invoke(obj);
             String query = "INSERT INTO " + tableName + " (" + columns + ") VALUES (" + values + ")";
             try (PreparedStatement ps = connection.prepareStatement(query)) {
-                ps.executeUpdate();
+                if (ps.executeUpdate() > 0) {
+                    listeners.fireCreate(obj);
+                }
+            }
+        } catch (SQLException | ReflectiveOperationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Inserts several entities with one JDBC batch, executed in a single transaction.
+     * @param objs The entities to be inserted.
+     */
+    public void createAll(Collection<T> objs) {
+        if (objs.isEmpty()) return;
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement st = connection.createStatement()) {
+                for (T obj : objs) {
+                    String columns = (String) obj.getClass().getMethod("getColumns").invoke(null);
+                    String values = (String) obj.getClass().getMethod("getValues").invoke(obj);
+                    st.addBatch("INSERT INTO " + tableName + " (" + columns + ") VALUES (" + values + ")");
+                }
+                st.executeBatch();
+                connection.commit();
+            } catch (SQLException | ReflectiveOperationException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            for (T obj : objs) {
+                listeners.fireCreate(obj);
             }
         } catch (SQLException | ReflectiveOperationException e) {
             e.printStackTrace();
@@ -77,7 +112,39 @@ public class DBRepository<T extends HasID> implements IRepository<T> {
             String query = "UPDATE " + tableName + " SET " + updateValues + " WHERE " + primaryKeyColumn + " = ?";
             try (PreparedStatement ps = connection.prepareStatement(query)) {
                 ps.setInt(1, (Integer) obj.getClass().getMethod("getId").invoke(obj));
-                ps.executeUpdate();
+                if (ps.executeUpdate() > 0) {
+                    listeners.fireUpdate(obj);
+                }
+            }
+        } catch (SQLException | ReflectiveOperationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Updates several entities with one JDBC batch, executed in a single transaction.
+     * @param objs The entities to be updated.
+     */
+    public void updateAll(Collection<T> objs) {
+        if (objs.isEmpty()) return;
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement st = connection.createStatement()) {
+                for (T obj : objs) {
+                    String updateValues = (String) obj.getClass().getMethod("getUpdateValues").invoke(obj);
+                    st.addBatch("UPDATE " + tableName + " SET " + updateValues + " WHERE " + primaryKeyColumn + " = " + obj.getId());
+                }
+                st.executeBatch();
+                connection.commit();
+            } catch (SQLException | ReflectiveOperationException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            for (T obj : objs) {
+                listeners.fireUpdate(obj);
             }
         } catch (SQLException | ReflectiveOperationException e) {
             e.printStackTrace();
@@ -92,12 +159,169 @@ public class DBRepository<T extends HasID> implements IRepository<T> {
         String query = "DELETE FROM " + tableName + " WHERE " + primaryKeyColumn + " = ?";
         try (PreparedStatement ps = connection.prepareStatement(query)) {
             ps.setInt(1, id);
-            ps.executeUpdate();
+            if (ps.executeUpdate() > 0) {
+                listeners.fireDelete(id);
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Deletes all entities matching the criteria with a single DELETE statement.
+     * The deleted keys are returned by the statement itself so listeners can be notified.
+     * @param criteria The condition selecting the rows to delete.
+     * @return The number of deleted rows.
+     */
+    public int deleteWhere(Criteria<T> criteria) {
+        String query = "DELETE FROM " + tableName + " WHERE " + criteria.getColumn() + " = ? RETURNING " + primaryKeyColumn;
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            bind(ps, 1, criteria.getValue());
+            int deleted = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    listeners.fireDelete(rs.getInt(1));
+                    deleted++;
+                }
+            }
+            return deleted;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * Updates all entities matching the criteria with a single UPDATE statement.
+     * The updated rows are returned by the statement itself so listeners can be notified.
+     * @param criteria The condition selecting the rows to update.
+     * @param update The column assignment to apply.
+     * @return The number of updated rows.
+     */
+    public int updateWhere(Criteria<T> criteria, FieldUpdate<T> update) {
+        String query = "UPDATE " + tableName + " SET " + update.getColumn() + " = ? WHERE " + criteria.getColumn() + " = ? RETURNING *";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            bind(ps, 1, update.getValue());
+            bind(ps, 2, criteria.getValue());
+            int updated = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    listeners.fireUpdate(rowMapper.mapRow(rs));
+                    updated++;
+                }
+            }
+            return updated;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * Checks whether a row with the given primary key exists, without reading its columns.
+     * @param id The primary key to look for.
+     * @return true if the row exists.
+     */
+    public boolean exists(Integer id) {
+        String query = "SELECT 1 FROM " + tableName + " WHERE " + primaryKeyColumn + " = ? LIMIT 1";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Counts the rows of the table.
+     * @return The number of rows.
+     */
+    public int count() {
+        String query = "SELECT COUNT(*) FROM " + tableName;
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery(query)) {
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * Counts the rows matching the criteria.
+     * @param criteria The condition selecting the rows to count.
+     * @return The number of matching rows.
+     */
+    public int count(Criteria<T> criteria) {
+        String query = "SELECT COUNT(*) FROM " + tableName + " WHERE " + criteria.getColumn() + " = ?";
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            bind(ps, 1, criteria.getValue());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * Selects only the projected columns of every row.
+     * @param projection The columns to select and the mapper for the narrow rows.
+     * @return A list with one projected result per row.
+     */
+    public <R> List<R> project(Projection<T, R> projection) {
+        List<R> result = new ArrayList<>();
+        String query = "SELECT " + projection.getColumns() + " FROM " + tableName;
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery(query)) {
+            while (rs.next()) {
+                result.add(projection.getRowMapper().mapRow(rs));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the first rows in the given order, letting the database do the ranking with ORDER BY ... LIMIT.
+     * @param sortKey The column to order by.
+     * @param limit The maximum number of rows to return.
+     * @return At most {@code limit} entities, in the requested order.
+     */
+    public List<T> readTop(SortKey<T> sortKey, int limit) {
+        String query = "SELECT * FROM " + tableName + " ORDER BY " + sortKey.getColumn()
+                + (sortKey.isDescending() ? " DESC NULLS LAST" : " ASC NULLS LAST") + " LIMIT ?";
+        return executeQuery(query, limit);
+    }
+
+    /**
+     * Registers a listener that is notified after every successful write to the table.
+     * @param listener The listener to register.
+     */
+    public void addListener(RepositoryListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Binds a parameter, sending SQL NULL for null values.
+     */
+    private static void bind(PreparedStatement ps, int index, Object value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.NULL);
+        } else {
+            ps.setObject(index, value);
+        }
+    }
+
     /**
      * Retrieves a single entity from the database based on its ID.
      * @param id The ID of the entity to be retrieved.
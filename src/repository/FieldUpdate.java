@@ -0,0 +1,62 @@
+package repository;
+
+import java.util.function.BiConsumer;
+
+/**
+ * An assignment of a new value to a single field of an entity, used for set-based updates.
+ *
+ * @param <T> The type of entity the assignment applies to.
+ */
+public class FieldUpdate<T> {
+    private final String column;
+    private final BiConsumer<T, Object> setter;
+    private final Object value;
+
+    private FieldUpdate(String column, BiConsumer<T, Object> setter, Object value) {
+        this.column = column;
+        this.setter = setter;
+        this.value = value;
+    }
+
+    /**
+     * Creates an assignment of the given value to a field.
+     *
+     * @param column The database column holding the field.
+     * @param setter The setter applying the value to an entity.
+     * @param value  The new value.
+     * @param <T>    The type of entity.
+     * @param <V>    The type of the field.
+     * @return The new assignment.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, V> FieldUpdate<T> set(String column, BiConsumer<T, V> setter, V value) {
+        return new FieldUpdate<>(column, (obj, v) -> setter.accept(obj, (V) v), value);
+    }
+
+    /**
+     * Applies the assignment to an entity.
+     *
+     * @param obj The entity to modify.
+     */
+    public void apply(T obj) {
+        setter.accept(obj, value);
+    }
+
+    /**
+     * Returns the database column of the field.
+     *
+     * @return The column name.
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * Returns the value assigned to the field.
+     *
+     * @return The new value.
+     */
+    public Object getValue() {
+        return value;
+    }
+}
@@ -2,6 +2,7 @@ package repository;
 
 import model.HasID;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 /**
@@ -28,6 +29,18 @@ public interface IRepository<T extends HasID> {
      * @param obj The object to update.
      */
     void update(T obj);
+    /**
+     * Adds several new objects in a single batched write.
+     *
+     * @param objs The objects to add.
+     */
+    void createAll(Collection<T> objs);
+    /**
+     * Updates several existing objects in a single batched write.
+     *
+     * @param objs The objects to update.
+     */
+    void updateAll(Collection<T> objs);
     /**
      * Deletes an object from the repository by its ID.
      *
@@ -42,4 +55,61 @@ public interface IRepository<T extends HasID> {
      */
     T get(Integer id);
     Set<Integer> getKeys();
+    /**
+     * Deletes every object matching the criteria in a single operation.
+     *
+     * @param criteria The condition selecting the objects to delete.
+     * @return The number of deleted objects.
+     */
+    int deleteWhere(Criteria<T> criteria);
+    /**
+     * Applies an assignment to every object matching the criteria in a single operation.
+     *
+     * @param criteria The condition selecting the objects to update.
+     * @param update   The field assignment to apply.
+     * @return The number of updated objects.
+     */
+    int updateWhere(Criteria<T> criteria, FieldUpdate<T> update);
+    /**
+     * Checks whether an object with the given ID exists, without loading it.
+     *
+     * @param id The unique identifier to look for.
+     * @return true if the object exists.
+     */
+    boolean exists(Integer id);
+    /**
+     * Counts all objects in the repository.
+     *
+     * @return The number of objects.
+     */
+    int count();
+    /**
+     * Counts the objects matching the criteria.
+     *
+     * @param criteria The condition selecting the objects to count.
+     * @return The number of matching objects.
+     */
+    int count(Criteria<T> criteria);
+    /**
+     * Retrieves a narrow view of every object, e.g. ID and name for pick lists.
+     *
+     * @param projection The columns to read and how to build the result.
+     * @param <R>        The type of the projected result.
+     * @return A list with one projected result per object.
+     */
+    <R> List<R> project(Projection<T, R> projection);
+    /**
+     * Retrieves the first objects in the given order without ranking the whole repository.
+     *
+     * @param sortKey The order of the objects.
+     * @param limit   The maximum number of objects to return.
+     * @return At most {@code limit} objects, in the requested order.
+     */
+    List<T> readTop(SortKey<T> sortKey, int limit);
+    /**
+     * Registers a listener that is notified after every successful write.
+     *
+     * @param listener The listener to register.
+     */
+    void addListener(RepositoryListener<T> listener);
 }
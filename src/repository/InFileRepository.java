@@ -1,11 +1,15 @@
 package repository;
 
+import helpers.TopK;
 import model.HasID;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 
@@ -13,6 +17,8 @@ import java.util.function.Function;
  * A repository implementation that stores data in a file.
  * This class provides methods for creating, reading, updating, and deleting objects
  * that implement the HasID interface.
+ * Every operation reads or rewrites the whole file, so the operations are synchronized
+ * to keep writes from concurrent threads from overwriting each other.
  *
  * @param <T> the type of objects managed by this repository, which must implement HasID.
  */
@@ -20,6 +26,7 @@ public class InFileRepository<T extends HasID> implements IRepository<T> {
     private final String filePath;
     private final Function<T, String> serializer;
     private final Function<String, T> deserializer;
+    private final RepositoryListeners<T> listeners = new RepositoryListeners<>();
 
     /**
      * Constructs an InFileRepository with the specified file path, serializer, and deserializer.
@@ -40,10 +47,27 @@ public class InFileRepository<T extends HasID> implements IRepository<T> {
      * @param obj The object to be created.
      */
     @Override
-    public void create(T obj) {
+    public synchronized void create(T obj) {
         List<T> data = readDataFromFile();
         data.add(obj);
         writeDataToFile(data);
+        listeners.fireCreate(obj);
+    }
+
+    /**
+     * Adds several objects with a single read and a single write of the file.
+     *
+     * @param objs The objects to add.
+     */
+    @Override
+    public synchronized void createAll(Collection<T> objs) {
+        if (objs.isEmpty()) return;
+        List<T> data = readDataFromFile();
+        data.addAll(objs);
+        writeDataToFile(data);
+        for (T obj : objs) {
+            listeners.fireCreate(obj);
+        }
     }
 
     /**
@@ -52,7 +76,7 @@ public class InFileRepository<T extends HasID> implements IRepository<T> {
      * @return A list of all objects in the repository.
      */
     @Override
-    public List<T> readAll() {
+    public synchronized List<T> readAll() {
         return readDataFromFile();
     }
 
@@ -62,10 +86,12 @@ public class InFileRepository<T extends HasID> implements IRepository<T> {
      * @param id The ID of the object to be deleted.
      */
     @Override
-    public void delete(Integer id) {
+    public synchronized void delete(Integer id) {
         List<T> data = readDataFromFile();
-        data.removeIf(item -> item.getId().equals(id));
-        writeDataToFile(data);
+        if (data.removeIf(item -> item.getId().equals(id))) {
+            writeDataToFile(data);
+            listeners.fireDelete(id);
+        }
     }
 
     /**
@@ -75,7 +101,7 @@ public class InFileRepository<T extends HasID> implements IRepository<T> {
      * @return The object with the specified ID, or null if not found.
      */
     @Override
-    public T get(Integer id) {
+    public synchronized T get(Integer id) {
         return readDataFromFile().stream()
                 .filter(item -> item.getId().equals(id))
                 .findFirst()
@@ -88,13 +114,63 @@ public class InFileRepository<T extends HasID> implements IRepository<T> {
      * @return A set of IDs of all objects in the repository.
      */
     @Override
-    public Set<Integer> getKeys() {
+    public synchronized Set<Integer> getKeys() {
+        return new HashSet<>(readIdsFromFile());
+    }
+
+    /**
+     * Checks whether an object with the given ID exists by reading only the ID column of the file.
+     *
+     * @param id The ID to look for.
+     * @return true if the object exists.
+     */
+    @Override
+    public synchronized boolean exists(Integer id) {
+        return readIdsFromFile().contains(id);
+    }
+
+    /**
+     * Counts the objects in the file without deserializing them.
+     *
+     * @return The number of objects.
+     */
+    @Override
+    public synchronized int count() {
+        return readIdsFromFile().size();
+    }
+
+    /**
+     * Counts the objects matching the criteria.
+     *
+     * @param criteria The condition selecting the objects to count.
+     * @return The number of matching objects.
+     */
+    @Override
+    public synchronized int count(Criteria<T> criteria) {
+        int matching = 0;
+        for (T item : readDataFromFile()) {
+            if (criteria.test(item)) {
+                matching++;
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Retrieves a narrow view of every object in the file.
+     *
+     * @param projection The projection building the result from each object.
+     * @param <R>        The type of the projected result.
+     * @return A list with one projected result per object.
+     */
+    @Override
+    public synchronized <R> List<R> project(Projection<T, R> projection) {
         List<T> data = readDataFromFile();
-        Set<Integer> keys = new HashSet<>();
+        List<R> result = new ArrayList<>(data.size());
         for (T item : data) {
-            keys.add(item.getId());
+            result.add(projection.fromEntity(item));
         }
-        return keys;
+        return result;
     }
 
     /**
@@ -103,15 +179,97 @@ public class InFileRepository<T extends HasID> implements IRepository<T> {
      * @param obj The object with updated data.
      */
     @Override
-    public void update(T obj) {
+    public synchronized void update(T obj) {
         List<T> data = readDataFromFile();
         for (int i = 0; i < data.size(); i++) {
             if (data.get(i).getId().equals(obj.getId())) {
                 data.set(i, obj);
-                break;
+                writeDataToFile(data);
+                listeners.fireUpdate(obj);
+                return;
             }
         }
-        writeDataToFile(data);
+    }
+
+    /**
+     * Updates several objects with a single read and a single write of the file.
+     *
+     * @param objs The objects to update.
+     */
+    @Override
+    public synchronized void updateAll(Collection<T> objs) {
+        Map<Integer, T> updates = new HashMap<>();
+        for (T obj : objs) {
+            updates.put(obj.getId(), obj);
+        }
+
+        List<T> data = readDataFromFile();
+        List<T> updated = new ArrayList<>();
+        for (int i = 0; i < data.size(); i++) {
+            T obj = updates.get(data.get(i).getId());
+            if (obj != null) {
+                data.set(i, obj);
+                updated.add(obj);
+            }
+        }
+        if (!updated.isEmpty()) {
+            writeDataToFile(data);
+            for (T obj : updated) {
+                listeners.fireUpdate(obj);
+            }
+        }
+    }
+
+    /**
+     * Deletes every object matching the criteria with a single read and a single write of the file.
+     *
+     * @param criteria The condition selecting the objects to delete.
+     * @return The number of deleted objects.
+     */
+    @Override
+    public synchronized int deleteWhere(Criteria<T> criteria) {
+        List<T> data = readDataFromFile();
+        List<Integer> deletedIds = new ArrayList<>();
+        data.removeIf(item -> {
+            if (criteria.test(item)) {
+                deletedIds.add(item.getId());
+                return true;
+            }
+            return false;
+        });
+        if (!deletedIds.isEmpty()) {
+            writeDataToFile(data);
+            for (Integer id : deletedIds) {
+                listeners.fireDelete(id);
+            }
+        }
+        return deletedIds.size();
+    }
+
+    /**
+     * Updates every object matching the criteria with a single read and a single write of the file.
+     *
+     * @param criteria The condition selecting the objects to update.
+     * @param update   The field assignment to apply.
+     * @return The number of updated objects.
+     */
+    @Override
+    public synchronized int updateWhere(Criteria<T> criteria, FieldUpdate<T> update) {
+        List<T> data = readDataFromFile();
+        List<T> updated = new ArrayList<>();
+        for (T item : data) {
+            if (criteria.test(item)) {
+                update.apply(item);
+                updated.add(item);
+            }
+        }
+        if (!updated.isEmpty()) {
+            writeDataToFile(data);
+            for (T item : updated) {
+                listeners.fireUpdate(item);
+            }
+        }
+        return updated.size();
     }
 
     /**
@@ -131,7 +289,50 @@ public class InFileRepository<T extends HasID> implements IRepository<T> {
     }
 
     /**
-     * Reads a list of objects from the file.
+     * Retrieves the first objects in the given order using a bounded heap over the file contents.
+     *
+     * @param sortKey The order of the objects.
+     * @param limit   The maximum number of objects to return.
+     * @return At most {@code limit} objects, in the requested order.
+     */
+    @Override
+    public synchronized List<T> readTop(SortKey<T> sortKey, int limit) {
+        return TopK.select(readDataFromFile(), limit, sortKey.getComparator());
+    }
+
+    /**
+     * Registers a listener that is notified after every successful write to the file.
+     *
+     * @param listener The listener to register.
+     */
+    @Override
+    public void addListener(RepositoryListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Reads only the IDs from the file. Every serializer writes the ID as the first CSV field,
+     * so the lines do not have to be deserialized. Blank lines are skipped.
+     *
+     * @return The IDs in file order.
+     */
+    private List<Integer> readIdsFromFile() {
+        List<Integer> ids = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                int separator = line.indexOf(',');
+                ids.add(Integer.parseInt((separator < 0 ? line : line.substring(0, separator)).trim()));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading data from file", e);
+        }
+        return ids;
+    }
+
+    /**
+     * Reads a list of objects from the file, skipping blank lines.
      *
      * @return A list of objects read from the file.
      */
@@ -140,6 +341,7 @@ public class InFileRepository<T extends HasID> implements IRepository<T> {
         try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
             String line;
             while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;  // e.g. a trailing newline left by an editor
                 T obj = deserializer.apply(line);  // Use the provided deserializer
                 data.add(obj);
             }
@@ -1,25 +1,41 @@
 package repository;
 
+import helpers.TopK;
 import model.HasID;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 /**
  * A repository implementation that stores data in memory.
+ * The data is kept in a concurrent map, so different entities can be written from different threads.
  *
  * @param <T> The type of objects stored in the repository, which must implement HasId.
  */
 public class InMemoryRepo<T extends HasID> implements IRepository<T> {
-    private final Map<Integer,T> data = new HashMap<>();
+    private final Map<Integer,T> data = new ConcurrentHashMap<>();
     private List<T> entities;
+    private final RepositoryListeners<T> listeners = new RepositoryListeners<>();
     /**
      * {@inheritDoc}
      */
     @Override
     public void create(T obj) {
-        data.putIfAbsent(obj.getId(), obj);
+        if (data.putIfAbsent(obj.getId(), obj) == null) {
+            listeners.fireCreate(obj);
+        }
+    }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void createAll(Collection<T> objs) {
+        for (T obj : objs) {
+            create(obj);
+        }
     }
     /**
      * {@inheritDoc}
@@ -33,14 +49,28 @@ public class InMemoryRepo<T extends HasID> implements IRepository<T> {
      */
     @Override
     public void update(T obj) {
-        data.replace(obj.getId(), obj);
+        if (data.replace(obj.getId(), obj) != null) {
+            listeners.fireUpdate(obj);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateAll(Collection<T> objs) {
+        for (T obj : objs) {
+            update(obj);
+        }
     }
     /**
      * {@inheritDoc}
      */
     @Override
     public void delete(Integer id) {
-        data.remove(id);
+        if (data.remove(id) != null) {
+            listeners.fireDelete(id);
+        }
     }
     /**
      * {@inheritDoc}
@@ -56,6 +86,91 @@ public class InMemoryRepo<T extends HasID> implements IRepository<T> {
     public Set<Integer> getKeys() {
         return data.keySet();
     }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteWhere(Criteria<T> criteria) {
+        List<Integer> deletedIds = new ArrayList<>();
+        data.values().removeIf(item -> {
+            if (criteria.test(item)) {
+                deletedIds.add(item.getId());
+                return true;
+            }
+            return false;
+        });
+        for (Integer id : deletedIds) {
+            listeners.fireDelete(id);
+        }
+        return deletedIds.size();
+    }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int updateWhere(Criteria<T> criteria, FieldUpdate<T> update) {
+        int updated = 0;
+        for (T item : data.values()) {
+            if (criteria.test(item)) {
+                update.apply(item);
+                listeners.fireUpdate(item);
+                updated++;
+            }
+        }
+        return updated;
+    }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean exists(Integer id) {
+        return data.containsKey(id);
+    }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int count() {
+        return data.size();
+    }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int count(Criteria<T> criteria) {
+        int matching = 0;
+        for (T item : data.values()) {
+            if (criteria.test(item)) {
+                matching++;
+            }
+        }
+        return matching;
+    }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R> List<R> project(Projection<T, R> projection) {
+        List<R> result = new ArrayList<>(data.size());
+        for (T item : data.values()) {
+            result.add(projection.fromEntity(item));
+        }
+        return result;
+    }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<T> readTop(SortKey<T> sortKey, int limit) {
+        return TopK.select(data.values(), limit, sortKey.getComparator());
+    }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addListener(RepositoryListener<T> listener) {
+        listeners.add(listener);
+    }
 
 
 }
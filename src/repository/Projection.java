@@ -0,0 +1,41 @@
+package repository;
+
+import java.util.function.Function;
+
+/**
+ * Describes a narrow view of an entity: the columns to select from the database
+ * and how to build the lightweight result from a row or from an already loaded entity.
+ *
+ * @param <T> The type of entity being projected.
+ * @param <R> The type of the projected result.
+ */
+public class Projection<T, R> {
+    private final String columns;
+    private final RowMapper<R> rowMapper;
+    private final Function<T, R> fromEntity;
+
+    /**
+     * Creates a projection.
+     *
+     * @param columns    Comma-separated list of the columns to select.
+     * @param rowMapper  Maps a row containing only the selected columns to the result.
+     * @param fromEntity Builds the result from a loaded entity, for backends without column access.
+     */
+    public Projection(String columns, RowMapper<R> rowMapper, Function<T, R> fromEntity) {
+        this.columns = columns;
+        this.rowMapper = rowMapper;
+        this.fromEntity = fromEntity;
+    }
+
+    public String getColumns() {
+        return columns;
+    }
+
+    public RowMapper<R> getRowMapper() {
+        return rowMapper;
+    }
+
+    public R fromEntity(T obj) {
+        return fromEntity.apply(obj);
+    }
+}
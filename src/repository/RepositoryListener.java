@@ -0,0 +1,34 @@
+package repository;
+
+/**
+ * Receives a notification after every successful write to a repository.
+ * Listeners are called synchronously on the writing thread, so anything they maintain
+ * is consistent with the repository as soon as the write returns.
+ *
+ * @param <T> The type of objects stored in the repository.
+ */
+public interface RepositoryListener<T> {
+    /**
+     * Called after an object has been created.
+     *
+     * @param obj The created object.
+     */
+    default void onCreate(T obj) {
+    }
+
+    /**
+     * Called after an object has been updated.
+     *
+     * @param obj The object with its new state.
+     */
+    default void onUpdate(T obj) {
+    }
+
+    /**
+     * Called after an object has been deleted.
+     *
+     * @param id The ID of the deleted object.
+     */
+    default void onDelete(Integer id) {
+    }
+}
@@ -0,0 +1,36 @@
+package repository;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The listeners registered on one repository, shared by all repository implementations
+ * to fan a write out to every listener.
+ *
+ * @param <T> The type of objects stored in the repository.
+ */
+class RepositoryListeners<T> {
+    private final List<RepositoryListener<T>> listeners = new CopyOnWriteArrayList<>();
+
+    void add(RepositoryListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    void fireCreate(T obj) {
+        for (RepositoryListener<T> listener : listeners) {
+            listener.onCreate(obj);
+        }
+    }
+
+    void fireUpdate(T obj) {
+        for (RepositoryListener<T> listener : listeners) {
+            listener.onUpdate(obj);
+        }
+    }
+
+    void fireDelete(Integer id) {
+        for (RepositoryListener<T> listener : listeners) {
+            listener.onDelete(id);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package repository;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+/**
+ * The ordering of a ranked query: a database column for ORDER BY pushdown
+ * and the equivalent comparator for backends that rank in Java.
+ *
+ * @param <T> The type of entity being ordered.
+ */
+public class SortKey<T> {
+    private final String column;
+    private final boolean descending;
+    private final Comparator<T> comparator;
+
+    private SortKey(String column, boolean descending, Comparator<T> comparator) {
+        this.column = column;
+        this.descending = descending;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Orders entities by a field from the smallest value to the largest.
+     *
+     * @param column   The database column holding the field.
+     * @param accessor The getter returning the field from an entity.
+     * @param <T>      The type of entity.
+     * @param <U>      The type of the field.
+     * @return The ordering.
+     */
+    public static <T, U extends Comparable<? super U>> SortKey<T> ascending(String column, Function<T, U> accessor) {
+        return new SortKey<>(column, false, Comparator.comparing(accessor, Comparator.nullsLast(Comparator.naturalOrder())));
+    }
+
+    /**
+     * Orders entities by a field from the largest value to the smallest.
+     *
+     * @param column   The database column holding the field.
+     * @param accessor The getter returning the field from an entity.
+     * @param <T>      The type of entity.
+     * @param <U>      The type of the field.
+     * @return The ordering.
+     */
+    public static <T, U extends Comparable<? super U>> SortKey<T> descending(String column, Function<T, U> accessor) {
+        return new SortKey<>(column, true, Comparator.comparing(accessor, Comparator.nullsLast(Comparator.<U>reverseOrder())));
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public Comparator<T> getComparator() {
+        return comparator;
+    }
+}
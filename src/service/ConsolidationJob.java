@@ -0,0 +1,183 @@
+package service;
+
+import helpers.Geocoder;
+import helpers.GridIndex;
+import model.Delivery;
+import model.GeoPoint;
+import model.Order;
+import model.Packages;
+import repository.IRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Groups the orders that are not part of a delivery into new deliveries in one pass.
+ *
+ * <p>Orders are first grouped by their normalized location, then the locations are clustered: every location
+ * joins the cluster whose first location is within {@link #CLUSTER_RADIUS_KM}, or starts a new cluster.
+ * Locations that cannot be geocoded form a cluster of their own. The clusters are batched in parallel: the orders
+ * of a cluster are sorted by delivery date and time, and a batch is closed when the next order falls outside
+ * the {@link #TIME_WINDOW_HOURS} window of its first order or does not fit the vehicle capacity anymore.
+ * All deliveries and orders are then saved with one batched write each; only the orders of the deliveries that
+ * were stored are saved with their new delivery ID.</p>
+ *
+ * <p>The orders already in a delivery are recognized by the delivery ID saved with every order, which all
+ * backends store; the orders of a delivery are only used as well where the backend keeps them.</p>
+ */
+public class ConsolidationJob {
+    public static final double CLUSTER_RADIUS_KM = 5;
+    public static final int TIME_WINDOW_HOURS = 2;
+
+    private final IRepository<Order> orderIRepository;
+    private final IRepository<Delivery> deliveryIRepository;
+    private final Geocoder geocoder;
+
+    /**
+     * @param orderIRepository    the orders to consolidate.
+     * @param deliveryIRepository receives the new deliveries.
+     * @param geocoder            resolves the order locations to coordinates.
+     */
+    public ConsolidationJob(IRepository<Order> orderIRepository, IRepository<Delivery> deliveryIRepository, Geocoder geocoder) {
+        this.orderIRepository = orderIRepository;
+        this.deliveryIRepository = deliveryIRepository;
+        this.geocoder = geocoder;
+    }
+
+    /**
+     * Creates deliveries for all orders that are not part of a delivery.
+     *
+     * @param weightCapacity the total package weight one delivery can carry.
+     * @param volumeCapacity the total package volume one delivery can carry.
+     * @return the created deliveries.
+     */
+    public List<Delivery> run(double weightCapacity, double volumeCapacity) {
+        Set<Integer> assigned = new HashSet<>();
+        for (Delivery delivery : deliveryIRepository.readAll()) {
+            for (Order order : delivery.getOrders()) {
+                assigned.add(order.getId());
+            }
+        }
+
+        Map<String, List<Order>> byLocation = new TreeMap<>();
+        for (Order order : orderIRepository.readAll()) {
+            if (order.getDeliveryId() == null && !assigned.contains(order.getId())) {
+                byLocation.computeIfAbsent(normalize(order.getLocation()), key -> new ArrayList<>()).add(order);
+            }
+        }
+
+        List<List<Order>> batches = cluster(byLocation).parallelStream()
+                .map(orders -> batch(orders, weightCapacity, volumeCapacity))
+                .flatMap(List::stream)
+                .toList();
+
+        int nextId = 1;
+        for (Integer id : deliveryIRepository.getKeys()) {
+            nextId = Math.max(nextId, id + 1);
+        }
+        List<Delivery> deliveries = new ArrayList<>(batches.size());
+        for (List<Order> orders : batches) {
+            Delivery delivery = new Delivery(nextId++);
+            delivery.setLocation(orders.get(0).getLocation());
+            for (Order order : orders) {
+                order.setDeliveryId(delivery.getId());
+                delivery.addOrder(order);
+            }
+            deliveries.add(delivery);
+        }
+
+        deliveryIRepository.createAll(deliveries);
+        // Some backends report a failed write only by not storing it; the orders of a delivery that was not
+        // stored stay unassigned, so they are not saved pointing at a delivery that does not exist
+        Set<Integer> stored = deliveryIRepository.getKeys();
+        List<Delivery> created = new ArrayList<>(deliveries.size());
+        List<Order> updatedOrders = new ArrayList<>();
+        for (Delivery delivery : deliveries) {
+            boolean isStored = stored.contains(delivery.getId());
+            if (isStored) created.add(delivery);
+            for (Order order : delivery.getOrders()) {
+                if (isStored) {
+                    updatedOrders.add(order);
+                } else {
+                    order.setDeliveryId(null);
+                }
+            }
+        }
+
+        orderIRepository.updateAll(updatedOrders);
+        return created;
+    }
+
+    /**
+     * Merges the location groups into clusters of nearby locations.
+     */
+    private List<List<Order>> cluster(Map<String, List<Order>> byLocation) {
+        List<List<Order>> clusters = new ArrayList<>();
+        GridIndex<Integer> centers = new GridIndex<>(LocationIndex.CELL_DEGREES);
+        for (List<Order> orders : byLocation.values()) {
+            String location = orders.get(0).getLocation();
+            GeoPoint point = location == null ? null : geocoder.geocode(location);
+            List<Integer> nearby = point == null ? List.of() : centers.withinRadius(point, CLUSTER_RADIUS_KM);
+            if (nearby.isEmpty()) {
+                if (point != null) centers.put(clusters.size(), point);
+                clusters.add(new ArrayList<>(orders));
+            } else {
+                clusters.get(nearby.get(0)).addAll(orders);
+            }
+        }
+        return clusters;
+    }
+
+    /**
+     * Splits the orders of a cluster into deliveries by time window and capacity.
+     */
+    private static List<List<Order>> batch(List<Order> orders, double weightCapacity, double volumeCapacity) {
+        List<Order> sorted = new ArrayList<>(orders);
+        sorted.sort(Comparator.comparing(Order::getDeliveryDateTime, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(Order::getId));
+
+        List<List<Order>> batches = new ArrayList<>();
+        List<Order> current = new ArrayList<>();
+        LocalDateTime windowEnd = null;
+        double weight = 0;
+        double volume = 0;
+        for (Order order : sorted) {
+            double orderWeight = 0;
+            double orderVolume = 0;
+            for (Packages packages : order.getPackages()) {
+                orderWeight += packages.getWeight();
+                orderVolume += packages.getVolume();
+            }
+
+            boolean outsideWindow = order.getDeliveryDateTime() == null
+                    ? windowEnd != null
+                    : windowEnd == null || order.getDeliveryDateTime().isAfter(windowEnd);
+            boolean full = weight + orderWeight > weightCapacity || volume + orderVolume > volumeCapacity;
+            if (!current.isEmpty() && (outsideWindow || full)) {
+                batches.add(current);
+                current = new ArrayList<>();
+            }
+            if (current.isEmpty()) {
+                windowEnd = order.getDeliveryDateTime() == null ? null : order.getDeliveryDateTime().plusHours(TIME_WINDOW_HOURS);
+                weight = 0;
+                volume = 0;
+            }
+            current.add(order);
+            weight += orderWeight;
+            volume += orderVolume;
+        }
+        if (!current.isEmpty()) batches.add(current);
+        return batches;
+    }
+
+    private static String normalize(String location) {
+        return location == null ? "" : location.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -2,6 +2,7 @@ package service;
 
 import exceptions.BusinessLogicException;
 import exceptions.EntityNotFound;
+import helpers.TopK;
 import model.*;
 import repository.*;
 
@@ -20,6 +21,13 @@ public class CustomerService {
     private final IRepository<Order> orderIRepository;
     private final IRepository<Delivery> deliveryIRepository;
     private final IRepository<Packages> packageIRepository;
+    private final Cascade<Customer> customerCascade;
+    private final OrderAggregates orderAggregates;
+    private final SlotBooking slotBooking;
+    private final NotificationOutbox notificationOutbox;
+
+    /** Number of days offered when a customer picks a delivery slot */
+    public static final int SLOT_BOOKING_DAYS = 7;
 
     /**
      * Constructs a CustomerService with the specified repositories.
@@ -30,10 +38,51 @@ public class CustomerService {
      * @param packageIRepository  Repository for managing packages.
      */
     public CustomerService(IRepository<Customer> customerIRepository, IRepository<Order> orderIRepository, IRepository<Delivery> deliveryIRepository, IRepository<Packages> packageIRepository) {
+        this(customerIRepository, orderIRepository, deliveryIRepository, packageIRepository, region -> SlotBooking.UNBOUNDED);
+    }
+
+    /**
+     * Constructs a CustomerService that books every order into a delivery slot of limited capacity.
+     *
+     * @param customerIRepository Repository for managing customers.
+     * @param orderIRepository    Repository for managing orders.
+     * @param deliveryIRepository Repository for managing deliveries.
+     * @param packageIRepository  Repository for managing packages.
+     * @param slotCapacity        The number of orders the delivery slots can take.
+     */
+    public CustomerService(IRepository<Customer> customerIRepository, IRepository<Order> orderIRepository, IRepository<Delivery> deliveryIRepository, IRepository<Packages> packageIRepository, SlotBooking.Capacity slotCapacity) {
+        this(customerIRepository, orderIRepository, deliveryIRepository, packageIRepository, slotCapacity, null);
+    }
+
+    /**
+     * Constructs a CustomerService that books orders into delivery slots and notifies customers of changes to their orders.
+     *
+     * @param customerIRepository Repository for managing customers.
+     * @param orderIRepository    Repository for managing orders.
+     * @param deliveryIRepository Repository for managing deliveries.
+     * @param packageIRepository  Repository for managing packages.
+     * @param slotCapacity        The number of orders the delivery slots can take.
+     * @param notificationOutbox  The outbox following the same order and delivery repositories, or null to notify no one.
+     */
+    public CustomerService(IRepository<Customer> customerIRepository, IRepository<Order> orderIRepository, IRepository<Delivery> deliveryIRepository, IRepository<Packages> packageIRepository, SlotBooking.Capacity slotCapacity, NotificationOutbox notificationOutbox) {
         this.customerIRepository = customerIRepository;
         this.orderIRepository = orderIRepository;
         this.deliveryIRepository = deliveryIRepository;
         this.packageIRepository = packageIRepository;
+        this.customerCascade = new Cascade<>(customerIRepository)
+                .deleting(orderIRepository, "customerID", Order::getCustomerID);
+        this.orderAggregates = new OrderAggregates(orderIRepository, packageIRepository);
+        this.slotBooking = new SlotBooking(orderIRepository, slotCapacity);
+        this.notificationOutbox = notificationOutbox;
+    }
+
+    /**
+     * Returns the outbox notifying customers of changes to their orders.
+     *
+     * @return The outbox, or null if customers are not notified.
+     */
+    public NotificationOutbox getNotificationOutbox() {
+        return notificationOutbox;
     }
 
     /**
@@ -80,6 +129,7 @@ public class CustomerService {
      * @param deliveryDateTime Date and time for the delivery.
      * @param packageIds       List of package IDs associated with the order.
      * @throws SQLException if there is an error accessing the database.
+     * @throws BusinessLogicException if the delivery slot is full.
      */
     public void placeOrder(Integer customerId, Integer orderID, LocalDateTime deliveryDateTime, List<Integer> packageIds) throws SQLException {
         Customer customer = customerIRepository.get(customerId);
@@ -88,46 +138,118 @@ public class CustomerService {
         }
 
         String location = customer.getAddress();
-        Order order = new Order(orderID, customerId, deliveryDateTime);
-        orderIRepository.create(order);
-
-
-        double totalCost = 0;
-        for (Integer packageId : packageIds) {
-            Packages packages = packageIRepository.get(packageId);
-            if (packages != null) {
-                packages.setOrderID(orderID);  // Set the order ID in package
-                order.addPackage(packages);    // Add package to order
-
-                if (orderIRepository instanceof DBRepository<Order>) {
-
-                    String insertOrderPackageSQL = "INSERT INTO orderpackages VALUES(?, ?) ON CONFLICT (orderid, packageid) DO NOTHING";
-                    DbUtil.executeUpdate(insertOrderPackageSQL, orderID, packageId);
+        slotBooking.reserve(orderID, location, deliveryDateTime);
+        try {
+            Order order = new Order(orderID, customerId, deliveryDateTime);
+            order.setLocation(location);
+            orderIRepository.create(order);
+
+
+            long totalCost = 0;
+            for (Integer packageId : packageIds) {
+                Packages packages = packageIRepository.get(packageId);
+                if (packages != null) {
+                    packages.setOrderID(orderID);  // Set the order ID in package
+                    order.addPackage(packages);    // Add package to order
+
+                    if (orderIRepository instanceof DBRepository<Order>) {
+
+                        String insertOrderPackageSQL = "INSERT INTO orderpackages VALUES(?, ?) ON CONFLICT (orderid, packageid) DO NOTHING";
+                        DbUtil.executeUpdate(insertOrderPackageSQL, orderID, packageId);
+                    }
+                    totalCost += packages.getCostMinor();
+                    packageIRepository.update(packages); // Update package with new order ID
                 }
-                totalCost += packages.getCost();
-                packageIRepository.update(packages); // Update package with new order ID
             }
-        }
 
-        // Set order cost and save
-        order.setTotalCost(totalCost);
-        order.setLocation(location);
-        orderIRepository.update(order);
-        // Update customer
-        customer.addDOrder(order);
-        customerIRepository.update(customer);
+            // Set order cost and save
+            order.setTotalCostMinor(totalCost);
+            orderIRepository.update(order);
+            // Update customer
+            customer.addDOrder(order);
+            customerIRepository.update(customer);
+        } catch (SQLException | RuntimeException e) {
+            // The slot stays booked only for an order that was saved
+            if (!orderIRepository.exists(orderID)) {
+                slotBooking.release(orderID);
+            }
+            throw e;
+        }
     }
 
     /**
-     * Calculates the total cost of an order based on its associated packages.
+     * Calculates the total cost of an order based on its associated packages, from the running package totals.
      *
      * @param orderId ID of the order to calculate the cost for.
      * @return Total cost of the order.
      * @throws EntityNotFound if no order is found with the specified ID.
      */
     public double calculateOrderCost(Integer orderId) {
-        Order order = orderIRepository.get(orderId);
-        return order.getTotalCost();
+        Long storedTotal = orderAggregates.getOrderTotalMinor(orderId);
+        if (storedTotal == null) throw new EntityNotFound("No order found with ID " + orderId);
+
+        // The package totals follow the package writes; only an order whose packages were never saved
+        // with its ID is read and summed from the packages it holds
+        Long packageTotal = orderAggregates.getPackageTotalMinor(orderId);
+        Order order = packageTotal == null ? orderIRepository.get(orderId) : null;
+        long totalCost = 0;
+        if (order != null) {
+            for (Packages packages : order.getPackages()) {
+                totalCost += packages.getCostMinor();
+            }
+        } else if (packageTotal != null) {
+            totalCost = packageTotal;
+        }
+
+        if (totalCost != storedTotal) {
+            if (order == null) order = orderIRepository.get(orderId);
+            if (order == null) throw new EntityNotFound("No order found with ID " + orderId);
+            order.setTotalCostMinor(totalCost);
+            orderIRepository.update(order);
+        }
+        return Money.toMajor(totalCost);
+    }
+
+    /**
+     * Returns the stored total cost of an order from the running order totals, without reading the order.
+     *
+     * @param orderId ID of the order.
+     * @return Total cost of the order.
+     * @throws EntityNotFound if no order is found with the specified ID.
+     */
+    public double getOrderTotal(Integer orderId) {
+        Long total = orderAggregates.getOrderTotalMinor(orderId);
+        if (total == null) throw new EntityNotFound("No order found with ID " + orderId);
+        return Money.toMajor(total);
+    }
+
+    /**
+     * Returns the lifetime spend of a customer, the summed total cost of all their orders.
+     *
+     * @param customerId ID of the customer.
+     * @return The spend of the customer.
+     */
+    public double getCustomerSpend(Integer customerId) {
+        return Money.toMajor(orderAggregates.getCustomerSpendMinor(customerId));
+    }
+
+    /**
+     * Returns the number of orders placed by a customer.
+     *
+     * @param customerId ID of the customer.
+     * @return The order count of the customer.
+     */
+    public int getCustomerOrderCount(Integer customerId) {
+        return orderAggregates.getCustomerOrderCount(customerId);
+    }
+
+    /**
+     * Recomputes the order totals and customer spend from the order repository.
+     *
+     * @return true if the running totals were correct.
+     */
+    public boolean verifyOrderAggregates() {
+        return orderAggregates.rebuild();
     }
 
     /**
@@ -163,13 +285,8 @@ public class CustomerService {
 
         if (customer == null) throw new EntityNotFound("No customer found with ID " + customerId);
 
-        // Delete associated orders
-        List<Order> orders = getOrdersFromCustomers(customerId);
-        for (Order order : orders) {
-            orderIRepository.delete(order.getId());
-        }
-        // Delete the customer
-        customerIRepository.delete(customerId);
+        // Delete associated orders with one set-based operation, then the customer
+        customerCascade.delete(customerId);
     }
 
     /**
@@ -178,14 +295,39 @@ public class CustomerService {
      * @param orderId         ID of the order to schedule delivery for.
      * @param deliveryDateTime Date and time when delivery should occur.
      * @throws EntityNotFound if no order is found with the specified ID.
+     * @throws BusinessLogicException if the delivery slot is full.
      */
     public void scheduleDelivery(Integer orderId, LocalDateTime deliveryDateTime) {
         Order order = orderIRepository.get(orderId);
 
         if (order == null) throw new EntityNotFound("No order found with ID " + orderId);
 
+        slotBooking.reserve(orderId, order.getLocation(), deliveryDateTime);
+
         order.setDeliveryDateTime(deliveryDateTime);
         orderIRepository.update(order);
+
+        // The delivery schedule follows the order write; save the owning delivery again for the listeners reading the orders it holds
+        if (order.getDeliveryId() == null) return;
+        Delivery delivery = deliveryIRepository.get(order.getDeliveryId());
+        if (delivery != null && delivery.replaceOrder(order)) {
+            deliveryIRepository.update(delivery);
+        }
+    }
+
+    /**
+     * Returns the delivery slots with room left at the address of a customer for the next {@value #SLOT_BOOKING_DAYS} days.
+     *
+     * @param customerId ID of the customer.
+     * @param from       The time to start from.
+     * @return The available slots in time order.
+     * @throws EntityNotFound if no customer is found with the specified ID.
+     */
+    public List<SlotBooking.AvailableSlot> getAvailableSlots(Integer customerId, LocalDateTime from) {
+        Customer customer = customerIRepository.get(customerId);
+        if (customer == null) throw new EntityNotFound("No customer found with ID " + customerId);
+
+        return slotBooking.getAvailableSlots(customer.getAddress(), from, SLOT_BOOKING_DAYS);
     }
 
     /**
@@ -196,10 +338,31 @@ public class CustomerService {
      */
     public List<Order> getOrdersSortedByPriceDescending(List<Order> orders) {
         return orders.stream()
-                .sorted(Comparator.comparingDouble(Order::getCost).reversed())
+                .sorted(Comparator.comparingLong(Order::getTotalCostMinor).reversed())
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Returns the most expensive orders of a list, without sorting the whole list.
+     *
+     * @param orders the list of orders to rank.
+     * @param limit  the maximum number of orders to return.
+     * @return at most {@code limit} orders, in descending order by price.
+     */
+    public List<Order> getTopOrdersByPrice(List<Order> orders, int limit) {
+        return TopK.select(orders, limit, Comparator.comparingLong(Order::getTotalCostMinor).reversed());
+    }
+
+    /**
+     * Returns the most expensive orders in the repository; the database backend ranks them with ORDER BY ... LIMIT.
+     *
+     * @param limit the maximum number of orders to return.
+     * @return at most {@code limit} orders, in descending order by price.
+     */
+    public List<Order> getTopOrdersByPrice(int limit) {
+        return orderIRepository.readTop(SortKey.descending("totalCost", Order::getTotalCostMinor), limit);
+    }
+
     /**
      * Generates a new unique customer ID.
      *
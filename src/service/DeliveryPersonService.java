@@ -3,30 +3,132 @@ package service;
 import exceptions.BusinessLogicException;
 import exceptions.EntityNotFound;
 import exceptions.ValidationException;
+import helpers.Geocoder;
+import helpers.GridIndex;
+import helpers.LookupTableGeocoder;
 import model.*;
 import repository.IRepository;
-
+import repository.RepositoryListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
 
 public class DeliveryPersonService {
     private final IRepository<Delivery> deliveryIRepository;
     private final IRepository<Delivery_Person> deliveryPersonIRepository;
     private final IRepository<Personal_Vehicle> personalVehicleIRepository;
-
+    private final IRepository<Order> orderIRepository;
+    private final IRepository<Packages> packageIRepository;
+    private final ToBeShippedIndex toBeShippedIndex;
+    private final OpenDeliveryFeed openDeliveryFeed;
+    private final DispatchEngine dispatchEngine = new DispatchEngine();
+    private final LoadingPlanner loadingPlanner = new LoadingPlanner();
+    private final RouteSequencer routeSequencer = new RouteSequencer();
+    private final Geocoder geocoder;
+    private final TravelCosts travelCosts;
+    private final DriverTelemetry telemetry;
+    /** Last reported position of every delivery person */
+    private final GridIndex<Integer> driverPositions = new GridIndex<>(LocationIndex.CELL_DEGREES);
+    /** The last written state of every verified delivery person with a vehicle, kept from the repository writes */
+    private final Map<Integer, Delivery_Person> availableDrivers = new ConcurrentHashMap<>();
 
     public DeliveryPersonService(IRepository<Delivery> deliveryIRepository, IRepository<Delivery_Person> deliveryPersonIRepository, IRepository<Personal_Vehicle> personalVehicleIRepository){
+        this(deliveryIRepository, deliveryPersonIRepository, personalVehicleIRepository, new LookupTableGeocoder());
+    }
+
+    public DeliveryPersonService(IRepository<Delivery> deliveryIRepository, IRepository<Delivery_Person> deliveryPersonIRepository, IRepository<Personal_Vehicle> personalVehicleIRepository, Geocoder geocoder){
+        this(deliveryIRepository, deliveryPersonIRepository, personalVehicleIRepository, geocoder, null);
+    }
+
+    /**
+     * Creates the service with a travel cost matrix that reported driver positions are added to.
+     */
+    public DeliveryPersonService(IRepository<Delivery> deliveryIRepository, IRepository<Delivery_Person> deliveryPersonIRepository, IRepository<Personal_Vehicle> personalVehicleIRepository, Geocoder geocoder, TravelCosts travelCosts){
+        this(deliveryIRepository, deliveryPersonIRepository, personalVehicleIRepository, geocoder, travelCosts, new DriverTelemetry());
+    }
+
+    /**
+     * Creates the service with a travel cost matrix and the telemetry subsystem receiving the position pings of delivery persons.
+     */
+    public DeliveryPersonService(IRepository<Delivery> deliveryIRepository, IRepository<Delivery_Person> deliveryPersonIRepository, IRepository<Personal_Vehicle> personalVehicleIRepository, Geocoder geocoder, TravelCosts travelCosts, DriverTelemetry telemetry){
+        this(deliveryIRepository, deliveryPersonIRepository, personalVehicleIRepository, geocoder, travelCosts, telemetry, null);
+    }
+
+    /**
+     * Creates the service with the order repository, so the deliveries with "to be shipped" orders follow order status changes directly.
+     */
+    public DeliveryPersonService(IRepository<Delivery> deliveryIRepository, IRepository<Delivery_Person> deliveryPersonIRepository, IRepository<Personal_Vehicle> personalVehicleIRepository, Geocoder geocoder, TravelCosts travelCosts, DriverTelemetry telemetry, IRepository<Order> orderIRepository){
+        this(deliveryIRepository, deliveryPersonIRepository, personalVehicleIRepository, geocoder, travelCosts, telemetry, orderIRepository, null);
+    }
+
+    /**
+     * Creates the service with the order and package repositories, so the orders of a delivery are read from the
+     * delivery ID saved with every order and the packages of an order from the order ID saved with every package.
+     */
+    public DeliveryPersonService(IRepository<Delivery> deliveryIRepository, IRepository<Delivery_Person> deliveryPersonIRepository, IRepository<Personal_Vehicle> personalVehicleIRepository, Geocoder geocoder, TravelCosts travelCosts, DriverTelemetry telemetry, IRepository<Order> orderIRepository, IRepository<Packages> packageIRepository){
         this.deliveryIRepository = deliveryIRepository;
         this.deliveryPersonIRepository = deliveryPersonIRepository;
         this.personalVehicleIRepository = personalVehicleIRepository;
+        this.orderIRepository = orderIRepository;
+        this.packageIRepository = packageIRepository;
+        this.toBeShippedIndex = new ToBeShippedIndex(deliveryIRepository, orderIRepository);
+        this.openDeliveryFeed = new OpenDeliveryFeed(deliveryIRepository);
+        this.geocoder = geocoder;
+        this.travelCosts = travelCosts;
+        this.telemetry = telemetry;
+        deliveryPersonIRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onCreate(Delivery_Person deliveryPerson) {
+                trackAvailability(deliveryPerson);
+            }
+
+            @Override
+            public void onUpdate(Delivery_Person deliveryPerson) {
+                trackAvailability(deliveryPerson);
+            }
+
+            @Override
+            public void onDelete(Integer deliveryPersonId) {
+                driverPositions.remove(deliveryPersonId);
+                availableDrivers.remove(deliveryPersonId);
+            }
+        });
+        for (Delivery_Person deliveryPerson : deliveryPersonIRepository.readAll()) {
+            trackAvailability(deliveryPerson);
+        }
+    }
+
+    private void trackAvailability(Delivery_Person deliveryPerson) {
+        if (deliveryPerson.isVerified() && deliveryPerson.getPersonalVehicleId() != null) {
+            availableDrivers.put(deliveryPerson.getId(), deliveryPerson);
+        } else {
+            availableDrivers.remove(deliveryPerson.getId());
+        }
     }
 
     public List<Delivery> getDelivery() {
         return deliveryIRepository.readAll();
     }
 
+    /**
+     * Checks whether a delivery exists without loading it.
+     *
+     * @param deliveryId ID of the delivery
+     * @return true if the delivery exists
+     */
+    public boolean deliveryExists(Integer deliveryId) {
+        return deliveryIRepository.exists(deliveryId);
+    }
+
     public Integer getNewDeliveryPersonId() {
         int maxId = 0;
         for (Integer Id : deliveryPersonIRepository.getKeys()) {
@@ -48,27 +150,49 @@ public class DeliveryPersonService {
     public void enrollAsDriver(Integer deliveryPersonId, String name, String phone, String license) {
         Delivery_Person deliveryPerson = new Delivery_Person(deliveryPersonId, phone, name);
 
+        deliveryPerson.setLicense(license);
         deliveryPerson.setVerified(true);
         deliveryPersonIRepository.create(deliveryPerson);
     }
 
     /**
      * Retrieves a list of deliveries that contain at least one order with the status "to be shipped".
+     * The deliveries are read from the {@link ToBeShippedIndex}, which is kept up to date on every delivery and order write.
      *
      * @return a list of deliveries where at least one order is marked with the status "to be shipped".
      */
     public List<Delivery> getDeliveriesWithToBeShippedOrders() {
-        List<Delivery> allDeliveries = deliveryIRepository.readAll();
-
-        List<Delivery> deliveriesWithToBeShipped = allDeliveries.stream()
-                .filter(delivery -> delivery.getOrders().stream()
-                        .anyMatch(order -> "to be shipped".equalsIgnoreCase(order.getStatus())))
-                .collect(Collectors.toList());
+        List<Delivery> deliveriesWithToBeShipped = toBeShippedIndex.getDeliveries();
 
         if (deliveriesWithToBeShipped.isEmpty()) throw new BusinessLogicException("No deliveries with 'to be shipped' orders found");
 
         return deliveriesWithToBeShipped;
     }
+    /**
+     * Subscribes a delivery person to the deliveries open for pick-up in a region that suit their vehicle, instead of
+     * polling {@link #getDeliveriesWithToBeShippedOrders()}. The subscriber first receives the open deliveries and then
+     * every delivery that becomes open or gets claimed.
+     *
+     * @param deliveryPersonId ID of the delivery person.
+     * @param region           the location of the deliveries, or null for all locations.
+     * @param subscriber       receives the events.
+     * @throws EntityNotFound if no delivery person is found with the specified ID.
+     */
+    public void subscribeToOpenDeliveries(Integer deliveryPersonId, String region, Flow.Subscriber<? super OpenDeliveryFeed.Event> subscriber) {
+        Delivery_Person deliveryPerson = deliveryPersonIRepository.get(deliveryPersonId);
+        if (deliveryPerson == null) throw new EntityNotFound("No delivery person found with ID " + deliveryPersonId);
+
+        Personal_Vehicle vehicle = deliveryPerson.getPersonalVehicleId() == null ? null : personalVehicleIRepository.get(deliveryPerson.getPersonalVehicleId());
+        openDeliveryFeed.subscribe(subscriber, new OpenDeliveryFeed.Interest(region, vehicle == null ? null : vehicle.getTransportation_type()));
+    }
+
+    /**
+     * @return the feed of the deliveries open for pick-up.
+     */
+    public OpenDeliveryFeed getOpenDeliveryFeed() {
+        return openDeliveryFeed;
+    }
+
     /**
      * Assigns a delivery to a specific delivery person.
      *
@@ -77,33 +201,12 @@ public class DeliveryPersonService {
      * @throws EntityNotFound if no delivery person or delivery is found with the specified IDs.
      */
     public void pickDeliveryToPerson(Integer deliveryPersonId, Integer deliveryId) {
-        List<Delivery_Person> deliveryPeople = deliveryPersonIRepository.readAll();
-        boolean existsDeliveryPerson = false;
-
-        // Check if the delivery person exists
-        for (Delivery_Person deliveryPerson : deliveryPeople) {
-            if (Objects.equals(deliveryPerson.getId(), deliveryPersonId)) {
-                existsDeliveryPerson = true;
-                break;
-            }
-        }
-
-        if (!existsDeliveryPerson) {
+        // Check if the delivery person and the delivery exist
+        if (!deliveryPersonIRepository.exists(deliveryPersonId)) {
             throw new EntityNotFound("No delivery person found with ID " + deliveryPersonId);
         }
 
-        List<Delivery> deliveries = deliveryIRepository.readAll();
-        boolean existsDelivery = false;
-
-        // Check if the delivery exists
-        for (Delivery delivery : deliveries) {
-            if (Objects.equals(delivery.getId(), deliveryId)) {
-                existsDelivery = true;
-                break;
-            }
-        }
-
-        if (!existsDelivery) {
+        if (!deliveryIRepository.exists(deliveryId)) {
             throw new EntityNotFound("No delivery found with ID " + deliveryId);
         }
 
@@ -142,6 +245,390 @@ public class DeliveryPersonService {
         deliveryPersonIRepository.update(deliveryPerson);
     }
 
+    /**
+     * Assigns every delivery without a delivery person to a verified delivery person with a vehicle,
+     * keeping the summed package weight and volume of each person's deliveries within the vehicle capacity
+     * and the cargo volume of its transportation type.
+     * The assignment is computed by the {@link DispatchEngine}, which also prefers the delivery persons whose last
+     * reported position is closest, and written with one batched update per repository.
+     *
+     * @return the new assignments, from delivery ID to delivery person ID; deliveries that fit on no vehicle are left out.
+     */
+    public Map<Integer, Integer> dispatchOpenDeliveries() {
+        Map<Integer, Personal_Vehicle> vehicles = new HashMap<>();
+        for (Personal_Vehicle personalVehicle : personalVehicleIRepository.readAll()) {
+            vehicles.put(personalVehicle.getId(), personalVehicle);
+        }
+
+        List<Delivery_Person> drivers = new ArrayList<>();
+        for (Delivery_Person deliveryPerson : deliveryPersonIRepository.readAll()) {
+            if (deliveryPerson.isVerified() && vehicles.containsKey(deliveryPerson.getPersonalVehicleId())) {
+                drivers.add(deliveryPerson);
+            }
+        }
+        Map<Integer, Integer> driverIndexes = new HashMap<>();
+        double[] capacities = new double[drivers.size()];
+        double[] volumeCapacities = new double[drivers.size()];
+        for (int j = 0; j < drivers.size(); j++) {
+            Personal_Vehicle personalVehicle = vehicles.get(drivers.get(j).getPersonalVehicleId());
+            driverIndexes.put(drivers.get(j).getId(), j);
+            capacities[j] = personalVehicle.getCapacity();
+            volumeCapacities[j] = cargoVolumeOf(personalVehicle);
+        }
+
+        Contents contents = readContents();
+        List<Delivery> openDeliveries = new ArrayList<>();
+        double[] usedCapacities = new double[drivers.size()];
+        double[] usedVolumes = new double[drivers.size()];
+        for (Delivery delivery : deliveryIRepository.readAll()) {
+            if (delivery.getDeliveryPeronID() == null) {
+                openDeliveries.add(delivery);
+            } else {
+                Integer driver = driverIndexes.get(delivery.getDeliveryPeronID());
+                if (driver != null) {
+                    usedCapacities[driver] += weightOf(contents.packagesOf(delivery));
+                    usedVolumes[driver] += volumeOf(contents.packagesOf(delivery));
+                }
+            }
+        }
+        double[] loads = new double[openDeliveries.size()];
+        double[] volumes = new double[openDeliveries.size()];
+        for (int i = 0; i < loads.length; i++) {
+            List<Packages> packages = contents.packagesOf(openDeliveries.get(i));
+            loads[i] = weightOf(packages);
+            volumes[i] = volumeOf(packages);
+        }
+
+        int[] assignment = dispatchEngine.assign(loads, volumes, capacities, volumeCapacities, usedCapacities, usedVolumes,
+                travelCostsOf(openDeliveries, drivers));
+
+        Map<Integer, Integer> assignments = new LinkedHashMap<>();
+        List<Delivery> assignedDeliveries = new ArrayList<>();
+        Set<Delivery_Person> assignedDrivers = new LinkedHashSet<>();
+        for (int i = 0; i < assignment.length; i++) {
+            if (assignment[i] == DispatchEngine.UNASSIGNED) continue;
+
+            Delivery delivery = openDeliveries.get(i);
+            Delivery_Person deliveryPerson = drivers.get(assignment[i]);
+            delivery.setDeliveryPeronID(deliveryPerson.getId());
+            deliveryPerson.addDelivery(delivery);
+            assignedDeliveries.add(delivery);
+            assignedDrivers.add(deliveryPerson);
+            assignments.put(delivery.getId(), deliveryPerson.getId());
+        }
+        deliveryIRepository.updateAll(assignedDeliveries);
+        deliveryPersonIRepository.updateAll(assignedDrivers);
+        return assignments;
+    }
+
+    /**
+     * The road distance from the last reported position of every driver to every delivery, for the dispatch engine.
+     * A driver without a position, or a delivery whose location cannot be geocoded, is equally far from everything.
+     *
+     * @return the distances by delivery and driver, or null if no distance is known.
+     */
+    private double[][] travelCostsOf(List<Delivery> deliveries, List<Delivery_Person> drivers) {
+        applyPings();
+        GeoPoint[] positions = new GeoPoint[drivers.size()];
+        boolean anyPosition = false;
+        for (int j = 0; j < positions.length; j++) {
+            positions[j] = driverPositions.get(drivers.get(j).getId());
+            anyPosition |= positions[j] != null;
+        }
+        if (!anyPosition) return null;
+
+        double[][] costs = new double[deliveries.size()][positions.length];
+        for (int i = 0; i < costs.length; i++) {
+            String location = deliveries.get(i).getLocation();
+            GeoPoint point = location == null ? null : geocoder.geocode(location);
+            if (point == null) continue;
+            for (int j = 0; j < positions.length; j++) {
+                if (positions[j] != null) costs[i][j] = TravelCosts.roadDistanceKm(positions[j], point);
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Records the current position of a delivery person.
+     *
+     * @param deliveryPersonId ID of the delivery person
+     * @param location         the location the delivery person reported
+     * @throws EntityNotFound if the delivery person does not exist or the location cannot be geocoded
+     */
+    public void updateDriverPosition(Integer deliveryPersonId, String location) {
+        if (!deliveryPersonIRepository.exists(deliveryPersonId)) {
+            throw new EntityNotFound("No delivery person found with ID " + deliveryPersonId);
+        }
+        GeoPoint position = locate(location);
+        driverPositions.put(deliveryPersonId, position);
+        if (travelCosts != null) travelCosts.putDriver(deliveryPersonId, position);
+    }
+
+    /**
+     * Reports the current coordinates of a delivery person from their device. Pings are buffered and applied
+     * asynchronously, so this can be called at a high rate from many threads; the ID is not checked here.
+     *
+     * @param deliveryPersonId ID of the delivery person
+     * @param latitude         the reported latitude
+     * @param longitude        the reported longitude
+     * @return false if the ping was dropped because the telemetry buffer is full
+     */
+    public boolean reportPosition(int deliveryPersonId, double latitude, double longitude) {
+        return telemetry.ping(deliveryPersonId, latitude, longitude);
+    }
+
+    /**
+     * @param deliveryPersonId ID of the delivery person
+     * @return the last recorded position of the delivery person, or null if none was reported
+     */
+    public GeoPoint getDriverPosition(Integer deliveryPersonId) {
+        applyPings();
+        return driverPositions.get(deliveryPersonId);
+    }
+
+    /**
+     * Moves the delivery persons whose pings were processed since the last call in the spatial index.
+     */
+    private void applyPings() {
+        telemetry.forEachUpdated(deliveryPersonId -> {
+            if (!deliveryPersonIRepository.exists(deliveryPersonId)) return;
+            GeoPoint position = telemetry.getLatestPosition(deliveryPersonId);
+            driverPositions.put(deliveryPersonId, position);
+            if (travelCosts != null) travelCosts.putDriver(deliveryPersonId, position);
+        });
+    }
+
+    /**
+     * Finds the verified delivery persons with a vehicle that are closest to a location,
+     * using the spatial index of their last reported positions. Whether a delivery person is verified and has
+     * a vehicle is kept from the repository writes, so the candidates are checked without reading them.
+     *
+     * @param location the location to search from, e.g. the location of a new order
+     * @param limit    the maximum number of delivery persons to return
+     * @return the nearest available delivery persons, nearest first
+     * @throws EntityNotFound if the location cannot be geocoded
+     */
+    public List<Delivery_Person> findNearestAvailableDrivers(String location, int limit) {
+        applyPings();
+        Map<Integer, Delivery_Person> candidates = new HashMap<>();
+        List<Integer> nearest = driverPositions.nearest(locate(location), limit, deliveryPersonId -> {
+            Delivery_Person deliveryPerson = availableDrivers.get(deliveryPersonId);
+            if (deliveryPerson == null) return false;
+            candidates.put(deliveryPersonId, deliveryPerson);
+            return true;
+        });
+
+        List<Delivery_Person> drivers = new ArrayList<>(nearest.size());
+        for (Integer deliveryPersonId : nearest) {
+            drivers.add(candidates.get(deliveryPersonId));
+        }
+        return drivers;
+    }
+
+    private GeoPoint locate(String location) {
+        GeoPoint point = geocoder.geocode(location);
+        if (point == null) throw new EntityNotFound("Unknown location " + location);
+        return point;
+    }
+
+    /**
+     * Orders the deliveries of a delivery person into a route, starting now.
+     *
+     * @param deliveryPersonId ID of the delivery person
+     * @return the deliveries in visiting order
+     * @throws EntityNotFound if the delivery person does not exist
+     */
+    public List<Delivery> sequenceRoute(Integer deliveryPersonId) {
+        return sequenceRoute(deliveryPersonId, LocalDateTime.now());
+    }
+
+    /**
+     * Orders the deliveries of a delivery person into a route starting from their last reported position,
+     * keeping the route short while reaching every delivery before the earliest delivery date and time of its orders
+     * where possible. Deliveries whose location cannot be geocoded are visited last.
+     *
+     * @param deliveryPersonId ID of the delivery person
+     * @param departure        the time the delivery person leaves
+     * @return the deliveries in visiting order
+     * @throws EntityNotFound if the delivery person does not exist
+     */
+    public List<Delivery> sequenceRoute(Integer deliveryPersonId, LocalDateTime departure) {
+        if (!deliveryPersonIRepository.exists(deliveryPersonId)) {
+            throw new EntityNotFound("No delivery person found with ID " + deliveryPersonId);
+        }
+
+        Contents contents = readContents();
+        List<Delivery> stops = new ArrayList<>();
+        List<GeoPoint> points = new ArrayList<>();
+        List<Delivery> unlocated = new ArrayList<>();
+        for (Delivery delivery : deliveryIRepository.readAll()) {
+            if (!deliveryPersonId.equals(delivery.getDeliveryPeronID())) continue;
+            GeoPoint point = delivery.getLocation() == null ? null : geocoder.geocode(delivery.getLocation());
+            if (point == null) {
+                unlocated.add(delivery);
+            } else {
+                stops.add(delivery);
+                points.add(point);
+            }
+        }
+
+        int n = stops.size();
+        GeoPoint start = getDriverPosition(deliveryPersonId);
+        double[][] travel = new double[n + 1][n + 1];
+        double[] due = new double[n + 1];
+        for (int i = 1; i <= n; i++) {
+            for (int j = 1; j <= n; j++) {
+                travel[i][j] = TravelCosts.travelMinutes(points.get(i - 1), points.get(j - 1));
+            }
+            // without a known position the route starts at whichever stop is first
+            travel[0][i] = start == null ? 0 : TravelCosts.travelMinutes(start, points.get(i - 1));
+            due[i] = minutesUntilDue(contents.ordersOf(stops.get(i - 1)), departure);
+        }
+
+        List<Delivery> route = new ArrayList<>(n + unlocated.size());
+        for (int stop : routeSequencer.sequence(travel, due)) {
+            route.add(stops.get(stop - 1));
+        }
+        route.addAll(unlocated);
+        return route;
+    }
+
+    /**
+     * Minutes from the departure until the earliest delivery date and time of the orders of a delivery.
+     */
+    private static double minutesUntilDue(List<Order> orders, LocalDateTime departure) {
+        double due = Double.POSITIVE_INFINITY;
+        for (Order order : orders) {
+            if (order.getDeliveryDateTime() != null) {
+                due = Math.min(due, Duration.between(departure, order.getDeliveryDateTime()).toSeconds() / 60.0);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Packs the packages of all deliveries of a delivery person into one trip of their vehicle.
+     *
+     * @param deliveryPersonId ID of the delivery person
+     * @return the loading plan, listing the packages that do not fit as overflow
+     * @throws EntityNotFound if the delivery person does not exist
+     * @throws BusinessLogicException if the delivery person has no vehicle
+     */
+    public LoadingPlanner.Plan planLoading(Integer deliveryPersonId) {
+        return planLoading(deliveryPersonId, 1);
+    }
+
+    /**
+     * Packs the packages of all deliveries of a delivery person into the trips of their vehicle.
+     *
+     * @param deliveryPersonId ID of the delivery person
+     * @param maxTrips         number of trips the vehicle can make
+     * @return the loading plan, listing the packages that do not fit as overflow
+     * @throws EntityNotFound if the delivery person does not exist
+     * @throws BusinessLogicException if the delivery person has no vehicle
+     */
+    public LoadingPlanner.Plan planLoading(Integer deliveryPersonId, int maxTrips) {
+        Delivery_Person deliveryPerson = deliveryPersonIRepository.get(deliveryPersonId);
+        if (deliveryPerson == null) throw new EntityNotFound("No delivery person found with ID " + deliveryPersonId);
+
+        Personal_Vehicle personalVehicle = deliveryPerson.getPersonalVehicleId() == null ? null
+                : personalVehicleIRepository.get(deliveryPerson.getPersonalVehicleId());
+        if (personalVehicle == null) throw new BusinessLogicException("The delivery person has no personal vehicle");
+
+        Contents contents = readContents();
+        List<Packages> packages = new ArrayList<>();
+        for (Delivery delivery : deliveryIRepository.readAll()) {
+            if (deliveryPersonId.equals(delivery.getDeliveryPeronID())) {
+                packages.addAll(contents.packagesOf(delivery));
+            }
+        }
+        return loadingPlanner.plan(packages, personalVehicle.getCapacity(), cargoVolumeOf(personalVehicle), maxTrips);
+    }
+
+    private static double cargoVolumeOf(Personal_Vehicle personalVehicle) {
+        Transportation_Type transportationType = personalVehicle.getTransportation_type();
+        return transportationType == null ? Double.POSITIVE_INFINITY : transportationType.getCargoVolume();
+    }
+
+    /**
+     * The summed volume of packages.
+     */
+    private static double volumeOf(List<Packages> packages) {
+        double volume = 0;
+        for (Packages packag : packages) {
+            volume += packag.getVolume();
+        }
+        return volume;
+    }
+
+    /**
+     * The summed weight of packages.
+     */
+    private static double weightOf(List<Packages> packages) {
+        double weight = 0;
+        for (Packages packag : packages) {
+            weight += packag.getWeight();
+        }
+        return weight;
+    }
+
+    private Contents readContents() {
+        Map<Integer, List<Order>> ordersOfDelivery = new HashMap<>();
+        if (orderIRepository != null) {
+            for (Order order : orderIRepository.readAll()) {
+                if (order.getDeliveryId() != null) {
+                    ordersOfDelivery.computeIfAbsent(order.getDeliveryId(), id -> new ArrayList<>()).add(order);
+                }
+            }
+        }
+        Map<Integer, List<Packages>> packagesOfOrder = new HashMap<>();
+        if (packageIRepository != null) {
+            for (Packages packages : packageIRepository.readAll()) {
+                if (packages.getOrderID() != null) {
+                    packagesOfOrder.computeIfAbsent(packages.getOrderID(), id -> new ArrayList<>()).add(packages);
+                }
+            }
+        }
+        return new Contents(ordersOfDelivery, packagesOfOrder);
+    }
+
+    /**
+     * The orders of the deliveries and the packages of the orders, read once for a whole computation.
+     * Not every backend restores the orders a delivery object holds, so the orders of a delivery are the orders
+     * saved with its ID, together with the orders the delivery object holds that were not moved to another delivery;
+     * the packages of an order are found the same way from the order ID saved with every package.
+     */
+    private record Contents(Map<Integer, List<Order>> ordersOfDelivery, Map<Integer, List<Packages>> packagesOfOrder) {
+        List<Order> ordersOf(Delivery delivery) {
+            Map<Integer, Order> ordersById = new LinkedHashMap<>();
+            for (Order order : ordersOfDelivery.getOrDefault(delivery.getId(), List.of())) {
+                ordersById.put(order.getId(), order);
+            }
+            for (Order order : delivery.getOrders()) {
+                if (order.getDeliveryId() == null || order.getDeliveryId().equals(delivery.getId())) {
+                    ordersById.putIfAbsent(order.getId(), order);
+                }
+            }
+            return new ArrayList<>(ordersById.values());
+        }
+
+        List<Packages> packagesOf(Delivery delivery) {
+            List<Packages> packages = new ArrayList<>();
+            for (Order order : ordersOf(delivery)) {
+                Map<Integer, Packages> packagesById = new LinkedHashMap<>();
+                for (Packages packag : packagesOfOrder.getOrDefault(order.getId(), List.of())) {
+                    packagesById.put(packag.getId(), packag);
+                }
+                for (Packages packag : order.getPackages()) {
+                    packagesById.putIfAbsent(packag.getId(), packag);
+                }
+                packages.addAll(packagesById.values());
+            }
+            return packages;
+        }
+    }
+
     public List<Personal_Vehicle> getPersonalVehicles(){
         return personalVehicleIRepository.readAll();
     }
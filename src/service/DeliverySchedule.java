@@ -0,0 +1,235 @@
+package service;
+
+import helpers.CalendarQueue;
+import model.Delivery;
+import model.Order;
+import repository.IRepository;
+import repository.RepositoryListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Schedule of deliveries keyed on the earliest delivery date and time of their orders.
+ * It keeps the deliveries in a {@link CalendarQueue} of 15-minute buckets, so scheduling and
+ * rescheduling are O(1) and a dispatch round only reads the deliveries that are due.
+ *
+ * <p>The schedule listens to the delivery repository and, when given one, to the order repository, so an order
+ * saved with a delivery ID or a new delivery date and time moves its delivery without saving the delivery again.
+ * A delivery written with its orders decides which orders belong to it; a delivery written without any, e.g. a row
+ * read back from a backend that does not store the orders of a delivery, keeps the orders already known to belong
+ * to it and stays scheduled.</p>
+ */
+public class DeliverySchedule {
+    private static final long BUCKET_WIDTH_MILLIS = 15 * 60 * 1000L;
+
+    private final IRepository<Delivery> deliveryIRepository;
+
+    private final CalendarQueue<Integer> queue = new CalendarQueue<>(BUCKET_WIDTH_MILLIS);
+
+    /** The last written state of every delivery that was written; guarded by this */
+    private final Map<Integer, Delivery> deliveries = new HashMap<>();
+
+    /** The delivery date and time of every known order of every delivery; guarded by this */
+    private final Map<Integer, Map<Integer, LocalDateTime>> orderTimes = new HashMap<>();
+
+    /** The delivery every known order belongs to; guarded by this */
+    private final Map<Integer, Integer> deliveryOfOrder = new HashMap<>();
+
+    /** The time every delivery is scheduled at, the earliest of {@link #orderTimes}; guarded by this */
+    private final Map<Integer, LocalDateTime> scheduled = new HashMap<>();
+
+    /**
+     * Builds the schedule from the current content of the repository and registers it for later writes.
+     *
+     * @param deliveryIRepository The repository to index.
+     */
+    public DeliverySchedule(IRepository<Delivery> deliveryIRepository) {
+        this(deliveryIRepository, null);
+    }
+
+    /**
+     * Builds the schedule from the current deliveries and orders and registers it for later writes to both.
+     *
+     * @param deliveryIRepository The repository to index.
+     * @param orderIRepository    The repository of the orders in the deliveries, or null to only follow delivery writes.
+     */
+    public DeliverySchedule(IRepository<Delivery> deliveryIRepository, IRepository<Order> orderIRepository) {
+        this.deliveryIRepository = deliveryIRepository;
+        deliveryIRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onCreate(Delivery delivery) {
+                scheduleDelivery(delivery);
+            }
+
+            @Override
+            public void onUpdate(Delivery delivery) {
+                scheduleDelivery(delivery);
+            }
+
+            @Override
+            public void onDelete(Integer deliveryId) {
+                removeDelivery(deliveryId);
+            }
+        });
+        for (Delivery delivery : deliveryIRepository.readAll()) {
+            scheduleDelivery(delivery);
+        }
+
+        if (orderIRepository == null) return;
+        orderIRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onCreate(Order order) {
+                scheduleOrder(order);
+            }
+
+            @Override
+            public void onUpdate(Order order) {
+                scheduleOrder(order);
+            }
+
+            @Override
+            public void onDelete(Integer orderId) {
+                removeOrder(orderId);
+            }
+        });
+        for (Order order : orderIRepository.readAll()) {
+            scheduleOrder(order);
+        }
+    }
+
+    /**
+     * Returns the deliveries due in [from, to), ordered by their earliest order delivery date and time.
+     *
+     * @param from The start of the window, inclusive.
+     * @param to   The end of the window, exclusive.
+     * @return The deliveries of the window.
+     */
+    public List<Delivery> getDue(LocalDateTime from, LocalDateTime to) {
+        return toDeliveries(queue.window(toMillis(from), toMillis(to)));
+    }
+
+    /**
+     * Removes and returns the deliveries due before the given time, ordered by their earliest order
+     * delivery date and time. A drained delivery is scheduled again when it is next written,
+     * or when an order write changes its earliest delivery date and time.
+     *
+     * @param until The end of the dispatch window, exclusive.
+     * @return The drained deliveries.
+     */
+    public List<Delivery> drainDue(LocalDateTime until) {
+        List<Integer> deliveryIds;
+        synchronized (this) {
+            deliveryIds = queue.drainUntil(toMillis(until));
+            deliveryIds.forEach(scheduled::remove);
+        }
+        return toDeliveries(deliveryIds);
+    }
+
+    private synchronized void scheduleDelivery(Delivery delivery) {
+        Integer deliveryId = delivery.getId();
+        deliveries.put(deliveryId, delivery);
+        if (!delivery.getOrders().isEmpty()) {
+            // Mapped with its orders: they replace the orders known to belong to it
+            Map<Integer, LocalDateTime> previous = orderTimes.remove(deliveryId);
+            if (previous != null) {
+                previous.keySet().forEach(orderId -> deliveryOfOrder.remove(orderId, deliveryId));
+            }
+            for (Order order : delivery.getOrders()) {
+                Integer previousDelivery = moveOrder(order.getId(), deliveryId, order.getDeliveryDateTime());
+                if (previousDelivery != null && !previousDelivery.equals(deliveryId)) reschedule(previousDelivery);
+            }
+        }
+        // A written delivery is scheduled again even if its time did not change, e.g. after it was drained
+        scheduled.remove(deliveryId);
+        reschedule(deliveryId);
+    }
+
+    private synchronized void removeDelivery(Integer deliveryId) {
+        deliveries.remove(deliveryId);
+        Map<Integer, LocalDateTime> times = orderTimes.remove(deliveryId);
+        if (times != null) {
+            times.keySet().forEach(orderId -> deliveryOfOrder.remove(orderId, deliveryId));
+        }
+        scheduled.remove(deliveryId);
+        queue.remove(deliveryId);
+    }
+
+    private synchronized void scheduleOrder(Order order) {
+        // An order saved without its delivery ID stays in the delivery it is known to belong to
+        Integer deliveryId = order.getDeliveryId() != null ? order.getDeliveryId() : deliveryOfOrder.get(order.getId());
+        if (deliveryId == null) return;
+        Integer previous = moveOrder(order.getId(), deliveryId, order.getDeliveryDateTime());
+        if (previous != null && !previous.equals(deliveryId)) reschedule(previous);
+        reschedule(deliveryId);
+    }
+
+    private synchronized void removeOrder(Integer orderId) {
+        Integer deliveryId = deliveryOfOrder.remove(orderId);
+        if (deliveryId == null) return;
+        Map<Integer, LocalDateTime> times = orderTimes.get(deliveryId);
+        if (times != null) times.remove(orderId);
+        reschedule(deliveryId);
+    }
+
+    /**
+     * Records that an order belongs to a delivery, dropping it from the delivery it belonged to before.
+     *
+     * @return the delivery the order belonged to before, or null.
+     */
+    private Integer moveOrder(Integer orderId, Integer deliveryId, LocalDateTime deliveryDateTime) {
+        Integer previous = deliveryOfOrder.put(orderId, deliveryId);
+        if (previous != null && !previous.equals(deliveryId)) {
+            Map<Integer, LocalDateTime> previousTimes = orderTimes.get(previous);
+            if (previousTimes != null) previousTimes.remove(orderId);
+        }
+        // A null time is kept as a member without a time
+        orderTimes.computeIfAbsent(deliveryId, id -> new HashMap<>()).put(orderId, deliveryDateTime);
+        return previous;
+    }
+
+    /**
+     * Moves a delivery to the earliest delivery date and time of its known orders, or out of the queue if none has one.
+     * A delivery whose time did not change is left as it is, so a drained delivery is not queued again.
+     */
+    private void reschedule(Integer deliveryId) {
+        LocalDateTime earliest = null;
+        Map<Integer, LocalDateTime> times = orderTimes.get(deliveryId);
+        if (times != null) {
+            for (LocalDateTime deliveryDateTime : times.values()) {
+                if (deliveryDateTime != null && (earliest == null || deliveryDateTime.isBefore(earliest))) {
+                    earliest = deliveryDateTime;
+                }
+            }
+        }
+        if (earliest == null) {
+            scheduled.remove(deliveryId);
+            queue.remove(deliveryId);
+        } else if (!Objects.equals(scheduled.put(deliveryId, earliest), earliest)) {
+            queue.add(deliveryId, toMillis(earliest));
+        }
+    }
+
+    private List<Delivery> toDeliveries(List<Integer> deliveryIds) {
+        List<Delivery> result = new ArrayList<>(deliveryIds.size());
+        for (Integer deliveryId : deliveryIds) {
+            Delivery delivery;
+            synchronized (this) {
+                delivery = deliveries.get(deliveryId);
+            }
+            // Scheduled only from its orders: read outside the lock, the repository may hold its own lock while notifying us
+            if (delivery == null) delivery = deliveryIRepository.get(deliveryId);
+            if (delivery != null) result.add(delivery);
+        }
+        return result;
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,296 @@
+package service;
+
+import model.Deposit;
+import model.Packages;
+import repository.IRepository;
+import repository.RepositoryListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The inventory of every deposit: the number, total weight and total volume of its packages, and the number
+ * of packages per store. The counters follow the package and deposit repository writes and can be read and
+ * updated from any number of threads without a lock.
+ *
+ * <p>A deposit holds at most {@link #DEPOSIT_LIMIT} packages. Intake first reserves a place with a
+ * compare-and-set on the package count of the deposit, so concurrent intakes can never overfill it; the
+ * reservation becomes the stored package when its write arrives, or is cancelled if the write fails.
+ * The status of a deposit follows from its package count.</p>
+ */
+public class DepositInventory {
+    /** The maximum number of packages a deposit can hold */
+    public static final int DEPOSIT_LIMIT = 1000;
+    public static final String EMPTY = "Empty";
+    public static final String NOT_FULL = "Not full";
+    public static final String FULL = "Full";
+
+    private static final class Counters {
+        /** Stored packages plus reserved places */
+        final AtomicInteger packages = new AtomicInteger();
+        final DoubleAdder weight = new DoubleAdder();
+        final DoubleAdder volume = new DoubleAdder();
+        /** Stored packages only; guarded by the counters, like the store they are counted in */
+        int stored;
+        Integer storeId;
+    }
+
+    /** The deposit, weight and volume a stored package was last counted with */
+    private record Stored(Integer depositId, double weight, double volume) {
+    }
+
+    private final IRepository<Packages> packageIRepository;
+    private final IRepository<Deposit> depositIRepository;
+
+    private final Map<Integer, Counters> deposits = new ConcurrentHashMap<>();
+    private final Map<Integer, LongAdder> storePackageCount = new ConcurrentHashMap<>();
+    private final Map<Integer, Stored> storedPackages = new ConcurrentHashMap<>();
+    /** The deposit every package with a reserved place is about to be stored in */
+    private final Map<Integer, Integer> reservations = new ConcurrentHashMap<>();
+
+    /**
+     * Computes the counters from the current content of the repositories and registers for later writes.
+     *
+     * @param packageIRepository The repository of the counted packages.
+     * @param depositIRepository The repository of the deposits holding them.
+     */
+    public DepositInventory(IRepository<Packages> packageIRepository, IRepository<Deposit> depositIRepository) {
+        this.packageIRepository = packageIRepository;
+        this.depositIRepository = depositIRepository;
+        packageIRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onCreate(Packages packages) {
+                packageWritten(packages);
+            }
+
+            @Override
+            public void onUpdate(Packages packages) {
+                packageWritten(packages);
+            }
+
+            @Override
+            public void onDelete(Integer packageId) {
+                storedPackages.compute(packageId, (id, previous) -> move(id, previous, null));
+            }
+        });
+        depositIRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onCreate(Deposit deposit) {
+                moveToStore(deposit.getId(), deposit.getStoreID());
+            }
+
+            @Override
+            public void onUpdate(Deposit deposit) {
+                moveToStore(deposit.getId(), deposit.getStoreID());
+            }
+
+            @Override
+            public void onDelete(Integer depositId) {
+                moveToStore(depositId, null);
+            }
+        });
+        rebuild();
+    }
+
+    /**
+     * Reserves a place for a package in a deposit, unless the deposit is full. The place is taken
+     * by the next write storing the package in the deposit.
+     *
+     * @param packageId The ID of the package.
+     * @param depositId The ID of the deposit.
+     * @return false if the deposit already holds {@link #DEPOSIT_LIMIT} packages.
+     */
+    public boolean reserve(Integer packageId, Integer depositId) {
+        AtomicInteger count = counters(depositId).packages;
+        int current;
+        do {
+            current = count.get();
+            if (current >= DEPOSIT_LIMIT) return false;
+        } while (!count.compareAndSet(current, current + 1));
+
+        Integer previous = reservations.put(packageId, depositId);
+        if (previous != null) counters(previous).packages.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Gives back the place reserved for a package whose write failed. A successful write takes the place
+     * before the writer returns, so calling this after every write tells whether the write arrived.
+     *
+     * @param packageId The ID of the package.
+     * @return true if a place was still reserved, i.e. no write stored the package in the reserved deposit.
+     */
+    public boolean cancelReservation(Integer packageId) {
+        Integer depositId = reservations.remove(packageId);
+        if (depositId == null) return false;
+        counters(depositId).packages.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * @param depositId The ID of the deposit.
+     * @return The number of packages stored in the deposit, including the places reserved by running intakes.
+     */
+    public int getDepositPackageCount(Integer depositId) {
+        Counters counters = deposits.get(depositId);
+        return counters == null ? 0 : counters.packages.get();
+    }
+
+    /**
+     * @param depositId The ID of the deposit.
+     * @return The total weight of the packages stored in the deposit.
+     */
+    public double getDepositWeight(Integer depositId) {
+        Counters counters = deposits.get(depositId);
+        return counters == null ? 0 : counters.weight.sum();
+    }
+
+    /**
+     * @param depositId The ID of the deposit.
+     * @return The total volume of the packages stored in the deposit.
+     */
+    public double getDepositVolume(Integer depositId) {
+        Counters counters = deposits.get(depositId);
+        return counters == null ? 0 : counters.volume.sum();
+    }
+
+    /**
+     * @param depositId The ID of the deposit.
+     * @return The number of packages the deposit can still take.
+     */
+    public int getFreeCapacity(Integer depositId) {
+        return Math.max(0, DEPOSIT_LIMIT - getDepositPackageCount(depositId));
+    }
+
+    /**
+     * @param storeId The ID of the store.
+     * @return The number of packages stored in all deposits of the store.
+     */
+    public int getStorePackageCount(Integer storeId) {
+        LongAdder count = storePackageCount.get(storeId);
+        return count == null ? 0 : count.intValue();
+    }
+
+    /**
+     * @param depositId The ID of the deposit.
+     * @return true if the deposit holds {@link #DEPOSIT_LIMIT} packages or more.
+     */
+    public boolean isDepositFull(Integer depositId) {
+        return getDepositPackageCount(depositId) >= DEPOSIT_LIMIT;
+    }
+
+    /**
+     * @param depositId The ID of the deposit.
+     * @return {@link #EMPTY}, {@link #NOT_FULL} or {@link #FULL}, from the package count of the deposit.
+     */
+    public String getStatus(Integer depositId) {
+        int count = getDepositPackageCount(depositId);
+        if (count == 0) return EMPTY;
+        return count >= DEPOSIT_LIMIT ? FULL : NOT_FULL;
+    }
+
+    /**
+     * Recomputes the package counts with a full read of the repositories and replaces the maintained counters.
+     * Reserved places are dropped, so no intake should be running.
+     *
+     * @return true if the maintained package counts matched the recomputed ones.
+     */
+    public synchronized boolean rebuild() {
+        Map<Integer, Integer> maintainedDepositCount = depositCounts();
+        Map<Integer, Integer> maintainedStoreCount = storeCounts();
+
+        deposits.clear();
+        storePackageCount.clear();
+        storedPackages.clear();
+        reservations.clear();
+        for (Deposit deposit : depositIRepository.readAll()) {
+            moveToStore(deposit.getId(), deposit.getStoreID());
+        }
+        for (Packages packages : packageIRepository.readAll()) {
+            packageWritten(packages);
+        }
+        return Objects.equals(maintainedDepositCount, depositCounts())
+                && Objects.equals(maintainedStoreCount, storeCounts());
+    }
+
+    private void packageWritten(Packages packages) {
+        Stored current = packages.getDepositId() == null
+                ? null
+                : new Stored(packages.getDepositId(), packages.getWeight(), packages.getVolume());
+        storedPackages.compute(packages.getId(), (id, previous) -> move(id, previous, current));
+    }
+
+    /**
+     * Moves a package between deposits in the counters; runs atomically per package.
+     */
+    private Stored move(Integer packageId, Stored previous, Stored current) {
+        boolean sameDeposit = previous != null && current != null && previous.depositId().equals(current.depositId());
+        if (previous != null) {
+            Counters counters = counters(previous.depositId());
+            counters.weight.add(-previous.weight());
+            counters.volume.add(-previous.volume());
+            if (!sameDeposit) {
+                counters.packages.decrementAndGet();
+                stored(counters, -1);
+            }
+        }
+        if (current != null) {
+            Counters counters = counters(current.depositId());
+            counters.weight.add(current.weight());
+            counters.volume.add(current.volume());
+            if (!sameDeposit) {
+                // a package stored through intake already holds its place
+                if (!reservations.remove(packageId, current.depositId())) counters.packages.incrementAndGet();
+                stored(counters, 1);
+            }
+        }
+        return current;
+    }
+
+    private void moveToStore(Integer depositId, Integer storeId) {
+        Counters counters = counters(depositId);
+        synchronized (counters) {
+            if (Objects.equals(counters.storeId, storeId)) return;
+            addToStore(counters.storeId, -counters.stored);
+            counters.storeId = storeId;
+            addToStore(counters.storeId, counters.stored);
+        }
+    }
+
+    private void stored(Counters counters, int delta) {
+        synchronized (counters) {
+            counters.stored += delta;
+            addToStore(counters.storeId, delta);
+        }
+    }
+
+    private void addToStore(Integer storeId, int delta) {
+        if (storeId == null || delta == 0) return;
+        storePackageCount.computeIfAbsent(storeId, id -> new LongAdder()).add(delta);
+    }
+
+    private Counters counters(Integer depositId) {
+        return deposits.computeIfAbsent(depositId, id -> new Counters());
+    }
+
+    private Map<Integer, Integer> depositCounts() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        deposits.forEach((id, counters) -> {
+            if (counters.packages.get() != 0) counts.put(id, counters.packages.get());
+        });
+        return counts;
+    }
+
+    private Map<Integer, Integer> storeCounts() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        storePackageCount.forEach((id, count) -> {
+            if (count.intValue() != 0) counts.put(id, count.intValue());
+        });
+        return counts;
+    }
+}
@@ -0,0 +1,356 @@
+package service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/**
+ * Assigns deliveries to delivery persons within the weight and volume capacity of their vehicles.
+ * A greedy pass places the heaviest deliveries first on the driver with the least room that can take them;
+ * local search then moves and swaps deliveries between pairs of drivers to even out utilization and, when
+ * travel costs are given, to shorten the trips of the drivers to their deliveries.
+ * The pairs of a round share no driver, so they are improved in parallel on the fork/join pool.
+ *
+ * <p>The engine works on plain indices: delivery {@code i} has load {@code loads[i]} and volume
+ * {@code volumes[i]}, and driver {@code j} has capacity {@code capacities[j]} and volume capacity
+ * {@code volumeCapacities[j]}, of which {@code usedCapacities[j]} and {@code usedVolumes[j]} are already taken.
+ * Both checks are constant-time per candidate, so every move of the search is checked against the vehicle.
+ * The optional {@code travelCosts[i][j]} is the distance driver {@code j} travels to delivery {@code i}.</p>
+ */
+public class DispatchEngine {
+    /** Returned for a delivery that fits on no driver */
+    public static final int UNASSIGNED = -1;
+
+    private static final int MAX_ROUNDS = 8;
+    private static final double EPSILON = 1e-9;
+
+    private final ForkJoinPool pool;
+
+    public DispatchEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public DispatchEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Computes an assignment checking only the load of the deliveries.
+     *
+     * @param loads          the load of every delivery.
+     * @param capacities     the capacity of every driver.
+     * @param usedCapacities the load every driver already carries.
+     * @return for every delivery, the index of its driver, or {@link #UNASSIGNED}.
+     */
+    public int[] assign(double[] loads, double[] capacities, double[] usedCapacities) {
+        double[] unlimited = new double[capacities.length];
+        Arrays.fill(unlimited, Double.POSITIVE_INFINITY);
+        return assign(loads, new double[loads.length], capacities, unlimited, usedCapacities, new double[capacities.length]);
+    }
+
+    /**
+     * Computes an assignment checking both the load and the volume of the deliveries.
+     *
+     * @param loads            the load of every delivery.
+     * @param volumes          the volume of every delivery.
+     * @param capacities       the load capacity of every driver.
+     * @param volumeCapacities the volume capacity of every driver.
+     * @param usedCapacities   the load every driver already carries.
+     * @param usedVolumes      the volume every driver already carries.
+     * @return for every delivery, the index of its driver, or {@link #UNASSIGNED}.
+     */
+    public int[] assign(double[] loads, double[] volumes, double[] capacities, double[] volumeCapacities,
+                        double[] usedCapacities, double[] usedVolumes) {
+        return assign(loads, volumes, capacities, volumeCapacities, usedCapacities, usedVolumes, null);
+    }
+
+    /**
+     * Computes an assignment checking the load and the volume of the deliveries, preferring drivers close to them.
+     * The search weighs a trip of the average length like the squared utilization of one full vehicle.
+     *
+     * @param loads            the load of every delivery.
+     * @param volumes          the volume of every delivery.
+     * @param capacities       the load capacity of every driver.
+     * @param volumeCapacities the volume capacity of every driver.
+     * @param usedCapacities   the load every driver already carries.
+     * @param usedVolumes      the volume every driver already carries.
+     * @param travelCosts      for every delivery, the distance of every driver to it, or null to only balance the load.
+     * @return for every delivery, the index of its driver, or {@link #UNASSIGNED}.
+     */
+    public int[] assign(double[] loads, double[] volumes, double[] capacities, double[] volumeCapacities,
+                        double[] usedCapacities, double[] usedVolumes, double[][] travelCosts) {
+        int[] assignment = new int[loads.length];
+        Arrays.fill(assignment, UNASSIGNED);
+        if (capacities.length == 0) return assignment;
+
+        Problem problem = new Problem(loads, volumes, capacities, volumeCapacities,
+                usedCapacities.clone(), usedVolumes.clone(), travelCosts);
+        problem.greedy(assignment);
+
+        List<List<Integer>> routes = new ArrayList<>(capacities.length);
+        for (int j = 0; j < capacities.length; j++) {
+            routes.add(new ArrayList<>());
+        }
+        for (int i = 0; i < assignment.length; i++) {
+            if (assignment[i] != UNASSIGNED) routes.get(assignment[i]).add(i);
+        }
+
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            if (!improveRound(problem, routes)) break;
+        }
+
+        for (int j = 0; j < routes.size(); j++) {
+            for (int i : routes.get(j)) {
+                assignment[i] = j;
+            }
+        }
+        // Balancing may have freed a driver big enough for a delivery the greedy pass could not place
+        problem.greedy(assignment);
+        return assignment;
+    }
+
+    /**
+     * Pairs the most utilized drivers with the least utilized ones and improves all pairs in parallel.
+     *
+     * @return true if any pair improved.
+     */
+    private boolean improveRound(Problem problem, List<List<Integer>> routes) {
+        Integer[] drivers = IntStream.range(0, problem.capacities.length)
+                .filter(j -> problem.capacities[j] > 0)
+                .boxed()
+                .toArray(Integer[]::new);
+        Arrays.sort(drivers, Comparator.comparingDouble(problem::utilization).reversed());
+
+        int pairs = drivers.length / 2;
+        boolean[] improved = new boolean[pairs];
+        pool.invoke(new PairTask(0, pairs, drivers, problem, routes, improved));
+
+        for (boolean pairImproved : improved) {
+            if (pairImproved) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The input arrays of one call together with the load and volume each driver carries so far.
+     */
+    private static final class Problem {
+        private final double[] loads;
+        private final double[] volumes;
+        private final double[] capacities;
+        private final double[] volumeCapacities;
+        private final double[] driverLoads;
+        private final double[] driverVolumes;
+        private final double[][] travelCosts;
+        /** The weight of one unit of travel against the squared utilization, 0 without travel costs */
+        private final double travelWeight;
+
+        private Problem(double[] loads, double[] volumes, double[] capacities, double[] volumeCapacities,
+                        double[] driverLoads, double[] driverVolumes, double[][] travelCosts) {
+            this.loads = loads;
+            this.volumes = volumes;
+            this.capacities = capacities;
+            this.volumeCapacities = volumeCapacities;
+            this.driverLoads = driverLoads;
+            this.driverVolumes = driverVolumes;
+            this.travelCosts = travelCosts;
+
+            double sum = 0;
+            int count = 0;
+            if (travelCosts != null) {
+                for (double[] row : travelCosts) {
+                    for (double cost : row) {
+                        sum += cost;
+                        count++;
+                    }
+                }
+            }
+            this.travelWeight = sum > 0 ? count / sum : 0;
+        }
+
+        /**
+         * Places every unassigned delivery, heaviest first, on the driver with the least room left that can
+         * still take it (best fit decreasing), which keeps large free capacities for large deliveries.
+         */
+        private void greedy(int[] assignment) {
+            Integer[] order = IntStream.range(0, loads.length)
+                    .filter(i -> assignment[i] == UNASSIGNED)
+                    .boxed()
+                    .toArray(Integer[]::new);
+            Arrays.sort(order, Comparator.comparingDouble((Integer i) -> loads[i]).reversed());
+
+            // Drivers grouped by the capacity they have left
+            TreeMap<Double, ArrayDeque<Integer>> driversByRoom = new TreeMap<>();
+            for (int j = 0; j < capacities.length; j++) {
+                double room = capacities[j] - driverLoads[j];
+                if (room > -EPSILON) driversByRoom.computeIfAbsent(room, r -> new ArrayDeque<>()).add(j);
+            }
+
+            for (int i : order) {
+                Integer driver = null;
+                // The tightest driver by load that also has room for the volume
+                search:
+                for (Map.Entry<Double, ArrayDeque<Integer>> entry : driversByRoom.tailMap(loads[i] - EPSILON, true).entrySet()) {
+                    for (Integer candidate : entry.getValue()) {
+                        if (fitsVolume(candidate, volumes[i])) {
+                            driver = candidate;
+                            entry.getValue().remove(candidate);
+                            if (entry.getValue().isEmpty()) driversByRoom.remove(entry.getKey());
+                            break search;
+                        }
+                    }
+                }
+                if (driver == null) continue;
+
+                assignment[i] = driver;
+                driverLoads[driver] += loads[i];
+                driverVolumes[driver] += volumes[i];
+                double room = capacities[driver] - driverLoads[driver];
+                if (room > -EPSILON) driversByRoom.computeIfAbsent(room, r -> new ArrayDeque<>()).add(driver);
+            }
+        }
+
+        private boolean fitsVolume(int driver, double volume) {
+            return driverVolumes[driver] + volume <= volumeCapacities[driver] + EPSILON;
+        }
+
+        private double utilization(int driver) {
+            return driverLoads[driver] / capacities[driver];
+        }
+
+        /**
+         * The decrease of the objective when a load moves from one driver to the other (or the difference
+         * of two swapped deliveries): the squared utilization of both drivers plus the weighted travel saved,
+         * or negative infinity if the vehicles cannot take it.
+         *
+         * @param travelSaved the decrease of the travel of both drivers.
+         */
+        private double gain(int from, int to, double load, double volume, double travelSaved) {
+            if (driverLoads[to] + load > capacities[to] + EPSILON) return Double.NEGATIVE_INFINITY;
+            if (driverLoads[from] - load > capacities[from] + EPSILON) return Double.NEGATIVE_INFINITY;
+            if (!fitsVolume(to, volume) || !fitsVolume(from, -volume)) return Double.NEGATIVE_INFINITY;
+
+            double before = square(driverLoads[from] / capacities[from]) + square(driverLoads[to] / capacities[to]);
+            double after = square((driverLoads[from] - load) / capacities[from])
+                    + square((driverLoads[to] + load) / capacities[to]);
+            return before - after + travelWeight * travelSaved;
+        }
+
+        /** The gain of moving a delivery from one driver to the other. */
+        private double moveGain(int delivery, int from, int to) {
+            return gain(from, to, loads[delivery], volumes[delivery], travel(delivery, from) - travel(delivery, to));
+        }
+
+        /** The gain of swapping a delivery of the first driver with one of the second driver. */
+        private double swapGain(int first, int firstDelivery, int second, int secondDelivery) {
+            double travelSaved = travel(firstDelivery, first) + travel(secondDelivery, second)
+                    - travel(firstDelivery, second) - travel(secondDelivery, first);
+            return gain(first, second, loads[firstDelivery] - loads[secondDelivery],
+                    volumes[firstDelivery] - volumes[secondDelivery], travelSaved);
+        }
+
+        private double travel(int delivery, int driver) {
+            return travelCosts == null ? 0 : travelCosts[delivery][driver];
+        }
+
+        private void move(int from, int to, double load, double volume) {
+            driverLoads[from] -= load;
+            driverVolumes[from] -= volume;
+            driverLoads[to] += load;
+            driverVolumes[to] += volume;
+        }
+    }
+
+    private static final class PairTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 16;
+
+        private final int from;
+        private final int to;
+        private final Integer[] drivers;
+        private final Problem problem;
+        private final List<List<Integer>> routes;
+        private final boolean[] improved;
+
+        private PairTask(int from, int to, Integer[] drivers, Problem problem, List<List<Integer>> routes, boolean[] improved) {
+            this.from = from;
+            this.to = to;
+            this.drivers = drivers;
+            this.problem = problem;
+            this.routes = routes;
+            this.improved = improved;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int p = from; p < to; p++) {
+                    // Pair p: the p-th most utilized driver with the p-th least utilized one
+                    improved[p] = improvePair(drivers[p], drivers[drivers.length - 1 - p]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PairTask(from, middle, drivers, problem, routes, improved),
+                    new PairTask(middle, to, drivers, problem, routes, improved));
+        }
+
+        /**
+         * Moves deliveries between the two drivers, then swaps pairs of deliveries,
+         * as long as the summed squared utilization and weighted travel of both drivers decreases.
+         */
+        private boolean improvePair(int heavy, int light) {
+            boolean improved = false;
+            List<Integer> heavyRoute = routes.get(heavy);
+            List<Integer> lightRoute = routes.get(light);
+
+            while (moveOne(heavy, heavyRoute, light, lightRoute) || moveOne(light, lightRoute, heavy, heavyRoute)) {
+                improved = true;
+            }
+
+            for (int a = 0; a < heavyRoute.size(); a++) {
+                for (int b = 0; b < lightRoute.size(); b++) {
+                    int fromHeavy = heavyRoute.get(a);
+                    int fromLight = lightRoute.get(b);
+                    if (problem.swapGain(heavy, fromHeavy, light, fromLight) > EPSILON) {
+                        heavyRoute.set(a, fromLight);
+                        lightRoute.set(b, fromHeavy);
+                        problem.move(heavy, light, problem.loads[fromHeavy] - problem.loads[fromLight],
+                                problem.volumes[fromHeavy] - problem.volumes[fromLight]);
+                        improved = true;
+                    }
+                }
+            }
+            return improved;
+        }
+
+        /**
+         * Moves the first delivery whose move improves the objective from one driver to the other.
+         *
+         * @return true if a delivery moved.
+         */
+        private boolean moveOne(int from, List<Integer> fromRoute, int to, List<Integer> toRoute) {
+            for (int a = 0; a < fromRoute.size(); a++) {
+                int delivery = fromRoute.get(a);
+                if (problem.moveGain(delivery, from, to) > EPSILON) {
+                    fromRoute.remove(a);
+                    toRoute.add(delivery);
+                    problem.move(from, to, problem.loads[delivery], problem.volumes[delivery]);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+}
@@ -0,0 +1,240 @@
+package service;
+
+import helpers.PingRingBuffer;
+import model.GeoPoint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+/**
+ * Ingests the position pings of delivery persons. Pings are offered to a lock-free ring buffer by any
+ * number of threads; a single consumer thread drains it, keeps the latest position of every delivery person
+ * in primitive arrays indexed by their ID, and appends every batch of pings to a history file.
+ *
+ * <p>The steady state allocates nothing: the ring buffer and the position arrays are primitive, and the
+ * history is written through one reused buffer. A history record is the delivery person ID, the time in
+ * epoch milliseconds, the latitude and the longitude ({@value #RECORD_BYTES} bytes).</p>
+ *
+ * <p>The position arrays are indexed by ID, so only IDs up to {@link #MAX_DELIVERY_PERSON_ID} are accepted.</p>
+ */
+public class DriverTelemetry implements AutoCloseable {
+    public static final int BUFFER_CAPACITY = 1 << 16;
+    /** The largest delivery person ID accepted; bounds the position arrays to a few tens of megabytes */
+    public static final int MAX_DELIVERY_PERSON_ID = (1 << 20) - 1;
+    static final int RECORD_BYTES = Integer.BYTES + Long.BYTES + 2 * Double.BYTES;
+    private static final int BATCH_SIZE = 4096;
+    private static final long IDLE_PARK_NANOS = 200_000;
+
+    /**
+     * A ping read back from a history file.
+     */
+    public record Ping(int deliveryPersonId, long timeMillis, double latitude, double longitude) {
+    }
+
+    private final PingRingBuffer buffer = new PingRingBuffer(BUFFER_CAPACITY);
+    private final FileChannel history;
+    private final ByteBuffer historyBatch;
+    private final PingRingBuffer.PingHandler apply = this::apply;
+
+    private double[] latitudes = new double[64];
+    private double[] longitudes = new double[64];
+    private long[] times = new long[64];
+    /** The delivery persons whose position changed since the last call of {@link #forEachUpdated} */
+    private boolean[] updated = new boolean[64];
+    private int[] updatedIds = new int[64];
+    private int updatedCount;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean closed;
+    private Thread consumer;
+
+    /**
+     * Creates a telemetry subsystem that keeps only the latest positions.
+     */
+    public DriverTelemetry() {
+        this.history = null;
+        this.historyBatch = null;
+    }
+
+    /**
+     * Creates a telemetry subsystem that also appends every ping to a history file.
+     *
+     * @param historyFile the file to append to; it is created if it does not exist.
+     */
+    public DriverTelemetry(Path historyFile) {
+        try {
+            this.history = FileChannel.open(historyFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.historyBatch = ByteBuffer.allocateDirect(BATCH_SIZE * RECORD_BYTES);
+    }
+
+    /**
+     * Reports the position of a delivery person; safe to call from any number of threads.
+     *
+     * @return false if the ping was dropped because the buffer is full or the ID is negative or above
+     * {@link #MAX_DELIVERY_PERSON_ID}.
+     */
+    public boolean ping(int deliveryPersonId, double latitude, double longitude) {
+        if (closed || deliveryPersonId < 0 || deliveryPersonId > MAX_DELIVERY_PERSON_ID) return false;
+        if (!started.get() && started.compareAndSet(false, true)) {
+            consumer = new Thread(this::consume, "driver-telemetry");
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+        return buffer.offer(deliveryPersonId, latitude, longitude, System.currentTimeMillis());
+    }
+
+    /**
+     * Processes every ping offered so far on the calling thread.
+     */
+    public void flush() {
+        while (drain() > 0) {
+            // keep draining until the buffer is empty
+        }
+    }
+
+    /**
+     * @return the latest reported position of the delivery person, or null if none was reported.
+     */
+    public synchronized GeoPoint getLatestPosition(int deliveryPersonId) {
+        if (deliveryPersonId < 0 || deliveryPersonId >= times.length || times[deliveryPersonId] == 0) return null;
+        return new GeoPoint(latitudes[deliveryPersonId], longitudes[deliveryPersonId]);
+    }
+
+    /**
+     * @return the time of the latest ping of the delivery person in epoch milliseconds, or 0 if none was reported.
+     */
+    public synchronized long getLatestTime(int deliveryPersonId) {
+        return deliveryPersonId < 0 || deliveryPersonId >= times.length ? 0 : times[deliveryPersonId];
+    }
+
+    /**
+     * Passes the IDs of the delivery persons whose position changed since the last call, and clears them.
+     */
+    public synchronized void forEachUpdated(IntConsumer action) {
+        for (int i = 0; i < updatedCount; i++) {
+            updated[updatedIds[i]] = false;
+            action.accept(updatedIds[i]);
+        }
+        updatedCount = 0;
+    }
+
+    /**
+     * Stops the consumer after processing the remaining pings and closes the history file.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        if (history != null) {
+            try {
+                history.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Reads back every ping of a history file, oldest first.
+     *
+     * @param historyFile the file written by a telemetry subsystem.
+     * @return the pings; empty if the file does not exist.
+     */
+    public static List<Ping> readHistory(Path historyFile) {
+        List<Ping> pings = new ArrayList<>();
+        if (!Files.exists(historyFile)) return pings;
+        try {
+            ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(historyFile));
+            while (records.remaining() >= RECORD_BYTES) {
+                pings.add(new Ping(records.getInt(), records.getLong(), records.getDouble(), records.getDouble()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return pings;
+    }
+
+    private void consume() {
+        while (!closed) {
+            try {
+                if (drain() == 0) LockSupport.parkNanos(IDLE_PARK_NANOS);
+            } catch (RuntimeException e) {
+                // The failing ping is consumed, so the consumer goes on with the next one
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Drains one batch of pings into the positions and the history file.
+     */
+    private synchronized int drain() {
+        try {
+            return buffer.drain(apply, BATCH_SIZE);
+        } finally {
+            writeHistory();
+        }
+    }
+
+    /**
+     * Appends the pings applied since the last call to the history file.
+     */
+    private void writeHistory() {
+        if (history == null || historyBatch.position() == 0) return;
+        historyBatch.flip();
+        try {
+            while (historyBatch.hasRemaining()) {
+                history.write(historyBatch);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        historyBatch.clear();
+    }
+
+    private void apply(int deliveryPersonId, double latitude, double longitude, long timeMillis) {
+        if (deliveryPersonId < 0 || deliveryPersonId > MAX_DELIVERY_PERSON_ID) return;
+        if (deliveryPersonId >= times.length) grow(deliveryPersonId);
+        latitudes[deliveryPersonId] = latitude;
+        longitudes[deliveryPersonId] = longitude;
+        times[deliveryPersonId] = timeMillis;
+        if (!updated[deliveryPersonId]) {
+            updated[deliveryPersonId] = true;
+            if (updatedCount == updatedIds.length) updatedIds = Arrays.copyOf(updatedIds, updatedCount * 2);
+            updatedIds[updatedCount++] = deliveryPersonId;
+        }
+        if (history != null) {
+            historyBatch.putInt(deliveryPersonId).putLong(timeMillis).putDouble(latitude).putDouble(longitude);
+        }
+    }
+
+    private void grow(int deliveryPersonId) {
+        int length = Math.min(Math.max(times.length * 2, Integer.highestOneBit(deliveryPersonId) << 1), MAX_DELIVERY_PERSON_ID + 1);
+        latitudes = Arrays.copyOf(latitudes, length);
+        longitudes = Arrays.copyOf(longitudes, length);
+        times = Arrays.copyOf(times, length);
+        updated = Arrays.copyOf(updated, length);
+    }
+}
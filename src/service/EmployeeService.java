@@ -2,14 +2,13 @@ package service;
 
 import exceptions.BusinessLogicException;
 import exceptions.EntityNotFound;
+import helpers.TopK;
 import model.*;
 import repository.IRepository;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.time.ZoneOffset;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 /**
  * Service class for managing employees, departments, and deliveries.
@@ -18,6 +17,7 @@ public class EmployeeService {
     private final IRepository<Employee> employeeIRepository;
     private final IRepository<Delivery> deliveryIRepository;
     private final IRepository<Department> departmentIRepository;
+    private final DeliverySchedule deliverySchedule;
 
     /**
      * Constructor for EmployeeService.
@@ -27,9 +27,23 @@ public class EmployeeService {
      * @param departmentIRepository Repository for department entities
      */
     public EmployeeService(IRepository<Employee> employeeIRepository, IRepository<Delivery> deliveryIRepository, IRepository<Department> departmentIRepository) {
+        this(employeeIRepository, deliveryIRepository, departmentIRepository, null);
+    }
+
+    /**
+     * Constructor for EmployeeService with the order repository, so the delivery schedule follows the orders saved
+     * with a delivery ID and a delivery date and time directly.
+     *
+     * @param employeeIRepository   Repository for employee entities
+     * @param deliveryIRepository   Repository for delivery entities
+     * @param departmentIRepository Repository for department entities
+     * @param orderIRepository      Repository for order entities, or null to schedule deliveries from their writes only
+     */
+    public EmployeeService(IRepository<Employee> employeeIRepository, IRepository<Delivery> deliveryIRepository, IRepository<Department> departmentIRepository, IRepository<Order> orderIRepository) {
         this.employeeIRepository = employeeIRepository;
         this.deliveryIRepository = deliveryIRepository;
         this.departmentIRepository = departmentIRepository;
+        this.deliverySchedule = new DeliverySchedule(deliveryIRepository, orderIRepository);
     }
 
     /**
@@ -114,6 +128,16 @@ public class EmployeeService {
         return deliveryIRepository.readAll();
     }
 
+    /**
+     * Checks whether a delivery exists without loading it.
+     *
+     * @param deliveryId ID of the delivery.
+     * @return true if the delivery exists.
+     */
+    public boolean deliveryExists(Integer deliveryId) {
+        return deliveryIRepository.exists(deliveryId);
+    }
+
     /**
      * Removes a delivery assignment from an employee.
      *
@@ -122,32 +146,11 @@ public class EmployeeService {
      * @throws EntityNotFound if the employee or delivery does not exist.
      */
     public void dropDelivery(Integer employeeId, Integer deliveryId) {
-        List<Employee> employees = employeeIRepository.readAll();
-        boolean existsEmployee = false;
-
-        for (Employee employee : employees) {
-            if (employee.getEmployeeID() == employeeId) {
-                existsEmployee = true;
-                break;
-            }
-        }
+        if (!employeeIRepository.exists(employeeId)) throw new EntityNotFound("No employee found with ID " + employeeId);
 
-        if (!existsEmployee) throw new EntityNotFound("No employee found with ID " + employeeId);
+        if (!deliveryIRepository.exists(deliveryId)) throw new EntityNotFound("No delivery found with ID " + deliveryId);
 
         Employee employee = employeeIRepository.get(employeeId);
-
-        List<Delivery> deliveries = deliveryIRepository.readAll();
-        boolean existsDelivery = false;
-
-        for (Delivery delivery : deliveries) {
-            if (Objects.equals(delivery.getEmployeeID(), deliveryId)) {
-                existsDelivery = true;
-                break;
-            }
-        }
-
-        if (!existsDelivery) throw new EntityNotFound("No delivery found with ID " + deliveryId);
-
         Delivery delivery = deliveryIRepository.get(deliveryId);
         employee.removeDeliv(deliveryId);
         delivery.setEmployeeID(0);
@@ -183,12 +186,57 @@ public class EmployeeService {
      *         Deliveries without any orders will appear last.
      */
     public List<Delivery> getSortedDeliveriesByOrderDateTime(List<Delivery> deliveries) {
-        return deliveries.stream()
-                .sorted(Comparator.comparing(delivery ->
-                        delivery.getOrders().stream()
-                                .map(Order::getDeliveryDateTime)
-                                .min(Comparator.naturalOrder())
-                                .orElse(LocalDateTime.MAX)))
-                .collect(Collectors.toList());
+        // Each delivery's earliest order time is computed once, not on every comparison
+        return TopK.smallestByKey(deliveries, deliveries.size(), EmployeeService::earliestOrderTime);
+    }
+
+    /**
+     * Returns the deliveries with the earliest order delivery date and time, without sorting the whole list.
+     *
+     * @param deliveries the list of deliveries to rank.
+     * @param limit      the maximum number of deliveries to return.
+     * @return At most {@code limit} deliveries in ascending order by their earliest order's delivery date and time.
+     *         Deliveries without any orders rank last.
+     */
+    public List<Delivery> getEarliestDeliveries(List<Delivery> deliveries, int limit) {
+        return TopK.smallestByKey(deliveries, limit, EmployeeService::earliestOrderTime);
+    }
+
+    /**
+     * Returns the deliveries due in a time window, read from the delivery schedule instead of sorting all deliveries.
+     *
+     * @param from the start of the window, inclusive.
+     * @param to   the end of the window, exclusive.
+     * @return The deliveries whose earliest order is due in the window, in ascending order by that date and time.
+     */
+    public List<Delivery> getDeliveriesDueBetween(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) throw new BusinessLogicException("The start of the window must be before its end");
+        return deliverySchedule.getDue(from, to);
+    }
+
+    /**
+     * Takes the deliveries due before the given time out of the schedule, for one dispatch round.
+     * Deliveries returned by a round are not returned again unless they are rescheduled.
+     *
+     * @param until the end of the dispatch window, exclusive.
+     * @return The due deliveries, in ascending order by their earliest order delivery date and time.
+     */
+    public List<Delivery> drainDueDeliveries(LocalDateTime until) {
+        return deliverySchedule.drainDue(until);
+    }
+
+    /**
+     * Computes the sort key of a delivery: the earliest delivery date and time among its orders,
+     * in epoch seconds, or {@link Long#MAX_VALUE} if it has none.
+     */
+    private static long earliestOrderTime(Delivery delivery) {
+        long earliest = Long.MAX_VALUE;
+        for (Order order : delivery.getOrders()) {
+            LocalDateTime deliveryDateTime = order.getDeliveryDateTime();
+            if (deliveryDateTime != null) {
+                earliest = Math.min(earliest, deliveryDateTime.toEpochSecond(ZoneOffset.UTC));
+            }
+        }
+        return earliest;
     }
 }
@@ -0,0 +1,79 @@
+package service;
+
+import model.Packages;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Packs packages into the trips of a vehicle with first fit decreasing: packages are taken
+ * largest first, measured by the larger of their weight and volume share of a trip, and each goes
+ * into the first trip with room for both. Packages that fit in no trip are reported as overflow.
+ */
+public class LoadingPlanner {
+
+    /**
+     * The result of packing.
+     *
+     * @param trips    the packages loaded on every trip, in loading order.
+     * @param overflow the packages that did not fit.
+     */
+    public record Plan(List<List<Packages>> trips, List<Packages> overflow) {
+        /**
+         * @return true if every package was loaded.
+         */
+        public boolean fits() {
+            return overflow.isEmpty();
+        }
+    }
+
+    /**
+     * Packs the packages into at most {@code maxTrips} trips.
+     *
+     * @param packages       the packages to load.
+     * @param weightCapacity the weight one trip can carry.
+     * @param volumeCapacity the volume one trip can carry.
+     * @param maxTrips       the number of trips available.
+     * @return the loading plan.
+     */
+    public Plan plan(List<Packages> packages, double weightCapacity, double volumeCapacity, int maxTrips) {
+        List<Packages> sorted = new ArrayList<>(packages);
+        sorted.sort(Comparator.comparingDouble((Packages p) -> size(p, weightCapacity, volumeCapacity)).reversed());
+
+        List<List<Packages>> trips = new ArrayList<>();
+        List<double[]> used = new ArrayList<>();
+        List<Packages> overflow = new ArrayList<>();
+        for (Packages item : sorted) {
+            double weight = item.getWeight();
+            double volume = item.getVolume();
+
+            int trip = -1;
+            for (int t = 0; t < trips.size(); t++) {
+                double[] load = used.get(t);
+                if (load[0] + weight <= weightCapacity && load[1] + volume <= volumeCapacity) {
+                    trip = t;
+                    break;
+                }
+            }
+            if (trip == -1 && trips.size() < maxTrips && weight <= weightCapacity && volume <= volumeCapacity) {
+                trips.add(new ArrayList<>());
+                used.add(new double[2]);
+                trip = trips.size() - 1;
+            }
+
+            if (trip == -1) {
+                overflow.add(item);
+            } else {
+                trips.get(trip).add(item);
+                used.get(trip)[0] += weight;
+                used.get(trip)[1] += volume;
+            }
+        }
+        return new Plan(trips, overflow);
+    }
+
+    private static double size(Packages packages, double weightCapacity, double volumeCapacity) {
+        return Math.max(packages.getWeight() / weightCapacity, packages.getVolume() / volumeCapacity);
+    }
+}
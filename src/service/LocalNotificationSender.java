@@ -0,0 +1,37 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link NotificationSender} that keeps the notifications in an inbox per customer instead of sending them,
+ * for running the application locally and for tests.
+ */
+public class LocalNotificationSender implements NotificationSender {
+    private final Map<Integer, List<NotificationOutbox.Notification>> inboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger sendCount = new AtomicInteger();
+
+    @Override
+    public void send(Integer customerId, List<NotificationOutbox.Notification> notifications) {
+        sendCount.incrementAndGet();
+        inboxes.computeIfAbsent(customerId, id -> new CopyOnWriteArrayList<>()).addAll(notifications);
+    }
+
+    /**
+     * @return the notifications received by the customer, oldest first.
+     */
+    public List<NotificationOutbox.Notification> getInbox(Integer customerId) {
+        return new ArrayList<>(inboxes.getOrDefault(customerId, List.of()));
+    }
+
+    /**
+     * @return the number of batches received.
+     */
+    public int getSendCount() {
+        return sendCount.get();
+    }
+}
@@ -0,0 +1,85 @@
+package service;
+
+import helpers.Geocoder;
+import helpers.GridIndex;
+import model.GeoPoint;
+import model.HasID;
+import repository.IRepository;
+import repository.RepositoryListener;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Coordinates of the entities of a repository, geocoded from their location text when they are
+ * written and kept in a {@link GridIndex} for nearest and radius queries.
+ *
+ * @param <T> The type of the indexed entities.
+ */
+public class LocationIndex<T extends HasID> implements RepositoryListener<T> {
+    /** Grid cells of about 5 km */
+    static final double CELL_DEGREES = 0.05;
+
+    private final Function<T, String> locationOf;
+    private final Geocoder geocoder;
+    private final GridIndex<Integer> index = new GridIndex<>(CELL_DEGREES);
+
+    /**
+     * Geocodes the current content of the repository and registers for later writes.
+     *
+     * @param repository The repository to index.
+     * @param locationOf Returns the location text of an entity.
+     * @param geocoder   Resolves location texts to coordinates.
+     */
+    public LocationIndex(IRepository<T> repository, Function<T, String> locationOf, Geocoder geocoder) {
+        this.locationOf = locationOf;
+        this.geocoder = geocoder;
+        repository.addListener(this);
+        for (T entity : repository.readAll()) {
+            onCreate(entity);
+        }
+    }
+
+    @Override
+    public void onCreate(T entity) {
+        onUpdate(entity);
+    }
+
+    @Override
+    public void onUpdate(T entity) {
+        GeoPoint point = geocoder.geocode(locationOf.apply(entity));
+        if (point == null) {
+            index.remove(entity.getId());
+        } else {
+            index.put(entity.getId(), point);
+        }
+    }
+
+    @Override
+    public void onDelete(Integer id) {
+        index.remove(id);
+    }
+
+    /**
+     * @param id The ID of the entity.
+     * @return The coordinates of the entity, or null if its location is unknown.
+     */
+    public GeoPoint getPoint(Integer id) {
+        return index.get(id);
+    }
+
+    /**
+     * @return The IDs of at most {@code k} entities accepted by the filter, nearest to the point first.
+     */
+    public List<Integer> nearest(GeoPoint point, int k, Predicate<Integer> filter) {
+        return index.nearest(point, k, filter);
+    }
+
+    /**
+     * @return The IDs of the entities within the radius of the point, nearest first.
+     */
+    public List<Integer> withinRadius(GeoPoint point, double radiusKm) {
+        return index.withinRadius(point, radiusKm);
+    }
+}
@@ -0,0 +1,386 @@
+package service;
+
+import model.Delivery;
+import model.Order;
+import model.OrderStatus;
+import repository.IRepository;
+import repository.RepositoryListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Notifies customers when their orders change status, are rescheduled or are claimed by a delivery person.
+ * The outbox follows the order and delivery repositories, so every service call changing an order appends a
+ * notification record to the outbox while it saves the order, on the same thread. Appending only writes a line
+ * to the outbox file and queues the record; nothing is sent on the calling thread.
+ *
+ * <p>A dispatcher thread takes the queued records in batches, groups them per customer, keeps only the latest
+ * record of every order and kind, and hands every customer's group to the {@link NotificationSender} in one call.
+ * A group the sender rejects is queued again and retried with a growing delay. The sequence number of the
+ * newest record before the oldest undelivered one is written to an acknowledgement file next to the outbox,
+ * and the outbox file is emptied once everything is delivered; after a restart the records past that number
+ * are delivered again, so every notification is delivered at least once.</p>
+ */
+public class NotificationOutbox implements AutoCloseable {
+    public static final int BATCH_SIZE = 512;
+    private static final long POLL_MILLIS = 200;
+    private static final long MIN_RETRY_MILLIS = 500;
+    private static final long MAX_RETRY_MILLIS = 30_000;
+
+    public enum Kind {
+        /** The status of the order changed */
+        STATUS,
+        /** The delivery date of the order changed */
+        SCHEDULE,
+        /** The delivery of the order was claimed by a delivery person */
+        ASSIGNMENT
+    }
+
+    /**
+     * A notification about an order of a customer.
+     *
+     * @param sequence   the position of the record in the outbox.
+     * @param customerId the ID of the customer to notify.
+     * @param orderId    the ID of the order.
+     * @param kind       what changed.
+     * @param message    the text shown to the customer.
+     * @param time       when the change was saved.
+     */
+    public record Notification(long sequence, Integer customerId, Integer orderId, Kind kind, String message, LocalDateTime time) {
+        String toCsv() {
+            return sequence + ";" + customerId + ";" + orderId + ";" + kind + ";" + time + ";" + message.replace('\n', ' ');
+        }
+
+        static Notification fromCsv(String line) {
+            String[] fields = line.split(";", 6);
+            return new Notification(Long.parseLong(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                    Kind.valueOf(fields[3]), fields[5], LocalDateTime.parse(fields[4]));
+        }
+    }
+
+    private record OrderState(OrderStatus status, LocalDateTime deliveryDateTime) {
+    }
+
+    private record Key(Integer orderId, Kind kind) {
+    }
+
+    private final NotificationSender sender;
+    private final Path outboxFile;
+    private final Path ackFile;
+    private final FileChannel outbox;
+
+    /** Guards the sequence numbers and the outbox file, so records are written and queued in sequence order */
+    private final Object appendLock = new Object();
+    private long lastSequence;
+    private long ackedSequence;
+
+    private final LinkedBlockingDeque<Notification> queue = new LinkedBlockingDeque<>();
+    /** The sequence numbers of the records not delivered yet */
+    private final ConcurrentSkipListSet<Long> outstanding = new ConcurrentSkipListSet<>();
+    private final Map<Integer, OrderState> orderStates = new ConcurrentHashMap<>();
+    /** The delivery person of every claimed delivery */
+    private final Map<Integer, Integer> deliveryPersons = new ConcurrentHashMap<>();
+
+    private final Object dispatchLock = new Object();
+    private volatile boolean retryDue;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean closed;
+    private Thread dispatcher;
+
+    /**
+     * Creates an outbox that keeps the undelivered notifications in memory only.
+     *
+     * @param orderIRepository    the orders to follow.
+     * @param deliveryIRepository the deliveries to follow.
+     * @param sender              delivers the notifications.
+     */
+    public NotificationOutbox(IRepository<Order> orderIRepository, IRepository<Delivery> deliveryIRepository, NotificationSender sender) {
+        this(orderIRepository, deliveryIRepository, sender, null);
+    }
+
+    /**
+     * Creates an outbox that appends every notification to a file, and queues the notifications the file holds
+     * past its acknowledgement file.
+     *
+     * @param orderIRepository    the orders to follow.
+     * @param deliveryIRepository the deliveries to follow.
+     * @param sender              delivers the notifications.
+     * @param outboxFile          the file to append to; it and its acknowledgement file ending in ".ack" are created
+     *                            if they do not exist. Null keeps the notifications in memory only.
+     */
+    public NotificationOutbox(IRepository<Order> orderIRepository, IRepository<Delivery> deliveryIRepository, NotificationSender sender, Path outboxFile) {
+        this.sender = sender;
+        this.outboxFile = outboxFile;
+        this.ackFile = outboxFile == null ? null : outboxFile.resolveSibling(outboxFile.getFileName() + ".ack");
+        try {
+            if (outboxFile != null) recover();
+            this.outbox = outboxFile == null ? null : FileChannel.open(outboxFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        for (Order order : orderIRepository.readAll()) {
+            orderStates.put(order.getId(), new OrderState(order.getOrderStatus(), order.getDeliveryDateTime()));
+        }
+        for (Delivery delivery : deliveryIRepository.readAll()) {
+            if (delivery.getDeliveryPeronID() != null) deliveryPersons.put(delivery.getId(), delivery.getDeliveryPeronID());
+        }
+
+        orderIRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onCreate(Order order) {
+                orderStates.put(order.getId(), new OrderState(order.getOrderStatus(), order.getDeliveryDateTime()));
+            }
+
+            @Override
+            public void onUpdate(Order order) {
+                OrderState current = new OrderState(order.getOrderStatus(), order.getDeliveryDateTime());
+                OrderState previous = orderStates.put(order.getId(), current);
+                if (previous == null) return;
+                if (!Objects.equals(previous.status(), current.status())) {
+                    append(order.getCustomerID(), order.getId(), Kind.STATUS,
+                            "Order " + order.getId() + " is now " + current.status().getLabel());
+                }
+                if (!Objects.equals(previous.deliveryDateTime(), current.deliveryDateTime())) {
+                    append(order.getCustomerID(), order.getId(), Kind.SCHEDULE,
+                            "Order " + order.getId() + " will be delivered on " + current.deliveryDateTime());
+                }
+            }
+
+            @Override
+            public void onDelete(Integer orderId) {
+                orderStates.remove(orderId);
+            }
+        });
+        deliveryIRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onCreate(Delivery delivery) {
+                onUpdate(delivery);
+            }
+
+            @Override
+            public void onUpdate(Delivery delivery) {
+                Integer current = delivery.getDeliveryPeronID();
+                Integer previous = current == null ? deliveryPersons.remove(delivery.getId()) : deliveryPersons.put(delivery.getId(), current);
+                if (current == null || current.equals(previous)) return;
+                for (Order order : delivery.getOrders()) {
+                    append(order.getCustomerID(), order.getId(), Kind.ASSIGNMENT,
+                            "Order " + order.getId() + " was picked up by delivery person " + current);
+                }
+            }
+
+            @Override
+            public void onDelete(Integer deliveryId) {
+                deliveryPersons.remove(deliveryId);
+            }
+        });
+    }
+
+    /**
+     * Starts the dispatcher thread; calling it again has no effect.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) return;
+        dispatcher = new Thread(this::dispatchLoop, "notification-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Delivers every queued notification on the calling thread, stopping at the first customer whose notifications
+     * the sender rejects; those stay queued.
+     *
+     * @return the number of records delivered, including the ones replaced by a later record of the same order and kind.
+     */
+    public int dispatchPending() {
+        synchronized (dispatchLock) {
+            retryDue = false;
+            int delivered = 0;
+            List<Notification> batch = new ArrayList<>(BATCH_SIZE);
+            while (!retryDue && queue.drainTo(batch, BATCH_SIZE) > 0) {
+                Map<Integer, List<Notification>> customerBatches = new LinkedHashMap<>();
+                for (Notification notification : batch) {
+                    customerBatches.computeIfAbsent(notification.customerId(), id -> new ArrayList<>()).add(notification);
+                }
+
+                List<Notification> rejected = new ArrayList<>();
+                for (Map.Entry<Integer, List<Notification>> entry : customerBatches.entrySet()) {
+                    if (!retryDue) {
+                        try {
+                            sender.send(entry.getKey(), coalesce(entry.getValue()));
+                            entry.getValue().forEach(notification -> outstanding.remove(notification.sequence()));
+                            delivered += entry.getValue().size();
+                            continue;
+                        } catch (RuntimeException e) {
+                            retryDue = true;
+                        }
+                    }
+                    rejected.addAll(entry.getValue());
+                }
+                rejected.sort((a, b) -> Long.compare(b.sequence(), a.sequence()));
+                rejected.forEach(queue::addFirst);
+                batch.clear();
+                acknowledge();
+            }
+            return delivered;
+        }
+    }
+
+    /**
+     * @return the number of notifications not delivered yet.
+     */
+    public int getPendingCount() {
+        return outstanding.size();
+    }
+
+    /**
+     * Stops the dispatcher, delivers what is still queued, and closes the outbox file. Changes saved afterwards are not recorded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+            try {
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        dispatchPending();
+        if (outbox == null) return;
+        synchronized (appendLock) {
+            try {
+                outbox.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes a record to the outbox file and queues it; called on the thread saving the order.
+     */
+    private void append(Integer customerId, Integer orderId, Kind kind, String message) {
+        if (customerId == null) return;
+        synchronized (appendLock) {
+            if (closed) return;
+            Notification notification = new Notification(lastSequence + 1, customerId, orderId, kind, message, LocalDateTime.now());
+            if (outbox != null) write(notification.toCsv() + "\n");
+            lastSequence = notification.sequence();
+            outstanding.add(notification.sequence());
+            queue.add(notification);
+        }
+    }
+
+    /**
+     * Records how far the outbox is delivered, and empties the outbox file once all of it is.
+     */
+    private void acknowledge() {
+        synchronized (appendLock) {
+            long acked = outstanding.isEmpty() ? lastSequence : outstanding.first() - 1;
+            if (acked == ackedSequence) return;
+            ackedSequence = acked;
+            if (outbox == null) return;
+            try {
+                Files.writeString(ackFile, Long.toString(acked));
+                if (acked == lastSequence) outbox.truncate(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Queues the records of the outbox file past the acknowledged sequence number; a record torn by a crash is dropped.
+     */
+    private void recover() throws IOException {
+        if (Files.exists(ackFile)) {
+            String acked = Files.readString(ackFile).trim();
+            ackedSequence = acked.isEmpty() ? 0 : Long.parseLong(acked);
+        }
+        lastSequence = ackedSequence;
+        if (!Files.exists(outboxFile)) return;
+
+        String content = Files.readString(outboxFile);
+        for (String line : content.split("\n")) {
+            if (line.isBlank()) continue;
+            Notification notification;
+            try {
+                notification = Notification.fromCsv(line);
+            } catch (RuntimeException e) {
+                continue;
+            }
+            lastSequence = Math.max(lastSequence, notification.sequence());
+            if (notification.sequence() > ackedSequence && outstanding.add(notification.sequence())) {
+                queue.add(notification);
+            }
+        }
+        if (!content.isEmpty() && !content.endsWith("\n")) {
+            // end the torn record so the next one starts on its own line
+            Files.writeString(outboxFile, "\n", StandardOpenOption.APPEND);
+        }
+    }
+
+    private void write(String line) {
+        ByteBuffer bytes = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        try {
+            while (bytes.hasRemaining()) {
+                outbox.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Keeps the latest notification of every order and kind, in the order of the kept ones.
+     */
+    private static List<Notification> coalesce(List<Notification> notifications) {
+        Map<Key, Notification> latest = new LinkedHashMap<>();
+        for (Notification notification : notifications) {
+            Key key = new Key(notification.orderId(), notification.kind());
+            latest.remove(key);
+            latest.put(key, notification);
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    private void dispatchLoop() {
+        long retryMillis = MIN_RETRY_MILLIS;
+        while (!closed) {
+            try {
+                Notification next = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (next == null) continue;
+                queue.addFirst(next);
+                dispatchPending();
+                if (retryDue) {
+                    Thread.sleep(retryMillis);
+                    retryMillis = Math.min(2 * retryMillis, MAX_RETRY_MILLIS);
+                } else {
+                    retryMillis = MIN_RETRY_MILLIS;
+                }
+            } catch (InterruptedException e) {
+                if (closed) return;
+            }
+        }
+    }
+}
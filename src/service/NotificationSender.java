@@ -0,0 +1,18 @@
+package service;
+
+import java.util.List;
+
+/**
+ * Delivers the notifications of a customer, e.g. by e-mail or push message.
+ * A sender is called by one dispatcher thread at a time.
+ */
+public interface NotificationSender {
+    /**
+     * Delivers a batch of notifications to a customer.
+     *
+     * @param customerId    the ID of the customer.
+     * @param notifications the notifications, oldest first, at most one per order and kind.
+     * @throws RuntimeException if the notifications could not be delivered; they are retried later.
+     */
+    void send(Integer customerId, List<NotificationOutbox.Notification> notifications);
+}
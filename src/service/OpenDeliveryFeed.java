@@ -0,0 +1,321 @@
+package service;
+
+import model.Delivery;
+import model.Order;
+import model.OrderStatus;
+import model.Personal_Vehicle;
+import model.Transportation_Type;
+import repository.IRepository;
+import repository.RepositoryListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes the deliveries that are open for pick-up to the delivery persons watching them, instead of every
+ * delivery person rescanning all deliveries. A delivery is open while it has a "to be shipped" order and no
+ * delivery person. The feed follows the delivery repository and tells every subscriber whose {@link Interest}
+ * matches when a delivery becomes open ({@link Kind#ADDED}) and when it is claimed, shipped or deleted
+ * ({@link Kind#REMOVED}).
+ *
+ * <p>Every subscription starts with a {@link Kind#RESET} followed by the open deliveries it matches. Events
+ * wait in a bounded per-subscriber buffer until requested; a newer event of a delivery replaces the waiting one,
+ * and a subscriber that falls more than the buffer capacity behind gets a fresh {@link Kind#RESET} and snapshot
+ * instead. Subscribers are indexed by region, so a write only touches the subscribers of the regions involved,
+ * and an idle subscriber holds no thread: events are delivered on the executor only while there is demand.</p>
+ */
+public class OpenDeliveryFeed implements Flow.Publisher<OpenDeliveryFeed.Event>, RepositoryListener<Delivery> {
+    public static final int DEFAULT_BUFFER_CAPACITY = 256;
+
+    public enum Kind {
+        /** Forget all deliveries received so far; the open deliveries follow as {@link #ADDED} */
+        RESET,
+        ADDED,
+        REMOVED
+    }
+
+    /**
+     * A change of the open deliveries.
+     *
+     * @param kind       the kind of change.
+     * @param deliveryId the ID of the delivery, null for {@link Kind#RESET}.
+     * @param delivery   the delivery for {@link Kind#ADDED}, otherwise null.
+     */
+    public record Event(Kind kind, Integer deliveryId, Delivery delivery) {
+    }
+
+    /**
+     * The deliveries a subscriber wants to hear about.
+     *
+     * @param region      the location of the deliveries, or null for all locations.
+     * @param vehicleType the transportation type of the deliveries, or null for all; deliveries
+     *                    without a transportation type match every type.
+     */
+    public record Interest(String region, Transportation_Type vehicleType) {
+        public static final Interest ANY = new Interest(null, null);
+
+        boolean matches(Open open) {
+            return (region == null || normalize(region).equals(open.region()))
+                    && (vehicleType == null || open.vehicleType() == null || vehicleType == open.vehicleType());
+        }
+    }
+
+    /** An open delivery, with the fields the interests match on as they were when it was written */
+    private record Open(Delivery delivery, String region, Transportation_Type vehicleType) {
+    }
+
+    private final Executor executor;
+    private final int bufferCapacity;
+    private final ConcurrentSkipListMap<Integer, Open> open = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<FeedSubscription>> regionSubscriptions = new ConcurrentHashMap<>();
+    private final Set<FeedSubscription> allRegionSubscriptions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a feed delivering on the common pool with {@value #DEFAULT_BUFFER_CAPACITY} buffered events per subscriber.
+     *
+     * @param deliveryIRepository the deliveries to follow.
+     */
+    public OpenDeliveryFeed(IRepository<Delivery> deliveryIRepository) {
+        this(deliveryIRepository, ForkJoinPool.commonPool(), DEFAULT_BUFFER_CAPACITY);
+    }
+
+    /**
+     * @param deliveryIRepository the deliveries to follow.
+     * @param executor            delivers the events to the subscribers.
+     * @param bufferCapacity      the number of deliveries with a waiting event a subscriber may fall behind.
+     */
+    public OpenDeliveryFeed(IRepository<Delivery> deliveryIRepository, Executor executor, int bufferCapacity) {
+        this.executor = executor;
+        this.bufferCapacity = bufferCapacity;
+        deliveryIRepository.addListener(this);
+        for (Delivery delivery : deliveryIRepository.readAll()) {
+            Open current = openOf(delivery);
+            if (current != null) open.put(delivery.getId(), current);
+        }
+    }
+
+    /**
+     * Subscribes to all open deliveries.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super Event> subscriber) {
+        subscribe(subscriber, Interest.ANY);
+    }
+
+    /**
+     * Subscribes to the open deliveries matching an interest.
+     */
+    public void subscribe(Flow.Subscriber<? super Event> subscriber, Interest interest) {
+        Objects.requireNonNull(subscriber);
+        FeedSubscription subscription = new FeedSubscription(subscriber, interest);
+        subscribersOf(interest.region() == null ? null : normalize(interest.region())).add(subscription);
+        subscriber.onSubscribe(subscription);
+        subscription.resync();
+    }
+
+    /**
+     * @return the number of active subscriptions.
+     */
+    public int getSubscriberCount() {
+        int count = allRegionSubscriptions.size();
+        for (Set<FeedSubscription> subscriptions : regionSubscriptions.values()) {
+            count += subscriptions.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return the deliveries open for pick-up, ordered by ID.
+     */
+    public List<Delivery> getOpenDeliveries() {
+        List<Delivery> deliveries = new ArrayList<>(open.size());
+        open.values().forEach(current -> deliveries.add(current.delivery()));
+        return deliveries;
+    }
+
+    @Override
+    public void onCreate(Delivery delivery) {
+        onUpdate(delivery);
+    }
+
+    @Override
+    public void onUpdate(Delivery delivery) {
+        Open current = openOf(delivery);
+        Open previous = current == null ? open.remove(delivery.getId()) : open.put(delivery.getId(), current);
+        publish(delivery.getId(), previous, current);
+    }
+
+    @Override
+    public void onDelete(Integer deliveryId) {
+        publish(deliveryId, open.remove(deliveryId), null);
+    }
+
+    /**
+     * Tells the subscribers of the regions involved whether the delivery entered or left their interest.
+     */
+    private void publish(Integer deliveryId, Open previous, Open current) {
+        if (previous == null && current == null) return;
+        Set<FeedSubscription> candidates = new HashSet<>(allRegionSubscriptions);
+        if (previous != null) candidates.addAll(regionSubscriptions.getOrDefault(previous.region(), Set.of()));
+        if (current != null) candidates.addAll(regionSubscriptions.getOrDefault(current.region(), Set.of()));
+
+        for (FeedSubscription subscription : candidates) {
+            boolean wasMatching = previous != null && subscription.interest.matches(previous);
+            boolean isMatching = current != null && subscription.interest.matches(current);
+            if (isMatching && !wasMatching) {
+                subscription.offer(new Event(Kind.ADDED, deliveryId, current.delivery()));
+            } else if (wasMatching && !isMatching) {
+                subscription.offer(new Event(Kind.REMOVED, deliveryId, null));
+            }
+        }
+    }
+
+    private Set<FeedSubscription> subscribersOf(String region) {
+        if (region == null) return allRegionSubscriptions;
+        return regionSubscriptions.computeIfAbsent(region, key -> ConcurrentHashMap.newKeySet());
+    }
+
+    private static Open openOf(Delivery delivery) {
+        if (delivery.getDeliveryPeronID() != null) return null;
+        boolean toBeShipped = false;
+        for (Order order : delivery.getOrders()) {
+            toBeShipped |= order.getOrderStatus() == OrderStatus.TO_BE_SHIPPED;
+        }
+        if (!toBeShipped) return null;
+
+        Transportation_Type vehicleType = delivery.getTransportation_type() instanceof Personal_Vehicle vehicle
+                ? vehicle.getTransportation_type()
+                : null;
+        return new Open(delivery, delivery.getLocation() == null ? "" : normalize(delivery.getLocation()), vehicleType);
+    }
+
+    private static String normalize(String region) {
+        return region.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The buffer and demand of one subscriber.
+     */
+    private final class FeedSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Event> subscriber;
+        private final Interest interest;
+        /** The waiting events, one per delivery, oldest first; guarded by this */
+        private final LinkedHashMap<Integer, Event> pending = new LinkedHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        /** A {@link Kind#RESET} is due; the snapshot starts when it is delivered */
+        private boolean resync;
+        /** The open deliveries still to send after a {@link Kind#RESET} */
+        private Iterator<Open> snapshot;
+        private long demand;
+        private boolean cancelled;
+
+        FeedSubscription(Flow.Subscriber<? super Event> subscriber, Interest interest) {
+            this.subscriber = subscriber;
+            this.interest = interest;
+        }
+
+        synchronized void resync() {
+            pending.clear();
+            snapshot = null;
+            resync = true;
+            schedule();
+        }
+
+        synchronized void offer(Event event) {
+            if (cancelled || resync) return;
+            pending.remove(event.deliveryId());
+            pending.put(event.deliveryId(), event);
+            if (pending.size() > bufferCapacity) {
+                // too far behind: a fresh snapshot replaces the backlog
+                resync();
+            } else {
+                schedule();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("The requested number of events must be positive"));
+                return;
+            }
+            synchronized (this) {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                schedule();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                pending.clear();
+            }
+            subscribersOf(interest.region() == null ? null : normalize(interest.region())).remove(this);
+        }
+
+        /**
+         * Starts a drain on the executor if there is something to deliver and no drain is running; called holding the lock.
+         */
+        private void schedule() {
+            if (cancelled || demand == 0 || !resync && snapshot == null && pending.isEmpty()) return;
+            if (draining.compareAndSet(false, true)) executor.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                Event next = null;
+                synchronized (this) {
+                    while (next == null) {
+                        if (cancelled || demand == 0) break;
+                        if (resync) {
+                            resync = false;
+                            snapshot = open.values().iterator();
+                            next = new Event(Kind.RESET, null, null);
+                        } else if (snapshot != null) {
+                            Open current = snapshot.hasNext() ? snapshot.next() : null;
+                            if (current == null) {
+                                snapshot = null;
+                            } else if (interest.matches(current)) {
+                                next = new Event(Kind.ADDED, current.delivery().getId(), current.delivery());
+                            }
+                        } else if (!pending.isEmpty()) {
+                            Iterator<Event> events = pending.values().iterator();
+                            next = events.next();
+                            events.remove();
+                        } else {
+                            break;
+                        }
+                    }
+                    if (next == null) {
+                        draining.set(false);
+                        return;
+                    }
+                    demand--;
+                }
+                try {
+                    subscriber.onNext(next);
+                } catch (RuntimeException e) {
+                    cancel();
+                    subscriber.onError(e);
+                    draining.set(false);
+                    return;
+                }
+            }
+        }
+    }
+}
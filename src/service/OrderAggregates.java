@@ -0,0 +1,196 @@
+package service;
+
+import model.Order;
+import model.Packages;
+import repository.IRepository;
+import repository.RepositoryListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Running totals over the orders: the total of every order, and the lifetime spend and
+ * order count of every customer. The totals are updated from the order repository writes,
+ * so every read is a single map lookup. Totals are summed in minor units, so they never drift.
+ *
+ * <p>When given the package repository, it also sums the cost of the packages of every order
+ * from the package writes, so the cost of an order follows its packages without reading them.</p>
+ */
+public class OrderAggregates implements RepositoryListener<Order> {
+    private final IRepository<Order> orderIRepository;
+    private final IRepository<Packages> packageIRepository;
+
+    /** The values each order last contributed, so an update or delete can take them back */
+    private Map<Integer, Contribution> contributions = new HashMap<>();
+    private Map<Integer, Long> customerSpend = new HashMap<>();
+    private Map<Integer, Integer> customerOrderCount = new HashMap<>();
+
+    /** The order and cost each package last contributed */
+    private Map<Integer, Contribution> packageContributions = new HashMap<>();
+    /** The summed cost of the packages of every order that has any */
+    private Map<Integer, Long> packageTotals = new HashMap<>();
+    private Map<Integer, Integer> packageCounts = new HashMap<>();
+
+    /** What an order contributed to a customer, or a package to an order */
+    private record Contribution(Integer ownerId, long total) {
+    }
+
+    /**
+     * Computes the aggregates from the current content of the repository and registers for later writes.
+     *
+     * @param orderIRepository The repository to aggregate.
+     */
+    public OrderAggregates(IRepository<Order> orderIRepository) {
+        this(orderIRepository, null);
+    }
+
+    /**
+     * Computes the aggregates from the current content of the repositories and registers for later writes to both.
+     *
+     * @param orderIRepository   The repository to aggregate.
+     * @param packageIRepository The repository of the packages of the orders, or null to not sum package costs.
+     */
+    public OrderAggregates(IRepository<Order> orderIRepository, IRepository<Packages> packageIRepository) {
+        this.orderIRepository = orderIRepository;
+        this.packageIRepository = packageIRepository;
+        orderIRepository.addListener(this);
+        if (packageIRepository != null) {
+            packageIRepository.addListener(new RepositoryListener<>() {
+                @Override
+                public void onCreate(Packages packages) {
+                    onUpdate(packages);
+                }
+
+                @Override
+                public void onUpdate(Packages packages) {
+                    synchronized (OrderAggregates.this) {
+                        addPackage(packages);
+                    }
+                }
+
+                @Override
+                public void onDelete(Integer packageId) {
+                    synchronized (OrderAggregates.this) {
+                        removePackage(packageId);
+                    }
+                }
+            });
+        }
+        rebuild();
+    }
+
+    @Override
+    public synchronized void onCreate(Order order) {
+        onUpdate(order);
+    }
+
+    @Override
+    public synchronized void onUpdate(Order order) {
+        remove(order.getId());
+        Contribution contribution = new Contribution(order.getCustomerID(), order.getTotalCostMinor());
+        contributions.put(order.getId(), contribution);
+        customerSpend.merge(contribution.ownerId(), contribution.total(), Long::sum);
+        customerOrderCount.merge(contribution.ownerId(), 1, Integer::sum);
+    }
+
+    @Override
+    public synchronized void onDelete(Integer orderId) {
+        remove(orderId);
+    }
+
+    /**
+     * @param orderId The ID of the order.
+     * @return The total cost of the order in minor units, or null if the order does not exist.
+     */
+    public synchronized Long getOrderTotalMinor(Integer orderId) {
+        Contribution contribution = contributions.get(orderId);
+        return contribution == null ? null : contribution.total();
+    }
+
+    /**
+     * @param orderId The ID of the order.
+     * @return The summed cost of the packages of the order in minor units, or null if no package of the order
+     * has been seen, or the package repository is not followed.
+     */
+    public synchronized Long getPackageTotalMinor(Integer orderId) {
+        return packageTotals.get(orderId);
+    }
+
+    /**
+     * @param customerId The ID of the customer.
+     * @return The summed total cost of all orders of the customer, in minor units.
+     */
+    public synchronized long getCustomerSpendMinor(Integer customerId) {
+        return customerSpend.getOrDefault(customerId, 0L);
+    }
+
+    /**
+     * @param customerId The ID of the customer.
+     * @return The number of orders of the customer.
+     */
+    public synchronized int getCustomerOrderCount(Integer customerId) {
+        return customerOrderCount.getOrDefault(customerId, 0);
+    }
+
+    /**
+     * Recomputes all aggregates with a full read of the repository and replaces the maintained values.
+     *
+     * @return true if the maintained values matched the recomputed ones.
+     */
+    public synchronized boolean rebuild() {
+        Map<Integer, Contribution> maintainedContributions = contributions;
+        Map<Integer, Integer> maintainedOrderCount = customerOrderCount;
+        Map<Integer, Contribution> maintainedPackageContributions = packageContributions;
+
+        contributions = new HashMap<>();
+        customerSpend = new HashMap<>();
+        customerOrderCount = new HashMap<>();
+        for (Order order : orderIRepository.readAll()) {
+            onUpdate(order);
+        }
+        packageContributions = new HashMap<>();
+        packageTotals = new HashMap<>();
+        packageCounts = new HashMap<>();
+        if (packageIRepository != null) {
+            for (Packages packages : packageIRepository.readAll()) {
+                addPackage(packages);
+            }
+        }
+        // Spend and package totals are sums of the contributions, so they match whenever the contributions do
+        return Objects.equals(maintainedContributions, contributions)
+                && Objects.equals(maintainedOrderCount, customerOrderCount)
+                && Objects.equals(maintainedPackageContributions, packageContributions);
+    }
+
+    private void remove(Integer orderId) {
+        Contribution contribution = contributions.remove(orderId);
+        if (contribution == null) return;
+
+        customerSpend.computeIfPresent(contribution.ownerId(), (id, spend) -> spend - contribution.total());
+        customerOrderCount.computeIfPresent(contribution.ownerId(), (id, count) -> count == 1 ? null : count - 1);
+        if (!customerOrderCount.containsKey(contribution.ownerId())) {
+            customerSpend.remove(contribution.ownerId());
+        }
+    }
+
+    private void addPackage(Packages packages) {
+        removePackage(packages.getId());
+        if (packages.getOrderID() == null) return;
+        Contribution contribution = new Contribution(packages.getOrderID(), packages.getCostMinor());
+        packageContributions.put(packages.getId(), contribution);
+        packageTotals.merge(contribution.ownerId(), contribution.total(), Long::sum);
+        packageCounts.merge(contribution.ownerId(), 1, Integer::sum);
+    }
+
+    private void removePackage(Integer packageId) {
+        Contribution contribution = packageContributions.remove(packageId);
+        if (contribution == null) return;
+
+        packageTotals.computeIfPresent(contribution.ownerId(), (id, total) -> total - contribution.total());
+        packageCounts.computeIfPresent(contribution.ownerId(), (id, count) -> count == 1 ? null : count - 1);
+        if (!packageCounts.containsKey(contribution.ownerId())) {
+            packageTotals.remove(contribution.ownerId());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package service;
+
+import model.Order;
+import model.OrderStatus;
+import repository.IRepository;
+import repository.RepositoryListener;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Index of the order IDs in every {@link OrderStatus}, one bit set per status. It listens to the order repository,
+ * so finding the orders in a status, or in any of several statuses, is a union of bit sets instead of a scan
+ * over all orders comparing status strings.
+ */
+public class OrderStatusIndex implements RepositoryListener<Order> {
+    private final IRepository<Order> orderIRepository;
+
+    /** The IDs of the orders in every status, by ordinal; guarded by this */
+    private final BitSet[] orderIds = new BitSet[OrderStatus.values().length];
+
+    /**
+     * Builds the index from the current content of the repository and registers it for later writes.
+     *
+     * @param orderIRepository The repository to index.
+     */
+    public OrderStatusIndex(IRepository<Order> orderIRepository) {
+        this.orderIRepository = orderIRepository;
+        for (int i = 0; i < orderIds.length; i++) {
+            orderIds[i] = new BitSet();
+        }
+        orderIRepository.addListener(this);
+        for (Order order : orderIRepository.readAll()) {
+            index(order);
+        }
+    }
+
+    @Override
+    public void onCreate(Order order) {
+        index(order);
+    }
+
+    @Override
+    public void onUpdate(Order order) {
+        index(order);
+    }
+
+    @Override
+    public synchronized void onDelete(Integer orderId) {
+        if (orderId == null || orderId < 0) return;
+        for (BitSet ids : orderIds) {
+            ids.clear(orderId);
+        }
+    }
+
+    /**
+     * Returns the IDs of the orders in any of the given statuses.
+     *
+     * @param statuses The statuses to look for.
+     * @return A new bit set with a bit set for every matching order ID.
+     */
+    public synchronized BitSet getOrderIds(OrderStatus... statuses) {
+        BitSet union = new BitSet();
+        for (OrderStatus status : statuses) {
+            union.or(orderIds[status.ordinal()]);
+        }
+        return union;
+    }
+
+    /**
+     * Returns the orders in any of the given statuses, ordered by ID.
+     *
+     * @param statuses The statuses to look for.
+     * @return A new list with the matching orders.
+     */
+    public List<Order> getOrders(OrderStatus... statuses) {
+        BitSet ids = getOrderIds(statuses);
+        List<Order> orders = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            Order order = orderIRepository.get(id);
+            if (order != null) orders.add(order);
+        }
+        return orders;
+    }
+
+    /**
+     * Returns the number of orders in a status.
+     *
+     * @param status The status to count.
+     * @return The number of orders in the status.
+     */
+    public synchronized int countOrders(OrderStatus status) {
+        return orderIds[status.ordinal()].cardinality();
+    }
+
+    private synchronized void index(Order order) {
+        Integer orderId = order.getId();
+        if (orderId == null || orderId < 0) return;
+        for (BitSet ids : orderIds) {
+            ids.clear(orderId);
+        }
+        orderIds[order.getOrderStatus().ordinal()].set(orderId);
+    }
+}
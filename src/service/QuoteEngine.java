@@ -0,0 +1,243 @@
+package service;
+
+import model.Money;
+import model.Order;
+import model.Packages;
+import model.Personal_Vehicle;
+import model.Transportation_Type;
+import repository.IRepository;
+import repository.RepositoryListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Prices orders for every transportation type from their chargeable weight, their distance and the
+ * extra fee of the vehicles of the type.
+ *
+ * <p>The chargeable weight is the larger of the package weight and the volumetric weight of the package
+ * dimensions. Weight and distance are rounded up to their band, and the price of every pair of bands is
+ * read from a rate table computed once per transportation type, so quoting an order is a few array reads.
+ * The batch methods write into arrays given by the caller and do not allocate.</p>
+ */
+public class QuoteEngine implements RepositoryListener<Personal_Vehicle> {
+    /** The transportation types in the order of the quotes of an order */
+    public static final Transportation_Type[] OPTIONS = Transportation_Type.values();
+
+    /** Cubic units of the package dimensions that are charged as one kilogram */
+    public static final double VOLUMETRIC_DIVISOR = 5000;
+    private static final double WEIGHT_BAND_KG = 1;
+    private static final int WEIGHT_BANDS = 100;
+    private static final double DISTANCE_BAND_KM = 5;
+    private static final int DISTANCE_BANDS = 200;
+
+    /**
+     * The tariff of a transportation type.
+     *
+     * @param basePrice       fixed price of a shipment.
+     * @param pricePerKg      price of every chargeable kilogram.
+     * @param pricePerKm      price of every kilometre.
+     * @param pricePerTonneKm price of every tonne carried one kilometre.
+     * @param speedKmh        average speed, for the estimated time of arrival.
+     * @param handlingHours   time spent loading and unloading.
+     */
+    private record Tariff(double basePrice, double pricePerKg, double pricePerKm, double pricePerTonneKm, double speedKmh, double handlingHours) {
+        double price(double weightKg, double distanceKm) {
+            return basePrice + pricePerKg * weightKg + pricePerKm * distanceKm + pricePerTonneKm * weightKg / 1000 * distanceKm;
+        }
+    }
+
+    private static final Tariff[] TARIFFS = new Tariff[OPTIONS.length];
+
+    static {
+        TARIFFS[Transportation_Type.Ground.ordinal()] = new Tariff(5, 0.5, 0.1, 0.2, 60, 2);
+        TARIFFS[Transportation_Type.Naval.ordinal()] = new Tariff(20, 0.2, 0.03, 0.05, 30, 24);
+        TARIFFS[Transportation_Type.Aerial.ordinal()] = new Tariff(30, 2, 0.4, 1, 700, 6);
+    }
+
+    /** Price of every weight band and distance band, per transportation type */
+    private static final double[][] RATES = new double[OPTIONS.length][(WEIGHT_BANDS + 1) * (DISTANCE_BANDS + 1)];
+
+    static {
+        for (int option = 0; option < OPTIONS.length; option++) {
+            for (int weightBand = 0; weightBand <= WEIGHT_BANDS; weightBand++) {
+                for (int distanceBand = 0; distanceBand <= DISTANCE_BANDS; distanceBand++) {
+                    RATES[option][weightBand * (DISTANCE_BANDS + 1) + distanceBand] =
+                            TARIFFS[option].price(weightBand * WEIGHT_BAND_KG, distanceBand * DISTANCE_BAND_KM);
+                }
+            }
+        }
+    }
+
+    private final IRepository<Personal_Vehicle> personalVehicleIRepository;
+    /** Lowest extra fee of the vehicles of every transportation type, replaced as a whole on every change */
+    private volatile double[] extraFees = new double[OPTIONS.length];
+
+    /**
+     * The price and estimated time of arrival of an order for one transportation type.
+     *
+     * @param type     the transportation type.
+     * @param price    the price, or {@link Double#NaN} if the order does not fit a vehicle of the type.
+     * @param etaHours the estimated hours until arrival.
+     */
+    public record Quote(Transportation_Type type, double price, double etaHours) {
+        public boolean isAvailable() {
+            return !Double.isNaN(price);
+        }
+    }
+
+    /**
+     * The quotes of a batch of orders, {@link #OPTIONS} quotes per order.
+     */
+    public static class Quotes {
+        private final double[] prices;
+        private final double[] etaHours;
+
+        private Quotes(int orders) {
+            this.prices = new double[orders * OPTIONS.length];
+            this.etaHours = new double[orders * OPTIONS.length];
+        }
+
+        public double getPrice(int order, Transportation_Type type) {
+            return prices[order * OPTIONS.length + type.ordinal()];
+        }
+
+        public double getEtaHours(int order, Transportation_Type type) {
+            return etaHours[order * OPTIONS.length + type.ordinal()];
+        }
+
+        /**
+         * @return the cheapest available transportation type for the order, or null if the order fits none.
+         */
+        public Transportation_Type getCheapest(int order) {
+            Transportation_Type cheapest = null;
+            for (Transportation_Type type : OPTIONS) {
+                double price = getPrice(order, type);
+                if (!Double.isNaN(price) && (cheapest == null || price < getPrice(order, cheapest))) cheapest = type;
+            }
+            return cheapest;
+        }
+
+        /**
+         * @return the quote of every transportation type for the order.
+         */
+        public List<Quote> getQuotes(int order) {
+            List<Quote> quotes = new ArrayList<>(OPTIONS.length);
+            for (Transportation_Type type : OPTIONS) {
+                quotes.add(new Quote(type, getPrice(order, type), getEtaHours(order, type)));
+            }
+            return quotes;
+        }
+    }
+
+    /**
+     * Creates an engine without extra fees.
+     */
+    public QuoteEngine() {
+        this.personalVehicleIRepository = null;
+    }
+
+    /**
+     * Creates an engine that adds the lowest extra fee of the vehicles of every transportation type,
+     * following the changes of the vehicle repository.
+     *
+     * @param personalVehicleIRepository the vehicles.
+     */
+    public QuoteEngine(IRepository<Personal_Vehicle> personalVehicleIRepository) {
+        this.personalVehicleIRepository = personalVehicleIRepository;
+        personalVehicleIRepository.addListener(this);
+        refreshExtraFees();
+    }
+
+    @Override
+    public void onCreate(Personal_Vehicle personalVehicle) {
+        refreshExtraFees();
+    }
+
+    @Override
+    public void onUpdate(Personal_Vehicle personalVehicle) {
+        refreshExtraFees();
+    }
+
+    @Override
+    public void onDelete(Integer id) {
+        refreshExtraFees();
+    }
+
+    private synchronized void refreshExtraFees() {
+        double[] fees = new double[OPTIONS.length];
+        Arrays.fill(fees, Double.POSITIVE_INFINITY);
+        for (Personal_Vehicle personalVehicle : personalVehicleIRepository.readAll()) {
+            Transportation_Type type = personalVehicle.getTransportation_type();
+            if (type != null) fees[type.ordinal()] = Math.min(fees[type.ordinal()], Money.toMajor(personalVehicle.getExtraFeeMinor()));
+        }
+        for (int option = 0; option < fees.length; option++) {
+            if (fees[option] == Double.POSITIVE_INFINITY) fees[option] = 0;
+        }
+        extraFees = fees;
+    }
+
+    /**
+     * Quotes a batch of orders for every transportation type.
+     *
+     * @param orders     the orders to quote.
+     * @param distanceKm the distance every order travels.
+     * @return the quotes, the orders being numbered in list order.
+     */
+    public Quotes quote(List<Order> orders, ToDoubleFunction<Order> distanceKm) {
+        int count = orders.size();
+        double[] weights = new double[count];
+        double[] volumes = new double[count];
+        double[] distances = new double[count];
+        for (int i = 0; i < count; i++) {
+            Order order = orders.get(i);
+            for (Packages packages : order.getPackages()) {
+                weights[i] += packages.getWeight();
+                volumes[i] += packages.getVolume();
+            }
+            distances[i] = distanceKm.applyAsDouble(order);
+        }
+
+        Quotes quotes = new Quotes(count);
+        quote(weights, volumes, distances, count, quotes.prices, quotes.etaHours);
+        return quotes;
+    }
+
+    /**
+     * Quotes a batch of shipments for every transportation type without allocating. The quote of shipment
+     * {@code i} for transportation type {@code t} is written at index {@code i * OPTIONS.length + t.ordinal()}.
+     *
+     * @param weights   the weight of every shipment, in kilograms.
+     * @param volumes   the volume of every shipment, in the cubic units of the package dimensions.
+     * @param distances the distance of every shipment, in kilometres.
+     * @param count     the number of shipments to quote.
+     * @param prices    receives the prices; {@link Double#NaN} if the shipment does not fit a vehicle of the type.
+     * @param etaHours  receives the estimated hours until arrival.
+     */
+    public void quote(double[] weights, double[] volumes, double[] distances, int count, double[] prices, double[] etaHours) {
+        double[] fees = extraFees;
+        for (int option = 0; option < OPTIONS.length; option++) {
+            double[] rates = RATES[option];
+            Tariff tariff = TARIFFS[option];
+            double cargoVolume = OPTIONS[option].getCargoVolume();
+            double fee = fees[option];
+
+            for (int i = 0, out = option; i < count; i++, out += OPTIONS.length) {
+                double chargeable = Math.max(weights[i], volumes[i] / VOLUMETRIC_DIVISOR);
+                double weightBand = Math.ceil(chargeable / WEIGHT_BAND_KG);
+                double distanceBand = Math.ceil(distances[i] / DISTANCE_BAND_KM);
+
+                double price;
+                if (weightBand <= WEIGHT_BANDS && distanceBand <= DISTANCE_BANDS) {
+                    price = rates[(int) weightBand * (DISTANCE_BANDS + 1) + (int) distanceBand];
+                } else {
+                    price = tariff.price(weightBand * WEIGHT_BAND_KG, distanceBand * DISTANCE_BAND_KM);
+                }
+                prices[out] = volumes[i] > cargoVolume ? Double.NaN : price + fee;
+                etaHours[out] = tariff.handlingHours() + distances[i] / tariff.speedKmh();
+            }
+        }
+    }
+}
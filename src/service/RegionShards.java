@@ -0,0 +1,187 @@
+package service;
+
+import exceptions.BusinessLogicException;
+import exceptions.EntityNotFound;
+import helpers.ShardedExecutor;
+import model.Customer;
+import model.Delivery;
+import model.Delivery_Person;
+import model.Order;
+import repository.DBRepository;
+import repository.IRepository;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Runs the order and delivery mutations on region shards. An order belongs to the region of its delivery, or to
+ * its own location while it has none, and a delivery to its location; every region is owned by one shard of a
+ * {@link ShardedExecutor}. The mutations of one region therefore run one at a time on a single thread without a
+ * lock, and different regions are mutated in parallel. A delivery person is owned by the shard of their ID.
+ *
+ * <p>Assigning a delivery to a delivery person spans two shards and is done as explicit handoffs: the delivery
+ * is read on its shard, added to the delivery person on theirs, and marked as assigned back on its own shard,
+ * where it is read again so that only the first of several concurrent assignments wins. A losing assignment is
+ * taken back from its delivery person.</p>
+ *
+ * <p>The repositories must accept concurrent writes of different entities, and the repository listeners
+ * concurrent notifications; the in-memory and file repositories and the indexes of the services do. The database
+ * repositories share one connection whose batched writes switch its transaction mode, so they are refused.</p>
+ */
+public class RegionShards implements AutoCloseable {
+    private final ShardedExecutor executor;
+    private final CustomerService customerService;
+    private final SellerService sellerService;
+    private final IRepository<Customer> customerIRepository;
+    private final IRepository<Order> orderIRepository;
+    private final IRepository<Delivery> deliveryIRepository;
+    private final IRepository<Delivery_Person> deliveryPersonIRepository;
+
+    /**
+     * @param executor                  the shards to run the mutations on.
+     * @param customerService           places and reschedules orders.
+     * @param sellerService             updates order statuses.
+     * @param customerIRepository       the customers, whose address is the region of their new orders.
+     * @param orderIRepository          the orders.
+     * @param deliveryIRepository       the deliveries.
+     * @param deliveryPersonIRepository the delivery persons.
+     * @throws IllegalArgumentException if a repository is a database repository.
+     */
+    public RegionShards(ShardedExecutor executor, CustomerService customerService, SellerService sellerService,
+                        IRepository<Customer> customerIRepository, IRepository<Order> orderIRepository,
+                        IRepository<Delivery> deliveryIRepository, IRepository<Delivery_Person> deliveryPersonIRepository) {
+        if (customerIRepository instanceof DBRepository || orderIRepository instanceof DBRepository
+                || deliveryIRepository instanceof DBRepository || deliveryPersonIRepository instanceof DBRepository) {
+            throw new IllegalArgumentException("The database repositories do not accept concurrent writes");
+        }
+        this.executor = executor;
+        this.customerService = customerService;
+        this.sellerService = sellerService;
+        this.customerIRepository = customerIRepository;
+        this.orderIRepository = orderIRepository;
+        this.deliveryIRepository = deliveryIRepository;
+        this.deliveryPersonIRepository = deliveryPersonIRepository;
+    }
+
+    /**
+     * Places an order on the shard of the address of the customer.
+     *
+     * @return completes when the order is placed, or exceptionally with {@link EntityNotFound} if the customer does not exist.
+     * @see CustomerService#placeOrder(Integer, Integer, LocalDateTime, List)
+     */
+    public CompletableFuture<Void> placeOrder(Integer customerId, Integer orderId, LocalDateTime deliveryDateTime, List<Integer> packageIds) {
+        Customer customer = customerIRepository.get(customerId);
+        if (customer == null) return CompletableFuture.failedFuture(new EntityNotFound("Customer not found for ID " + customerId));
+
+        return executor.execute(customer.getAddress(), () -> {
+            try {
+                customerService.placeOrder(customerId, orderId, deliveryDateTime, packageIds);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Reschedules an order on the shard of its region.
+     *
+     * @see CustomerService#scheduleDelivery(Integer, LocalDateTime)
+     */
+    public CompletableFuture<Void> scheduleDelivery(Integer orderId, LocalDateTime deliveryDateTime) {
+        Order order = orderIRepository.get(orderId);
+        if (order == null) return CompletableFuture.failedFuture(new EntityNotFound("No order found with ID " + orderId));
+
+        return executor.execute(regionOf(order), () -> customerService.scheduleDelivery(orderId, deliveryDateTime));
+    }
+
+    /**
+     * Updates the status of an order on the shard of its region.
+     *
+     * @see SellerService#updateOrderStatus(Integer, String)
+     */
+    public CompletableFuture<Void> updateOrderStatus(Integer orderId, String status) {
+        Order order = orderIRepository.get(orderId);
+        if (order == null) return CompletableFuture.failedFuture(new EntityNotFound("No order found with ID " + orderId));
+
+        return executor.execute(regionOf(order), () -> sellerService.updateOrderStatus(orderId, status));
+    }
+
+    /**
+     * Assigns a delivery to a delivery person, handing the work over between the shard of the delivery and the shard
+     * of the delivery person.
+     *
+     * @return completes when both sides are saved, or exceptionally with {@link EntityNotFound} if either does not exist
+     * and with {@link BusinessLogicException} if the delivery is already assigned.
+     */
+    public CompletableFuture<Void> assignDelivery(Integer deliveryPersonId, Integer deliveryId) {
+        Delivery routed = deliveryIRepository.get(deliveryId);
+        if (routed == null) return CompletableFuture.failedFuture(new EntityNotFound("No delivery found with ID " + deliveryId));
+        String deliveryRegion = regionOf(routed);
+
+        CompletableFuture<Delivery> read = executor.submit(deliveryRegion, () -> {
+            Delivery delivery = deliveryIRepository.get(deliveryId);
+            if (delivery == null) throw new EntityNotFound("No delivery found with ID " + deliveryId);
+            return delivery;
+        });
+        CompletableFuture<Delivery> added = executor.handoff(read, deliveryPersonKey(deliveryPersonId), delivery -> {
+            Delivery_Person deliveryPerson = deliveryPersonIRepository.get(deliveryPersonId);
+            if (deliveryPerson == null) throw new EntityNotFound("No delivery person found with ID " + deliveryPersonId);
+            deliveryPerson.addDelivery(delivery);
+            deliveryPersonIRepository.update(deliveryPerson);
+            return delivery;
+        });
+        CompletableFuture<Boolean> marked = executor.handoff(added, deliveryRegion, delivery -> {
+            // Read again: another assignment of the delivery may have been marked since the first read
+            Delivery current = deliveryIRepository.get(deliveryId);
+            if (current == null || current.getDeliveryPeronID() != null) return false;
+            current.setDeliveryPeronID(deliveryPersonId);
+            deliveryIRepository.update(current);
+            return true;
+        });
+        return marked.thenCompose(isMarked -> isMarked ? CompletableFuture.<Void>completedFuture(null)
+                : executor.execute(deliveryPersonKey(deliveryPersonId), () -> {
+                    Delivery_Person deliveryPerson = deliveryPersonIRepository.get(deliveryPersonId);
+                    if (deliveryPerson != null && deliveryPerson.getDeliveries().removeIf(delivery -> delivery.getId().equals(deliveryId))) {
+                        deliveryPersonIRepository.update(deliveryPerson);
+                    }
+                    throw new BusinessLogicException("The delivery with ID " + deliveryId + " is already assigned or no longer exists");
+                }));
+    }
+
+    /**
+     * @return the shard owning the region of the order.
+     */
+    public int shardOf(Order order) {
+        return executor.shardOf(regionOf(order));
+    }
+
+    /**
+     * Finishes the submitted mutations and stops the shards.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    /**
+     * The location of the delivery of the order, or of the order while it has no delivery.
+     */
+    private String regionOf(Order order) {
+        if (order.getDeliveryId() != null) {
+            Delivery delivery = deliveryIRepository.get(order.getDeliveryId());
+            if (delivery != null && delivery.getLocation() != null) return delivery.getLocation();
+        }
+        return order.getLocation();
+    }
+
+    private static String regionOf(Delivery delivery) {
+        return delivery.getLocation();
+    }
+
+    private static String deliveryPersonKey(Integer deliveryPersonId) {
+        return "delivery person " + deliveryPersonId;
+    }
+}
@@ -0,0 +1,258 @@
+package service;
+
+/**
+ * Orders the stops of a delivery person into a route. The route is built by nearest neighbour
+ * from the start position and then improved with 2-opt (reversing a section) and Or-opt
+ * (moving a run of one to three stops) while the cost decreases.
+ *
+ * <p>The cost of a route is its travel time plus a heavy penalty for every minute a stop is reached
+ * after its due time, so due times are respected whenever the travel times allow it. The route is open:
+ * it ends at the last stop.</p>
+ *
+ * <p>Index 0 of the travel matrix is the start position; stops are indices 1 to n. Times are in minutes
+ * from the departure.</p>
+ */
+public class RouteSequencer {
+    /** Cost of one minute of lateness, in minutes of travel */
+    private static final double LATENESS_PENALTY = 100;
+    private static final int MAX_OR_OPT_RUN = 3;
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Computes the visiting order of the stops.
+     *
+     * @param travel the travel time between every pair of positions, index 0 being the start.
+     * @param due    the due time of every position, {@link Double#POSITIVE_INFINITY} for none; {@code due[0]} is unused.
+     * @return the stop indices (1 to n) in visiting order.
+     */
+    public int[] sequence(double[][] travel, double[] due) {
+        Search search = new Search(travel, due, nearestNeighbour(travel));
+        boolean improved = true;
+        while (improved) {
+            improved = search.twoOpt() | search.orOpt();
+        }
+        return search.route;
+    }
+
+    /**
+     * Computes the cost of a route: travel time plus the lateness penalty.
+     */
+    public double cost(int[] route, double[][] travel, double[] due) {
+        double time = 0;
+        double cost = 0;
+        int previous = 0;
+        for (int stop : route) {
+            time += travel[previous][stop];
+            cost += travel[previous][stop] + lateness(time, due[stop]);
+            previous = stop;
+        }
+        return cost;
+    }
+
+    private static double lateness(double arrival, double due) {
+        return arrival > due ? (arrival - due) * LATENESS_PENALTY : 0;
+    }
+
+    private static int[] nearestNeighbour(double[][] travel) {
+        int n = travel.length - 1;
+        int[] route = new int[n];
+        boolean[] visited = new boolean[n + 1];
+        int current = 0;
+        for (int position = 0; position < n; position++) {
+            int next = -1;
+            for (int stop = 1; stop <= n; stop++) {
+                if (!visited[stop] && (next == -1 || travel[current][stop] < travel[current][next])) {
+                    next = stop;
+                }
+            }
+            route[position] = next;
+            visited[next] = true;
+            current = next;
+        }
+        return route;
+    }
+
+    /**
+     * The current route with, for every position, the arrival time, the cost so far and the travel time
+     * of the reversed route so far. A move is only evaluated in full when the travel time alone does not
+     * already rule it out, and the evaluation starts at the first position the move changes.
+     */
+    private static class Search {
+        private final double[][] travel;
+        private final double[] due;
+        private final int[] route;
+        private final int[] candidate;
+        private final double[] arrival;
+        private final double[] cost;
+        private final double[] backward;
+
+        Search(double[][] travel, double[] due, int[] route) {
+            this.travel = travel;
+            this.due = due;
+            this.route = route;
+            this.candidate = new int[route.length];
+            this.arrival = new double[route.length];
+            this.cost = new double[route.length];
+            this.backward = new double[route.length];
+            refresh();
+        }
+
+        private void refresh() {
+            double time = 0;
+            double total = 0;
+            for (int p = 0; p < route.length; p++) {
+                double leg = travel[stop(p - 1)][route[p]];
+                time += leg;
+                total += leg + lateness(time, due[route[p]]);
+                arrival[p] = time;
+                cost[p] = total;
+                backward[p] = p == 0 ? 0 : backward[p - 1] + travel[route[p]][route[p - 1]];
+            }
+        }
+
+        private int stop(int position) {
+            return position < 0 ? 0 : route[position];
+        }
+
+        private double best() {
+            return route.length == 0 ? 0 : cost[route.length - 1];
+        }
+
+        private double totalTravel() {
+            return route.length == 0 ? 0 : arrival[route.length - 1];
+        }
+
+        /** Travel time along the route from position i to position j */
+        private double forward(int i, int j) {
+            return arrival[j] - arrival[i];
+        }
+
+        /**
+         * Whether {@link #candidate}, which matches the route before position start, costs less than the route.
+         * The cost only grows along the route, so the evaluation stops as soon as it reaches the current cost.
+         */
+        private boolean improves(int start) {
+            double limit = best() - EPSILON;
+            double time = start == 0 ? 0 : arrival[start - 1];
+            double total = start == 0 ? 0 : cost[start - 1];
+            int previous = stop(start - 1);
+            for (int p = start; p < candidate.length; p++) {
+                double leg = travel[previous][candidate[p]];
+                time += leg;
+                total += leg + lateness(time, due[candidate[p]]);
+                if (total >= limit) return false;
+                previous = candidate[p];
+            }
+            return true;
+        }
+
+        /** Takes over {@link #candidate} from position start on */
+        private void accept(int start) {
+            System.arraycopy(candidate, start, route, start, route.length - start);
+            refresh();
+        }
+
+        /**
+         * Applies improving reversals of route sections until none improves.
+         */
+        boolean twoOpt() {
+            int n = route.length;
+            boolean improved = false;
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int i = 0; i < n - 1; i++) {
+                    for (int j = i + 1; j < n; j++) {
+                        double travelAfter = totalTravel()
+                                - travel[stop(i - 1)][route[i]] + travel[stop(i - 1)][route[j]]
+                                - forward(i, j) + (backward[j] - backward[i]);
+                        if (j + 1 < n) {
+                            travelAfter += travel[route[i]][route[j + 1]] - travel[route[j]][route[j + 1]];
+                        }
+                        double penaltyBefore = i == 0 ? 0 : cost[i - 1] - arrival[i - 1];
+                        if (travelAfter + penaltyBefore >= best() - EPSILON) continue;
+
+                        System.arraycopy(route, i, candidate, i, n - i);
+                        for (int k = 0; k <= j - i; k++) {
+                            candidate[i + k] = route[j - k];
+                        }
+                        if (improves(i)) {
+                            accept(i);
+                            changed = improved = true;
+                        }
+                    }
+                }
+            }
+            return improved;
+        }
+
+        /**
+         * Moves runs of one to {@link #MAX_OR_OPT_RUN} consecutive stops to another place while it improves.
+         */
+        boolean orOpt() {
+            int n = route.length;
+            boolean improved = false;
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int length = 1; length <= MAX_OR_OPT_RUN && length < n; length++) {
+                    for (int from = 0; from + length <= n; from++) {
+                        int first = route[from];
+                        int last = route[from + length - 1];
+                        int before = stop(from - 1);
+                        double travelAfter = totalTravel() - travel[before][first];
+                        if (from + length < n) {
+                            int after = route[from + length];
+                            travelAfter += travel[before][after] - travel[last][after];
+                        }
+
+                        for (int to = 0; to + length <= n; to++) {
+                            if (to == from) continue;
+                            // neighbours of the insertion point in the route without the run
+                            int left = to == 0 ? 0 : route[to - 1 < from ? to - 1 : to - 1 + length];
+                            int right = to + length == n ? -1 : route[to < from ? to : to + length];
+                            double moved = travelAfter + travel[left][first];
+                            if (right != -1) {
+                                moved += travel[last][right] - travel[left][right];
+                            }
+                            int start = Math.min(from, to);
+                            double penaltyBefore = start == 0 ? 0 : cost[start - 1] - arrival[start - 1];
+                            if (moved + penaltyBefore >= best() - EPSILON) continue;
+
+                            move(from, length, to);
+                            if (improves(start)) {
+                                accept(start);
+                                changed = improved = true;
+                                first = route[from];
+                                last = route[from + length - 1];
+                                before = stop(from - 1);
+                                travelAfter = totalTravel() - travel[before][first];
+                                if (from + length < n) {
+                                    int after = route[from + length];
+                                    travelAfter += travel[before][after] - travel[last][after];
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            return improved;
+        }
+
+        /**
+         * Writes the route from the first changed position into the candidate, with the run of {@code length} stops at {@code from} moved so it starts at {@code to}.
+         */
+        private void move(int from, int length, int to) {
+            int n = route.length;
+            if (to < from) {
+                System.arraycopy(route, from, candidate, to, length);
+                System.arraycopy(route, to, candidate, to + length, from - to);
+                System.arraycopy(route, from + length, candidate, from + length, n - from - length);
+            } else {
+                System.arraycopy(route, from + length, candidate, from, to - from);
+                System.arraycopy(route, from, candidate, to, length);
+                System.arraycopy(route, to + length, candidate, to + length, n - to - length);
+            }
+        }
+    }
+}
@@ -5,11 +5,20 @@ package service;
 
 import exceptions.BusinessLogicException;
 import exceptions.EntityNotFound;
+import exceptions.ValidationException;
+import helpers.Geocoder;
+import helpers.LookupTableGeocoder;
 import model.*;
+import repository.Cascade;
 import repository.IRepository;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 public class SellerService {
@@ -19,6 +28,16 @@ public class SellerService {
     private final IRepository<Delivery> deliveryIRepository;
     private final IRepository<Customer> customerIRepository;
     private final IRepository<Order> orderIRepository;
+    private final Cascade<Store> storeCascade;
+    private final DepositInventory depositInventory;
+    private final Geocoder geocoder;
+    private final LocationIndex<Deposit> depositLocations;
+    private final TravelCosts travelCosts;
+    private final QuoteEngine quoteEngine;
+    private final ConsolidationJob consolidationJob;
+    private final SlaMonitor slaMonitor;
+    private final SourcingEngine sourcingEngine;
+    private final OrderStatusIndex orderStatusIndex;
 
     /**
      * Constructor for initializing the service with repositories.
@@ -31,12 +50,85 @@ public class SellerService {
      * @param orderIRepository    Repository for managing orders.
      */
     public SellerService(IRepository<Store> storeIRepository, IRepository<Deposit> depositIRepository, IRepository<Packages> packageIRepository, IRepository<Delivery> deliveryIRepository, IRepository<Customer> customerIRepository, IRepository<Order> orderIRepository) {
+        this(storeIRepository, depositIRepository, packageIRepository, deliveryIRepository, customerIRepository, orderIRepository, new LookupTableGeocoder());
+    }
+
+    /**
+     * Constructor for initializing the service with repositories and a geocoder for deposit addresses.
+     *
+     * @param storeIRepository    Repository for managing stores.
+     * @param depositIRepository  Repository for managing deposits.
+     * @param packageIRepository  Repository for managing packages.
+     * @param deliveryIRepository Repository for managing deliveries.
+     * @param customerIRepository Repository for managing customers.
+     * @param orderIRepository    Repository for managing orders.
+     * @param geocoder            Resolves addresses and locations to coordinates.
+     */
+    public SellerService(IRepository<Store> storeIRepository, IRepository<Deposit> depositIRepository, IRepository<Packages> packageIRepository, IRepository<Delivery> deliveryIRepository, IRepository<Customer> customerIRepository, IRepository<Order> orderIRepository, Geocoder geocoder) {
+        this(storeIRepository, depositIRepository, packageIRepository, deliveryIRepository, customerIRepository, orderIRepository, geocoder, new QuoteEngine());
+    }
+
+    /**
+     * Constructor for initializing the service with repositories, a geocoder and the engine pricing orders per transportation type.
+     *
+     * @param storeIRepository    Repository for managing stores.
+     * @param depositIRepository  Repository for managing deposits.
+     * @param packageIRepository  Repository for managing packages.
+     * @param deliveryIRepository Repository for managing deliveries.
+     * @param customerIRepository Repository for managing customers.
+     * @param orderIRepository    Repository for managing orders.
+     * @param geocoder            Resolves addresses and locations to coordinates.
+     * @param quoteEngine         Prices orders for every transportation type.
+     */
+    public SellerService(IRepository<Store> storeIRepository, IRepository<Deposit> depositIRepository, IRepository<Packages> packageIRepository, IRepository<Delivery> deliveryIRepository, IRepository<Customer> customerIRepository, IRepository<Order> orderIRepository, Geocoder geocoder, QuoteEngine quoteEngine) {
         this.storeIRepository = storeIRepository;
         this.depositIRepository = depositIRepository;
         this.packageIRepository = packageIRepository;
         this.deliveryIRepository = deliveryIRepository;
         this.customerIRepository = customerIRepository;
         this.orderIRepository = orderIRepository;
+        this.storeCascade = new Cascade<>(storeIRepository)
+                .detaching(depositIRepository, "storeID", Deposit::getStoreID, Deposit::setStoreID, 0); // Null not supported by fromCsv method
+        this.depositInventory = new DepositInventory(packageIRepository, depositIRepository);
+        this.geocoder = geocoder;
+        this.depositLocations = new LocationIndex<>(depositIRepository, Deposit::getAddress, geocoder);
+        this.travelCosts = new TravelCosts(depositIRepository, customerIRepository, geocoder);
+        this.quoteEngine = quoteEngine;
+        this.consolidationJob = new ConsolidationJob(orderIRepository, deliveryIRepository, geocoder);
+        this.slaMonitor = new SlaMonitor(orderIRepository, deliveryIRepository, LocalDateTime.now());
+        this.sourcingEngine = new SourcingEngine(orderIRepository, packageIRepository, depositIRepository, depositInventory, depositLocations, geocoder);
+        this.orderStatusIndex = new OrderStatusIndex(orderIRepository);
+    }
+
+    /**
+     * Returns the cached travel costs between deposits, customers and delivery persons,
+     * for sharing with the dispatch logic of the other services.
+     *
+     * @return The travel cost matrix.
+     */
+    public TravelCosts getTravelCosts() {
+        return travelCosts;
+    }
+
+    /**
+     * Releases the travel cost matrix and its file. The services sharing it must not use it afterwards.
+     */
+    public void close() {
+        travelCosts.close();
+    }
+
+    /**
+     * Looks up the travel time from a deposit to a customer in the travel cost matrix.
+     *
+     * @param depositId  The ID of the deposit.
+     * @param customerId The ID of the customer.
+     * @return The travel time in minutes.
+     * @throws EntityNotFound if the address of the deposit or the customer is unknown.
+     */
+    public double getTravelMinutes(Integer depositId, Integer customerId) {
+        double minutes = travelCosts.travelMinutes(TravelCosts.Node.deposit(depositId), TravelCosts.Node.customer(customerId));
+        if (Double.isNaN(minutes)) throw new EntityNotFound("No travel cost known from deposit " + depositId + " to customer " + customerId);
+        return minutes;
     }
 
     /**
@@ -93,18 +185,18 @@ public class SellerService {
 
     /**
      * Registers a new deposit and associates it with a store.
+     * The status of the deposit follows from the packages it stores.
      *
      * @param depositId Unique identifier for the deposit.
      * @param storeId   ID of the store to which the deposit belongs.
      * @param address   Address of the deposit.
-     * @param status    Status of the deposit.
      * @throws EntityNotFound if the specified store ID does not exist.
      */
-    public void registerDeposit(Integer depositId, Integer storeId, String address, String status) {
+    public void registerDeposit(Integer depositId, Integer storeId, String address) {
         Store store = storeIRepository.get(storeId);
         if (store == null) throw new EntityNotFound("No store found with ID " + storeId);
 
-        Deposit newDeposit = new Deposit(depositId, address, status, storeId);
+        Deposit newDeposit = new Deposit(depositId, address, depositInventory.getStatus(depositId), storeId);
         depositIRepository.create(newDeposit);
 
         store.addDeposit(newDeposit);
@@ -131,15 +223,7 @@ public class SellerService {
 
         if (store == null) throw new EntityNotFound("No store found with ID " + storeId);
 
-        List<Deposit> deposits = store.getDeposits();
-        if (deposits == null) throw new BusinessLogicException("The store has no related deposits");
-
-        for (Deposit deposit : deposits) {
-            deposit.setStoreID(0); // Null not supported by fromCsv method
-            depositIRepository.update(deposit);
-        }
-
-        storeIRepository.delete(storeId);
+        storeCascade.delete(storeId);
     }
 
     /**
@@ -205,6 +289,223 @@ public class SellerService {
         Packages packages = packageIRepository.get(packageId);
         if (packages == null) throw new EntityNotFound("No package found for ID " + packageId);
         packageIRepository.delete(packageId);
+        if (packages.getDepositId() != null) updateDepositStatus(packages.getDepositId());
+    }
+
+    /**
+     * Stores a package in a deposit, unless the deposit already holds {@link DepositInventory#DEPOSIT_LIMIT} packages.
+     * The place is reserved atomically before the package is written, so concurrent intakes cannot overfill the deposit.
+     *
+     * @param packageId The ID of the package.
+     * @param depositId The ID of the deposit.
+     * @throws EntityNotFound if the package or the deposit does not exist.
+     * @throws BusinessLogicException if the deposit is full or the package could not be written.
+     */
+    public void storePackageInDeposit(Integer packageId, Integer depositId) {
+        Packages packages = packageIRepository.get(packageId);
+        if (packages == null) throw new EntityNotFound("No package found for ID " + packageId);
+        if (!depositIRepository.exists(depositId)) throw new EntityNotFound("No deposit found with ID " + depositId);
+        Integer previousDepositId = packages.getDepositId();
+        if (depositId.equals(previousDepositId)) return;
+        if (!depositInventory.reserve(packageId, depositId)) throw new BusinessLogicException("The deposit with ID " + depositId + " is full");
+
+        try {
+            packages.setDepositId(depositId);
+            packageIRepository.update(packages);
+        } catch (RuntimeException e) {
+            packages.setDepositId(previousDepositId);
+            depositInventory.cancelReservation(packageId);
+            throw e;
+        }
+        // Some backends report a failed write only by not notifying it; the place is then still reserved
+        if (depositInventory.cancelReservation(packageId)) {
+            packages.setDepositId(previousDepositId);
+            throw new BusinessLogicException("The package with ID " + packageId + " could not be stored in the deposit with ID " + depositId);
+        }
+        updateDepositStatus(depositId);
+        if (previousDepositId != null) updateDepositStatus(previousDepositId);
+    }
+
+    /**
+     * Takes a package out of its deposit.
+     *
+     * @param packageId The ID of the package.
+     * @throws EntityNotFound if the package does not exist.
+     * @throws BusinessLogicException if the package is not stored in a deposit.
+     */
+    public void releasePackageFromDeposit(Integer packageId) {
+        Packages packages = packageIRepository.get(packageId);
+        if (packages == null) throw new EntityNotFound("No package found for ID " + packageId);
+        Integer depositId = packages.getDepositId();
+        if (depositId == null) throw new BusinessLogicException("The package with ID " + packageId + " is not stored in a deposit");
+
+        packages.setDepositId(null);
+        packageIRepository.update(packages);
+        updateDepositStatus(depositId);
+    }
+
+    /**
+     * Saves the status following from the package count of a deposit, when it changed.
+     * Synchronized so the last save of concurrent intakes reads the final count.
+     */
+    private synchronized void updateDepositStatus(Integer depositId) {
+        Deposit deposit = depositIRepository.get(depositId);
+        if (deposit == null) return;
+        String status = depositInventory.getStatus(depositId);
+        if (StringDictionary.SHARED.encode(status) == deposit.getStatusCode()) return;
+        deposit.setStatus(status);
+        depositIRepository.update(deposit);
+    }
+
+    /**
+     * Returns the number of packages stored in a deposit, read from the running counts.
+     *
+     * @param depositId The ID of the deposit.
+     * @return The number of packages in the deposit.
+     */
+    public int getDepositPackageCount(Integer depositId) {
+        return depositInventory.getDepositPackageCount(depositId);
+    }
+
+    /**
+     * Returns the number of packages stored in all deposits of a store, read from the running counts.
+     *
+     * @param storeId The ID of the store.
+     * @return The number of packages of the store.
+     */
+    public int getStorePackageCount(Integer storeId) {
+        return depositInventory.getStorePackageCount(storeId);
+    }
+
+    /**
+     * Recomputes the package counts from the repositories.
+     *
+     * @return true if the running counts were correct.
+     */
+    public boolean verifyPackageCounts() {
+        return depositInventory.rebuild();
+    }
+
+    /**
+     * Finds the deposits closest to a location, using the spatial index of deposit addresses.
+     *
+     * @param location The location to search from, e.g. the location of a new order.
+     * @param limit    The maximum number of deposits to return.
+     * @return The nearest deposits, nearest first.
+     * @throws EntityNotFound if the location cannot be geocoded.
+     */
+    public List<Deposit> findNearestDeposits(String location, int limit) {
+        List<Deposit> deposits = new ArrayList<>();
+        for (Integer depositId : depositLocations.nearest(locate(location), limit, id -> true)) {
+            Deposit deposit = depositIRepository.get(depositId);
+            if (deposit != null) deposits.add(deposit);
+        }
+        return deposits;
+    }
+
+    /**
+     * Finds the deposits within a distance of a location.
+     *
+     * @param location The location to search from.
+     * @param radiusKm The radius in kilometres.
+     * @return The deposits within the radius, nearest first.
+     * @throws EntityNotFound if the location cannot be geocoded.
+     */
+    public List<Deposit> findDepositsWithinRadius(String location, double radiusKm) {
+        List<Deposit> deposits = new ArrayList<>();
+        for (Integer depositId : depositLocations.withinRadius(locate(location), radiusKm)) {
+            Deposit deposit = depositIRepository.get(depositId);
+            if (deposit != null) deposits.add(deposit);
+        }
+        return deposits;
+    }
+
+    /**
+     * Finds the deposits closest to a location that can still take packages.
+     *
+     * @param location The location to search from, e.g. the location of a new order.
+     * @param places   The number of packages the deposits must still be able to take.
+     * @param limit    The maximum number of deposits to return.
+     * @return The nearest deposits with enough free capacity, nearest first.
+     * @throws EntityNotFound if the location cannot be geocoded.
+     */
+    public List<Deposit> findDepositsWithFreeCapacity(String location, int places, int limit) {
+        List<Deposit> deposits = new ArrayList<>();
+        for (Integer depositId : depositLocations.nearest(locate(location), limit, id -> depositInventory.getFreeCapacity(id) >= places)) {
+            Deposit deposit = depositIRepository.get(depositId);
+            if (deposit != null) deposits.add(deposit);
+        }
+        return deposits;
+    }
+
+    /**
+     * Chooses the deposit shipping every package of the orders placed within a time window that is not stored yet,
+     * shipping each order from as few and as near deposits as the free capacity allows.
+     *
+     * @param window How far back to look for placed orders.
+     * @return The chosen deposits and the packages no deposit could take.
+     * @throws BusinessLogicException if the orders or the packages are stored in the database.
+     */
+    public SourcingEngine.Result sourceRecentOrders(Duration window) {
+        LocalDateTime now = LocalDateTime.now();
+        SourcingEngine.Result result = sourcingEngine.run(now.minus(window), now);
+        new HashSet<>(result.assignments().values()).forEach(this::updateDepositStatus);
+        return result;
+    }
+
+    /**
+     * Returns the number of packages a deposit can still take, read from the running counts.
+     *
+     * @param depositId The ID of the deposit.
+     * @return The free capacity of the deposit.
+     */
+    public int getDepositFreeCapacity(Integer depositId) {
+        return depositInventory.getFreeCapacity(depositId);
+    }
+
+    /**
+     * Returns the total weight of the packages stored in a deposit, read from the running counts.
+     *
+     * @param depositId The ID of the deposit.
+     * @return The weight stored in the deposit.
+     */
+    public double getDepositWeight(Integer depositId) {
+        return depositInventory.getDepositWeight(depositId);
+    }
+
+    /**
+     * Prices orders for every transportation type, shipping each from the deposit nearest to its delivery location.
+     *
+     * @param orderIds The IDs of the orders to quote.
+     * @return The quotes of every transportation type per order ID, in the order of the IDs.
+     * @throws EntityNotFound if an order does not exist, its location is unknown, or there is no deposit with a known address.
+     */
+    public Map<Integer, List<QuoteEngine.Quote>> quoteOrders(List<Integer> orderIds) {
+        List<Order> orders = new ArrayList<>(orderIds.size());
+        for (Integer orderId : orderIds) {
+            Order order = orderIRepository.get(orderId);
+            if (order == null) throw new EntityNotFound("No order found with ID " + orderId);
+            orders.add(order);
+        }
+
+        QuoteEngine.Quotes quotes = quoteEngine.quote(orders, order -> {
+            GeoPoint destination = locate(order.getLocation());
+            List<Integer> nearest = depositLocations.nearest(destination, 1, id -> true);
+            if (nearest.isEmpty()) throw new EntityNotFound("No deposit with a known address");
+            return TravelCosts.roadDistanceKm(depositLocations.getPoint(nearest.get(0)), destination);
+        });
+
+        Map<Integer, List<QuoteEngine.Quote>> quotesByOrder = new LinkedHashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            quotesByOrder.put(orders.get(i).getId(), quotes.getQuotes(i));
+        }
+        return quotesByOrder;
+    }
+
+    private GeoPoint locate(String location) {
+        GeoPoint point = geocoder.geocode(location);
+        if (point == null) throw new EntityNotFound("Unknown location " + location);
+        return point;
     }
 
     /**
@@ -217,8 +518,11 @@ public class SellerService {
     public List<Order> filterDeliveriesByLocation(String location) {
         List<Order> allOrders = orderIRepository.readAll();
         List<Order> filteredOrders = new ArrayList<>();
+        // Compare dictionary codes folded to lower case instead of the location strings
+        int wanted = location == null ? StringDictionary.ABSENT : StringDictionary.SHARED.lookupIgnoreCase(location);
+        if (wanted == StringDictionary.ABSENT) return filteredOrders;
         for (Order order : allOrders) {
-            if (location != null && location.equalsIgnoreCase(order.getLocation())) {
+            if (StringDictionary.SHARED.foldedCode(order.getLocationCode()) == wanted) {
                 filteredOrders.add(order);
             }
         }
@@ -244,11 +548,107 @@ public class SellerService {
         if (orders != null) {
             for (Order order : orders) {
                 delivery.addOrder(order);
+                order.setDeliveryId(deliveryID);
+                orderIRepository.update(order);
             }
         }
         deliveryIRepository.update(delivery);
     }
 
+    /**
+     * Groups all orders that are not part of a delivery into new deliveries by location, delivery time
+     * and the capacity of one vehicle.
+     *
+     * @param weightCapacity     The total package weight one delivery can carry.
+     * @param transportationType The type of vehicle, giving the cargo volume of one delivery.
+     * @return The created deliveries.
+     */
+    public List<Delivery> consolidateOpenOrders(double weightCapacity, Transportation_Type transportationType) {
+        return consolidationJob.run(weightCapacity, transportationType.getCargoVolume());
+    }
+
+    /**
+     * Returns the monitor of orders and deliveries that miss their delivery date and time,
+     * for starting periodic checks or subscribing to breaches.
+     *
+     * @return The SLA monitor.
+     */
+    public SlaMonitor getSlaMonitor() {
+        return slaMonitor;
+    }
+
+    /**
+     * Returns the orders and deliveries that are past their delivery date and time without being delivered.
+     *
+     * @return The open breaches, earliest deadline first.
+     */
+    public List<SlaMonitor.Breach> getSlaBreaches() {
+        slaMonitor.checkBreaches(LocalDateTime.now());
+        return slaMonitor.getOpenBreaches();
+    }
+
+    /**
+     * Changes the status of an order by its label.
+     *
+     * @param orderId The ID of the order.
+     * @param status  The label of the new status of the order, e.g. "to be shipped".
+     * @throws ValidationException if no status has the label.
+     * @see #updateOrderStatus(Integer, OrderStatus)
+     */
+    public void updateOrderStatus(Integer orderId, String status) {
+        OrderStatus next;
+        try {
+            next = OrderStatus.fromLabel(status);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException(e.getMessage());
+        }
+        updateOrderStatus(orderId, next);
+    }
+
+    /**
+     * Changes the status of an order. The delivery containing the order is saved again,
+     * so that listeners on the delivery repository see the new status.
+     *
+     * @param orderId The ID of the order.
+     * @param status  The new status of the order.
+     * @throws EntityNotFound         if the order does not exist.
+     * @throws BusinessLogicException if the order cannot move from its current status to the new one.
+     */
+    public void updateOrderStatus(Integer orderId, OrderStatus status) {
+        Order order = orderIRepository.get(orderId);
+        if (order == null) throw new EntityNotFound("No order found with ID " + orderId);
+
+        order.setOrderStatus(status);
+        orderIRepository.update(order);
+
+        // The delivery-level listeners, e.g. the SLA monitor, read the statuses from the orders of the delivery
+        if (order.getDeliveryId() == null) return;
+        Delivery delivery = deliveryIRepository.get(order.getDeliveryId());
+        if (delivery != null && delivery.replaceOrder(order)) {
+            deliveryIRepository.update(delivery);
+        }
+    }
+
+    /**
+     * Retrieves the orders in any of the given statuses from the {@link OrderStatusIndex}, without scanning all orders.
+     *
+     * @param statuses The statuses to look for.
+     * @return The matching orders, ordered by ID.
+     */
+    public List<Order> getOrdersInStatus(OrderStatus... statuses) {
+        return orderStatusIndex.getOrders(statuses);
+    }
+
+    /**
+     * Returns the number of orders in a status.
+     *
+     * @param status The status to count.
+     * @return The number of orders in the status.
+     */
+    public int countOrdersInStatus(OrderStatus status) {
+        return orderStatusIndex.countOrders(status);
+    }
+
     /**
      * Generates a new unique delivery ID by finding the maximum existing ID and incrementing it by one.
      *
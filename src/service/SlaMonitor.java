@@ -0,0 +1,226 @@
+package service;
+
+import helpers.TimingWheel;
+import model.Delivery;
+import model.Order;
+import model.OrderStatus;
+import repository.IRepository;
+import repository.RepositoryListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Notices orders and deliveries that are not delivered by their delivery date and time. Every open order
+ * has a timer at its delivery date and time, and every delivery a timer at the earliest delivery date and time
+ * of its open orders. The timers live on hierarchical timing wheels and follow the repository writes: a new
+ * date moves the timer, a delivered or deleted order cancels it, all in constant time.
+ *
+ * <p>{@link #checkBreaches(LocalDateTime)} advances the wheels and reports every timer that expired since the
+ * previous check as one list. A breach is reported once; it stays open until the order is delivered, deleted or
+ * rescheduled.</p>
+ */
+public class SlaMonitor implements AutoCloseable {
+    /** The status of an order that has been delivered */
+    public static final String COMPLETED_STATUS = OrderStatus.DELIVERED.getLabel();
+    private static final long TICK_MILLIS = 1000;
+
+    public enum Kind {ORDER, DELIVERY}
+
+    /**
+     * An order or delivery that was not delivered by its deadline.
+     */
+    public record Breach(Kind kind, Integer id, LocalDateTime deadline) {
+    }
+
+    private final TimingWheel<Integer> orderTimers;
+    private final TimingWheel<Integer> deliveryTimers;
+    private final Map<Integer, LocalDateTime> orderDeadlines = new HashMap<>();
+    private final Map<Integer, LocalDateTime> deliveryDeadlines = new HashMap<>();
+    private final Map<Integer, LocalDateTime> breachedOrders = new HashMap<>();
+    private final Map<Integer, LocalDateTime> breachedDeliveries = new HashMap<>();
+    private final List<Consumer<List<Breach>>> breachListeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService checker;
+
+    /**
+     * Registers timers for the open orders and deliveries and follows the later writes.
+     *
+     * @param orderIRepository    the orders to monitor.
+     * @param deliveryIRepository the deliveries to monitor.
+     * @param start               the current time.
+     */
+    public SlaMonitor(IRepository<Order> orderIRepository, IRepository<Delivery> deliveryIRepository, LocalDateTime start) {
+        this.orderTimers = new TimingWheel<>(TICK_MILLIS, toMillis(start));
+        this.deliveryTimers = new TimingWheel<>(TICK_MILLIS, toMillis(start));
+
+        orderIRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onCreate(Order order) {
+                onUpdate(order);
+            }
+
+            @Override
+            public void onUpdate(Order order) {
+                track(order.getId(), isOpen(order) ? order.getDeliveryDateTime() : null, orderTimers, orderDeadlines, breachedOrders);
+            }
+
+            @Override
+            public void onDelete(Integer orderId) {
+                track(orderId, null, orderTimers, orderDeadlines, breachedOrders);
+            }
+        });
+        deliveryIRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onCreate(Delivery delivery) {
+                onUpdate(delivery);
+            }
+
+            @Override
+            public void onUpdate(Delivery delivery) {
+                track(delivery.getId(), deadlineOf(delivery), deliveryTimers, deliveryDeadlines, breachedDeliveries);
+            }
+
+            @Override
+            public void onDelete(Integer deliveryId) {
+                track(deliveryId, null, deliveryTimers, deliveryDeadlines, breachedDeliveries);
+            }
+        });
+
+        for (Order order : orderIRepository.readAll()) {
+            track(order.getId(), isOpen(order) ? order.getDeliveryDateTime() : null, orderTimers, orderDeadlines, breachedOrders);
+        }
+        for (Delivery delivery : deliveryIRepository.readAll()) {
+            track(delivery.getId(), deadlineOf(delivery), deliveryTimers, deliveryDeadlines, breachedDeliveries);
+        }
+    }
+
+    /**
+     * Registers a receiver of the breaches found by every check.
+     */
+    public void addBreachListener(Consumer<List<Breach>> listener) {
+        breachListeners.add(listener);
+    }
+
+    /**
+     * Checks for breaches periodically on a background thread until {@link #close()}.
+     *
+     * @param period the time between two checks.
+     */
+    public synchronized void start(Duration period) {
+        if (checker != null) return;
+        checker = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "sla-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleAtFixedRate(() -> checkBreaches(LocalDateTime.now()), 0, period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic checks.
+     */
+    @Override
+    public synchronized void close() {
+        if (checker != null) {
+            checker.shutdownNow();
+            checker = null;
+        }
+    }
+
+    /**
+     * Reports the orders and deliveries whose deadline passed since the previous check.
+     *
+     * @param now the current time.
+     * @return the new breaches, orders first, each earliest deadline first.
+     */
+    public List<Breach> checkBreaches(LocalDateTime now) {
+        List<Breach> breaches = new ArrayList<>();
+        synchronized (this) {
+            collect(Kind.ORDER, orderTimers.advance(toMillis(now)), orderDeadlines, breachedOrders, breaches);
+            collect(Kind.DELIVERY, deliveryTimers.advance(toMillis(now)), deliveryDeadlines, breachedDeliveries, breaches);
+        }
+        if (!breaches.isEmpty()) {
+            for (Consumer<List<Breach>> listener : breachListeners) {
+                listener.accept(breaches);
+            }
+        }
+        return breaches;
+    }
+
+    /**
+     * @return every breach that is still open, earliest deadline first.
+     */
+    public synchronized List<Breach> getOpenBreaches() {
+        List<Breach> breaches = new ArrayList<>();
+        breachedOrders.forEach((id, deadline) -> breaches.add(new Breach(Kind.ORDER, id, deadline)));
+        breachedDeliveries.forEach((id, deadline) -> breaches.add(new Breach(Kind.DELIVERY, id, deadline)));
+        breaches.sort(Comparator.comparing(Breach::deadline).thenComparing(Breach::kind).thenComparing(Breach::id));
+        return breaches;
+    }
+
+    /**
+     * @return the number of pending order and delivery timers.
+     */
+    public int getPendingTimers() {
+        return orderTimers.size() + deliveryTimers.size();
+    }
+
+    /**
+     * Moves the timer of an order or delivery to a new deadline, or cancels it for a null deadline.
+     */
+    private synchronized void track(Integer id, LocalDateTime deadline, TimingWheel<Integer> timers,
+                                    Map<Integer, LocalDateTime> deadlines, Map<Integer, LocalDateTime> breached) {
+        if (deadline == null) {
+            timers.cancel(id);
+            deadlines.remove(id);
+            breached.remove(id);
+            return;
+        }
+        // an unrelated change of an order that already breached this deadline does not report it again
+        if (deadline.equals(breached.get(id))) return;
+        breached.remove(id);
+        deadlines.put(id, deadline);
+        timers.schedule(id, toMillis(deadline));
+    }
+
+    private static void collect(Kind kind, List<Integer> expired, Map<Integer, LocalDateTime> deadlines,
+                                Map<Integer, LocalDateTime> breached, List<Breach> breaches) {
+        for (Integer id : expired) {
+            LocalDateTime deadline = deadlines.remove(id);
+            breached.put(id, deadline);
+            breaches.add(new Breach(kind, id, deadline));
+        }
+    }
+
+    private static boolean isOpen(Order order) {
+        return order.getDeliveryDateTime() != null && order.getOrderStatus() != OrderStatus.DELIVERED;
+    }
+
+    /**
+     * The earliest delivery date and time of the open orders of a delivery, or null if none is open.
+     */
+    private static LocalDateTime deadlineOf(Delivery delivery) {
+        LocalDateTime earliest = null;
+        for (Order order : delivery.getOrders()) {
+            if (isOpen(order) && (earliest == null || order.getDeliveryDateTime().isBefore(earliest))) {
+                earliest = order.getDeliveryDateTime();
+            }
+        }
+        return earliest;
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,265 @@
+package service;
+
+import exceptions.BusinessLogicException;
+import model.Delivery_Person;
+import model.Order;
+import repository.IRepository;
+import repository.RepositoryListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Books orders into hourly delivery slots per region. The region of an order is its delivery location
+ * with surrounding blanks and case ignored, so "Cluj" and " cluj" share their slots.
+ * Every slot has a capacity per region, and every hour a capacity shared by all regions, e.g. the orders the
+ * whole fleet can deliver in one hour; an order can only be booked into a slot that has room left in both.
+ *
+ * <p>Every slot and every hour has its own atomic counter, so bookings in different slots only contend on the
+ * counter of their hour and bookings in the same slot only retry a compare-and-set. The orders written to the
+ * repository by other means are booked without the capacity check, and deleted orders release their slot.</p>
+ */
+public class SlotBooking implements RepositoryListener<Order> {
+    public static final int SLOT_MINUTES = 60;
+    /** Capacity of a slot without a limit */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    /**
+     * The capacity of the delivery slots.
+     */
+    @FunctionalInterface
+    public interface Capacity {
+        /**
+         * @param region the normalized region.
+         * @return the number of orders one slot of the region can take.
+         */
+        int ofRegion(String region);
+
+        /**
+         * @return the number of orders the slots of all regions in one hour can take together.
+         */
+        default int ofAllRegions() {
+            return UNBOUNDED;
+        }
+    }
+
+    private final Capacity capacity;
+    private final ConcurrentHashMap<Slot, AtomicInteger> booked = new ConcurrentHashMap<>();
+    /** The number of orders booked into every hour, over all regions */
+    private final ConcurrentHashMap<Long, AtomicInteger> bookedPerHour = new ConcurrentHashMap<>();
+    /** The slot every order is booked into */
+    private final ConcurrentHashMap<Integer, Slot> bookings = new ConcurrentHashMap<>();
+
+    private record Slot(String region, long index) {
+    }
+
+    /**
+     * A slot with room left.
+     *
+     * @param start     the start of the slot.
+     * @param remaining the number of orders that can still be booked into it.
+     */
+    public record AvailableSlot(LocalDateTime start, int remaining) {
+    }
+
+    /**
+     * Books the orders of the repository and registers for later writes.
+     *
+     * @param orderIRepository the orders to book.
+     * @param capacity         the capacity of the slots.
+     */
+    public SlotBooking(IRepository<Order> orderIRepository, Capacity capacity) {
+        this.capacity = capacity;
+        orderIRepository.addListener(this);
+        for (Order order : orderIRepository.readAll()) {
+            onCreate(order);
+        }
+    }
+
+    /**
+     * A capacity sharing the fleet between the regions: all regions together can take, every hour, a number of
+     * orders for every delivery person, and a single region may use all of it.
+     * Every registered delivery person counts, whether or not they are verified or have a vehicle yet.
+     * The delivery persons are counted again whenever one is added or removed.
+     *
+     * @param deliveryPersonIRepository the delivery persons.
+     * @param ordersPerDriver           the number of orders a delivery person can deliver in one slot.
+     */
+    public static Capacity fleetCapacity(IRepository<Delivery_Person> deliveryPersonIRepository, int ordersPerDriver) {
+        AtomicInteger drivers = new AtomicInteger();
+        Runnable count = () -> drivers.set(deliveryPersonIRepository.count());
+        deliveryPersonIRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onCreate(Delivery_Person deliveryPerson) {
+                count.run();
+            }
+
+            @Override
+            public void onDelete(Integer id) {
+                count.run();
+            }
+        });
+        count.run();
+        return new Capacity() {
+            @Override
+            public int ofRegion(String region) {
+                return ofAllRegions();
+            }
+
+            @Override
+            public int ofAllRegions() {
+                return drivers.get() * ordersPerDriver;
+            }
+        };
+    }
+
+    /**
+     * Books an order into the slot of its delivery date and time, releasing the slot it was booked into before.
+     *
+     * @param orderId          ID of the order.
+     * @param location         the delivery location of the order.
+     * @param deliveryDateTime the delivery date and time of the order.
+     * @throws BusinessLogicException if the slot is full; the order then keeps its previous slot.
+     */
+    public void reserve(Integer orderId, String location, LocalDateTime deliveryDateTime) {
+        book(orderId, slotOf(location, deliveryDateTime), true);
+    }
+
+    /**
+     * Releases the slot an order is booked into.
+     *
+     * @param orderId ID of the order.
+     */
+    public void release(Integer orderId) {
+        bookings.computeIfPresent(orderId, (id, slot) -> {
+            booked.get(slot).decrementAndGet();
+            bookedPerHour.get(slot.index()).decrementAndGet();
+            return null;
+        });
+    }
+
+    /**
+     * Returns the slots of a region with room left, in time order.
+     *
+     * @param location the delivery location.
+     * @param from     the time to start from; the slot containing it is the first one returned.
+     * @param days     the number of days to cover.
+     * @return the slots with room left.
+     */
+    public List<AvailableSlot> getAvailableSlots(String location, LocalDateTime from, int days) {
+        Slot first = slotOf(location, from);
+        int regionCapacity = capacity.ofRegion(first.region());
+        int hourCapacity = capacity.ofAllRegions();
+        long count = days * 24L * 60 / SLOT_MINUTES;
+
+        List<AvailableSlot> available = new ArrayList<>();
+        for (long index = first.index(); index < first.index() + count; index++) {
+            int remaining = Math.min(regionCapacity - count(booked.get(new Slot(first.region(), index))),
+                    hourCapacity - count(bookedPerHour.get(index)));
+            if (remaining > 0) {
+                available.add(new AvailableSlot(startOf(index), remaining));
+            }
+        }
+        return available;
+    }
+
+    /**
+     * @return the number of orders booked into the slot containing the given time.
+     */
+    public int getBooked(String location, LocalDateTime dateTime) {
+        return count(booked.get(slotOf(location, dateTime)));
+    }
+
+    /**
+     * Returns the region a delivery location belongs to.
+     *
+     * @param location the delivery location, or null.
+     * @return the location without surrounding blanks, in lower case; empty for null.
+     */
+    public static String regionOf(String location) {
+        return location == null ? "" : location.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void onCreate(Order order) {
+        onUpdate(order);
+    }
+
+    @Override
+    public void onUpdate(Order order) {
+        if (order.getDeliveryDateTime() == null) {
+            release(order.getId());
+        } else {
+            book(order.getId(), slotOf(order.getLocation(), order.getDeliveryDateTime()), false);
+        }
+    }
+
+    @Override
+    public void onDelete(Integer orderId) {
+        release(orderId);
+    }
+
+    /**
+     * Moves the booking of an order to a slot. The bookings of one order are serialized by the map,
+     * so concurrent moves of the same order cannot count it twice.
+     */
+    private void book(Integer orderId, Slot slot, boolean checkCapacity) {
+        bookings.compute(orderId, (id, previous) -> {
+            if (slot.equals(previous)) return previous;
+
+            // An order moving to another region in the same hour keeps its place in the hour
+            boolean sameHour = previous != null && previous.index() == slot.index();
+            AtomicInteger hourCounter = bookedPerHour.computeIfAbsent(slot.index(), key -> new AtomicInteger());
+            AtomicInteger counter = booked.computeIfAbsent(slot, key -> new AtomicInteger());
+            if (checkCapacity) {
+                if (!sameHour && !tryIncrement(hourCounter, capacity.ofAllRegions())) {
+                    throw full(slot);
+                }
+                if (!tryIncrement(counter, capacity.ofRegion(slot.region()))) {
+                    if (!sameHour) hourCounter.decrementAndGet();
+                    throw full(slot);
+                }
+            } else {
+                if (!sameHour) hourCounter.incrementAndGet();
+                counter.incrementAndGet();
+            }
+
+            if (previous != null) {
+                booked.get(previous).decrementAndGet();
+                if (!sameHour) bookedPerHour.get(previous.index()).decrementAndGet();
+            }
+            return slot;
+        });
+    }
+
+    private static boolean tryIncrement(AtomicInteger counter, int limit) {
+        int current;
+        do {
+            current = counter.get();
+            if (current >= limit) return false;
+        } while (!counter.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private static BusinessLogicException full(Slot slot) {
+        return new BusinessLogicException("No delivery slot left in " + slot.region() + " at " + startOf(slot.index()));
+    }
+
+    private static int count(AtomicInteger counter) {
+        return counter == null ? 0 : counter.get();
+    }
+
+    private static Slot slotOf(String location, LocalDateTime dateTime) {
+        long minutes = dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+        return new Slot(regionOf(location), Math.floorDiv(minutes, SLOT_MINUTES));
+    }
+
+    private static LocalDateTime startOf(long index) {
+        return LocalDateTime.ofEpochSecond(index * SLOT_MINUTES * 60, 0, ZoneOffset.UTC);
+    }
+}
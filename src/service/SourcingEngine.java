@@ -0,0 +1,282 @@
+package service;
+
+import exceptions.BusinessLogicException;
+import helpers.Geocoder;
+import model.Deposit;
+import model.GeoPoint;
+import model.Order;
+import model.Packages;
+import repository.DBRepository;
+import repository.IRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides which deposit ships every package of the recently placed orders. Packages that are already stored
+ * stay where they are; the others are assigned to deposits with free capacity, so that every order is shipped
+ * from as few deposits as possible and, among those, from the deposits nearest to its delivery location.
+ *
+ * <p>Every order is sourced by a single store: the store already holding some of its packages, or else the store
+ * that can take all of them in one deposit nearest to the order. Stores share no deposits, so the stores are
+ * planned in parallel, each one on a copy of the free capacity of its deposits, taking its orders in the order
+ * they were placed. An order goes to the nearest deposit that takes all its packages; if none does, it is split
+ * greedily, filling the deposits it already uses first and then the deposit taking the most packages.
+ * The assignments are then reserved in the {@link DepositInventory} and saved with one batched write.</p>
+ *
+ * <p>The packages of an order are the packages saved with its ID, together with the packages the order object
+ * holds. The database backend keeps the packages of an order only in the order-package table, which the
+ * repositories do not read, so the engine refuses to run on it.</p>
+ */
+public class SourcingEngine {
+    /** Deposits detached from their store have store ID 0 */
+    private static final Integer NO_STORE = 0;
+
+    /**
+     * The outcome of a sourcing run.
+     *
+     * @param assignments the deposit chosen for every sourced package ID.
+     * @param unsourced   the IDs of the packages no deposit could take.
+     * @param splitOrders the number of orders shipped from more than one deposit.
+     */
+    public record Result(Map<Integer, Integer> assignments, List<Integer> unsourced, int splitOrders) {
+    }
+
+    /** The packages of an order that still need a deposit, and the deposits already holding the others */
+    private record Demand(Order order, GeoPoint destination, List<Packages> unsourced, Set<Integer> used) {
+    }
+
+    private record Plan(Map<Integer, Integer> assignments, List<Integer> unsourced, int splitOrders) {
+    }
+
+    private final IRepository<Order> orderIRepository;
+    private final IRepository<Packages> packageIRepository;
+    private final IRepository<Deposit> depositIRepository;
+    private final DepositInventory depositInventory;
+    private final LocationIndex<Deposit> depositLocations;
+    private final Geocoder geocoder;
+
+    /**
+     * @param orderIRepository   the orders to source.
+     * @param packageIRepository receives the chosen deposits of the packages.
+     * @param depositIRepository the deposits to ship from.
+     * @param depositInventory   the free capacity of the deposits.
+     * @param depositLocations   the coordinates of the deposits.
+     * @param geocoder           resolves the order locations to coordinates.
+     */
+    public SourcingEngine(IRepository<Order> orderIRepository, IRepository<Packages> packageIRepository, IRepository<Deposit> depositIRepository,
+                          DepositInventory depositInventory, LocationIndex<Deposit> depositLocations, Geocoder geocoder) {
+        this.orderIRepository = orderIRepository;
+        this.packageIRepository = packageIRepository;
+        this.depositIRepository = depositIRepository;
+        this.depositInventory = depositInventory;
+        this.depositLocations = depositLocations;
+        this.geocoder = geocoder;
+    }
+
+    /**
+     * Sources the packages of all orders placed in a time window that are not stored in a deposit yet.
+     *
+     * @param from the start of the window.
+     * @param to   the end of the window.
+     * @return the chosen deposits and the packages left without one.
+     * @throws BusinessLogicException if the orders or the packages are stored in the database.
+     */
+    public Result run(LocalDateTime from, LocalDateTime to) {
+        if (orderIRepository instanceof DBRepository<Order> || packageIRepository instanceof DBRepository<Packages>) {
+            throw new BusinessLogicException("Sourcing needs the packages of every order, which the database repositories do not load");
+        }
+        Map<Integer, Integer> depositStores = new HashMap<>();
+        Map<Integer, List<Integer>> storeDeposits = new HashMap<>();
+        for (Deposit deposit : depositIRepository.readAll()) {
+            if (deposit.getStoreID() == null || NO_STORE.equals(deposit.getStoreID())) continue;
+            if (depositLocations.getPoint(deposit.getId()) == null) continue;
+            depositStores.put(deposit.getId(), deposit.getStoreID());
+            storeDeposits.computeIfAbsent(deposit.getStoreID(), id -> new ArrayList<>()).add(deposit.getId());
+        }
+
+        List<Integer> unsourced = new ArrayList<>();
+        Map<Integer, List<Demand>> storeDemands = new HashMap<>();
+        Map<Integer, List<Packages>> packagesOfOrder = new HashMap<>();
+        for (Packages packages : packageIRepository.readAll()) {
+            if (packages.getOrderID() != null) {
+                packagesOfOrder.computeIfAbsent(packages.getOrderID(), id -> new ArrayList<>()).add(packages);
+            }
+        }
+        for (Order order : placedBetween(from, to)) {
+            Demand demand = demandOf(order, packagesOfOrder.getOrDefault(order.getId(), List.of()));
+            if (demand.unsourced().isEmpty()) continue;
+
+            Integer storeId = null;
+            for (Integer depositId : demand.used()) {
+                storeId = depositStores.get(depositId);
+                if (storeId != null) break;
+            }
+            if (storeId == null && demand.destination() != null) storeId = chooseStore(demand, storeDeposits);
+            if (storeId == null) {
+                demand.unsourced().forEach(packages -> unsourced.add(packages.getId()));
+            } else {
+                storeDemands.computeIfAbsent(storeId, id -> new ArrayList<>()).add(demand);
+            }
+        }
+
+        List<Plan> plans = storeDemands.entrySet().parallelStream()
+                .map(entry -> plan(entry.getValue(), storeDeposits.get(entry.getKey())))
+                .toList();
+
+        Map<Integer, Integer> assignments = new LinkedHashMap<>();
+        int splitOrders = 0;
+        for (Plan plan : plans) {
+            assignments.putAll(plan.assignments());
+            unsourced.addAll(plan.unsourced());
+            splitOrders += plan.splitOrders();
+        }
+        return new Result(save(assignments, unsourced), unsourced, splitOrders);
+    }
+
+    private List<Order> placedBetween(LocalDateTime from, LocalDateTime to) {
+        List<Order> orders = new ArrayList<>();
+        for (Order order : orderIRepository.readAll()) {
+            LocalDateTime placed = order.getOrderDate();
+            if (placed != null && !placed.isBefore(from) && !placed.isAfter(to)) orders.add(order);
+        }
+        orders.sort(Comparator.comparing(Order::getOrderDate).thenComparing(Order::getId));
+        return orders;
+    }
+
+    /**
+     * @param stored the stored packages saved with the ID of the order.
+     */
+    private Demand demandOf(Order order, List<Packages> stored) {
+        Map<Integer, Packages> packagesById = new LinkedHashMap<>();
+        for (Packages packages : stored) {
+            packagesById.put(packages.getId(), packages);
+        }
+        // A package the order holds but that was not saved with its ID is read on its own
+        for (Packages ordered : order.getPackages()) {
+            if (packagesById.containsKey(ordered.getId())) continue;
+            Packages packages = packageIRepository.get(ordered.getId());
+            packagesById.put(ordered.getId(), packages == null ? ordered : packages);
+        }
+
+        List<Packages> unsourced = new ArrayList<>();
+        Set<Integer> used = new HashSet<>();
+        for (Packages packages : packagesById.values()) {
+            if (packages.getDepositId() == null) {
+                unsourced.add(packages);
+            } else {
+                used.add(packages.getDepositId());
+            }
+        }
+        GeoPoint destination = order.getLocation() == null ? null : geocoder.geocode(order.getLocation());
+        return new Demand(order, destination, unsourced, used);
+    }
+
+    /**
+     * The store with the nearest deposit taking all packages of the order, or else the store with the nearest deposit taking any.
+     */
+    private Integer chooseStore(Demand demand, Map<Integer, List<Integer>> storeDeposits) {
+        int needed = demand.unsourced().size();
+        Integer best = null;
+        boolean bestFitsAll = false;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (Map.Entry<Integer, List<Integer>> entry : storeDeposits.entrySet()) {
+            for (Integer depositId : entry.getValue()) {
+                int free = depositInventory.getFreeCapacity(depositId);
+                if (free == 0) continue;
+                boolean fitsAll = free >= needed;
+                double distance = distance(depositId, demand.destination());
+                if (fitsAll && !bestFitsAll || fitsAll == bestFitsAll && distance < bestDistance) {
+                    best = entry.getKey();
+                    bestFitsAll = fitsAll;
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Assigns the packages of the orders of one store to its deposits.
+     */
+    private Plan plan(List<Demand> demands, List<Integer> deposits) {
+        Map<Integer, Integer> free = new HashMap<>();
+        for (Integer depositId : deposits) {
+            free.put(depositId, depositInventory.getFreeCapacity(depositId));
+        }
+
+        Map<Integer, Integer> assignments = new LinkedHashMap<>();
+        List<Integer> unsourced = new ArrayList<>();
+        int splitOrders = 0;
+        for (Demand demand : demands) {
+            Set<Integer> used = new HashSet<>(demand.used());
+            int needed = demand.unsourced().size();
+            Comparator<Integer> nearest = Comparator.comparingDouble(depositId -> distance(depositId, demand.destination()));
+
+            Integer single = deposits.stream()
+                    .filter(depositId -> free.get(depositId) >= needed)
+                    .min(Comparator.<Integer, Boolean>comparing(depositId -> !used.contains(depositId)).thenComparing(nearest))
+                    .orElse(null);
+            int next = 0;
+            while (next < needed) {
+                Integer depositId = single != null ? single : deposits.stream()
+                        .filter(id -> free.get(id) > 0)
+                        .min(Comparator.<Integer, Boolean>comparing(id -> !used.contains(id))
+                                .thenComparing(id -> -free.get(id))
+                                .thenComparing(nearest))
+                        .orElse(null);
+                if (depositId == null) break;
+
+                int take = Math.min(free.get(depositId), needed - next);
+                for (int i = 0; i < take; i++) {
+                    assignments.put(demand.unsourced().get(next++).getId(), depositId);
+                }
+                free.put(depositId, free.get(depositId) - take);
+                used.add(depositId);
+            }
+            for (int i = next; i < needed; i++) {
+                unsourced.add(demand.unsourced().get(i).getId());
+            }
+            if (used.size() > 1) splitOrders++;
+        }
+        return new Plan(assignments, unsourced, splitOrders);
+    }
+
+    /**
+     * Reserves the planned places and saves the packages; a place taken meanwhile leaves its package unsourced.
+     */
+    private Map<Integer, Integer> save(Map<Integer, Integer> planned, List<Integer> unsourced) {
+        Map<Integer, Integer> assignments = new LinkedHashMap<>();
+        List<Packages> updated = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : planned.entrySet()) {
+            Packages packages = packageIRepository.get(entry.getKey());
+            if (packages == null || !depositInventory.reserve(entry.getKey(), entry.getValue())) {
+                unsourced.add(entry.getKey());
+                continue;
+            }
+            packages.setDepositId(entry.getValue());
+            updated.add(packages);
+            assignments.put(entry.getKey(), entry.getValue());
+        }
+
+        try {
+            packageIRepository.updateAll(updated);
+        } catch (RuntimeException e) {
+            assignments.keySet().forEach(depositInventory::cancelReservation);
+            throw e;
+        }
+        return assignments;
+    }
+
+    private double distance(Integer depositId, GeoPoint destination) {
+        if (destination == null) return 0;
+        return TravelCosts.roadDistanceKm(depositLocations.getPoint(depositId), destination);
+    }
+}
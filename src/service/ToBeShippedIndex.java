@@ -0,0 +1,242 @@
+package service;
+
+import model.Delivery;
+import model.Order;
+import model.OrderStatus;
+import repository.IRepository;
+import repository.RepositoryListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Index of the deliveries that contain at least one order with the status "to be shipped".
+ * It keeps the IDs of such orders per delivery, so reading the driver feed costs only the size of the result
+ * instead of a scan over all deliveries.
+ *
+ * <p>The index listens to the delivery repository and, when given one, to the order repository, so a status
+ * change is seen as soon as the order is saved, without saving its delivery again. A delivery written with
+ * its orders decides which orders belong to it; a delivery written without any, e.g. a row read back from a
+ * backend that does not store the orders of a delivery, only replaces the cached delivery and keeps the orders
+ * already known to belong to it.</p>
+ */
+public class ToBeShippedIndex {
+    private final IRepository<Delivery> deliveryIRepository;
+
+    /** The IDs of the "to be shipped" orders of every delivery that has at least one; guarded by this */
+    private final Map<Integer, Set<Integer>> toBeShippedOrders = new HashMap<>();
+
+    /** The delivery every known order belongs to; guarded by this */
+    private final Map<Integer, Integer> deliveryOfOrder = new HashMap<>();
+
+    /** The IDs of the known orders of every delivery, the inverse of {@link #deliveryOfOrder}; guarded by this */
+    private final Map<Integer, Set<Integer>> ordersOfDelivery = new HashMap<>();
+
+    /** The last written state of every delivery that has at least one "to be shipped" order, ordered by ID; guarded by this */
+    private final TreeMap<Integer, Delivery> deliveries = new TreeMap<>();
+
+    /**
+     * Builds the index from the current deliveries and registers it for later delivery writes.
+     *
+     * @param deliveryIRepository The repository to index.
+     */
+    public ToBeShippedIndex(IRepository<Delivery> deliveryIRepository) {
+        this(deliveryIRepository, null);
+    }
+
+    /**
+     * Builds the index from the current deliveries and orders and registers it for later writes to both.
+     *
+     * @param deliveryIRepository The repository to index.
+     * @param orderIRepository    The repository of the orders in the deliveries, or null to only follow delivery writes.
+     */
+    public ToBeShippedIndex(IRepository<Delivery> deliveryIRepository, IRepository<Order> orderIRepository) {
+        this.deliveryIRepository = deliveryIRepository;
+        deliveryIRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onCreate(Delivery delivery) {
+                indexDelivery(delivery);
+            }
+
+            @Override
+            public void onUpdate(Delivery delivery) {
+                indexDelivery(delivery);
+            }
+
+            @Override
+            public void onDelete(Integer deliveryId) {
+                removeDelivery(deliveryId);
+            }
+        });
+        for (Delivery delivery : deliveryIRepository.readAll()) {
+            indexDelivery(delivery);
+        }
+
+        if (orderIRepository == null) return;
+        orderIRepository.addListener(new RepositoryListener<>() {
+            @Override
+            public void onCreate(Order order) {
+                indexOrder(order);
+            }
+
+            @Override
+            public void onUpdate(Order order) {
+                indexOrder(order);
+            }
+
+            @Override
+            public void onDelete(Integer orderId) {
+                removeOrder(orderId);
+            }
+        });
+        for (Order order : orderIRepository.readAll()) {
+            indexOrder(order);
+        }
+    }
+
+    /**
+     * Returns the deliveries with at least one "to be shipped" order, ordered by ID.
+     *
+     * @return A new list with the indexed deliveries.
+     */
+    public synchronized List<Delivery> getDeliveries() {
+        return new ArrayList<>(deliveries.values());
+    }
+
+    /**
+     * Returns the number of "to be shipped" orders in a delivery.
+     *
+     * @param deliveryId The ID of the delivery.
+     * @return The counter of the delivery, 0 if it has none.
+     */
+    public synchronized int getToBeShippedCount(Integer deliveryId) {
+        Set<Integer> orderIds = toBeShippedOrders.get(deliveryId);
+        return orderIds == null ? 0 : orderIds.size();
+    }
+
+    private synchronized void indexDelivery(Delivery delivery) {
+        Integer deliveryId = delivery.getId();
+        if (delivery.getOrders().isEmpty()) {
+            // Mapped without its orders: keep what the order writes told us
+            if (deliveries.containsKey(deliveryId)) {
+                deliveries.put(deliveryId, delivery);
+            }
+            return;
+        }
+
+        Set<Integer> members = new HashSet<>();
+        Set<Integer> orderIds = new HashSet<>();
+        for (Order order : delivery.getOrders()) {
+            members.add(order.getId());
+            moveOrder(order.getId(), deliveryId);
+            if (order.getOrderStatus() == OrderStatus.TO_BE_SHIPPED) {
+                orderIds.add(order.getId());
+            }
+        }
+        Set<Integer> previousMembers = ordersOfDelivery.put(deliveryId, members);
+        if (previousMembers != null) {
+            for (Integer orderId : previousMembers) {
+                if (!members.contains(orderId) && deliveryId.equals(deliveryOfOrder.get(orderId))) {
+                    deliveryOfOrder.remove(orderId);
+                }
+            }
+        }
+
+        if (orderIds.isEmpty()) {
+            toBeShippedOrders.remove(deliveryId);
+            deliveries.remove(deliveryId);
+        } else {
+            toBeShippedOrders.put(deliveryId, orderIds);
+            deliveries.put(deliveryId, delivery);
+        }
+    }
+
+    private synchronized void removeDelivery(Integer deliveryId) {
+        toBeShippedOrders.remove(deliveryId);
+        deliveries.remove(deliveryId);
+        Set<Integer> members = ordersOfDelivery.remove(deliveryId);
+        if (members != null) {
+            for (Integer orderId : members) {
+                deliveryOfOrder.remove(orderId, deliveryId);
+            }
+        }
+    }
+
+    private void indexOrder(Order order) {
+        Integer deliveryId;
+        synchronized (this) {
+            deliveryId = markOrder(order);
+            if (deliveryId == null || deliveries.containsKey(deliveryId)) return;
+        }
+        // The delivery is read outside the lock, the delivery repository may hold its own lock while notifying us
+        Delivery delivery = deliveryIRepository.get(deliveryId);
+        synchronized (this) {
+            if (!toBeShippedOrders.containsKey(deliveryId) || deliveries.containsKey(deliveryId)) return;
+            if (delivery == null) {
+                toBeShippedOrders.remove(deliveryId);
+            } else {
+                deliveries.put(deliveryId, delivery);
+            }
+        }
+    }
+
+    /**
+     * Updates the "to be shipped" orders of the delivery of an order.
+     *
+     * @return the ID of the delivery if the order is "to be shipped", null otherwise.
+     */
+    private Integer markOrder(Order order) {
+        Integer orderId = order.getId();
+        // An order saved without its delivery ID stays in the delivery it is known to belong to
+        Integer deliveryId = order.getDeliveryId();
+        if (deliveryId != null) {
+            moveOrder(orderId, deliveryId);
+        } else {
+            deliveryId = deliveryOfOrder.get(orderId);
+            if (deliveryId == null) return null;
+        }
+
+        if (order.getOrderStatus() != OrderStatus.TO_BE_SHIPPED) {
+            forget(deliveryId, orderId);
+            return null;
+        }
+        toBeShippedOrders.computeIfAbsent(deliveryId, id -> new HashSet<>()).add(orderId);
+        return deliveryId;
+    }
+
+    private synchronized void removeOrder(Integer orderId) {
+        Integer deliveryId = deliveryOfOrder.remove(orderId);
+        if (deliveryId == null) return;
+        forget(deliveryId, orderId);
+        Set<Integer> members = ordersOfDelivery.get(deliveryId);
+        if (members != null) {
+            members.remove(orderId);
+        }
+    }
+
+    /** Records that an order belongs to a delivery, dropping it from the delivery it belonged to before. */
+    private void moveOrder(Integer orderId, Integer deliveryId) {
+        Integer previous = deliveryOfOrder.put(orderId, deliveryId);
+        if (previous != null && !previous.equals(deliveryId)) {
+            forget(previous, orderId);
+            Set<Integer> previousMembers = ordersOfDelivery.get(previous);
+            if (previousMembers != null) {
+                previousMembers.remove(orderId);
+            }
+        }
+        ordersOfDelivery.computeIfAbsent(deliveryId, id -> new HashSet<>()).add(orderId);
+    }
+
+    /** Drops an order from the "to be shipped" orders of a delivery, and the delivery from the index if it was the last one. */
+    private void forget(Integer deliveryId, Integer orderId) {
+        Set<Integer> orderIds = toBeShippedOrders.get(deliveryId);
+        if (orderIds == null || !orderIds.remove(orderId) || !orderIds.isEmpty()) return;
+        toBeShippedOrders.remove(deliveryId);
+        deliveries.remove(deliveryId);
+    }
+}
@@ -0,0 +1,192 @@
+package service;
+
+import helpers.DistanceMatrix;
+import helpers.Geocoder;
+import model.Customer;
+import model.Deposit;
+import model.GeoPoint;
+import model.HasID;
+import repository.IRepository;
+import repository.RepositoryListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Travel distances between deposits, customers and delivery person positions, cached in a memory-mapped
+ * {@link DistanceMatrix} as they are looked up. Deposits and customers are geocoded from their address and
+ * follow the repository writes; delivery person positions are reported with {@link #putDriver}.
+ * Nodes that no longer fit in the matrix are kept aside and their distances are computed on every lookup.
+ */
+public class TravelCosts implements AutoCloseable {
+    /** Roads are longer than the straight line between two points */
+    private static final double ROAD_FACTOR = 1.3;
+    private static final double AVERAGE_SPEED_KMH = 40;
+
+    /**
+     * The kinds of location nodes in the matrix.
+     */
+    public enum Kind { DEPOSIT, CUSTOMER, DRIVER }
+
+    /**
+     * A location node: an entity of a kind, by ID.
+     */
+    public record Node(Kind kind, Integer id) {
+        public static Node deposit(Integer depositId) {
+            return new Node(Kind.DEPOSIT, depositId);
+        }
+
+        public static Node customer(Integer customerId) {
+            return new Node(Kind.CUSTOMER, customerId);
+        }
+
+        public static Node driver(Integer deliveryPersonId) {
+            return new Node(Kind.DRIVER, deliveryPersonId);
+        }
+    }
+
+    private final Geocoder geocoder;
+    private final DistanceMatrix<Node> matrix = DistanceMatrix.temporary(TravelCosts::roadDistanceKm);
+    /** The positions of the nodes that did not fit in the matrix */
+    private final Map<Node, GeoPoint> overflow = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the current deposits and customers to the matrix and registers for later writes.
+     *
+     * @param depositIRepository  The deposits.
+     * @param customerIRepository The customers.
+     * @param geocoder            Resolves addresses to coordinates.
+     */
+    public TravelCosts(IRepository<Deposit> depositIRepository, IRepository<Customer> customerIRepository, Geocoder geocoder) {
+        this.geocoder = geocoder;
+
+        Map<Node, GeoPoint> nodes = new HashMap<>();
+        for (Deposit deposit : depositIRepository.readAll()) {
+            GeoPoint point = geocoder.geocode(deposit.getAddress());
+            if (point != null) nodes.put(Node.deposit(deposit.getId()), point);
+        }
+        for (Customer customer : customerIRepository.readAll()) {
+            GeoPoint point = geocoder.geocode(customer.getAddress());
+            if (point != null) nodes.put(Node.customer(customer.getId()), point);
+        }
+        for (Node rejected : matrix.putAll(nodes)) {
+            overflow.put(rejected, nodes.get(rejected));
+        }
+
+        depositIRepository.addListener(new NodeListener<>(Kind.DEPOSIT, Deposit::getAddress));
+        customerIRepository.addListener(new NodeListener<>(Kind.CUSTOMER, Customer::getAddress));
+    }
+
+    /**
+     * Adds or moves the node of a delivery person.
+     *
+     * @param deliveryPersonId The ID of the delivery person.
+     * @param position         The current position.
+     */
+    public void putDriver(Integer deliveryPersonId, GeoPoint position) {
+        put(Node.driver(deliveryPersonId), position);
+    }
+
+    /**
+     * @return The road distance between two nodes in kilometres, or NaN if either node is unknown.
+     */
+    public double distanceKm(Node from, Node to) {
+        if (!overflow.isEmpty() && (overflow.containsKey(from) || overflow.containsKey(to))) {
+            GeoPoint fromPoint = pointOf(from);
+            GeoPoint toPoint = pointOf(to);
+            return fromPoint == null || toPoint == null ? Double.NaN : roadDistanceKm(fromPoint, toPoint);
+        }
+        return matrix.get(from, to);
+    }
+
+    /**
+     * @return The travel time between two nodes in minutes, or NaN if either node is unknown.
+     */
+    public double travelMinutes(Node from, Node to) {
+        return distanceKm(from, to) / AVERAGE_SPEED_KMH * 60;
+    }
+
+    /**
+     * @return true if the node has a position.
+     */
+    public boolean contains(Node node) {
+        return matrix.contains(node) || overflow.containsKey(node);
+    }
+
+    /**
+     * Releases the matrix and deletes its file.
+     */
+    @Override
+    public void close() {
+        matrix.close();
+    }
+
+    private GeoPoint pointOf(Node node) {
+        GeoPoint point = overflow.get(node);
+        return point != null ? point : matrix.getPoint(node);
+    }
+
+    private void put(Node node, GeoPoint point) {
+        if (matrix.put(node, point)) {
+            overflow.remove(node);
+        } else {
+            overflow.put(node, point);
+        }
+    }
+
+    private void remove(Node node) {
+        matrix.remove(node);
+        overflow.remove(node);
+    }
+
+    /**
+     * Estimates the road distance between two points from their great-circle distance.
+     *
+     * @return The distance in kilometres.
+     */
+    public static double roadDistanceKm(GeoPoint from, GeoPoint to) {
+        return from.distanceKm(to) * ROAD_FACTOR;
+    }
+
+    /**
+     * Estimates the travel time between two points.
+     *
+     * @return The travel time in minutes.
+     */
+    public static double travelMinutes(GeoPoint from, GeoPoint to) {
+        return roadDistanceKm(from, to) / AVERAGE_SPEED_KMH * 60;
+    }
+
+    private class NodeListener<T extends HasID> implements RepositoryListener<T> {
+        private final Kind kind;
+        private final Function<T, String> addressOf;
+
+        private NodeListener(Kind kind, Function<T, String> addressOf) {
+            this.kind = kind;
+            this.addressOf = addressOf;
+        }
+
+        @Override
+        public void onCreate(T entity) {
+            onUpdate(entity);
+        }
+
+        @Override
+        public void onUpdate(T entity) {
+            Node node = new Node(kind, entity.getId());
+            GeoPoint point = geocoder.geocode(addressOf.apply(entity));
+            if (point == null) {
+                remove(node);
+            } else if (!point.equals(pointOf(node))) {
+                put(node, point);
+            }
+        }
+
+        @Override
+        public void onDelete(Integer id) {
+            remove(new Node(kind, id));
+        }
+    }
+}
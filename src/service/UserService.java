@@ -4,7 +4,9 @@ import exceptions.BusinessLogicException;
 import exceptions.DatabaseException;
 import exceptions.EntityNotFound;
 import model.*;
+import repository.Cascade;
 import repository.IRepository;
+import repository.Projection;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -18,6 +20,21 @@ public class UserService {
     private final IRepository<Employee> employeeIRepository;
     private final IRepository<Delivery_Person> deliveryPersonIRepository;
     private final IRepository<Department> departmentIRepository;
+    private final IRepository<Delivery> deliveryIRepository;
+    private final Cascade<Delivery_Person> deliveryPersonCascade;
+
+    private static final Projection<Customer, IdName> CUSTOMER_ID_NAME = new Projection<>(
+            "customerID, name",
+            rs -> new IdName(rs.getInt("customerID"), rs.getString("name")),
+            customer -> new IdName(customer.getId(), customer.getName()));
+    private static final Projection<Employee, IdName> EMPLOYEE_ID_NAME = new Projection<>(
+            "employeeID, name",
+            rs -> new IdName(rs.getInt("employeeID"), rs.getString("name")),
+            employee -> new IdName(employee.getId(), employee.getName()));
+    private static final Projection<Delivery_Person, IdName> DELIVERY_PERSON_ID_NAME = new Projection<>(
+            "deliveryPersonID, name",
+            rs -> new IdName(rs.getInt("deliveryPersonID"), rs.getString("name")),
+            deliveryPerson -> new IdName(deliveryPerson.getId(), deliveryPerson.getName()));
 
     /**
      * Constructor to initialize repositories.
@@ -26,12 +43,16 @@ public class UserService {
      * @param employeeIRepository Repository for Employee entities
      * @param deliveryPersonIRepository Repository for Delivery_Person entities
      * @param departmentIRepository Repository for Department entities
+     * @param deliveryIRepository Repository for Delivery entities
      */
-    public UserService(IRepository<Customer> customerIRepository, IRepository<Employee> employeeIRepository, IRepository<Delivery_Person> deliveryPersonIRepository, IRepository<Department> departmentIRepository) {
+    public UserService(IRepository<Customer> customerIRepository, IRepository<Employee> employeeIRepository, IRepository<Delivery_Person> deliveryPersonIRepository, IRepository<Department> departmentIRepository, IRepository<Delivery> deliveryIRepository) {
         this.customerIRepository = customerIRepository;
         this.employeeIRepository = employeeIRepository;
         this.deliveryPersonIRepository = deliveryPersonIRepository;
         this.departmentIRepository = departmentIRepository;
+        this.deliveryIRepository = deliveryIRepository;
+        this.deliveryPersonCascade = new Cascade<>(deliveryPersonIRepository)
+                .detaching(deliveryIRepository, "deliveryPersonID", Delivery::getDeliveryPeronID, Delivery::setDeliveryPeronID, null);
     }
 
     /**
@@ -63,7 +84,7 @@ public class UserService {
      */
     private Integer generateDepartmentId() {
         // Implement logic to generate a unique department ID
-        return departmentIRepository.readAll().size() + 1;
+        return departmentIRepository.count() + 1;
     }
     /**
      * Retrieves all customers from the repository.
@@ -74,6 +95,15 @@ public class UserService {
         return customerIRepository.readAll();
     }
 
+    /**
+     * Retrieves the ID and name of every customer, for selection menus.
+     *
+     * @return List of customer IDs and names
+     */
+    public List<IdName> getCustomerPickList() {
+        return customerIRepository.project(CUSTOMER_ID_NAME);
+    }
+
     /**
      * Deletes a customer from the repository.
      *
@@ -95,6 +125,15 @@ public class UserService {
         return employeeIRepository.readAll();
     }
 
+    /**
+     * Retrieves the ID and name of every employee, for selection menus.
+     *
+     * @return List of employee IDs and names
+     */
+    public List<IdName> getEmployeePickList() {
+        return employeeIRepository.project(EMPLOYEE_ID_NAME);
+    }
+
     /**
      * Removes an employee from the repository and their associated department.
      *
@@ -125,7 +164,17 @@ public class UserService {
     }
 
     /**
-     * Deletes a delivery person from the repository.
+     * Retrieves the ID and name of every delivery person, for selection menus.
+     *
+     * @return List of delivery person IDs and names
+     */
+    public List<IdName> getDeliveryPersonPickList() {
+        return deliveryPersonIRepository.project(DELIVERY_PERSON_ID_NAME);
+    }
+
+    /**
+     * Deletes a delivery person from the repository and releases their deliveries,
+     * so they can be picked up by another delivery person.
      *
      * @param deliveryPersonId ID of the delivery person to delete
      */
@@ -133,6 +182,6 @@ public class UserService {
         Delivery_Person deliveryPerson = deliveryPersonIRepository.get(deliveryPersonId);
         if (deliveryPerson == null) throw new EntityNotFound("No delivery person found with ID " + deliveryPersonId);
 
-        deliveryPersonIRepository.delete(deliveryPersonId);
+        deliveryPersonCascade.delete(deliveryPersonId);
     }
 }
@@ -1,22 +1,56 @@
 package tests;
 
 import controller.SellerController;
+import helpers.DistanceMatrix;
+import helpers.LookupTableGeocoder;
+import helpers.PingRingBuffer;
+import helpers.ShardedExecutor;
 import exceptions.BusinessLogicException;
 import exceptions.EntityNotFound;
 import exceptions.ValidationException;
 import model.*;
 import org.junit.jupiter.api.Test;
+import repository.Criteria;
 import repository.IRepository;
+import repository.InFileRepository;
 import repository.InMemoryRepo;
+import repository.Projection;
 import service.CustomerService;
 import service.DeliveryPersonService;
+import service.DepositInventory;
+import service.DispatchEngine;
+import service.DriverTelemetry;
+import service.EmployeeService;
+import service.LoadingPlanner;
+import service.LocalNotificationSender;
+import service.NotificationOutbox;
+import service.OpenDeliveryFeed;
+import service.QuoteEngine;
+import service.RegionShards;
 import service.SellerService;
-
+import service.SlaMonitor;
+import service.SlotBooking;
+import service.SourcingEngine;
+import service.ToBeShippedIndex;
+import service.TravelCosts;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -36,6 +70,7 @@ public class DatabaseTest {
     private CustomerService customerService = new CustomerService(customerIRepository, orderIRepository, deliveryIRepository, packageIRepository);
     private SellerService sellerService = new SellerService(storeIRepository, depositIRepository, packageIRepository, deliveryIRepository, customerIRepository, orderIRepository);
     private DeliveryPersonService deliveryPersonService = new DeliveryPersonService(deliveryIRepository, deliveryPersonIRepository, personalVehicleIRepository);
+    private EmployeeService employeeService = new EmployeeService(employeeIRepository, deliveryIRepository, departmentIRepository, orderIRepository);
 
     private SellerController sellerController = new SellerController(sellerService);
     @Test
@@ -282,6 +317,443 @@ public class DatabaseTest {
         assertNull(deletedPersonalVehicle);
     }
 
+    @Test
+    public void testDispatchOpenDeliveries(){
+        personalVehicleIRepository.create(new Personal_Vehicle(1, 10, 100, Transportation_Type.Ground));
+        personalVehicleIRepository.create(new Personal_Vehicle(2, 10, 50, Transportation_Type.Ground));
+        deliveryPersonService.enrollAsDriver(1, "Robert", "0712345678", "B");
+        deliveryPersonService.enrollAsDriver(2, "Alex", "0712345679", "B");
+        deliveryPersonService.assignPersonalVehicle(1, 1);
+        deliveryPersonService.assignPersonalVehicle(2, 2);
+
+        double[] weights = {60, 40, 30, 20, 200};
+        for (int i = 0; i < weights.length; i++) {
+            Order order = new Order(i + 1, 1, LocalDateTime.of(2024, 12, 12, 12, 0));
+            order.addPackage(new Packages(i + 1, weights[i], "1x1x1", 10));
+            Delivery delivery = new Delivery(i + 1);
+            delivery.addOrder(order);
+            deliveryIRepository.create(delivery);
+        }
+
+        Map<Integer, Integer> assignments = deliveryPersonService.dispatchOpenDeliveries();
+        assertEquals(4, assignments.size());
+        assertFalse(assignments.containsKey(5)); // heavier than any vehicle
+
+        double[] loads = new double[3];
+        assignments.forEach((deliveryId, deliveryPersonId) -> {
+            loads[deliveryPersonId] += weights[deliveryId - 1];
+            assertEquals(deliveryPersonId, deliveryIRepository.get(deliveryId).getDeliveryPeronID());
+        });
+        assertTrue(loads[1] <= 100);
+        assertTrue(loads[2] <= 50);
+        assertNull(deliveryIRepository.get(5).getDeliveryPeronID());
+
+        // With travel costs every delivery goes to the driver next to it, not only to the one with room
+        double[][] travelCosts = {{50, 1}, {1, 50}};
+        int[] assignment = new DispatchEngine().assign(new double[]{10, 10}, new double[2], new double[]{100, 100},
+                new double[]{100, 100}, new double[2], new double[2], travelCosts);
+        assertArrayEquals(new int[]{1, 0}, assignment);
+    }
+
+    @Test
+    public void testPlanLoading(){
+        personalVehicleIRepository.create(new Personal_Vehicle(1, 10, 100, Transportation_Type.Aerial));
+        deliveryPersonService.enrollAsDriver(1, "Robert", "0712345678", "B");
+        deliveryPersonService.assignPersonalVehicle(1, 1);
+
+        Order order = new Order(1, 1, LocalDateTime.of(2024, 12, 12, 12, 0));
+        order.addPackage(new Packages(1, 40, "10x10x10", 10)); // half the aerial cargo volume
+        order.addPackage(new Packages(2, 40, "10x10x10", 10));
+        order.addPackage(new Packages(3, 10, "1x2x3", 10));
+        order.addPackage(new Packages(4, 30, "2x2x2", 10));
+        Delivery delivery = new Delivery(1);
+        delivery.addOrder(order);
+        delivery.setDeliveryPeronID(1);
+        deliveryIRepository.create(delivery);
+
+        assertEquals(1000.0, order.getPackages().get(0).getVolume());
+
+        LoadingPlanner.Plan oneTrip = deliveryPersonService.planLoading(1);
+        assertFalse(oneTrip.fits());
+        // Packages 1 and 2 fill the cargo volume; package 4 is also over the weight capacity
+        assertEquals(List.of(4, 3), oneTrip.overflow().stream().map(Packages::getId).toList());
+
+        LoadingPlanner.Plan twoTrips = deliveryPersonService.planLoading(1, 2);
+        assertTrue(twoTrips.fits());
+        assertEquals(2, twoTrips.trips().size());
+    }
+
+    @Test
+    public void testDispatchFromFileRepositories() throws Exception {
+        Path deliveryFile = Files.createTempFile("deliveries", ".csv");
+        Path deliveryPersonFile = Files.createTempFile("delivery_persons", ".csv");
+        Path orderFile = Files.createTempFile("orders", ".csv");
+        Path packageFile = Files.createTempFile("packages", ".csv");
+        try {
+            // Lines written before the delivery person ID, verification and vehicle were stored
+            Files.writeString(deliveryPersonFile, "9,0700000000,Ion, Jr\n");
+            assertEquals("Str. Y, Cluj", Delivery.fromCsv("9,Str. Y, Cluj").getLocation());
+            assertNull(Delivery.fromCsv("9,Str. Y, Cluj").getDeliveryPeronID());
+            assertEquals("Ion, Jr", Delivery_Person.fromCsv("9,0700000000,Ion, Jr").getName());
+            assertFalse(Delivery_Person.fromCsv("9,0700000000,Ion, Jr").isVerified());
+
+            personalVehicleIRepository.create(new Personal_Vehicle(1, 10, 100, Transportation_Type.Ground));
+            DeliveryPersonService writer = new DeliveryPersonService(
+                    new InFileRepository<>(deliveryFile.toString(), Delivery::toCsv, Delivery::fromCsv),
+                    new InFileRepository<>(deliveryPersonFile.toString(), Delivery_Person::toCsv, Delivery_Person::fromCsv),
+                    personalVehicleIRepository);
+            writer.enrollAsDriver(1, "Robert", "0712345678", "B");
+            writer.assignPersonalVehicle(1, 1);
+
+            IRepository<Delivery> deliveries = new InFileRepository<>(deliveryFile.toString(), Delivery::toCsv, Delivery::fromCsv);
+            IRepository<Order> orders = new InFileRepository<>(orderFile.toString(), Order::toCsv, Order::fromCsv);
+            IRepository<Packages> packages = new InFileRepository<>(packageFile.toString(), Packages::toCsv, Packages::fromCsv);
+            double[] weights = {30, 200};
+            for (int i = 0; i < weights.length; i++) {
+                Delivery delivery = new Delivery(i + 1);
+                delivery.setLocation("Str. X, Cluj");
+                deliveries.create(delivery);
+                Order order = new Order(i + 1, 1, LocalDateTime.of(2024, 12, 12, 12, 0));
+                order.setDeliveryId(i + 1);
+                orders.create(order);
+                Packages packag = new Packages(i + 1, weights[i], "1x1x1", 10);
+                packag.setOrderID(i + 1);
+                packages.create(packag);
+            }
+
+            // Read back from the files only: the delivery objects hold no orders and the orders no packages
+            IRepository<Delivery_Person> deliveryPersons = new InFileRepository<>(deliveryPersonFile.toString(), Delivery_Person::toCsv, Delivery_Person::fromCsv);
+            Delivery_Person driver = deliveryPersons.get(1);
+            assertTrue(driver.isVerified());
+            assertEquals("B", driver.getLicense());
+            assertEquals(1, driver.getPersonalVehicleId());
+            DeliveryPersonService reader = new DeliveryPersonService(
+                    new InFileRepository<>(deliveryFile.toString(), Delivery::toCsv, Delivery::fromCsv),
+                    deliveryPersons, personalVehicleIRepository, new LookupTableGeocoder(), null, new DriverTelemetry(),
+                    new InFileRepository<>(orderFile.toString(), Order::toCsv, Order::fromCsv),
+                    new InFileRepository<>(packageFile.toString(), Packages::toCsv, Packages::fromCsv));
+            assertEquals(Map.of(1, 1), reader.dispatchOpenDeliveries()); // delivery 2 is heavier than the vehicle
+
+            Delivery assigned = new InFileRepository<>(deliveryFile.toString(), Delivery::toCsv, Delivery::fromCsv).get(1);
+            assertEquals(1, assigned.getDeliveryPeronID());
+            assertEquals("Str. X, Cluj", assigned.getLocation());
+            assertEquals(List.of(1), reader.planLoading(1).trips().get(0).stream().map(Packages::getId).toList());
+            assertEquals(List.of(1), reader.sequenceRoute(1).stream().map(Delivery::getId).toList());
+        } finally {
+            Files.deleteIfExists(deliveryFile);
+            Files.deleteIfExists(deliveryPersonFile);
+            Files.deleteIfExists(orderFile);
+            Files.deleteIfExists(packageFile);
+        }
+    }
+
+    @Test
+    public void testNearestDriversAndDeposits(){
+        LookupTableGeocoder geocoder = new LookupTableGeocoder();
+        geocoder.put("Cluj", new GeoPoint(46.7712, 23.6236));
+        geocoder.put("Floresti", new GeoPoint(46.7475, 23.4908));
+        geocoder.put("Zalau", new GeoPoint(47.1911, 23.0572));
+        geocoder.put("Sibiu", new GeoPoint(45.7983, 24.1256));
+        SellerService geoSellerService = new SellerService(storeIRepository, depositIRepository, packageIRepository, deliveryIRepository, customerIRepository, orderIRepository, geocoder);
+        DeliveryPersonService geoDeliveryPersonService = new DeliveryPersonService(deliveryIRepository, deliveryPersonIRepository, personalVehicleIRepository, geocoder);
+
+        depositIRepository.create(new Deposit(1, "Sibiu", "Empty", 1));
+        depositIRepository.create(new Deposit(2, "Floresti", "Empty", 1));
+        depositIRepository.create(new Deposit(3, "Zalau", "Empty", 1));
+        depositIRepository.create(new Deposit(4, "Unknown street", "Empty", 1));
+
+        assertEquals(List.of(2, 3), geoSellerService.findNearestDeposits("Cluj", 2).stream().map(Deposit::getId).toList());
+        assertEquals(List.of(2), geoSellerService.findDepositsWithinRadius("Cluj", 20).stream().map(Deposit::getId).toList());
+        assertThrows(EntityNotFound.class, () -> geoSellerService.findNearestDeposits("Unknown street", 1));
+
+        personalVehicleIRepository.create(new Personal_Vehicle(1, 10, 100, Transportation_Type.Ground));
+        geoDeliveryPersonService.enrollAsDriver(1, "Robert", "0712345678", "B");
+        geoDeliveryPersonService.enrollAsDriver(2, "Alex", "0712345679", "B");
+        geoDeliveryPersonService.enrollAsDriver(3, "Stefan", "0712345670", "B");
+        geoDeliveryPersonService.assignPersonalVehicle(1, 1);
+        geoDeliveryPersonService.assignPersonalVehicle(3, 1);
+        geoDeliveryPersonService.updateDriverPosition(1, "Sibiu");
+        geoDeliveryPersonService.updateDriverPosition(2, "Cluj"); // closest, but has no vehicle
+        geoDeliveryPersonService.updateDriverPosition(3, "Zalau");
+
+        assertEquals(List.of(3, 1), geoDeliveryPersonService.findNearestAvailableDrivers("Floresti", 5)
+                .stream().map(Delivery_Person::getId).toList());
+
+        // Availability follows the repository writes
+        Delivery_Person suspended = deliveryPersonIRepository.get(3);
+        suspended.setVerified(false);
+        deliveryPersonIRepository.update(suspended);
+        deliveryPersonIRepository.delete(1);
+        assertTrue(geoDeliveryPersonService.findNearestAvailableDrivers("Floresti", 5).isEmpty());
+    }
+
+    @Test
+    public void testSequenceRoute(){
+        LookupTableGeocoder geocoder = new LookupTableGeocoder();
+        geocoder.put("Cluj", new GeoPoint(46.7712, 23.6236));
+        geocoder.put("Floresti", new GeoPoint(46.7475, 23.4908));
+        geocoder.put("Zalau", new GeoPoint(47.1911, 23.0572));
+        geocoder.put("Sibiu", new GeoPoint(45.7983, 24.1256));
+        DeliveryPersonService geoDeliveryPersonService = new DeliveryPersonService(deliveryIRepository, deliveryPersonIRepository, personalVehicleIRepository, geocoder);
+        LocalDateTime departure = LocalDateTime.of(2024, 12, 12, 8, 0);
+
+        geoDeliveryPersonService.enrollAsDriver(1, "Robert", "0712345678", "B");
+        geoDeliveryPersonService.updateDriverPosition(1, "Cluj");
+        String[] locations = {"Sibiu", "Zalau", "Unknown street", "Floresti"};
+        for (int i = 0; i < locations.length; i++) {
+            Delivery delivery = new Delivery(i + 1);
+            delivery.setLocation(locations[i]);
+            delivery.setDeliveryPeronID(1);
+            delivery.addOrder(new Order(i + 1, 1, departure.plusDays(1)));
+            deliveryIRepository.create(delivery);
+        }
+
+        // Without tight due times the shortest route is taken; unknown locations come last
+        assertEquals(List.of(2, 4, 1, 3), geoDeliveryPersonService.sequenceRoute(1, departure)
+                .stream().map(Delivery::getId).toList());
+
+        // Sibiu can only be reached in time by going there first
+        Delivery sibiu = deliveryIRepository.get(1);
+        sibiu.getOrders().get(0).setDeliveryDateTime(departure.plusMinutes(230));
+        deliveryIRepository.update(sibiu);
+        assertEquals(List.of(1, 4, 2, 3), geoDeliveryPersonService.sequenceRoute(1, departure)
+                .stream().map(Delivery::getId).toList());
+    }
+
+    @Test
+    public void testDriverTelemetry() throws Exception {
+        Path historyFile = Files.createTempFile("driver_pings", ".bin");
+        Files.delete(historyFile);
+        try {
+            try (DriverTelemetry telemetry = new DriverTelemetry(historyFile)) {
+                // Every thread reports for its own delivery persons, so the last ping of each is known
+                List<Thread> producers = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    int thread = t;
+                    producers.add(new Thread(() -> {
+                        for (int i = 0; i < 10_000; i++) {
+                            int deliveryPersonId = thread * 25 + i % 25;
+                            while (!telemetry.ping(deliveryPersonId, 46 + i / 10_000.0, 23 + thread)) {
+                                Thread.onSpinWait();
+                            }
+                        }
+                    }));
+                }
+                for (Thread producer : producers) producer.start();
+                for (Thread producer : producers) producer.join();
+                telemetry.flush();
+
+                assertEquals(new GeoPoint(46 + 9_999 / 10_000.0, 23 + 3), telemetry.getLatestPosition(99));
+                assertEquals(new GeoPoint(46 + 9_975 / 10_000.0, 23), telemetry.getLatestPosition(0));
+                assertNull(telemetry.getLatestPosition(100));
+
+                // IDs outside the position arrays are refused before reaching the buffer
+                assertFalse(telemetry.ping(-1, 46, 23));
+                assertFalse(telemetry.ping(Integer.MAX_VALUE, 46, 23));
+                assertFalse(telemetry.ping(DriverTelemetry.MAX_DELIVERY_PERSON_ID + 1, 46, 23));
+                assertTrue(telemetry.ping(DriverTelemetry.MAX_DELIVERY_PERSON_ID, 46, 23));
+                telemetry.flush();
+                assertEquals(new GeoPoint(46, 23), telemetry.getLatestPosition(DriverTelemetry.MAX_DELIVERY_PERSON_ID));
+            }
+            // A ping the handler fails on is consumed and does not block the ones behind it
+            PingRingBuffer pings = new PingRingBuffer(4);
+            pings.offer(1, 46, 23, 1);
+            pings.offer(2, 46, 23, 2);
+            assertThrows(IllegalStateException.class, () -> pings.drain((id, latitude, longitude, time) -> {
+                throw new IllegalStateException("handler failed");
+            }, 4));
+            List<Integer> drainedIds = new ArrayList<>();
+            assertEquals(1, pings.drain((id, latitude, longitude, time) -> drainedIds.add(id), 4));
+            assertEquals(List.of(2), drainedIds);
+            List<DriverTelemetry.Ping> history = DriverTelemetry.readHistory(historyFile);
+            assertEquals(40_001, history.size());
+            assertEquals(10_000, history.stream().filter(ping -> ping.deliveryPersonId() < 25).count());
+        } finally {
+            Files.deleteIfExists(historyFile);
+        }
+
+        // Pings reach the spatial index of the delivery person service
+        LookupTableGeocoder geocoder = new LookupTableGeocoder();
+        geocoder.put("Cluj", new GeoPoint(46.7712, 23.6236));
+        DeliveryPersonService geoDeliveryPersonService = new DeliveryPersonService(deliveryIRepository, deliveryPersonIRepository, personalVehicleIRepository, geocoder);
+        personalVehicleIRepository.create(new Personal_Vehicle(1, 10, 100, Transportation_Type.Ground));
+        geoDeliveryPersonService.enrollAsDriver(1, "Robert", "0712345678", "B");
+        geoDeliveryPersonService.assignPersonalVehicle(1, 1);
+        assertTrue(geoDeliveryPersonService.reportPosition(1, 46.77, 23.62));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (geoDeliveryPersonService.getDriverPosition(1) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(new GeoPoint(46.77, 23.62), geoDeliveryPersonService.getDriverPosition(1));
+        assertEquals(List.of(1), geoDeliveryPersonService.findNearestAvailableDrivers("Cluj", 1).stream().map(Delivery_Person::getId).toList());
+    }
+
+    @Test
+    public void testTravelCostMatrix(){
+        LookupTableGeocoder geocoder = new LookupTableGeocoder();
+        geocoder.put("Cluj", new GeoPoint(46.7712, 23.6236));
+        geocoder.put("Zalau", new GeoPoint(47.1911, 23.0572));
+        depositIRepository.create(new Deposit(1, "Cluj", "Empty", 1));
+        customerIRepository.create(new Customer(1, "Robert", "Zalau", "123456789", "robert@mail.com"));
+        SellerService geoSellerService = new SellerService(storeIRepository, depositIRepository, packageIRepository, deliveryIRepository, customerIRepository, orderIRepository, geocoder);
+        DeliveryPersonService geoDeliveryPersonService = new DeliveryPersonService(deliveryIRepository, deliveryPersonIRepository, personalVehicleIRepository, geocoder, geoSellerService.getTravelCosts());
+        TravelCosts travelCosts = geoSellerService.getTravelCosts();
+
+        double expected = TravelCosts.travelMinutes(new GeoPoint(46.7712, 23.6236), new GeoPoint(47.1911, 23.0572));
+        assertEquals(expected, geoSellerService.getTravelMinutes(1, 1), 0.01);
+
+        // New nodes are added incrementally, including more than the initial capacity of the file
+        for (int id = 2; id <= 100; id++) {
+            customerIRepository.create(new Customer(id, "Customer " + id, id % 2 == 0 ? "Cluj" : "Zalau", "123456789", "c@mail.com"));
+        }
+        assertEquals(0.0, geoSellerService.getTravelMinutes(1, 100), 0.01);
+        assertEquals(expected, geoSellerService.getTravelMinutes(1, 99), 0.01);
+        assertEquals(expected, geoSellerService.getTravelMinutes(1, 1), 0.01);
+
+        geoDeliveryPersonService.enrollAsDriver(1, "Alex", "0712345678", "B");
+        geoDeliveryPersonService.updateDriverPosition(1, "Zalau");
+        assertEquals(0.0, travelCosts.distanceKm(TravelCosts.Node.driver(1), TravelCosts.Node.customer(1)), 0.01);
+
+        customerIRepository.delete(1);
+        assertThrows(EntityNotFound.class, () -> geoSellerService.getTravelMinutes(1, 1));
+        geoSellerService.close();
+    }
+
+    @Test
+    public void testDistanceMatrixFillsOnDemand() throws Exception {
+        Path file = Files.createTempFile("distance-matrix", ".bin");
+        AtomicInteger computed = new AtomicInteger();
+        try (DistanceMatrix<Integer> matrix = new DistanceMatrix<>(file, (from, to) -> {
+            computed.incrementAndGet();
+            return TravelCosts.roadDistanceKm(from, to);
+        }, 100)) {
+            GeoPoint cluj = new GeoPoint(46.7712, 23.6236);
+            GeoPoint zalau = new GeoPoint(47.1911, 23.0572);
+            for (int id = 0; id < 60; id++) {
+                assertTrue(matrix.put(id, id % 2 == 0 ? cluj : zalau));
+            }
+            assertEquals(0, computed.get());
+
+            double distance = TravelCosts.roadDistanceKm(cluj, zalau);
+            assertEquals(distance, matrix.get(0, 59), 0.01);
+            assertEquals(0.0, matrix.get(58, 0), 0.01);
+            assertEquals(2, computed.get());
+            assertEquals(distance, matrix.get(0, 59), 0.01);
+            assertEquals(0.0, matrix.get(58, 0), 0.01);
+            assertEquals(2, computed.get());
+
+            // Growing the file keeps the computed cells and leaves the new ones to compute
+            for (int id = 60; id < 100; id++) {
+                assertTrue(matrix.put(id, cluj));
+            }
+            assertEquals(distance, matrix.get(0, 59), 0.01);
+            assertEquals(0.0, matrix.get(58, 0), 0.01);
+            assertEquals(2, computed.get());
+            assertEquals(distance, matrix.get(99, 59), 0.01);
+            assertEquals(3, computed.get());
+
+            // A full matrix rejects new nodes instead of failing; a freed slot is cleared and reused
+            assertFalse(matrix.put(100, cluj));
+            assertTrue(Double.isNaN(matrix.get(100, 0)));
+            matrix.remove(59);
+            assertTrue(matrix.put(100, zalau));
+            assertEquals(0.0, matrix.get(100, 57), 0.01);
+            assertEquals(distance, matrix.get(100, 99), 0.01);
+
+            // Moving a node recomputes its costs
+            matrix.put(0, zalau);
+            assertEquals(0.0, matrix.get(0, 100), 0.01);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testQuoteOrders() throws SQLException {
+        LookupTableGeocoder geocoder = new LookupTableGeocoder();
+        GeoPoint cluj = new GeoPoint(46.7712, 23.6236);
+        GeoPoint zalau = new GeoPoint(47.1911, 23.0572);
+        geocoder.put("Cluj", cluj);
+        geocoder.put("Zalau", zalau);
+        SellerService quoteSellerService = new SellerService(storeIRepository, depositIRepository, packageIRepository, deliveryIRepository, customerIRepository, orderIRepository, geocoder, new QuoteEngine(personalVehicleIRepository));
+        personalVehicleIRepository.create(new Personal_Vehicle(1, 10, 100, Transportation_Type.Ground));
+        personalVehicleIRepository.create(new Personal_Vehicle(2, 7, 100, Transportation_Type.Ground));
+
+        depositIRepository.create(new Deposit(1, "Cluj", "Empty", 1));
+        customerIRepository.create(new Customer(1, "Robert", "Zalau", "123456789", "robert@mail.com"));
+        packageIRepository.create(new Packages(1, 11.1, "2x2x2", 100.2));
+        packageIRepository.create(new Packages(2, 2, "20x10x20", 50));
+        customerService.placeOrder(1, 1, LocalDateTime.of(2024, 12, 12, 12, 0), List.of(1, 2));
+
+        Map<Integer, List<QuoteEngine.Quote>> quotes = quoteSellerService.quoteOrders(List.of(1));
+        List<QuoteEngine.Quote> options = quotes.get(1);
+        assertEquals(3, options.size());
+
+        // 13.1 kg in the 14 kg band, distance rounded up to 5 km, plus the cheapest Ground vehicle fee
+        double distance = TravelCosts.roadDistanceKm(cluj, zalau);
+        double distanceBand = Math.ceil(distance / 5) * 5;
+        QuoteEngine.Quote ground = options.get(Transportation_Type.Ground.ordinal());
+        assertEquals(5 + 0.5 * 14 + 0.1 * distanceBand + 0.2 * 14 / 1000 * distanceBand + 7, ground.price(), 1e-9);
+        assertEquals(2 + distance / 60, ground.etaHours(), 1e-9);
+        // The packages take more space than an aerial vehicle has
+        assertFalse(options.get(Transportation_Type.Aerial.ordinal()).isAvailable());
+        assertTrue(options.get(Transportation_Type.Naval.ordinal()).isAvailable());
+
+        assertThrows(EntityNotFound.class, () -> quoteSellerService.quoteOrders(List.of(2)));
+    }
+
+    @Test
+    public void testConsolidateOpenOrders(){
+        LookupTableGeocoder geocoder = new LookupTableGeocoder();
+        geocoder.put("Cluj", new GeoPoint(46.7712, 23.6236));
+        geocoder.put("Cluj Centru", new GeoPoint(46.7700, 23.5900));
+        geocoder.put("Floresti", new GeoPoint(46.7475, 23.4908));
+        SellerService geoSellerService = new SellerService(storeIRepository, depositIRepository, packageIRepository, deliveryIRepository, customerIRepository, orderIRepository, geocoder);
+        LocalDateTime noon = LocalDateTime.of(2024, 12, 12, 12, 0);
+
+        String[] locations = {"Cluj", " cluj ", "Cluj Centru", "Cluj", "Cluj", "Floresti", "Unknown street", "Cluj"};
+        int[] minutes = {0, 30, 60, 90, 240, 0, 0, 0};
+        double[] weights = {10, 10, 10, 25, 1, 1, 1, 1};
+        for (int i = 0; i < locations.length; i++) {
+            Order order = new Order(i + 1, 1, noon.plusMinutes(minutes[i]));
+            order.setLocation(locations[i]);
+            order.addPackage(new Packages(i + 1, weights[i], "1x1x1", 1));
+            orderIRepository.create(order);
+        }
+        // Order 8 is already part of a delivery
+        Delivery existing = new Delivery(1);
+        existing.addOrder(orderIRepository.get(8));
+        deliveryIRepository.create(existing);
+
+        List<Delivery> deliveries = geoSellerService.consolidateOpenOrders(40, Transportation_Type.Ground);
+        assertEquals(List.of(List.of(1, 2, 3), List.of(4), List.of(5), List.of(6), List.of(7)),
+                deliveries.stream().map(delivery -> delivery.getOrders().stream().map(Order::getId).toList()).toList());
+        assertEquals(List.of(2, 3, 4, 5, 6), deliveries.stream().map(Delivery::getId).toList());
+        assertEquals(6, deliveryIRepository.readAll().size());
+        assertEquals(2, orderIRepository.get(3).getDeliveryId());
+        assertNull(orderIRepository.get(8).getDeliveryId());
+
+        assertTrue(geoSellerService.consolidateOpenOrders(40, Transportation_Type.Ground).isEmpty());
+
+        // The delivery of an order and the location of a delivery survive a round trip through their files
+        assertEquals(2, Order.fromCsv(orderIRepository.get(3).toCsv()).getDeliveryId());
+        assertNull(Order.fromCsv(orderIRepository.get(8).toCsv()).getDeliveryId());
+        assertEquals("Cluj", Delivery.fromCsv(deliveryIRepository.get(2).toCsv()).getLocation());
+
+        // Orders are not saved pointing at deliveries that were not stored
+        IRepository<Delivery> failingDeliveries = new InMemoryRepo<>() {
+            @Override
+            public void createAll(Collection<Delivery> deliveries) {
+            }
+        };
+        Order open = new Order(9, 1, noon);
+        open.setLocation("Cluj");
+        orderIRepository.create(open);
+        SellerService failingSellerService = new SellerService(storeIRepository, depositIRepository, packageIRepository, failingDeliveries, customerIRepository, orderIRepository, geocoder);
+        assertTrue(failingSellerService.consolidateOpenOrders(40, Transportation_Type.Ground).isEmpty());
+        assertNull(orderIRepository.get(9).getDeliveryId());
+    }
+
     @Test
     public void testPlaceOrder() throws SQLException {
         Integer customerId = 1;
@@ -307,6 +779,105 @@ public class DatabaseTest {
         assertNotNull(fetchedOrder);
     }
 
+    @Test
+    public void testInFileRepositoryQueries() throws Exception {
+        Path file = Files.createTempFile("packages", ".csv");
+        try {
+            // A blank line in the middle and trailing blank lines, as left by a text editor
+            Files.writeString(file, "1,1.5,1x1x1,10.00\n\n2,2.5,2x2x2,20.00\n3,3.5,1x1x1,30.00\n\n  \n");
+            IRepository<Packages> fileRepository = new InFileRepository<>(file.toString(), Packages::toCsv, Packages::fromCsv);
+
+            assertEquals(3, fileRepository.count());
+            assertEquals(3, fileRepository.readAll().size());
+            assertTrue(fileRepository.exists(2));
+            assertFalse(fileRepository.exists(4));
+            assertEquals(2, fileRepository.count(Criteria.eq("dimensions", Packages::getDimensions, "1x1x1")));
+            assertEquals(0, fileRepository.count(Criteria.eq("dimensions", Packages::getDimensions, "9x9x9")));
+
+            List<IdName> idsAndDimensions = fileRepository.project(new Projection<>(
+                    "packageID, dimensions",
+                    rs -> new IdName(rs.getInt("packageID"), rs.getString("dimensions")),
+                    packages -> new IdName(packages.getId(), packages.getDimensions())));
+            assertEquals(List.of(new IdName(1, "1x1x1"), new IdName(2, "2x2x2"), new IdName(3, "1x1x1")), idsAndDimensions);
+
+            fileRepository.create(new Packages(4, 4.5, "2x2x2", 40));
+            assertTrue(fileRepository.exists(4));
+            assertEquals(4, fileRepository.count());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testSlotBooking() throws Exception {
+        CustomerService slotCustomerService = new CustomerService(customerIRepository, orderIRepository, deliveryIRepository, packageIRepository,
+                SlotBooking.fleetCapacity(deliveryPersonIRepository, 2));
+        deliveryPersonService.enrollAsDriver(1, "Robert", "0712345678", "B");
+        customerIRepository.create(new Customer(1, "Robert", "Manastur", "123456789", "robert@mail.com"));
+        customerIRepository.create(new Customer(2, "Alex", "Zalau", "123456789", "alex@mail.com"));
+        LocalDateTime noon = LocalDateTime.of(2024, 12, 12, 12, 0);
+
+        slotCustomerService.placeOrder(1, 1, noon, List.of());
+        slotCustomerService.placeOrder(1, 2, noon.plusMinutes(30), List.of());
+        assertThrows(BusinessLogicException.class, () -> slotCustomerService.placeOrder(1, 3, noon.plusMinutes(59), List.of()));
+        assertNull(orderIRepository.get(3));
+        // The fleet is shared by all regions, so another region has no room left in the same hour
+        assertThrows(BusinessLogicException.class, () -> slotCustomerService.placeOrder(2, 3, noon, List.of()));
+        slotCustomerService.placeOrder(2, 3, noon.plusHours(1), List.of());
+        slotCustomerService.placeOrder(1, 4, noon.plusHours(1), List.of());
+
+        List<SlotBooking.AvailableSlot> slots = slotCustomerService.getAvailableSlots(1, noon);
+        assertEquals(7 * 24 - 2, slots.size());
+        assertEquals(new SlotBooking.AvailableSlot(noon.plusHours(2), 2), slots.get(0));
+
+        // Rescheduling into a full slot keeps the order where it was; removing an order frees its slot
+        assertThrows(BusinessLogicException.class, () -> slotCustomerService.scheduleDelivery(4, noon));
+        assertEquals(noon.plusHours(1), orderIRepository.get(4).getDeliveryDateTime());
+        slotCustomerService.removeOrder(1, 1);
+        slotCustomerService.scheduleDelivery(4, noon);
+        assertEquals(1, slotCustomerService.getAvailableSlots(1, noon.plusHours(1)).get(0).remaining());
+
+        // Locations differing only in case and blanks share their slots
+        SlotBooking regions = new SlotBooking(new InMemoryRepo<>(), region -> 1);
+        regions.reserve(1, "Cluj", noon);
+        assertThrows(BusinessLogicException.class, () -> regions.reserve(2, " cluj ", noon));
+        regions.reserve(2, "Zalau", noon);
+
+        // An order that could not be saved does not keep its slot
+        IRepository<Order> failingOrders = new InMemoryRepo<>() {
+            @Override
+            public void create(Order order) {
+                throw new IllegalStateException("write failed");
+            }
+        };
+        CustomerService failingService = new CustomerService(customerIRepository, failingOrders, deliveryIRepository, packageIRepository,
+                SlotBooking.fleetCapacity(deliveryPersonIRepository, 2));
+        assertThrows(IllegalStateException.class, () -> failingService.placeOrder(1, 5, noon, List.of()));
+        assertEquals(2, failingService.getAvailableSlots(1, noon).get(0).remaining());
+
+        // Concurrent bookings never exceed the capacity of a slot
+        SlotBooking slotBooking = new SlotBooking(new InMemoryRepo<>(), region -> 100);
+        List<Thread> threads = new ArrayList<>();
+        AtomicInteger accepted = new AtomicInteger();
+        for (int t = 0; t < 8; t++) {
+            int first = t * 1000;
+            threads.add(new Thread(() -> {
+                for (int orderId = first; orderId < first + 1000; orderId++) {
+                    try {
+                        slotBooking.reserve(orderId, "Cluj", noon);
+                        accepted.incrementAndGet();
+                    } catch (BusinessLogicException e) {
+                        // slot full
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+        assertEquals(100, accepted.get());
+        assertEquals(100, slotBooking.getBooked("Cluj", noon));
+    }
+
     @Test
     public void testFailedPlaceOrder(){
         //use an invalid customer id (negative, 0, or a customer id that does not exist)
@@ -350,6 +921,27 @@ public class DatabaseTest {
         sellerService.removeStore(storeId);
         Store refetchedStore = storeIRepository.get(storeId);
         assertNull(refetchedStore);
+        assertEquals(0, depositIRepository.get(1).getStoreID());
+        assertEquals(0, depositIRepository.get(2).getStoreID());
+    }
+
+    @Test
+    public void testDeleteCustomerCascadesOrders(){
+        Customer customer1 = new Customer(1, "Robert", "Manastur", "123456789", "robert@mail.com");
+        Customer customer2 = new Customer(2, "Alex", "Gheorgheni", "987654321", "alex@mail.com");
+        customerIRepository.create(customer1);
+        customerIRepository.create(customer2);
+
+        orderIRepository.create(new Order(1, 1, LocalDateTime.of(2024, 12, 12, 12, 0)));
+        orderIRepository.create(new Order(2, 1, LocalDateTime.of(2024, 12, 12, 12, 0)));
+        orderIRepository.create(new Order(3, 2, LocalDateTime.of(2024, 12, 12, 12, 0)));
+
+        customerService.deleteCustomer(1);
+
+        assertNull(customerIRepository.get(1));
+        assertNull(orderIRepository.get(1));
+        assertNull(orderIRepository.get(2));
+        assertNotNull(orderIRepository.get(3)); // orders of other customers are kept
     }
 
     @Test
@@ -497,6 +1089,144 @@ public class DatabaseTest {
         assertEquals("No deliveries with 'to be shipped' orders found", exception.getMessage());
     }
 
+    @Test
+    public void testToBeShippedIndexFollowsStatusChanges(){
+        Order order1 = new Order(1, 1, LocalDateTime.of(2024, 12, 12, 12, 0));
+        Order order2 = new Order(2, 1, LocalDateTime.of(2024, 12, 12, 12, 0));
+        order1.setStatus("processing");
+        order2.setStatus("processing");
+        order1.setLocation("Cluj");
+        order2.setLocation("Cluj");
+        orderIRepository.create(order1);
+        orderIRepository.create(order2);
+
+        sellerService.createDelivery(1, List.of(order1, order2), "Cluj");
+        assertThrows(BusinessLogicException.class, () -> deliveryPersonService.getDeliveriesWithToBeShippedOrders());
+
+        sellerService.updateOrderStatus(2, "to be shipped");
+        List<Delivery> deliveries = deliveryPersonService.getDeliveriesWithToBeShippedOrders();
+        assertEquals(1, deliveries.size());
+        assertEquals(1, deliveries.get(0).getDeliveryID());
+
+        sellerService.updateOrderStatus(2, "in transit");
+        assertThrows(BusinessLogicException.class, () -> deliveryPersonService.getDeliveriesWithToBeShippedOrders());
+
+        sellerService.updateOrderStatus(1, "to be shipped");
+        deliveryIRepository.delete(1);
+        assertThrows(BusinessLogicException.class, () -> deliveryPersonService.getDeliveriesWithToBeShippedOrders());
+
+        // An index following the orders sees a status saved on the order alone
+        ToBeShippedIndex index = new ToBeShippedIndex(deliveryIRepository, orderIRepository);
+        Order order3 = new Order(3, 1, LocalDateTime.of(2024, 12, 12, 12, 0));
+        order3.setStatus("processing");
+        orderIRepository.create(order3);
+        sellerService.createDelivery(2, List.of(order3), "Cluj");
+        assertEquals(0, index.getToBeShippedCount(2));
+
+        Order savedOrder3 = new Order(3, 1, LocalDateTime.of(2024, 12, 12, 12, 0));
+        savedOrder3.setDeliveryId(2);
+        savedOrder3.setStatus("to be shipped");
+        orderIRepository.update(savedOrder3);
+        assertEquals(1, index.getToBeShippedCount(2));
+        assertEquals(2, index.getDeliveries().get(0).getDeliveryID());
+
+        // A delivery written back without its orders, as the database maps it, is not evicted
+        deliveryIRepository.update(new Delivery(2));
+        assertEquals(1, index.getToBeShippedCount(2));
+        assertEquals(1, index.getDeliveries().size());
+
+        savedOrder3.setStatus("in transit");
+        orderIRepository.update(savedOrder3);
+        assertTrue(index.getDeliveries().isEmpty());
+    }
+
+    @Test
+    public void testDeliveriesDueFollowSchedule(){
+        Order order1 = new Order(1, 1, LocalDateTime.of(2024, 12, 12, 12, 10));
+        Order order2 = new Order(2, 1, LocalDateTime.of(2024, 12, 12, 13, 30));
+        Order order3 = new Order(3, 1, LocalDateTime.of(2024, 12, 12, 12, 40));
+        orderIRepository.create(order1);
+        orderIRepository.create(order2);
+        orderIRepository.create(order3);
+
+        sellerService.createDelivery(1, List.of(order1), "Cluj");
+        sellerService.createDelivery(2, List.of(order2), "Cluj");
+        sellerService.createDelivery(3, List.of(order3), "Cluj");
+
+        LocalDateTime noon = LocalDateTime.of(2024, 12, 12, 12, 0);
+        List<Delivery> due = employeeService.getDeliveriesDueBetween(noon, noon.plusHours(1));
+        assertEquals(List.of(1, 3), due.stream().map(Delivery::getDeliveryID).toList());
+
+        customerService.scheduleDelivery(2, LocalDateTime.of(2024, 12, 12, 12, 5));
+        assertEquals(List.of(2, 1, 3), employeeService.drainDueDeliveries(noon.plusHours(1))
+                .stream().map(Delivery::getDeliveryID).toList());
+        assertTrue(employeeService.drainDueDeliveries(noon.plusHours(2)).isEmpty());
+
+        customerService.scheduleDelivery(1, LocalDateTime.of(2024, 12, 12, 14, 0));
+        assertEquals(List.of(1), employeeService.drainDueDeliveries(noon.plusHours(3))
+                .stream().map(Delivery::getDeliveryID).toList());
+
+        // A delivery read back without its orders is scheduled from the orders saved with its ID
+        IRepository<Delivery> storedDeliveries = new InMemoryRepo<>();
+        storedDeliveries.create(new Delivery(4));
+        Order order4 = new Order(4, 1, noon.plusMinutes(20));
+        order4.setDeliveryId(4);
+        orderIRepository.create(order4);
+        EmployeeService restarted = new EmployeeService(employeeIRepository, storedDeliveries, departmentIRepository, orderIRepository);
+        assertEquals(List.of(4), restarted.getDeliveriesDueBetween(noon, noon.plusHours(1))
+                .stream().map(Delivery::getDeliveryID).toList());
+
+        // Writing it again without orders keeps it scheduled, and rescheduling the order moves it
+        storedDeliveries.update(new Delivery(4));
+        customerService.scheduleDelivery(4, noon.plusHours(5));
+        assertTrue(restarted.getDeliveriesDueBetween(noon, noon.plusHours(1)).isEmpty());
+        assertEquals(List.of(4), restarted.getDeliveriesDueBetween(noon.plusHours(5), noon.plusHours(6))
+                .stream().map(Delivery::getDeliveryID).toList());
+    }
+
+    @Test
+    public void testSlaBreaches(){
+        LocalDateTime morning = LocalDateTime.of(2024, 12, 12, 8, 0);
+        SlaMonitor slaMonitor = new SlaMonitor(orderIRepository, deliveryIRepository, morning);
+        int[] dueHours = {10, 12, 11};
+        Delivery delivery = new Delivery(1);
+        for (int i = 0; i < dueHours.length; i++) {
+            Order order = new Order(i + 1, 1, morning.withHour(dueHours[i]));
+            if (i < 2) {
+                order.setDeliveryId(delivery.getId());
+                delivery.addOrder(order);
+            }
+            orderIRepository.create(order);
+        }
+        deliveryIRepository.create(delivery);
+        assertEquals(4, slaMonitor.getPendingTimers());
+        assertTrue(slaMonitor.checkBreaches(morning.withHour(9)).isEmpty());
+
+        // Rescheduling moves the timers of the order and of its delivery
+        customerService.scheduleDelivery(1, morning.withHour(13));
+        assertEquals(List.of(new SlaMonitor.Breach(SlaMonitor.Kind.ORDER, 3, morning.withHour(11))),
+                slaMonitor.checkBreaches(morning.withHour(11).withMinute(30)));
+
+        // A delivered order no longer counts, for itself or its delivery
+        sellerService.updateOrderStatus(2, SlaMonitor.COMPLETED_STATUS);
+        assertTrue(slaMonitor.checkBreaches(morning.withHour(12).withMinute(30)).isEmpty());
+
+        assertEquals(List.of(new SlaMonitor.Breach(SlaMonitor.Kind.ORDER, 1, morning.withHour(13)),
+                        new SlaMonitor.Breach(SlaMonitor.Kind.DELIVERY, 1, morning.withHour(13))),
+                slaMonitor.checkBreaches(morning.withHour(14)));
+        assertEquals(0, slaMonitor.getPendingTimers());
+
+        // Breaches are reported once, even after unrelated changes of the order
+        Order late = orderIRepository.get(3);
+        late.setTotalCost(10);
+        orderIRepository.update(late);
+        assertTrue(slaMonitor.checkBreaches(morning.withHour(15)).isEmpty());
+        assertEquals(List.of(3, 1, 1), slaMonitor.getOpenBreaches().stream().map(SlaMonitor.Breach::id).toList());
+
+        sellerService.updateOrderStatus(3, SlaMonitor.COMPLETED_STATUS);
+        assertEquals(2, slaMonitor.getOpenBreaches().size());
+    }
+
     @Test
     public void testCalculateAndUpdateOrderCost(){
         Customer customer = new Customer(1, "Robert", "Manastur", "123456789", "robert@mail.com");
@@ -533,6 +1263,461 @@ public class DatabaseTest {
         assertEquals("No order found with ID " + orderId, exception.getMessage());
     }
 
+    @Test
+    public void testMoneyInMinorUnits() throws SQLException {
+        customerIRepository.create(new Customer(1, "Robert", "Manastur", "123456789", "robert@mail.com"));
+        List<Integer> packageIds = new ArrayList<>();
+        for (int id = 1; id <= 10; id++) {
+            packageIRepository.create(new Packages(id, 1.0, "1x1x1", 0.1));
+            packageIds.add(id);
+        }
+
+        // Ten costs of 0.1 add up to exactly 1
+        customerService.placeOrder(1, 1, LocalDateTime.of(2024, 12, 12, 12, 0), packageIds);
+        assertEquals(100, orderIRepository.get(1).getTotalCostMinor());
+        assertEquals(1.0, customerService.calculateOrderCost(1));
+        assertEquals(1.0, customerService.getCustomerSpend(1));
+
+        // Amounts are written from minor units and read back exactly, including older files in major units
+        assertEquals("1,1.0,1x1x1,0.10,,1", packageIRepository.get(1).toCsv());
+        assertEquals(20050, Packages.fromCsv("1,1.0,1x1x1,200.5").getCostMinor());
+        assertEquals(1200, Personal_Vehicle.fromCsv("1,12,100,Ground").getExtraFeeMinor());
+        assertEquals(100, Order.fromCsv(orderIRepository.get(1).toCsv()).getTotalCostMinor());
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals(-101, Money.parse("-1.005"));
+        assertEquals(1_000_000_000, Money.parse("1.0E7"));
+    }
+
+    @Test
+    public void testRunningAggregates() throws SQLException {
+        customerIRepository.create(new Customer(1, "Robert", "Manastur", "123456789", "robert@mail.com"));
+        packageIRepository.create(new Packages(1, 10.0, "4x4x4", 100.0));
+        packageIRepository.create(new Packages(2, 20.0, "2x8x4", 50.0));
+        packageIRepository.create(new Packages(3, 30.0, "2x3x5", 200.0));
+
+        customerService.placeOrder(1, 1, LocalDateTime.of(2024, 12, 12, 12, 0), List.of(1, 2));
+        customerService.placeOrder(1, 2, LocalDateTime.of(2024, 12, 12, 12, 0), List.of(3));
+        assertEquals(150.0, customerService.getOrderTotal(1));
+        assertEquals(350.0, customerService.getCustomerSpend(1));
+        assertEquals(2, customerService.getCustomerOrderCount(1));
+
+        // A package write moves the package total of its order; calculating the cost stores it on the order
+        Packages repriced = packageIRepository.get(2);
+        repriced.setCost(75.0);
+        packageIRepository.update(repriced);
+        assertEquals(150.0, customerService.getOrderTotal(1));
+        assertEquals(175.0, customerService.calculateOrderCost(1));
+        assertEquals(175.0, customerService.getOrderTotal(1));
+        assertEquals(375.0, customerService.getCustomerSpend(1));
+        assertTrue(customerService.verifyOrderAggregates());
+
+        orderIRepository.delete(1);
+        assertEquals(200.0, customerService.getCustomerSpend(1));
+        assertEquals(1, customerService.getCustomerOrderCount(1));
+        assertThrows(EntityNotFound.class, () -> customerService.getOrderTotal(1));
+        assertTrue(customerService.verifyOrderAggregates());
+
+        storeIRepository.create(new Store(1, "Emag", "Cluj", "0123456789"));
+        depositIRepository.create(new Deposit(1, "Cluj", "Empty", 1));
+        sellerService.storePackageInDeposit(1, 1);
+        sellerService.storePackageInDeposit(2, 1);
+        assertEquals(2, sellerService.getDepositPackageCount(1));
+        assertEquals(2, sellerService.getStorePackageCount(1));
+
+        sellerService.removePackage(1);
+        assertEquals(1, sellerService.getDepositPackageCount(1));
+        sellerService.removeStore(1);
+        assertEquals(0, sellerService.getStorePackageCount(1));
+        assertTrue(sellerService.verifyPackageCounts());
+    }
+
+    @Test
+    public void testDepositInventory() throws InterruptedException {
+        LookupTableGeocoder geocoder = new LookupTableGeocoder();
+        geocoder.put("Cluj", new GeoPoint(46.7712, 23.6236));
+        geocoder.put("Floresti", new GeoPoint(46.7475, 23.4908));
+        geocoder.put("Zalau", new GeoPoint(47.1911, 23.0572));
+        SellerService geoSellerService = new SellerService(storeIRepository, depositIRepository, packageIRepository, deliveryIRepository, customerIRepository, orderIRepository, geocoder);
+        storeIRepository.create(new Store(1, "Emag", "Cluj", "0123456789"));
+        geoSellerService.registerDeposit(1, 1, "Floresti");
+        geoSellerService.registerDeposit(2, 1, "Zalau");
+        assertEquals(DepositInventory.EMPTY, depositIRepository.get(1).getStatus());
+
+        int packageCount = DepositInventory.DEPOSIT_LIMIT + 200;
+        for (int id = 1; id <= packageCount; id++) {
+            packageIRepository.create(new Packages(id, 2.0, "1x2x3", 10.0));
+        }
+
+        // Concurrent intakes never overfill the deposit
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService intake = Executors.newFixedThreadPool(8);
+        for (int id = 1; id <= packageCount; id++) {
+            int packageId = id;
+            intake.execute(() -> {
+                try {
+                    geoSellerService.storePackageInDeposit(packageId, 1);
+                } catch (BusinessLogicException e) {
+                    rejected.incrementAndGet();
+                }
+            });
+        }
+        intake.shutdown();
+        assertTrue(intake.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(200, rejected.get());
+        assertEquals(DepositInventory.DEPOSIT_LIMIT, geoSellerService.getDepositPackageCount(1));
+        assertEquals(DepositInventory.DEPOSIT_LIMIT, geoSellerService.getStorePackageCount(1));
+        assertEquals(2.0 * DepositInventory.DEPOSIT_LIMIT, geoSellerService.getDepositWeight(1), 1e-6);
+        assertEquals(DepositInventory.FULL, depositIRepository.get(1).getStatus());
+        assertEquals(List.of(2), geoSellerService.findDepositsWithFreeCapacity("Cluj", 1, 1).stream().map(Deposit::getId).toList());
+
+        Integer storedId = packageIRepository.readAll().stream().filter(packages -> packages.getDepositId() != null).findFirst().orElseThrow().getId();
+        geoSellerService.releasePackageFromDeposit(storedId);
+        assertEquals(DepositInventory.NOT_FULL, depositIRepository.get(1).getStatus());
+        assertEquals(1, geoSellerService.getDepositFreeCapacity(1));
+        assertEquals(List.of(1), geoSellerService.findDepositsWithFreeCapacity("Cluj", 1, 1).stream().map(Deposit::getId).toList());
+        assertThrows(BusinessLogicException.class, () -> geoSellerService.releasePackageFromDeposit(storedId));
+
+        // Moving a package frees its place in the previous deposit
+        Integer movedId = packageIRepository.readAll().stream().filter(packages -> Integer.valueOf(1).equals(packages.getDepositId())).findFirst().orElseThrow().getId();
+        geoSellerService.storePackageInDeposit(movedId, 2);
+        assertEquals(DepositInventory.DEPOSIT_LIMIT - 2, geoSellerService.getDepositPackageCount(1));
+        assertEquals(DepositInventory.NOT_FULL, depositIRepository.get(2).getStatus());
+        assertTrue(geoSellerService.verifyPackageCounts());
+
+        // The deposit of a package survives a round trip through its file
+        assertEquals(2, Packages.fromCsv(packageIRepository.get(movedId).toCsv()).getDepositId());
+        assertNull(Packages.fromCsv(packageIRepository.get(storedId).toCsv()).getDepositId());
+
+        // A write that is silently dropped gives the reserved place back
+        IRepository<Packages> droppingPackages = new InMemoryRepo<>() {
+            @Override
+            public void update(Packages packages) {
+            }
+        };
+        droppingPackages.create(new Packages(1, 2.0, "1x2x3", 10.0));
+        SellerService droppingSellerService = new SellerService(storeIRepository, depositIRepository, droppingPackages, deliveryIRepository, customerIRepository, orderIRepository, geocoder);
+        assertThrows(BusinessLogicException.class, () -> droppingSellerService.storePackageInDeposit(1, 2));
+        assertEquals(0, droppingSellerService.getDepositPackageCount(2));
+        assertNull(droppingPackages.get(1).getDepositId());
+    }
+
+    @Test
+    public void testSourceRecentOrders() throws SQLException {
+        LookupTableGeocoder geocoder = new LookupTableGeocoder();
+        geocoder.put("Cluj", new GeoPoint(46.7712, 23.6236));
+        geocoder.put("Floresti", new GeoPoint(46.7475, 23.4908));
+        geocoder.put("Zalau", new GeoPoint(47.1911, 23.0572));
+        geocoder.put("Sibiu", new GeoPoint(45.7983, 24.1256));
+        SellerService geoSellerService = new SellerService(storeIRepository, depositIRepository, packageIRepository, deliveryIRepository, customerIRepository, orderIRepository, geocoder);
+        storeIRepository.create(new Store(1, "Emag", "Cluj", "0123456789"));
+        storeIRepository.create(new Store(2, "Altex", "Sibiu", "0123456789"));
+        geoSellerService.registerDeposit(1, 1, "Floresti");
+        geoSellerService.registerDeposit(2, 1, "Zalau");
+        geoSellerService.registerDeposit(3, 2, "Sibiu");
+        customerIRepository.create(new Customer(1, "Robert", "Cluj", "123456789", "robert@mail.com"));
+
+        // Deposits 1 and 2 of the first store have one free place left each
+        int fillerId = 1000;
+        for (int depositId = 1; depositId <= 2; depositId++) {
+            for (int i = 1; i < DepositInventory.DEPOSIT_LIMIT - 1; i++) {
+                Packages filler = new Packages(fillerId++, 1.0, "1x1x1", 1.0);
+                filler.setDepositId(depositId);
+                packageIRepository.create(filler);
+            }
+        }
+        for (int id : new int[]{1, 2, 10, 11, 12, 20, 21}) {
+            Packages packages = new Packages(id, 1.0, "1x1x1", 1.0);
+            if (id == 10) packages.setDepositId(1);
+            if (id == 20) packages.setDepositId(2);
+            packageIRepository.create(packages);
+        }
+        LocalDateTime delivery = LocalDateTime.of(2024, 12, 12, 12, 0);
+        customerService.placeOrder(1, 1, delivery, List.of(1, 2));
+        customerService.placeOrder(1, 2, delivery, List.of(10, 11, 12));
+        customerService.placeOrder(1, 3, delivery, List.of(20, 21));
+
+        SourcingEngine.Result result = geoSellerService.sourceRecentOrders(Duration.ofHours(1));
+
+        // Order 1 ships whole from the other store; order 2 stays with the store holding package 10 and is split
+        assertEquals(Map.of(1, 3, 2, 3, 11, 1, 12, 2), result.assignments());
+        assertEquals(1, result.splitOrders());
+        assertEquals(List.of(21), result.unsourced());
+        assertEquals(3, packageIRepository.get(1).getDepositId());
+        assertEquals(DepositInventory.FULL, depositIRepository.get(1).getStatus());
+        assertEquals(DepositInventory.NOT_FULL, depositIRepository.get(3).getStatus());
+        assertTrue(geoSellerService.verifyPackageCounts());
+
+        assertTrue(geoSellerService.sourceRecentOrders(Duration.ofHours(1)).assignments().isEmpty());
+
+        // The order date and the order of a package survive a round trip through their files
+        Order order = orderIRepository.get(1);
+        assertEquals(order.getOrderDate(), Order.fromCsv(order.toCsv()).getOrderDate());
+        Packages reloaded = Packages.fromCsv(packageIRepository.get(21).toCsv());
+        assertEquals(3, reloaded.getOrderID());
+        assertNull(reloaded.getDepositId());
+        assertEquals(1, Packages.fromCsv(packageIRepository.get(11).toCsv()).getDepositId());
+    }
+
+    @Test
+    public void testRegionShards() {
+        try (ShardedExecutor executor = new ShardedExecutor(4);
+             RegionShards shards = new RegionShards(executor, customerService, sellerService, customerIRepository, orderIRepository, deliveryIRepository, deliveryPersonIRepository)) {
+            assertTrue(executor.submit("Cluj", () -> executor.isOwner(" cluj") && executor.submit("Cluj", () -> true).join()).join());
+
+            // The tasks of one region run one at a time, so the counter needs no lock
+            int[] counter = new int[1];
+            List<CompletableFuture<Void>> increments = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                increments.add(executor.execute("Cluj", () -> counter[0]++));
+            }
+            CompletableFuture.allOf(increments.toArray(CompletableFuture[]::new)).join();
+            assertEquals(1000, counter[0]);
+
+            String[] regions = {"Cluj", "Sibiu", "Zalau", "Floresti"};
+            for (int i = 0; i < regions.length; i++) {
+                customerIRepository.create(new Customer(i + 1, "Customer " + i, regions[i], "123456789", "customer@mail.com"));
+            }
+            List<CompletableFuture<Void>> placed = new ArrayList<>();
+            for (int orderId = 1; orderId <= 40; orderId++) {
+                packageIRepository.create(new Packages(orderId, 1.0, "1x1x1", orderId));
+                placed.add(shards.placeOrder(orderId % regions.length + 1, orderId, LocalDateTime.of(2024, 12, 12, 12, 0), List.of(orderId)));
+            }
+            CompletableFuture.allOf(placed.toArray(CompletableFuture[]::new)).join();
+            assertEquals(40, orderIRepository.count());
+            assertEquals(820.0, orderIRepository.readAll().stream().mapToDouble(Order::getTotalCost).sum());
+
+            shards.updateOrderStatus(5, "in transit").join();
+            assertEquals("in transit", orderIRepository.get(5).getStatus());
+
+            Delivery delivery = new Delivery(1);
+            delivery.setLocation("Sibiu");
+            delivery.addOrder(orderIRepository.get(5));
+            deliveryIRepository.create(delivery);
+            deliveryPersonIRepository.create(new Delivery_Person(1, "123456789", "Robert"));
+            shards.assignDelivery(1, 1).join();
+            assertEquals(1, deliveryIRepository.get(1).getDeliveryPeronID());
+            assertEquals(List.of(1), deliveryPersonIRepository.get(1).getDeliveries().stream().map(Delivery::getId).toList());
+
+            CompletionException missing = assertThrows(CompletionException.class, () -> shards.assignDelivery(2, 1).join());
+            assertInstanceOf(EntityNotFound.class, missing.getCause());
+
+            // A delivery is assigned once; the later assignment is taken back from its delivery person
+            deliveryPersonIRepository.create(new Delivery_Person(3, "123456789", "Alex"));
+            CompletionException taken = assertThrows(CompletionException.class, () -> shards.assignDelivery(3, 1).join());
+            assertInstanceOf(BusinessLogicException.class, taken.getCause());
+            assertEquals(1, deliveryIRepository.get(1).getDeliveryPeronID());
+            assertTrue(deliveryPersonIRepository.get(3).getDeliveries().isEmpty());
+            assertThrows(CompletionException.class, () -> shards.updateOrderStatus(99, "in transit").join());
+        }
+    }
+
+    @Test
+    public void testOpenDeliveryFeed() {
+        class Recorder implements Flow.Subscriber<OpenDeliveryFeed.Event> {
+            final List<String> events = new ArrayList<>();
+            Flow.Subscription subscription;
+
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+            }
+
+            public void onNext(OpenDeliveryFeed.Event event) {
+                events.add(event.kind() + (event.deliveryId() == null ? "" : " " + event.deliveryId()));
+            }
+
+            public void onError(Throwable throwable) {
+            }
+
+            public void onComplete() {
+            }
+
+            List<String> take() {
+                List<String> taken = new ArrayList<>(events);
+                events.clear();
+                return taken;
+            }
+        }
+
+        String[] locations = {"Cluj", "Sibiu", "Cluj"};
+        for (int id = 1; id <= locations.length; id++) {
+            Order order = new Order(id, 1, LocalDateTime.of(2024, 12, 12, 12, 0));
+            order.setStatus(id < 3 ? "to be shipped" : "processing");
+            order.setDeliveryId(id);
+            orderIRepository.create(order);
+            Delivery delivery = new Delivery(id);
+            delivery.setLocation(locations[id - 1]);
+            delivery.addOrder(order);
+            deliveryIRepository.create(delivery);
+        }
+        deliveryPersonIRepository.create(new Delivery_Person(1, "123456789", "Robert"));
+        OpenDeliveryFeed feed = new OpenDeliveryFeed(deliveryIRepository, Runnable::run, 2);
+
+        Recorder cluj = new Recorder();
+        feed.subscribe(cluj, new OpenDeliveryFeed.Interest(" cluj", null));
+        cluj.subscription.request(Long.MAX_VALUE);
+        assertEquals(List.of("RESET", "ADDED 1"), cluj.take());
+
+        Recorder all = new Recorder();
+        feed.subscribe(all);
+        all.subscription.request(3);
+        assertEquals(List.of("RESET", "ADDED 1", "ADDED 2"), all.take());
+
+        // Claiming and shipping only reach the subscribers of the region
+        deliveryPersonService.pickDeliveryToPerson(1, 1);
+        sellerService.updateOrderStatus(3, "to be shipped");
+        assertEquals(List.of("REMOVED 1", "ADDED 3"), cluj.take());
+
+        // Without demand, events of one delivery coalesce, and falling behind the buffer resets the subscriber
+        all.subscription.request(1);
+        assertEquals(List.of("REMOVED 1"), all.take());
+        Delivery extra = new Delivery(4);
+        extra.setLocation("Zalau");
+        extra.addOrder(orderIRepository.get(2));
+        deliveryIRepository.create(extra);
+        deliveryIRepository.delete(4);
+        all.subscription.request(1);
+        assertEquals(List.of("ADDED 3"), all.take());
+        all.subscription.request(1);
+        assertEquals(List.of("REMOVED 4"), all.take());
+
+        deliveryIRepository.delete(2);
+        deliveryIRepository.create(extra);
+        sellerService.updateOrderStatus(3, "in transit");
+        all.subscription.request(10);
+        assertEquals(List.of("RESET", "ADDED 4"), all.take());
+        assertEquals(List.of(4), feed.getOpenDeliveries().stream().map(Delivery::getId).toList());
+
+        assertEquals(2, feed.getSubscriberCount());
+        cluj.subscription.cancel();
+        assertEquals(1, feed.getSubscriberCount());
+        assertThrows(EntityNotFound.class, () -> deliveryPersonService.subscribeToOpenDeliveries(9, "Cluj", new Recorder()));
+    }
+
+    @Test
+    public void testNotificationOutbox() throws Exception {
+        for (int id = 1; id <= 2; id++) {
+            orderIRepository.create(new Order(id, id, LocalDateTime.of(2024, 12, 12, 12, 0)));
+        }
+        Delivery delivery = new Delivery(1);
+        delivery.addOrder(orderIRepository.get(1));
+        delivery.addOrder(orderIRepository.get(2));
+        deliveryIRepository.create(delivery);
+        orderIRepository.get(1).setDeliveryId(1);
+        orderIRepository.get(2).setDeliveryId(1);
+        deliveryPersonIRepository.create(new Delivery_Person(1, "123456789", "Robert"));
+
+        Path outboxFile = Files.createTempFile("notifications", ".outbox");
+        Files.delete(outboxFile);
+        try {
+            NotificationOutbox failing = new NotificationOutbox(orderIRepository, deliveryIRepository, (customerId, notifications) -> {
+                throw new IllegalStateException("Sender unavailable");
+            }, outboxFile);
+
+            // Every change is recorded by the service call itself; a rejecting sender leaves it queued
+            sellerService.updateOrderStatus(1, "processing");
+            sellerService.updateOrderStatus(1, "to be shipped");
+            customerService.scheduleDelivery(2, LocalDateTime.of(2024, 12, 14, 12, 0));
+            deliveryPersonService.pickDeliveryToPerson(1, 1);
+            assertEquals(5, failing.getPendingCount());
+            assertEquals(0, failing.dispatchPending());
+            failing.close();
+
+            // A new outbox over the same file delivers the records past the acknowledgement, coalesced per customer
+            LocalNotificationSender sender = new LocalNotificationSender();
+            NotificationOutbox outbox = new NotificationOutbox(orderIRepository, deliveryIRepository, sender, outboxFile);
+            assertEquals(5, outbox.getPendingCount());
+            assertEquals(5, outbox.dispatchPending());
+            assertEquals(2, sender.getSendCount());
+            assertEquals(List.of("Order 1 is now to be shipped", "Order 1 was picked up by delivery person 1"),
+                    sender.getInbox(1).stream().map(NotificationOutbox.Notification::message).toList());
+            assertEquals(List.of(NotificationOutbox.Kind.SCHEDULE, NotificationOutbox.Kind.ASSIGNMENT),
+                    sender.getInbox(2).stream().map(NotificationOutbox.Notification::kind).toList());
+            assertEquals(0, outbox.getPendingCount());
+            assertEquals(0, Files.size(outboxFile));
+
+            // Saving without a change notifies no one, and closing delivers what is left
+            sellerService.updateOrderStatus(2, "in transit");
+            sellerService.updateOrderStatus(2, "in transit");
+            outbox.close();
+            assertEquals("Order 2 is now in transit", sender.getInbox(2).get(2).message());
+            assertEquals(3, sender.getInbox(2).size());
+            NotificationOutbox reopened = new NotificationOutbox(orderIRepository, deliveryIRepository, sender, outboxFile);
+            assertEquals(0, reopened.getPendingCount());
+            reopened.close();
+        } finally {
+            Files.deleteIfExists(outboxFile);
+            Files.deleteIfExists(outboxFile.resolveSibling(outboxFile.getFileName() + ".ack"));
+        }
+    }
+
+    @Test
+    public void testOrderStatusLifecycle() {
+        String[] statuses = {"processing", "to be shipped", "In Transit ", "to be shipped", "processing"};
+        for (int id = 1; id <= statuses.length; id++) {
+            Order order = new Order(id, 1, LocalDateTime.of(2024, 12, 12, 12, 0));
+            order.setStatus(statuses[id - 1]);
+            orderIRepository.create(order);
+        }
+        orderIRepository.create(new Order(6, 1, LocalDateTime.of(2024, 12, 12, 12, 0)));
+        assertEquals("placed", orderIRepository.get(6).getStatus());
+        assertEquals(OrderStatus.IN_TRANSIT, orderIRepository.get(3).getOrderStatus());
+
+        // Unions of statuses are read from the index and follow every write
+        assertEquals(List.of(1, 2, 4, 5), sellerService.getOrdersInStatus(OrderStatus.PROCESSING, OrderStatus.TO_BE_SHIPPED)
+                .stream().map(Order::getId).toList());
+        sellerService.updateOrderStatus(1, OrderStatus.DELIVERED);
+        sellerService.updateOrderStatus(6, "in hub");
+        orderIRepository.delete(5);
+        assertEquals(List.of(2, 4), sellerService.getOrdersInStatus(OrderStatus.PROCESSING, OrderStatus.TO_BE_SHIPPED)
+                .stream().map(Order::getId).toList());
+        assertEquals(1, sellerService.countOrdersInStatus(OrderStatus.IN_HUB));
+        assertEquals(0, sellerService.countOrdersInStatus(OrderStatus.PROCESSING));
+
+        // Orders only move forward, and a delivered order is final
+        assertThrows(BusinessLogicException.class, () -> sellerService.updateOrderStatus(3, "to be shipped"));
+        assertThrows(BusinessLogicException.class, () -> sellerService.updateOrderStatus(1, OrderStatus.IN_TRANSIT));
+        assertThrows(ValidationException.class, () -> sellerService.updateOrderStatus(2, "lost"));
+        assertEquals(OrderStatus.IN_TRANSIT, orderIRepository.get(3).getOrderStatus());
+
+        // The status is stored as its ordinal
+        Order stored = Order.fromCsv(orderIRepository.get(6).toCsv());
+        assertEquals(OrderStatus.IN_HUB, stored.getOrderStatus());
+        assertTrue(orderIRepository.get(6).getValues().contains(", " + OrderStatus.IN_HUB.ordinal() + ", "));
+
+        // Values written before, holding the label, are still read
+        assertEquals(OrderStatus.TO_BE_SHIPPED, OrderStatus.fromStored(String.valueOf(OrderStatus.TO_BE_SHIPPED.ordinal())));
+        assertEquals(OrderStatus.TO_BE_SHIPPED, OrderStatus.fromStored(" To Be Shipped"));
+        assertThrows(IllegalArgumentException.class, () -> OrderStatus.fromStored("99"));
+        // Orders of the baseline had no status, stored as NULL or "null", or free text; they start the lifecycle again
+        assertEquals(OrderStatus.PLACED, OrderStatus.fromStored(null));
+        assertEquals(OrderStatus.PLACED, OrderStatus.fromStored("null"));
+        assertEquals(OrderStatus.PLACED, OrderStatus.fromStored(" "));
+        assertEquals(OrderStatus.PLACED, OrderStatus.fromStored("Pending"));
+        Order baseline = Order.fromCsv("7,1,2024-12-01T10:00,2024-12-12 12:00:00,1.00,Str. X, Cluj");
+        assertEquals(OrderStatus.PLACED, baseline.getOrderStatus());
+        assertEquals("Str. X, Cluj", baseline.getLocation());
+        assertNull(baseline.getDeliveryId());
+
+        // The location stays the last field, so it may contain commas
+        Order withComma = Order.fromCsv(orderIRepository.get(3).toCsv());
+        withComma.setLocation("Str. X, 12, Cluj");
+        withComma.setDeliveryId(4);
+        Order reread = Order.fromCsv(withComma.toCsv());
+        assertEquals("Str. X, 12, Cluj", reread.getLocation());
+        assertEquals(OrderStatus.IN_TRANSIT, reread.getOrderStatus());
+        assertEquals(4, reread.getDeliveryId());
+
+        // The setters only move forward; decoding restores any stored status
+        assertThrows(BusinessLogicException.class, () -> reread.setOrderStatus(OrderStatus.PLACED));
+        assertThrows(BusinessLogicException.class, () -> orderIRepository.get(6).setStatus("processing"));
+        Order delivered = new Order(8, 1, LocalDateTime.of(2024, 12, 12, 12, 0));
+        delivered.setOrderStatus(OrderStatus.DELIVERED);
+        assertThrows(BusinessLogicException.class, () -> delivered.setOrderStatus(OrderStatus.PLACED));
+        delivered.restoreOrderStatus(OrderStatus.PLACED);
+        assertEquals(OrderStatus.PLACED, delivered.getOrderStatus());
+    }
+
     @Test
     public void testFilterDeliveriesByLocation(){
         Customer customer1 = new Customer(1 ,"Robert", "Manastur", "123456789", "robert@mail.com");
@@ -584,6 +1769,62 @@ public class DatabaseTest {
         assertEquals(expectedOrdersForCluj, actualOrdersForCluj);
     }
 
+    @Test
+    public void testDictionaryEncodedStrings() {
+        String[] locations = {"Cluj", "CLUJ ", "cluj", "Sibiu", null};
+        for (int id = 1; id <= locations.length; id++) {
+            Order order = Order.fromCsv(id + ",1,2024-12-01T10:00,2024-12-12 12:00:00,1.00," + locations[id - 1]);
+            if (locations[id - 1] == null) order.setLocation(null);
+            orderIRepository.create(order);
+        }
+
+        // Decoded values share one instance and equal values share one code
+        Order first = Order.fromCsv("9,1,2024-12-01T10:00,2024-12-12 12:00:00,1.00,Cluj");
+        assertSame(orderIRepository.get(1).getLocation(), first.getLocation());
+        assertEquals(orderIRepository.get(1).getLocationCode(), first.getLocationCode());
+        assertNotEquals(orderIRepository.get(1).getLocationCode(), orderIRepository.get(3).getLocationCode());
+        assertEquals("cluj", StringDictionary.SHARED.decode(StringDictionary.SHARED.foldedCode(orderIRepository.get(1).getLocationCode())));
+        assertNull(orderIRepository.get(5).getLocation());
+
+        // The location filter compares codes ignoring case, but not surrounding blanks
+        assertEquals(List.of(1, 3), sellerService.filterDeliveriesByLocation("cLUJ").stream().map(Order::getId).toList());
+        assertEquals(List.of(2), sellerService.filterDeliveriesByLocation("Cluj ").stream().map(Order::getId).toList());
+        assertTrue(sellerService.filterDeliveriesByLocation("Nowhere seen before").isEmpty());
+        assertEquals(StringDictionary.ABSENT, StringDictionary.SHARED.lookupIgnoreCase("Nowhere seen before"));
+
+        Deposit deposit = Deposit.fromCsv("1,1,Sibiu,Full,");
+        assertEquals(StringDictionary.SHARED.encode("Full"), deposit.getStatusCode());
+        assertEquals("Full", deposit.getStatus());
+        Employee employee = new Employee(1, 1, "Alex", "987654321", "B");
+        assertEquals("B", StringDictionary.SHARED.decode(employee.getLicenseCode()));
+    }
+
+    @Test
+    public void testTopOrdersAndEarliestDeliveries(){
+        Order order1 = new Order(1, 1, LocalDateTime.of(2024, 12, 14, 12, 0));
+        Order order2 = new Order(2, 1, LocalDateTime.of(2024, 12, 12, 12, 0));
+        Order order3 = new Order(3, 2, LocalDateTime.of(2024, 12, 13, 12, 0));
+        order1.setCost(50.0);
+        order2.setCost(300.0);
+        order3.setCost(120.0);
+        orderIRepository.create(order1);
+        orderIRepository.create(order2);
+        orderIRepository.create(order3);
+
+        List<Order> topOrders = customerService.getTopOrdersByPrice(2);
+        assertEquals(List.of(order2, order3), topOrders);
+
+        Delivery delivery1 = new Delivery(1);
+        Delivery delivery2 = new Delivery(2);
+        Delivery delivery3 = new Delivery(3); // no orders, ranks last
+        delivery1.addOrder(order1);
+        delivery1.addOrder(order3);
+        delivery2.addOrder(order2);
+
+        List<Delivery> earliest = employeeService.getEarliestDeliveries(List.of(delivery3, delivery1, delivery2), 2);
+        assertEquals(List.of(delivery2, delivery1), earliest);
+    }
+
     /*@Test
     public void testFailedFilterDeliveriesByLocation(){
         Customer customer1 = new Customer(1 ,"Robert", "Manastur", "123456789", "robert@mail.com");